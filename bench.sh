@@ -0,0 +1,4 @@
+#!/bin/bash
+echo "📊 MODO BENCHMARK (JMH)"
+# Uso: ./bench.sh [filtro de benchmarks] [opciones de JMH], por ejemplo ./bench.sh TableFormatter -f 1
+mvn -Pjmh test-compile exec:exec@jmh -Djmh.args="$*"
@@ -0,0 +1,3 @@
+#!/bin/bash
+echo "⏱ MODO PERFIL (JFR)"
+MAVEN_OPTS="$MAVEN_OPTS -XX:StartFlightRecording:settings=default,crudapp.jfc,filename=crudapp.jfr,dumponexit=true" mvn exec:java
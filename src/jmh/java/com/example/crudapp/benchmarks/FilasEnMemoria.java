@@ -0,0 +1,96 @@
+package com.example.crudapp.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Conexión en memoria para los benchmarks
+ *
+ * Toda consulta devuelve las mismas filas, leídas por nombre de columna con
+ * un mapa como hace el driver de PostgreSQL. Los setters de parámetros,
+ * commit, rollback y close no hacen nada. Al ser un proxy dinámico cada
+ * llamada agrega un costo fijo (y un arreglo de argumentos) que es igual para
+ * cualquier versión del código medido, así que no afecta las comparaciones.
+ *
+ */
+final class FilasEnMemoria {
+
+    private final Map<String, Integer> columnas = new HashMap<>();
+    private final Object[][] filas;
+
+    /**
+     * @param nombres nombres de las columnas, en el orden de cada fila
+     * @param filas   valores de cada fila (fechas como java.sql.Date)
+     */
+    FilasEnMemoria(String[] nombres, Object[][] filas) {
+        for (int i = 0; i < nombres.length; i++) {
+            columnas.put(nombres[i].toLowerCase(Locale.ROOT), i);
+        }
+        this.filas = filas;
+    }
+
+    /**
+     * @return conexión cuyas consultas recorren estas filas
+     */
+    Connection conexion() {
+        PreparedStatement statement = proxy(PreparedStatement.class, (p, metodo, args) -> switch (metodo.getName()) {
+            case "executeQuery" -> new Cursor().resultSet();
+            case "executeUpdate" -> 0;
+            case "execute", "isClosed" -> false;
+            case "hashCode" -> System.identityHashCode(p);
+            case "equals" -> p == args[0];
+            default -> null;
+        });
+        return proxy(Connection.class, (p, metodo, args) -> switch (metodo.getName()) {
+            case "prepareStatement", "createStatement" -> statement;
+            case "isClosed" -> false;
+            case "getAutoCommit" -> false;
+            case "hashCode" -> System.identityHashCode(p);
+            case "equals" -> p == args[0];
+            default -> null;
+        });
+    }
+
+    /**
+     * Posición de un ResultSet sobre las filas compartidas
+     */
+    private final class Cursor {
+        private int fila = -1;
+        private boolean nulo;
+
+        ResultSet resultSet() {
+            return proxy(ResultSet.class, (p, metodo, args) -> switch (metodo.getName()) {
+                case "next" -> ++fila < filas.length;
+                case "getString" -> (String) valor(args[0]);
+                case "getObject" -> valor(args[0]);
+                case "getDate" -> (Date) valor(args[0]);
+                case "getLong" -> valor(args[0]) instanceof Number n ? n.longValue() : 0L;
+                case "getInt" -> valor(args[0]) instanceof Number n ? n.intValue() : 0;
+                case "getBoolean" -> Boolean.TRUE.equals(valor(args[0]));
+                case "wasNull" -> nulo;
+                case "isClosed" -> false;
+                case "hashCode" -> System.identityHashCode(p);
+                case "equals" -> p == args[0];
+                default -> null;
+            });
+        }
+
+        private Object valor(Object columna) {
+            int indice = columna instanceof Integer i ? i - 1 : columnas.get(((String) columna).toLowerCase(Locale.ROOT));
+            Object valor = filas[fila][indice];
+            nulo = valor == null;
+            return valor;
+        }
+    }
+
+    private static <T> T proxy(Class<T> tipo, InvocationHandler handler) {
+        return tipo.cast(Proxy.newProxyInstance(FilasEnMemoria.class.getClassLoader(), new Class<?>[] { tipo }, handler));
+    }
+}
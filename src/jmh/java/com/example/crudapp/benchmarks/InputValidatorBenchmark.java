@@ -0,0 +1,110 @@
+package com.example.crudapp.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.crudapp.presentation.utils.InputValidator;
+
+/**
+ * Lectura y validación de entradas con InputValidator
+ * Cada validador lee de una entrada que repite sus líneas sin fin y escribe
+ * los mensajes en un flujo descartado; el caso con rechazo recibe una línea
+ * inválida antes de cada válida, como cuando el usuario se equivoca.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputValidatorBenchmark {
+
+    private InputValidator enteros;
+    private InputValidator emails;
+    private InputValidator emailsConRechazo;
+    private InputValidator telefonos;
+    private InputValidator fechas;
+
+    @Setup
+    public void preparar() {
+        enteros = validador("3\n", "42\n", " 7 \n");
+        emails = validador("camila.gonzalez42@ejemplo.cl\n", "ana+libros@biblioteca.uc.cl\n");
+        emailsConRechazo = validador("camila.gonzalez42@ejemplo\n", "camila.gonzalez42@ejemplo.cl\n");
+        telefonos = validador("+56912345678\n", "912345678\n");
+        fechas = validador("30/06/2025\n", "01/01/1999\n");
+    }
+
+    @Benchmark
+    public int leerEntero() {
+        return enteros.leerEntero("Opción: ", 1, 100);
+    }
+
+    @Benchmark
+    public String leerEmail() {
+        return emails.leerEmail("Email: ");
+    }
+
+    @Benchmark
+    public String leerEmailConRechazo() {
+        return emailsConRechazo.leerEmail("Email: ");
+    }
+
+    @Benchmark
+    public String leerTelefono() {
+        return telefonos.leerTelefono("Teléfono: ");
+    }
+
+    @Benchmark
+    public LocalDate leerFecha() {
+        return fechas.leerFecha("Fecha");
+    }
+
+    private static InputValidator validador(String... lineas) {
+        byte[] ciclo = String.join("", lineas).getBytes(StandardCharsets.UTF_8);
+        return new InputValidator(new EntradaCiclica(ciclo), new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Entrada que repite los mismos bytes indefinidamente
+     */
+    private static final class EntradaCiclica extends InputStream {
+        private final byte[] ciclo;
+        private int posicion;
+
+        EntradaCiclica(byte[] ciclo) {
+            this.ciclo = ciclo;
+        }
+
+        @Override
+        public int read() {
+            byte valor = ciclo[posicion];
+            posicion = (posicion + 1) % ciclo.length;
+            return valor & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int largo) {
+            for (int i = 0; i < largo; i++) {
+                destino[desde + i] = ciclo[posicion];
+                posicion = (posicion + 1) % ciclo.length;
+            }
+            return largo;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.crudapp.benchmarks;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.infrastructure.repositories.LibroRepositoryImpl;
+import com.example.crudapp.infrastructure.repositories.PrestamoRepositoryImpl;
+import com.example.crudapp.infrastructure.repositories.UsuarioRepositoryImpl;
+
+/**
+ * Mapeo de filas a entidades (mapResultSetTo*) a través de los métodos
+ * públicos de los repositorios, sobre un ResultSet en memoria
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapeoBenchmark {
+
+    @Param({ "1", "100", "1000" })
+    public int filas;
+
+    private final LibroRepositoryImpl libroRepository = new LibroRepositoryImpl();
+    private final UsuarioRepositoryImpl usuarioRepository = new UsuarioRepositoryImpl();
+    private final PrestamoRepositoryImpl prestamoRepository = new PrestamoRepositoryImpl();
+
+    private Connection libros;
+    private Connection usuarios;
+    private Connection prestamos;
+    private Connection prestamosConDetalles;
+
+    @Setup
+    public void preparar() {
+        Date hoy = Date.valueOf(LocalDate.of(2025, 6, 30));
+        Object[][] filasLibros = new Object[filas][];
+        Object[][] filasUsuarios = new Object[filas][];
+        Object[][] filasPrestamos = new Object[filas][];
+        Object[][] filasDetalles = new Object[filas][];
+
+        for (int i = 0; i < filas; i++) {
+            long id = i + 1;
+            Date devolucion = i % 3 == 0 ? null : hoy;
+            filasLibros[i] = new Object[] { id, "El jardín de los recuerdos " + i, "Isabel Allende", "978-" + (1_000_000_000L + i),
+                    "Novela", 1990 + i % 30, i % 5 != 0 };
+            filasUsuarios[i] = new Object[] { id, "Camila González Rojas", "camila.gonzalez" + i + "@ejemplo.cl",
+                    "+56912345678", hoy };
+            filasPrestamos[i] = new Object[] { id, id, id, hoy, hoy, devolucion, devolucion == null ? "ACTIVO" : "DEVUELTO" };
+            filasDetalles[i] = new Object[] { id, id, id, hoy, hoy, devolucion, devolucion == null ? "ACTIVO" : "DEVUELTO",
+                    null, "Camila González Rojas", "camila.gonzalez" + i + "@ejemplo.cl", "+56912345678", hoy,
+                    "El jardín de los recuerdos " + i, "Isabel Allende", "978-" + (1_000_000_000L + i), "Novela",
+                    1990 + i % 30, i % 5 != 0 };
+        }
+
+        libros = new FilasEnMemoria(new String[] { "id", "titulo", "autor", "isbn", "genero", "año_publicacion",
+                "disponible" }, filasLibros).conexion();
+        usuarios = new FilasEnMemoria(new String[] { "id", "nombre", "email", "telefono", "fecha_registro" },
+                filasUsuarios).conexion();
+        prestamos = new FilasEnMemoria(new String[] { "id", "usuario_id", "libro_id", "fecha_prestamo",
+                "fecha_devolucion_esperada", "fecha_devolucion_real", "estado" }, filasPrestamos).conexion();
+        prestamosConDetalles = new FilasEnMemoria(new String[] { "id", "usuario_id", "libro_id", "fecha_prestamo",
+                "fecha_devolucion_esperada", "fecha_devolucion_real", "estado", "observaciones", "usuario_nombre",
+                "email", "telefono", "fecha_registro", "titulo", "autor", "isbn", "genero", "año_publicacion",
+                "disponible" }, filasDetalles).conexion();
+    }
+
+    @Benchmark
+    public List<Libro> libros() throws SQLException {
+        return libroRepository.findAll(libros);
+    }
+
+    @Benchmark
+    public List<Usuario> usuarios() throws SQLException {
+        return usuarioRepository.findAll(usuarios);
+    }
+
+    @Benchmark
+    public List<Prestamo> prestamos() throws SQLException {
+        return prestamoRepository.findAll(prestamos);
+    }
+
+    @Benchmark
+    public List<Prestamo> prestamosConDetalles() throws SQLException {
+        return prestamoRepository.findPrestamosConDetalles(prestamosConDetalles);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.crudapp.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.crudapp.application.dto.LibroDTO;
+import com.example.crudapp.application.dto.UsuarioDTO;
+import com.example.crudapp.application.services.LibroService;
+import com.example.crudapp.application.services.UsuarioService;
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.domain.repositories.LibroRepository;
+import com.example.crudapp.domain.repositories.UsuarioRepository;
+import com.example.crudapp.infrastructure.database.Database;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+
+/**
+ * Validación y conversión de DTO a entidad en los servicios
+ *
+ * Los repositorios y la base de datos son simulados: el repositorio devuelve
+ * la misma entidad que recibe, así lo medido es la validación del DTO, la
+ * entidad nueva, la transacción y el registro. TransactionManagerBenchmark
+ * mide la transacción sola para restarla.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServicioBenchmark {
+
+    private final LibroDTO libroDTO = new LibroDTO("Cien años de soledad", "Gabriel García Márquez", "978-0307474728",
+            "Realismo mágico", 1967);
+    private final UsuarioDTO usuarioDTO = new UsuarioDTO("Camila González Rojas", "camila.gonzalez@ejemplo.cl",
+            "+56912345678");
+
+    private LibroService libroService;
+    private UsuarioService usuarioService;
+
+    @Setup
+    public void preparar() throws SQLException {
+        Database database = mock(Database.class);
+        Connection connection = new FilasEnMemoria(new String[0], new Object[0][]).conexion();
+        when(database.getConnection()).thenReturn(connection);
+        TransactionManager transactionManager = new TransactionManager(database);
+
+        LibroRepository libroRepository = mock(LibroRepository.class);
+        when(libroRepository.saveIfAbsent(any(), any())).thenAnswer(llamada -> Optional.of(llamada.getArgument(1, Libro.class)));
+        UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+        when(usuarioRepository.saveIfAbsent(any(), any()))
+                .thenAnswer(llamada -> Optional.of(llamada.getArgument(1, Usuario.class)));
+
+        libroService = new LibroService(libroRepository, transactionManager);
+        usuarioService = new UsuarioService(usuarioRepository, transactionManager);
+    }
+
+    @Benchmark
+    public Libro crearLibro() throws SQLException {
+        return libroService.crearLibro(libroDTO);
+    }
+
+    @Benchmark
+    public Usuario crearUsuario() throws SQLException {
+        return usuarioService.crearUsuario(usuarioDTO);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.crudapp.benchmarks;
+
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.presentation.utils.TableFormatter;
+
+/**
+ * Dibujo de tablas de 10.000 filas con TableFormatter
+ * El destino solo cuenta los caracteres, así se mide el armado de las filas
+ * y no la consola.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableFormatterBenchmark {
+
+    private static final String[] ENCABEZADOS_GENERICA = { "Sentencia", "Ejecuciones", "p50 ms", "p99 ms", "Filas" };
+    private static final int[] ANCHOS_GENERICA = { 20, 11, 8, 8, 6 };
+
+    @Param({ "10000" })
+    public int filas;
+
+    private final ContadorWriter destino = new ContadorWriter();
+    private final TableFormatter formatter = new TableFormatter(destino);
+
+    private List<Usuario> usuarios;
+    private List<Libro> libros;
+    private List<Prestamo> prestamos;
+    private String[][] filasGenericas;
+
+    @Setup
+    public void preparar() {
+        usuarios = new ArrayList<>(filas);
+        libros = new ArrayList<>(filas);
+        prestamos = new ArrayList<>(filas);
+        filasGenericas = new String[filas][];
+        LocalDate hoy = LocalDate.of(2025, 6, 30);
+
+        for (int i = 0; i < filas; i++) {
+            long id = i + 1;
+            Usuario usuario = new Usuario("Camila González Rojas", "camila.gonzalez" + i + "@ejemplo.cl", "+56912345678");
+            usuario.setId(id);
+            usuarios.add(usuario);
+
+            // Un título de cada cien con caracteres de doble ancho
+            Libro libro = new Libro(i % 100 == 0 ? "三体 " + i : "Cien años de soledad " + i, "Gabriel García Márquez",
+                    "978-" + (1_000_000_000L + i), "Realismo mágico", 1967);
+            libro.setId(id);
+            libro.setDisponible(i % 5 != 0);
+            libros.add(libro);
+
+            Prestamo prestamo = new Prestamo(id, id, hoy.plusDays(14));
+            prestamo.setId(id);
+            prestamo.setFechaPrestamo(hoy);
+            prestamo.setEstado(i % 3 == 0 ? "ACTIVO" : "DEVUELTO");
+            if (i % 3 != 0) {
+                prestamo.setFechaDevolucionReal(hoy.plusDays(i % 14));
+            }
+            prestamo.setUsuario(usuario);
+            prestamo.setLibro(libro);
+            prestamos.add(prestamo);
+
+            filasGenericas[i] = new String[] { "Libro.SELECT_BY_ID", String.valueOf(i), "0,12", "0,48", "1" };
+        }
+    }
+
+    @Benchmark
+    public long usuarios() {
+        formatter.mostrarTablaUsuarios(usuarios);
+        return destino.reiniciar();
+    }
+
+    @Benchmark
+    public long libros() {
+        formatter.mostrarTablaLibros(libros);
+        return destino.reiniciar();
+    }
+
+    @Benchmark
+    public long prestamos() {
+        formatter.mostrarTablaPrestamos(prestamos);
+        return destino.reiniciar();
+    }
+
+    @Benchmark
+    public long generica() {
+        formatter.mostrarTablaGenerica(ENCABEZADOS_GENERICA, filasGenericas, ANCHOS_GENERICA);
+        return destino.reiniciar();
+    }
+
+    /**
+     * Destino que descarta lo escrito y solo cuenta los caracteres
+     */
+    private static final class ContadorWriter extends Writer {
+        private long caracteres;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            caracteres += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        long reiniciar() {
+            long total = caracteres;
+            caracteres = 0;
+            return total;
+        }
+    }
+}
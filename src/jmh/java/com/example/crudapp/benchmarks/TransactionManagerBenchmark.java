@@ -0,0 +1,77 @@
+package com.example.crudapp.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.crudapp.infrastructure.database.Database;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+
+/**
+ * Costo propio de TransactionManager con una base de datos simulada
+ *
+ * conexionDirecta hace lo mínimo (pedir la conexión, commit y close) y sirve
+ * de base: la diferencia con transaccionVacia es lo que agregan el mapa de
+ * identidad, las métricas, los eventos de JFR, el conteo de idas y vueltas y
+ * la conexión instrumentada.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionManagerBenchmark {
+
+    private Database database;
+    private TransactionManager transactionManager;
+    private long confirmadas;
+
+    @Setup
+    public void preparar() throws SQLException {
+        database = mock(Database.class);
+        Connection connection = new FilasEnMemoria(new String[0], new Object[0][]).conexion();
+        when(database.getConnection()).thenReturn(connection);
+        transactionManager = new TransactionManager(database);
+    }
+
+    @Benchmark
+    public Connection conexionDirecta() throws SQLException {
+        Connection connection = database.getConnection();
+        connection.commit();
+        connection.close();
+        return connection;
+    }
+
+    @Benchmark
+    public Connection transaccionVacia() throws SQLException {
+        return transactionManager.executeInTransaction(connection -> connection);
+    }
+
+    @Benchmark
+    public Connection transaccionConAccionAlConfirmar() throws SQLException {
+        return transactionManager.executeInTransaction(connection -> {
+            TransactionManager.alConfirmar(connection, this::confirmada);
+            return connection;
+        });
+    }
+
+    private void confirmada() {
+        confirmadas++;
+    }
+}
@@ -1,23 +1,51 @@
 package com.example.crudapp;
 
 import com.example.crudapp.infrastructure.transactions.TransactionManager;
+import com.example.crudapp.infrastructure.archive.PrestamoArchive;
+import com.example.crudapp.infrastructure.archive.PrestamoArchiver;
+import com.example.crudapp.infrastructure.audit.AuditTrail;
+import com.example.crudapp.infrastructure.capture.RecordingLibroService;
+import com.example.crudapp.infrastructure.capture.RecordingPrestamoService;
+import com.example.crudapp.infrastructure.capture.RecordingUsuarioService;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder;
+import com.example.crudapp.infrastructure.capture.WorkloadReplayer;
+import com.example.crudapp.infrastructure.datagen.SyntheticDataGenerator;
+import com.example.crudapp.infrastructure.events.EventLog;
+import com.example.crudapp.infrastructure.events.OutboxRelay;
+import com.example.crudapp.infrastructure.events.PrestamoOutbox;
+import com.example.crudapp.infrastructure.export.TableExporter;
+import com.example.crudapp.infrastructure.load.WorkloadDriver;
 import com.example.crudapp.infrastructure.repositories.UsuarioRepositoryImpl;
+import com.example.crudapp.infrastructure.startup.StartupOrchestrator;
+import com.example.crudapp.infrastructure.stats.StatementStats;
+import com.example.crudapp.infrastructure.startup.StartupOrchestrator.Fase;
 import com.example.crudapp.infrastructure.database.Database;
 import com.example.crudapp.infrastructure.database.DatabaseInitializer;
 import com.example.crudapp.infrastructure.repositories.LibroRepositoryImpl;
 import com.example.crudapp.infrastructure.repositories.PrestamoRepositoryImpl;
+import com.example.crudapp.infrastructure.repositories.TombstoneRetention;
 import com.example.crudapp.application.services.UsuarioService;
+import com.example.crudapp.application.services.LibroImportService;
 import com.example.crudapp.application.services.LibroService;
 import com.example.crudapp.application.services.PrestamoService;
 import com.example.crudapp.presentation.console.ConsoleUI;
+import com.example.crudapp.presentation.utils.TableFormatter;
 
 import org.fusesource.jansi.AnsiConsole;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -32,26 +60,61 @@ public class Main {
 
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
+    private static final int CONEXIONES_CALENTAMIENTO = 4;
+
+    private static final String USO_EXPORTACION = "Uso: export <usuarios|libros|prestamos> <archivo> "
+            + "[--formato csv|json] [--gzip] [--estado ESTADO] [--desde yyyy-MM-dd] [--hasta yyyy-MM-dd]";
+
+    private static final String USO_GENERACION = "Uso: generar <préstamos> [--semilla N] [--usuarios N] "
+            + "[--libros N] [--años N] [--hoy yyyy-MM-dd] [--reemplazar]";
+
+    private static final String USO_CARGA = "Uso: carga [--tasa N] [--hasta N --paso N] [--concurrencia N] "
+            + "[--pool N] [--duracion S] [--calentamiento S] [--mezcla prestar=20,devolver=15,...] [--poisson]";
+
+    private static volatile OutboxRelay relayEventos;
+
+    private static volatile WorkloadRecorder grabacion;
+
     /**
      * Punto de entrada de la aplicación
      * 
      * @param args argumentos de línea de comandos
      */
     public static void main(String[] args) {
+        long inicioArranque = System.nanoTime();
+
+        if (args.length > 0 && "export".equals(args[0])) {
+            System.exit(ejecutarExportacion(args));
+        }
+        if (args.length > 0 && "generar".equals(args[0])) {
+            System.exit(ejecutarGeneracion(args));
+        }
+        if (args.length > 0 && "carga".equals(args[0])) {
+            System.exit(ejecutarCarga(args));
+        }
+        if (args.length > 0 && "reproducir".equals(args[0])) {
+            System.exit(ejecutarReproduccion(args));
+        }
+
         AnsiConsole.systemInstall();
 
         try {
-            // Configurar dependencias
-            ApplicationContext context = createApplicationContext();
-
-            // Programar actualización diaria de préstamos vencidos
-            programarActualizacionVencidos(context.getPrestamoService());
+            // Arranque en paralelo: el menú solo espera el esquema y el contexto
+            StartupOrchestrator arranque = new StartupOrchestrator(inicioArranque);
+            ApplicationContext context = iniciarFases(arranque);
 
             // Iniciar interfaz de usuario
             ConsoleUI consoleUI = new ConsoleUI(context);
+            reportarTiempoArranque(inicioArranque);
+            arranque.registrarAlTerminar("menú visible", System.nanoTime());
+            arranque.close();
             consoleUI.iniciar();
 
-            // Al salir del menú de la consola termina el pool de conexiones a la base de datos
+            // Al salir del menú se vacía la auditoría, se detiene el relay de eventos, se cierra la grabación, se vuelcan las estadísticas y termina el pool
+            context.getAuditTrail().close();
+            detenerRelayEventos();
+            cerrarGrabacion();
+            logger.info("Estadísticas de sentencias:\n{}", StatementStats.reporte());
             Database.getInstance().close();
 
         } catch (SQLException e) {
@@ -68,45 +131,233 @@ public class Main {
     }
 
     /**
-     * Crea y configura el contexto de la aplicación con todas las dependencias
+     * Registra el tiempo transcurrido desde el inicio de main hasta el menú
+     * principal, y desde el arranque de la JVM
      * 
-     * @return contexto de aplicación configurado
-     * @throws SQLException si hay error en la configuración de base de datos
+     * @param inicioArranque instante de inicio de main (System.nanoTime)
      */
-    private static ApplicationContext createApplicationContext() throws SQLException {
-        logger.info("Inicializando contexto de aplicación...");
+    private static void reportarTiempoArranque(long inicioArranque) {
+        long msMain = (System.nanoTime() - inicioArranque) / 1_000_000;
+        long msJvm = ManagementFactory.getRuntimeMXBean().getUptime();
+        logger.info("Tiempo de arranque hasta el menú: {} ms ({} ms desde el inicio de la JVM)", msMain, msJvm);
+    }
 
+    /**
+     * Lanza las fases de arranque y espera solo las necesarias para mostrar el menú
+     * El calentamiento del pool, de caché y la actualización de préstamos vencidos
+     * siguen en segundo plano mientras el usuario ya puede usar la consola
+     * 
+     * @param arranque orquestador de las fases de arranque
+     * @return contexto de aplicación configurado
+     * @throws SQLException si falla la conexión, el esquema o la creación del contexto
+     */
+    private static ApplicationContext iniciarFases(StartupOrchestrator arranque) throws SQLException {
         // Configura las conexiones a la base de datos
-        Database database = Database.getInstance();
+        Fase<Database> pool = arranque.fase("pool", Database::getInstance);
+
+        arranque.fase("calentamiento-pool", () -> {
+            arranque.esperar(pool).calentarPool(CONEXIONES_CALENTAMIENTO);
+            return null;
+        }, pool);
 
         // Inicializa la base de datos
-        DatabaseInitializer dataInitializer = new DatabaseInitializer(database);
-        dataInitializer.initializeDatabase();
+        Fase<Void> esquema = arranque.fase("esquema", () -> {
+            new DatabaseInitializer(arranque.esperar(pool)).initializeDatabase();
+            return null;
+        }, pool);
+
+        Fase<ApplicationContext> contexto = arranque.fase("contexto",
+                () -> createApplicationContext(arranque.esperar(pool), true), pool);
+
+        arranque.fase("calentamiento-cache", () -> {
+            calentarCache(arranque.esperar(contexto));
+            return null;
+        }, esquema, contexto);
+
+        // Actualizar préstamos vencidos al iniciar y programar la tarea diaria
+        arranque.fase("vencidos", () -> {
+            ApplicationContext context = arranque.esperar(contexto);
+            int vencidos = context.getPrestamoService().actualizarPrestamosVencidos();
+            // Corre en segundo plano con el menú ya visible: se registra en el log en vez de imprimirse
+            if (vencidos > 0) {
+                logger.info("Se actualizaron {} préstamos a estado VENCIDO", vencidos);
+            }
+            programarActualizacionVencidos(context.getPrestamoService(), context.getPrestamoArchiver(),
+                    context.getTombstoneRetention());
+            return vencidos;
+        }, esquema, contexto);
+
+        // Escritor de auditoría (necesita la tabla y la función de particiones)
+        arranque.fase("auditoria", () -> {
+            arranque.esperar(contexto).getAuditTrail().iniciar();
+            return null;
+        }, esquema, contexto);
+
+        // Relay del outbox de eventos hacia el log local (necesita la tabla del outbox)
+        arranque.fase("eventos", () -> iniciarRelayEventos(arranque.esperar(pool)), esquema, contexto);
+
+        arranque.esperar(esquema);
+        return arranque.esperar(contexto);
+    }
+
+    /**
+     * Abre el log de eventos e inicia el relay del outbox de préstamos
+     * 
+     * @param database configuración de base de datos
+     * @return relay iniciado
+     * @throws SQLException si no se puede abrir el log de eventos
+     */
+    private static OutboxRelay iniciarRelayEventos(Database database) throws SQLException {
+        EventLog eventLog;
+        try {
+            eventLog = new EventLog(Path.of(database.getProperty("events.directory", "events")),
+                    Long.parseLong(database.getProperty("events.segment.bytes",
+                            String.valueOf(EventLog.TAMAÑO_SEGMENTO_POR_DEFECTO))));
+        } catch (IOException e) {
+            throw new SQLException("No se pudo abrir el log de eventos: " + e.getMessage(), e);
+        }
+
+        OutboxRelay relay = new OutboxRelay(new PrestamoOutbox(), eventLog, new TransactionManager(database),
+                Integer.parseInt(database.getProperty("events.batch.size", "500")),
+                Long.parseLong(database.getProperty("events.poll.ms", "200")));
+        relay.iniciar();
+        relayEventos = relay;
+        return relay;
+    }
+
+    /**
+     * Detiene el relay de eventos (si llegó a iniciarse) y cierra el log
+     */
+    private static void detenerRelayEventos() {
+        OutboxRelay relay = relayEventos;
+        if (relay == null) {
+            return;
+        }
+        relay.close();
+        try {
+            relay.getLog().close();
+        } catch (IOException e) {
+            logger.warn("No se pudo cerrar el log de eventos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Abre la grabación de llamadas a los servicios si está configurada
+     * Si el archivo no se puede crear la aplicación sigue sin grabar.
+     *
+     * @param archivo ruta de capture.file (vacía para no grabar)
+     * @return el grabador, o null si no se graba
+     */
+    private static WorkloadRecorder abrirGrabacion(String archivo) {
+        if (archivo.isBlank()) {
+            return null;
+        }
+        try {
+            grabacion = new WorkloadRecorder(Path.of(archivo));
+            return grabacion;
+        } catch (IOException e) {
+            logger.warn("No se pudo abrir la grabación {}: {}", archivo, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cierra la grabación de llamadas (si estaba activa)
+     */
+    private static void cerrarGrabacion() {
+        WorkloadRecorder grabador = grabacion;
+        if (grabador != null) {
+            grabador.close();
+        }
+    }
+
+    /**
+     * Ejecuta una consulta por ID de cada servicio para cargar las clases,
+     * preparar las sentencias y traer a memoria las páginas de los índices
+     * antes de la primera operación del usuario
+     * 
+     * @param context contexto de aplicación
+     * @throws SQLException si hay error en las consultas
+     */
+    private static void calentarCache(ApplicationContext context) throws SQLException {
+        context.getUsuarioService().buscarPorId(1L);
+        context.getLibroService().buscarPorId(1L);
+        context.getPrestamoService().buscarPorId(1L);
+    }
+
+    /**
+     * Crea y configura el contexto de la aplicación con todas las dependencias
+     * No accede a la base de datos: solo construye repositorios y servicios
+     * 
+     * @param database configuración de base de datos
+     * @param grabar   si es true y capture.file está configurado, los servicios graban sus llamadas
+     * @return contexto de aplicación configurado
+     */
+    private static ApplicationContext createApplicationContext(Database database, boolean grabar) {
+        logger.info("Inicializando contexto de aplicación...");
 
         // Gestor de transacciones
         TransactionManager transactionManager = new TransactionManager(database);
 
+        // Archivo histórico de préstamos devueltos
+        PrestamoArchive prestamoArchive = new PrestamoArchive(
+                Path.of(database.getProperty("archive.directory", "archive")));
+        PrestamoArchiver prestamoArchiver = new PrestamoArchiver(prestamoArchive, transactionManager,
+                Integer.parseInt(database.getProperty("archive.min.age.days", "365")),
+                Integer.parseInt(database.getProperty("archive.chunk.size", "10000")));
+
+        // Retención de las lápidas del feed de cambios
+        TombstoneRetention tombstoneRetention = new TombstoneRetention(transactionManager,
+                Integer.parseInt(database.getProperty("changefeed.tombstone.retention.days", "30")));
+
+        // Auditoría asíncrona de los cambios hechos por los servicios
+        AuditTrail auditTrail = new AuditTrail(transactionManager,
+                database.getProperty("audit.actor", System.getProperty("user.name")),
+                Integer.parseInt(database.getProperty("audit.buffer.capacity", "65536")),
+                AuditTrail.PoliticaLlenado.valueOf(database.getProperty("audit.full.policy", "DERRAMAR").toUpperCase()),
+                Path.of(database.getProperty("audit.spill.directory", "audit-spill")),
+                Integer.parseInt(database.getProperty("audit.batch.size", "1000")),
+                Long.parseLong(database.getProperty("audit.poll.ms", "100")));
+
         // Repositorios
         UsuarioRepositoryImpl usuarioRepository = new UsuarioRepositoryImpl();
         LibroRepositoryImpl libroRepository = new LibroRepositoryImpl();
-        PrestamoRepositoryImpl prestamoRepository = new PrestamoRepositoryImpl();
-
-        // Servicios
-        UsuarioService usuarioService = new UsuarioService(usuarioRepository, transactionManager);
-        LibroService libroService = new LibroService(libroRepository, transactionManager);
-        PrestamoService prestamoService = new PrestamoService(prestamoRepository, usuarioRepository, libroRepository,
-                transactionManager);
+        PrestamoRepositoryImpl prestamoRepository = new PrestamoRepositoryImpl(prestamoArchive);
 
-        // Actualizar préstamos vencidos al iniciar
-        int vencidos = prestamoService.actualizarPrestamosVencidos();
-        if (vencidos > 0) {
-            System.out.println("Se actualizaron " + vencidos + " préstamos a estado VENCIDO");
+        // Servicios (con capture.file se graban las llamadas para repetirlas con "reproducir")
+        WorkloadRecorder grabador = grabar ? abrirGrabacion(database.getProperty("capture.file", "")) : null;
+        UsuarioService usuarioService;
+        LibroService libroService;
+        PrestamoService prestamoService;
+        if (grabador == null) {
+            usuarioService = new UsuarioService(usuarioRepository, transactionManager, auditTrail);
+            libroService = new LibroService(libroRepository, transactionManager, auditTrail);
+            prestamoService = new PrestamoService(prestamoRepository, usuarioRepository, libroRepository,
+                    transactionManager, new PrestamoOutbox(), auditTrail);
+        } else {
+            usuarioService = new RecordingUsuarioService(usuarioRepository, transactionManager, auditTrail, grabador);
+            libroService = new RecordingLibroService(libroRepository, transactionManager, auditTrail, grabador);
+            prestamoService = new RecordingPrestamoService(prestamoRepository, usuarioRepository, libroRepository,
+                    transactionManager, new PrestamoOutbox(), auditTrail, grabador);
         }
 
+        // Importación de catálogos (paralelismo por debajo del tamaño del pool)
+        LibroImportService libroImportService = new LibroImportService(libroRepository, transactionManager,
+                Integer.parseInt(database.getProperty("import.parallelism",
+                        String.valueOf(Math.min(Runtime.getRuntime().availableProcessors(), 4)))));
+
+        // Exportación de tablas
+        TableExporter tableExporter = new TableExporter(transactionManager);
+
         ApplicationContext context = new ApplicationContext(
                 usuarioService,
                 libroService,
-                prestamoService);
+                libroImportService,
+                prestamoService,
+                prestamoArchiver,
+                tombstoneRetention,
+                tableExporter,
+                auditTrail);
 
         logger.info("Contexto de aplicación inicializado correctamente");
         return context;
@@ -121,21 +372,41 @@ public class Main {
 
         private final UsuarioService usuarioService;
         private final LibroService libroService;
+        private final LibroImportService libroImportService;
         private final PrestamoService prestamoService;
+        private final PrestamoArchiver prestamoArchiver;
+        private final TombstoneRetention tombstoneRetention;
+        private final TableExporter tableExporter;
+        private final AuditTrail auditTrail;
 
         /**
          * Constructor del contexto de aplicación
          * 
-         * @param usuarioService  servicio de usuarios
-         * @param libroService    servicio de libros
-         * @param prestamoService servicio de préstamos
+         * @param usuarioService   servicio de usuarios
+         * @param libroService     servicio de libros
+         * @param libroImportService servicio de importación de catálogos
+         * @param prestamoService  servicio de préstamos
+         * @param prestamoArchiver proceso de archivado de préstamos devueltos
+         * @param tombstoneRetention retención de las lápidas del feed de cambios
+         * @param tableExporter    exportador de tablas
+         * @param auditTrail       registro de auditoría
          */
         public ApplicationContext(UsuarioService usuarioService,
                 LibroService libroService,
-                PrestamoService prestamoService) {
+                LibroImportService libroImportService,
+                PrestamoService prestamoService,
+                PrestamoArchiver prestamoArchiver,
+                TombstoneRetention tombstoneRetention,
+                TableExporter tableExporter,
+                AuditTrail auditTrail) {
             this.usuarioService = usuarioService;
             this.libroService = libroService;
+            this.libroImportService = libroImportService;
             this.prestamoService = prestamoService;
+            this.prestamoArchiver = prestamoArchiver;
+            this.tombstoneRetention = tombstoneRetention;
+            this.tableExporter = tableExporter;
+            this.auditTrail = auditTrail;
         }
 
         /**
@@ -156,6 +427,15 @@ public class Main {
             return libroService;
         }
 
+        /**
+         * Obtiene el servicio de importación de catálogos
+         * 
+         * @return servicio de importación de catálogos
+         */
+        public LibroImportService getLibroImportService() {
+            return libroImportService;
+        }
+
         /**
          * Obtiene el servicio de préstamos
          * 
@@ -164,12 +444,413 @@ public class Main {
         public PrestamoService getPrestamoService() {
             return prestamoService;
         }
+
+        /**
+         * Obtiene el proceso de archivado de préstamos devueltos
+         * 
+         * @return proceso de archivado
+         */
+        public PrestamoArchiver getPrestamoArchiver() {
+            return prestamoArchiver;
+        }
+
+        /**
+         * Obtiene la retención de las lápidas del feed de cambios
+         * 
+         * @return retención de lápidas
+         */
+        public TombstoneRetention getTombstoneRetention() {
+            return tombstoneRetention;
+        }
+
+        /**
+         * Obtiene el exportador de tablas
+         * 
+         * @return exportador de tablas
+         */
+        public TableExporter getTableExporter() {
+            return tableExporter;
+        }
+
+        /**
+         * Obtiene el registro de auditoría
+         * 
+         * @return registro de auditoría
+         */
+        public AuditTrail getAuditTrail() {
+            return auditTrail;
+        }
     }
 
     /**
-     * Programa la actualización de préstamos vencidos para ejecutarse a medianoche
+     * Contexto para los comandos sin interfaz de usuario: los mismos servicios
+     * que la aplicación (outbox y auditoría incluidos), sin grabar llamadas,
+     * con el escritor de auditoría y el relay de eventos en marcha
+     *
+     * @param database configuración de base de datos
+     * @return contexto iniciado; se detiene con {@link #detenerContexto}
+     * @throws SQLException si no se puede abrir el log de eventos
      */
-    private static void programarActualizacionVencidos(PrestamoService prestamoService) {
+    private static ApplicationContext iniciarContexto(Database database) throws SQLException {
+        ApplicationContext context = createApplicationContext(database, false);
+        context.getAuditTrail().iniciar();
+        try {
+            iniciarRelayEventos(database);
+        } catch (SQLException | RuntimeException e) {
+            context.getAuditTrail().close();
+            throw e;
+        }
+        return context;
+    }
+
+    /**
+     * Vacía la auditoría y detiene el relay de eventos de un contexto de {@link #iniciarContexto}
+     *
+     * @param context contexto iniciado, o null si no llegó a crearse
+     */
+    private static void detenerContexto(ApplicationContext context) {
+        if (context != null) {
+            context.getAuditTrail().close();
+            detenerRelayEventos();
+        }
+    }
+
+    /**
+     * Exportación sin interfaz de usuario
+     * Uso: export &lt;usuarios|libros|prestamos&gt; &lt;archivo&gt; [--formato csv|json] [--gzip]
+     * [--estado ACTIVO|DEVUELTO|VENCIDO] [--desde yyyy-MM-dd] [--hasta yyyy-MM-dd]
+     * 
+     * @param args argumentos de línea de comandos (args[0] = "export")
+     * @return código de salida del proceso
+     */
+    private static int ejecutarExportacion(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USO_EXPORTACION);
+            return 2;
+        }
+
+        // Los argumentos se validan antes de abrir el pool
+        TableExporter.Tabla tabla;
+        Path destino;
+        TableExporter.Formato formato = TableExporter.Formato.CSV;
+        boolean gzip = false;
+        String estado = null;
+        LocalDate desde = null;
+        LocalDate hasta = null;
+        try {
+            tabla = TableExporter.Tabla.valueOf(args[1].toUpperCase());
+            destino = Path.of(args[2]);
+            for (int i = 3; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--gzip" -> gzip = true;
+                    case "--formato" -> formato = TableExporter.Formato.valueOf(valorOpcion(args, ++i).toUpperCase());
+                    case "--estado" -> estado = valorOpcion(args, ++i).toUpperCase();
+                    case "--desde" -> desde = LocalDate.parse(valorOpcion(args, ++i));
+                    case "--hasta" -> hasta = LocalDate.parse(valorOpcion(args, ++i));
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USO_EXPORTACION);
+            return 2;
+        }
+
+        Database database = null;
+        try {
+            database = Database.getInstance();
+            TableExporter exporter = new TableExporter(new TransactionManager(database));
+            TableExporter.ExportResult resultado = exporter.exportar(tabla, formato, estado, desde, hasta, destino, gzip);
+            System.out.println("Exportación completada: " + destino + " - " + resultado);
+            return 0;
+
+        } catch (SQLException e) {
+            logger.error("Error al exportar: {}", e.getMessage(), e);
+            System.err.println("Error de base de datos: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } finally {
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    /**
+     * Valor de una opción de línea de comandos
+     *
+     * @param args argumentos de línea de comandos
+     * @param i    posición del valor (la opción está en i - 1)
+     * @return el valor
+     * @throws IllegalArgumentException si la opción es el último argumento
+     */
+    private static String valorOpcion(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Falta el valor de " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    /**
+     * Carga de datos sintéticos sin interfaz de usuario
+     * Uso: generar &lt;préstamos&gt; [--semilla N] [--usuarios N] [--libros N] [--años N]
+     * [--hoy yyyy-MM-dd] [--reemplazar]
+     * 
+     * @param args argumentos de línea de comandos (args[0] = "generar")
+     * @return código de salida del proceso
+     */
+    private static int ejecutarGeneracion(String[] args) {
+        if (args.length < 2) {
+            System.err.println(USO_GENERACION);
+            return 2;
+        }
+
+        // Los argumentos se validan antes de abrir el pool
+        SyntheticDataGenerator generador;
+        boolean reemplazar = false;
+        try {
+            int prestamos = Integer.parseInt(args[1]);
+            SyntheticDataGenerator porDefecto = SyntheticDataGenerator.paraPrestamos(prestamos, 0);
+            long semilla = 1;
+            int usuarios = porDefecto.getUsuarios();
+            int libros = porDefecto.getLibros();
+            int años = 5;
+            LocalDate hoy = LocalDate.now();
+
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--semilla" -> semilla = Long.parseLong(valorOpcion(args, ++i));
+                    case "--usuarios" -> usuarios = Integer.parseInt(valorOpcion(args, ++i));
+                    case "--libros" -> libros = Integer.parseInt(valorOpcion(args, ++i));
+                    case "--años" -> años = Integer.parseInt(valorOpcion(args, ++i));
+                    case "--hoy" -> hoy = LocalDate.parse(valorOpcion(args, ++i));
+                    case "--reemplazar" -> reemplazar = true;
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            generador = new SyntheticDataGenerator(semilla, usuarios, libros, prestamos, años, hoy);
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USO_GENERACION);
+            return 2;
+        }
+
+        Database database = null;
+        try {
+            database = Database.getInstance();
+            new DatabaseInitializer(database).initializeDatabase();
+
+            try (Connection connection = database.getConnection()) {
+                try {
+                    SyntheticDataGenerator.Resultado resultado = generador.generar(connection, reemplazar);
+                    connection.commit();
+                    System.out.println("Datos generados: " + resultado);
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+            return 0;
+
+        } catch (SQLException e) {
+            logger.error("Error al generar datos: {}", e.getMessage(), e);
+            System.err.println("Error de base de datos: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } finally {
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    /**
+     * Carga concurrente sobre los servicios sin interfaz de usuario
+     * Uso: carga [--tasa N] [--hasta N --paso N] [--concurrencia N] [--pool N] [--duracion S]
+     * [--calentamiento S] [--mezcla prestar=20,devolver=15,...] [--poisson]
+     *
+     * Sin --tasa el ciclo es cerrado. Con --hasta y --paso la tasa sube por
+     * escalones hasta que el sistema deja de sostenerla.
+     *
+     * @param args argumentos de línea de comandos (args[0] = "carga")
+     * @return código de salida del proceso
+     */
+    private static int ejecutarCarga(String[] args) {
+        // Los argumentos se validan antes de abrir el pool
+        double tasa = 0;
+        double hasta = 0;
+        double paso = 0;
+        int concurrencia = 64;
+        long duracion = 30;
+        long calentamiento = 10;
+        boolean poisson = false;
+        Map<WorkloadDriver.Operacion, Integer> mezcla = WorkloadDriver.mezclaPorDefecto();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--tasa" -> tasa = Double.parseDouble(valorOpcion(args, ++i));
+                    case "--hasta" -> hasta = Double.parseDouble(valorOpcion(args, ++i));
+                    case "--paso" -> paso = Double.parseDouble(valorOpcion(args, ++i));
+                    case "--concurrencia" -> concurrencia = Integer.parseInt(valorOpcion(args, ++i));
+                    // Debe fijarse antes de crear el pool
+                    case "--pool" -> System.setProperty("db.pool.size",
+                            String.valueOf(Integer.parseInt(valorOpcion(args, ++i))));
+                    case "--duracion" -> duracion = Long.parseLong(valorOpcion(args, ++i));
+                    case "--calentamiento" -> calentamiento = Long.parseLong(valorOpcion(args, ++i));
+                    case "--mezcla" -> mezcla = WorkloadDriver.parsearMezcla(valorOpcion(args, ++i));
+                    case "--poisson" -> poisson = true;
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            if (hasta > tasa && (tasa <= 0 || paso <= 0)) {
+                throw new IllegalArgumentException("--hasta necesita --tasa y --paso positivos");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println(USO_CARGA);
+            return 2;
+        }
+
+        Database database = null;
+        ApplicationContext context = null;
+        try {
+            database = Database.getInstance();
+            // Servicios como en la aplicación: la transacción medida incluye outbox y auditoría
+            context = iniciarContexto(database);
+            WorkloadDriver driver = new WorkloadDriver(database, context.getPrestamoService(),
+                    context.getLibroService(), context.getUsuarioService(), mezcla);
+            TableFormatter tableFormatter = new TableFormatter();
+
+            double tasaActual = tasa;
+            do {
+                WorkloadDriver.Reporte reporte = driver.ejecutar(tasaActual, poisson, concurrencia,
+                        Duration.ofSeconds(calentamiento), Duration.ofSeconds(duracion));
+                System.out.println(reporte);
+                tableFormatter.mostrarTablaGenerica(WorkloadDriver.Reporte.getEncabezados(), reporte.getFilas(),
+                        WorkloadDriver.Reporte.getAnchos());
+                if (reporte.isSaturado()) {
+                    break;
+                }
+                tasaActual += paso;
+            } while (paso > 0 && tasaActual <= hasta);
+            return 0;
+
+        } catch (SQLException e) {
+            logger.error("Error en la carga: {}", e.getMessage(), e);
+            System.err.println("Error de base de datos: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } finally {
+            detenerContexto(context);
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    /**
+     * Repetición de una grabación de llamadas contra la base de datos configurada
+     * Uso: reproducir &lt;archivo&gt; [--velocidad N|max]
+     *
+     * Pensado para una base de prueba restaurada al estado del inicio de la
+     * grabación: las devoluciones y préstamos cambian los datos.
+     *
+     * @param args argumentos de línea de comandos (args[0] = "reproducir")
+     * @return código de salida del proceso (3 si alguna llamada cambió de resultado)
+     */
+    private static int ejecutarReproduccion(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Uso: reproducir <archivo> [--velocidad N|max]");
+            return 2;
+        }
+
+        // Argumentos y grabación se validan antes de abrir el pool
+        List<WorkloadRecorder.Registro> registros;
+        double velocidad = 1;
+        try {
+            Path archivo = Path.of(args[1]);
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--velocidad" -> velocidad = leerVelocidad(valorOpcion(args, ++i));
+                    default -> throw new IllegalArgumentException("Opción desconocida: " + args[i]);
+                }
+            }
+            registros = WorkloadRecorder.leer(archivo);
+        } catch (IOException e) {
+            System.err.println("Error al leer la grabación: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Uso: reproducir <archivo> [--velocidad N|max]");
+            return 2;
+        }
+
+        Database database = null;
+        ApplicationContext context = null;
+        try {
+            database = Database.getInstance();
+            // Los mismos servicios con los que se grabó, para comparar latencias de la misma transacción
+            context = iniciarContexto(database);
+            WorkloadReplayer replayer = new WorkloadReplayer(context.getPrestamoService(),
+                    context.getLibroService(), context.getUsuarioService());
+
+            WorkloadReplayer.Reporte reporte = replayer.reproducir(registros, velocidad);
+            System.out.println(reporte);
+            new TableFormatter().mostrarTablaGenerica(WorkloadReplayer.Reporte.getEncabezados(), reporte.getFilas(),
+                    WorkloadReplayer.Reporte.getAnchos());
+            reporte.getDiferencias().forEach(diferencia -> System.out.println("  " + diferencia));
+            return reporte.getCambios() > 0 ? 3 : 0;
+
+        } catch (SQLException e) {
+            logger.error("Error en la repetición: {}", e.getMessage(), e);
+            System.err.println("Error de base de datos: " + e.getMessage());
+            return 1;
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 2;
+        } finally {
+            detenerContexto(context);
+            if (database != null) {
+                database.close();
+            }
+        }
+    }
+
+    /**
+     * Factor de velocidad de la repetición: un número mayor a 0, o max (0)
+     * para repetir sin esperas
+     *
+     * @param valor valor de --velocidad
+     * @return factor de velocidad
+     * @throws IllegalArgumentException si el valor no es max ni un número positivo
+     */
+    private static double leerVelocidad(String valor) {
+        if ("max".equalsIgnoreCase(valor)) {
+            return 0;
+        }
+        try {
+            double velocidad = Double.parseDouble(valor);
+            if (velocidad > 0 && Double.isFinite(velocidad)) {
+                return velocidad;
+            }
+        } catch (NumberFormatException e) {
+            // Mismo mensaje que para un número fuera de rango
+        }
+        throw new IllegalArgumentException("La velocidad debe ser un número mayor a 0 o max: " + valor);
+    }
+
+    /**
+     * Programa la actualización de préstamos vencidos, el archivado de préstamos
+     * devueltos y la purga de lápidas para ejecutarse a medianoche
+     */
+    private static void programarActualizacionVencidos(PrestamoService prestamoService,
+            PrestamoArchiver prestamoArchiver, TombstoneRetention tombstoneRetention) {
         ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
 
         // Calcular tiempo hasta la próxima medianoche
@@ -181,12 +862,30 @@ public class Main {
         scheduler.scheduleAtFixedRate(() -> {
             try {
                 int actualizados = prestamoService.actualizarPrestamosVencidos();
+                // Corre con el menú en pantalla: se registra en el log en vez de imprimirse
                 if (actualizados > 0) {
-                    System.out.println("[Tarea programada] " + actualizados +
-                            " préstamos marcados como VENCIDOS");
+                    logger.info("[Tarea programada] {} préstamos marcados como VENCIDOS", actualizados);
+                }
+            } catch (Exception e) {
+                logger.error("Error al actualizar préstamos vencidos: {}", e.getMessage(), e);
+            }
+
+            try {
+                int archivados = prestamoArchiver.archivarDevueltos();
+                if (archivados > 0) {
+                    logger.info("[Tarea programada] {} préstamos devueltos archivados", archivados);
+                }
+            } catch (Exception e) {
+                logger.error("Error al archivar préstamos devueltos: {}", e.getMessage(), e);
+            }
+
+            try {
+                int purgadas = tombstoneRetention.purgar();
+                if (purgadas > 0) {
+                    logger.info("[Tarea programada] {} lápidas del feed de cambios purgadas", purgadas);
                 }
             } catch (Exception e) {
-                System.err.println("Error en tarea programada: " + e.getMessage());
+                logger.error("Error al purgar las lápidas del feed de cambios: {}", e.getMessage(), e);
             }
         }, segundosHastaMedianoche, 86400, TimeUnit.SECONDS); // 86400 segundos = 1 día
 
@@ -0,0 +1,641 @@
+package com.example.crudapp.application.services;
+
+import com.example.crudapp.application.dto.LibroDTO;
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.repositories.LibroRepository;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Servicio de importación masiva de catálogos de libros desde CSV
+ *
+ * El archivo se mapea en memoria por trozos cortados en fin de línea y cada
+ * trozo se procesa en paralelo en un ForkJoinPool. Cada tarea valida las filas
+ * con las mismas reglas que LibroService y las inserta por lotes usando su
+ * propia conexión del pool. Las filas rechazadas se escriben tal cual en un
+ * archivo de rechazos junto con el motivo.
+ *
+ * Formato esperado: titulo,autor,isbn,genero,año_publicacion (una fila por
+ * línea, encabezado opcional, campos entre comillas dobles con "" como escape).
+ *
+ */
+public class LibroImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibroImportService.class);
+
+    private static final long TAMAÑO_TROZO = 64L * 1024 * 1024;
+    private static final int TAMAÑO_LOTE = 1000;
+    private static final int NUM_CAMPOS = 5;
+
+    // Restricciones de la tabla libros (schema.sql)
+    private static final int MAX_TITULO = 200;
+    private static final int MAX_AUTOR = 150;
+    private static final int MAX_ISBN = 20;
+    private static final int MAX_GENERO = 50;
+    private static final int AÑO_MINIMO_TABLA = 1400;
+
+    private final LibroRepository libroRepository;
+    private final TransactionManager transactionManager;
+    private final int paralelismo;
+
+    /**
+     * Constructor del servicio de importación
+     *
+     * @param libroRepository repositorio de libros
+     * @param transactionManager gestor de transacciones
+     * @param paralelismo número de tareas simultáneas (debe ser menor al tamaño del pool)
+     * @throws IllegalArgumentException si algún parámetro es inválido
+     */
+    public LibroImportService(LibroRepository libroRepository, TransactionManager transactionManager, int paralelismo) {
+        if (libroRepository == null) {
+            throw new IllegalArgumentException("El repositorio de libros no puede ser null");
+        }
+        if (transactionManager == null) {
+            throw new IllegalArgumentException("El gestor de transacciones no puede ser null");
+        }
+        if (paralelismo <= 0) {
+            throw new IllegalArgumentException("El paralelismo debe ser mayor a 0");
+        }
+
+        this.libroRepository = libroRepository;
+        this.transactionManager = transactionManager;
+        this.paralelismo = paralelismo;
+
+        logger.info("LibroImportService inicializado con paralelismo {}", paralelismo);
+    }
+
+    /**
+     * Importa un archivo CSV de catálogo
+     *
+     * @param archivo archivo CSV a importar
+     * @param rechazos archivo donde se escriben las filas rechazadas (se sobrescribe)
+     * @param progreso recibe el avance aproximadamente cada segundo (puede ser null)
+     * @return resumen de la importación
+     * @throws IOException si no se puede leer el CSV o escribir los rechazos
+     */
+    public ImportResult importar(Path archivo, Path rechazos, Consumer<ImportResult> progreso) throws IOException {
+        if (archivo == null || rechazos == null) {
+            throw new IllegalArgumentException("El archivo y el archivo de rechazos no pueden ser null");
+        }
+
+        try (FileChannel entrada = FileChannel.open(archivo, StandardOpenOption.READ);
+                FileChannel salidaRechazos = FileChannel.open(rechazos, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            long tamaño = entrada.size();
+            List<long[]> trozos = dividirEnLineas(entrada, tamaño);
+            ImportResult resultado = new ImportResult(tamaño);
+
+            logger.info("Importando {} ({} bytes) en {} trozos", archivo, tamaño, trozos.size());
+
+            ForkJoinPool pool = new ForkJoinPool(paralelismo);
+            Thread reporte = iniciarReporte(resultado, progreso);
+            try {
+                pool.invoke(new ImportarTrozos(entrada, salidaRechazos, trozos, 0, trozos.size(), resultado));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+                if (reporte != null) {
+                    reporte.interrupt();
+                }
+            }
+
+            resultado.terminar();
+            logger.info("Importación terminada: {}", resultado);
+            return resultado;
+        }
+    }
+
+    /**
+     * Divide el archivo en trozos de tamaño similar que terminan en fin de línea
+     *
+     * @return pares {inicio, largo} de cada trozo
+     */
+    private List<long[]> dividirEnLineas(FileChannel channel, long tamaño) throws IOException {
+        List<long[]> trozos = new ArrayList<>();
+        ByteBuffer lectura = ByteBuffer.allocate(8192);
+        long inicio = 0;
+
+        while (inicio < tamaño) {
+            long fin = Math.min(inicio + TAMAÑO_TROZO, tamaño);
+
+            // Avanzar hasta el próximo salto de línea
+            while (fin < tamaño) {
+                lectura.clear();
+                int leidos = channel.read(lectura, fin);
+                if (leidos <= 0) {
+                    fin = tamaño;
+                    break;
+                }
+                int salto = -1;
+                for (int i = 0; i < leidos; i++) {
+                    if (lectura.get(i) == '\n') {
+                        salto = i;
+                        break;
+                    }
+                }
+                if (salto >= 0) {
+                    fin += salto + 1;
+                    break;
+                }
+                fin += leidos;
+            }
+
+            trozos.add(new long[] { inicio, fin - inicio });
+            inicio = fin;
+        }
+
+        return trozos;
+    }
+
+    private Thread iniciarReporte(ImportResult resultado, Consumer<ImportResult> progreso) {
+        if (progreso == null) {
+            return null;
+        }
+
+        Thread hilo = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(1000);
+                    progreso.accept(resultado);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "import-progreso");
+        hilo.setDaemon(true);
+        hilo.start();
+        return hilo;
+    }
+
+    /**
+     * Tarea fork/join que reparte los trozos hasta procesar uno por hoja
+     * ForkJoinTask es Serializable, pero la tarea nunca se serializa: vive
+     * solo dentro de una importación y guarda canales abiertos
+     */
+    @SuppressWarnings("serial")
+    private class ImportarTrozos extends RecursiveAction {
+        private final FileChannel entrada;
+        private final FileChannel rechazos;
+        private final List<long[]> trozos;
+        private final int desde;
+        private final int hasta;
+        private final ImportResult resultado;
+
+        ImportarTrozos(FileChannel entrada, FileChannel rechazos, List<long[]> trozos, int desde, int hasta,
+                ImportResult resultado) {
+            this.entrada = entrada;
+            this.rechazos = rechazos;
+            this.trozos = trozos;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.resultado = resultado;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde > 1) {
+                int medio = (desde + hasta) >>> 1;
+                invokeAll(new ImportarTrozos(entrada, rechazos, trozos, desde, medio, resultado),
+                        new ImportarTrozos(entrada, rechazos, trozos, medio, hasta, resultado));
+                return;
+            }
+
+            long[] trozo = trozos.get(desde);
+            try {
+                MappedByteBuffer mapa = entrada.map(FileChannel.MapMode.READ_ONLY, trozo[0], trozo[1]);
+                new ParserTrozo(mapa, trozo[0], desde == 0, rechazos, resultado).procesar();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Parser de un trozo mapeado en memoria
+     * Recorre los bytes sin crear objetos por campo; solo decodifica a String
+     * las filas que pasan las validaciones a nivel de bytes
+     */
+    private class ParserTrozo {
+        private final MappedByteBuffer mapa;
+        private final long offsetBase;
+        private final boolean primerTrozo;
+        private final FileChannel rechazos;
+        private final ImportResult resultado;
+
+        private final int[] inicioCampo = new int[NUM_CAMPOS + 1];
+        private final int[] finCampo = new int[NUM_CAMPOS + 1];
+        private final boolean[] conComillas = new boolean[NUM_CAMPOS + 1];
+        private byte[] auxiliar = new byte[256];
+
+        private final List<Libro> lote = new ArrayList<>(TAMAÑO_LOTE);
+        private final List<int[]> lineasLote = new ArrayList<>(TAMAÑO_LOTE);
+        private final ByteArrayBuilder bufferRechazos = new ByteArrayBuilder();
+
+        ParserTrozo(MappedByteBuffer mapa, long offsetBase, boolean primerTrozo, FileChannel rechazos,
+                ImportResult resultado) {
+            this.mapa = mapa;
+            this.offsetBase = offsetBase;
+            this.primerTrozo = primerTrozo;
+            this.rechazos = rechazos;
+            this.resultado = resultado;
+        }
+
+        void procesar() throws IOException {
+            int limite = mapa.limit();
+            int pos = 0;
+            boolean primeraLinea = primerTrozo;
+
+            while (pos < limite) {
+                int inicioLinea = pos;
+                int campos = 0;
+                boolean abierto = false;
+                inicioCampo[0] = pos;
+                conComillas[0] = false;
+
+                // Separar campos hasta el fin de línea (fuera de comillas)
+                while (pos < limite) {
+                    byte b = mapa.get(pos);
+                    if (abierto) {
+                        if (b == '"') {
+                            if (pos + 1 < limite && mapa.get(pos + 1) == '"') {
+                                pos++;
+                            } else {
+                                abierto = false;
+                            }
+                        }
+                    } else if (b == '"' && pos == inicioCampo[campos]) {
+                        abierto = true;
+                        conComillas[campos] = true;
+                    } else if (b == ',' || b == '\n') {
+                        if (campos <= NUM_CAMPOS) {
+                            finCampo[campos] = pos;
+                        }
+                        campos++;
+                        if (b == '\n') {
+                            break;
+                        }
+                        if (campos <= NUM_CAMPOS) {
+                            inicioCampo[campos] = pos + 1;
+                            conComillas[campos] = false;
+                        }
+                    }
+                    pos++;
+                }
+
+                int finLinea = pos;
+                if (pos >= limite) {
+                    // Última línea sin salto final
+                    if (campos <= NUM_CAMPOS) {
+                        finCampo[campos] = pos;
+                    }
+                    campos++;
+                }
+                pos++;
+
+                if (finLinea > inicioLinea && mapa.get(finLinea - 1) == '\r') {
+                    finLinea--;
+                    if (campos <= NUM_CAMPOS && finCampo[campos - 1] > finLinea) {
+                        finCampo[campos - 1] = finLinea;
+                    }
+                }
+
+                if (finLinea == inicioLinea) {
+                    continue; // línea vacía
+                }
+
+                if (primeraLinea) {
+                    primeraLinea = false;
+                    if (esEncabezado()) {
+                        continue;
+                    }
+                }
+
+                procesarFila(inicioLinea, finLinea, campos);
+
+                if (lote.size() >= TAMAÑO_LOTE) {
+                    insertarLote();
+                }
+            }
+
+            insertarLote();
+            escribirRechazos();
+            resultado.bytesProcesados.addAndGet(limite);
+        }
+
+        private void procesarFila(int inicioLinea, int finLinea, int campos) {
+            resultado.filasLeidas.incrementAndGet();
+
+            if (campos != NUM_CAMPOS) {
+                rechazar(inicioLinea, finLinea, "Se esperaban " + NUM_CAMPOS + " campos y hay " + campos);
+                return;
+            }
+
+            // Validaciones a nivel de bytes antes de decodificar
+            for (int c = 0; c < NUM_CAMPOS - 1; c++) {
+                if (esBlanco(c)) {
+                    rechazar(inicioLinea, finLinea, "Campo obligatorio vacío en columna " + (c + 1));
+                    return;
+                }
+            }
+
+            Integer año = null;
+            if (!esBlanco(4)) {
+                año = parsearEntero(4);
+                if (año == null) {
+                    rechazar(inicioLinea, finLinea, "Año de publicación inválido");
+                    return;
+                }
+            }
+
+            LibroDTO libroDTO = new LibroDTO(decodificar(0), decodificar(1), decodificar(2), decodificar(3), año);
+
+            try {
+                LibroService.validarDatosLibro(libroDTO);
+            } catch (IllegalArgumentException e) {
+                rechazar(inicioLinea, finLinea, e.getMessage());
+                return;
+            }
+
+            String errorEsquema = validarEsquema(libroDTO);
+            if (errorEsquema != null) {
+                rechazar(inicioLinea, finLinea, errorEsquema);
+                return;
+            }
+
+            Libro libro = new Libro(libroDTO.getTitulo(), libroDTO.getAutor(), libroDTO.getIsbn(),
+                    libroDTO.getGenero(), libroDTO.getAñoPublicacion());
+            lote.add(libro);
+            lineasLote.add(new int[] { inicioLinea, finLinea });
+        }
+
+        /**
+         * Restricciones de la tabla que harían fallar el lote completo
+         */
+        private String validarEsquema(LibroDTO libroDTO) {
+            if (libroDTO.getTitulo().length() > MAX_TITULO) {
+                return "El título supera " + MAX_TITULO + " caracteres";
+            }
+            if (libroDTO.getAutor().length() > MAX_AUTOR) {
+                return "El autor supera " + MAX_AUTOR + " caracteres";
+            }
+            if (libroDTO.getIsbn().length() > MAX_ISBN) {
+                return "El ISBN supera " + MAX_ISBN + " caracteres";
+            }
+            if (libroDTO.getGenero().length() > MAX_GENERO) {
+                return "El género supera " + MAX_GENERO + " caracteres";
+            }
+            Integer año = libroDTO.getAñoPublicacion();
+            if (año != null && (año <= AÑO_MINIMO_TABLA || año > Year.now().getValue())) {
+                return "El año de publicación debe estar entre " + (AÑO_MINIMO_TABLA + 1) + " y el año actual";
+            }
+            return null;
+        }
+
+        private void insertarLote() throws IOException {
+            if (lote.isEmpty()) {
+                return;
+            }
+
+            try {
+                Set<String> insertados = transactionManager.executeInTransaction(
+                        connection -> libroRepository.saveAllIgnoringDuplicates(connection, lote));
+
+                resultado.filasInsertadas.addAndGet(insertados.size());
+
+                // Las filas no devueltas por RETURNING tenían un ISBN existente
+                for (int i = 0; i < lote.size(); i++) {
+                    if (!insertados.remove(lote.get(i).getIsbn())) {
+                        int[] linea = lineasLote.get(i);
+                        agregarRechazo(linea[0], linea[1], "ISBN duplicado");
+                        resultado.filasDuplicadas.incrementAndGet();
+                    }
+                }
+            } catch (SQLException e) {
+                logger.warn("Lote de {} filas rechazado por error de base de datos: {}", lote.size(), e.getMessage());
+                for (int[] linea : lineasLote) {
+                    rechazar(linea[0], linea[1], "Error de base de datos: " + e.getMessage());
+                }
+            }
+
+            lote.clear();
+            lineasLote.clear();
+            escribirRechazos();
+        }
+
+        private void rechazar(int inicioLinea, int finLinea, String motivo) {
+            resultado.filasRechazadas.incrementAndGet();
+            agregarRechazo(inicioLinea, finLinea, motivo);
+        }
+
+        private void agregarRechazo(int inicioLinea, int finLinea, String motivo) {
+            bufferRechazos.append(String.valueOf(offsetBase + inicioLinea).getBytes(StandardCharsets.US_ASCII));
+            bufferRechazos.append((byte) '|');
+            bufferRechazos.append(motivo.replace('\n', ' ').replace('|', '/').getBytes(StandardCharsets.UTF_8));
+            bufferRechazos.append((byte) '|');
+            bufferRechazos.append(mapa, inicioLinea, finLinea - inicioLinea);
+            bufferRechazos.append((byte) '\n');
+        }
+
+        private void escribirRechazos() throws IOException {
+            if (bufferRechazos.length() == 0) {
+                return;
+            }
+            ByteBuffer datos = bufferRechazos.toByteBuffer();
+            synchronized (rechazos) {
+                while (datos.hasRemaining()) {
+                    rechazos.write(datos);
+                }
+            }
+            bufferRechazos.reset();
+        }
+
+        private boolean esEncabezado() {
+            byte[] titulo = { 't', 'i', 't', 'u', 'l', 'o' };
+            int inicio = inicioCampo[0];
+            if (finCampo[0] - inicio < titulo.length) {
+                return false;
+            }
+            for (int i = 0; i < titulo.length; i++) {
+                if (Character.toLowerCase(mapa.get(inicio + i)) != titulo[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean esBlanco(int campo) {
+            for (int i = inicioCampo[campo]; i < finCampo[campo]; i++) {
+                byte b = mapa.get(i);
+                if (b != ' ' && b != '\t' && b != '"') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private Integer parsearEntero(int campo) {
+            int valor = 0;
+            int digitos = 0;
+            for (int i = inicioCampo[campo]; i < finCampo[campo]; i++) {
+                byte b = mapa.get(i);
+                if (b >= '0' && b <= '9') {
+                    if (++digitos > 9) {
+                        return null;
+                    }
+                    valor = valor * 10 + (b - '0');
+                } else if (b != ' ' && b != '\t' && b != '"') {
+                    return null;
+                }
+            }
+            return digitos > 0 ? valor : null;
+        }
+
+        private String decodificar(int campo) {
+            int inicio = inicioCampo[campo];
+            int fin = finCampo[campo];
+            int largo = fin - inicio;
+
+            if (auxiliar.length < largo) {
+                auxiliar = new byte[Math.max(largo, auxiliar.length * 2)];
+            }
+
+            int n;
+            if (conComillas[campo]) {
+                // Quitar comillas externas y convertir "" en "
+                n = 0;
+                int ultimaComilla = fin - 1;
+                while (ultimaComilla > inicio && mapa.get(ultimaComilla) != '"') {
+                    ultimaComilla--;
+                }
+                for (int i = inicio + 1; i < ultimaComilla; i++) {
+                    byte b = mapa.get(i);
+                    auxiliar[n++] = b;
+                    if (b == '"') {
+                        i++;
+                    }
+                }
+            } else {
+                mapa.get(inicio, auxiliar, 0, largo);
+                n = largo;
+            }
+
+            return new String(auxiliar, 0, n, StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    /**
+     * Acumulador de bytes reutilizable para el archivo de rechazos
+     */
+    private static class ByteArrayBuilder {
+        private byte[] datos = new byte[4096];
+        private int largo;
+
+        void append(byte b) {
+            asegurar(1);
+            datos[largo++] = b;
+        }
+
+        void append(byte[] bytes) {
+            asegurar(bytes.length);
+            System.arraycopy(bytes, 0, datos, largo, bytes.length);
+            largo += bytes.length;
+        }
+
+        void append(ByteBuffer origen, int posicion, int cantidad) {
+            asegurar(cantidad);
+            origen.get(posicion, datos, largo, cantidad);
+            largo += cantidad;
+        }
+
+        int length() {
+            return largo;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(datos, 0, largo);
+        }
+
+        void reset() {
+            largo = 0;
+        }
+
+        private void asegurar(int extra) {
+            if (largo + extra > datos.length) {
+                byte[] mayor = new byte[Math.max(datos.length * 2, largo + extra)];
+                System.arraycopy(datos, 0, mayor, 0, largo);
+                datos = mayor;
+            }
+        }
+    }
+
+    /**
+     * Resumen y avance de una importación
+     */
+    public static class ImportResult {
+        private final long bytesTotales;
+        private final long inicio = System.nanoTime();
+        private volatile long fin;
+
+        private final AtomicLong bytesProcesados = new AtomicLong();
+        private final AtomicLong filasLeidas = new AtomicLong();
+        private final AtomicLong filasInsertadas = new AtomicLong();
+        private final AtomicLong filasDuplicadas = new AtomicLong();
+        private final AtomicLong filasRechazadas = new AtomicLong();
+
+        ImportResult(long bytesTotales) {
+            this.bytesTotales = bytesTotales;
+        }
+
+        void terminar() {
+            fin = System.nanoTime();
+        }
+
+        public long getFilasLeidas() { return filasLeidas.get(); }
+        public long getFilasInsertadas() { return filasInsertadas.get(); }
+        public long getFilasDuplicadas() { return filasDuplicadas.get(); }
+        public long getFilasRechazadas() { return filasRechazadas.get(); }
+
+        public double getPorcentaje() {
+            return bytesTotales == 0 ? 100.0 : bytesProcesados.get() * 100.0 / bytesTotales;
+        }
+
+        public double getSegundos() {
+            long hasta = fin != 0 ? fin : System.nanoTime();
+            return (hasta - inicio) / 1_000_000_000.0;
+        }
+
+        public double getFilasPorSegundo() {
+            double segundos = getSegundos();
+            return segundos > 0 ? getFilasLeidas() / segundos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.1f%% - %d leídas, %d insertadas, %d duplicadas, %d rechazadas, %.2f s (%.0f filas/s)",
+                    getPorcentaje(), getFilasLeidas(), getFilasInsertadas(), getFilasDuplicadas(),
+                    getFilasRechazadas(), getSegundos(), getFilasPorSegundo());
+        }
+    }
+}
@@ -2,13 +2,17 @@ package com.example.crudapp.application.services;
 
 import com.example.crudapp.domain.entities.Libro;
 import com.example.crudapp.domain.repositories.LibroRepository;
+import com.example.crudapp.domain.repositories.UpsertResult;
 import com.example.crudapp.application.dto.LibroDTO;
+import com.example.crudapp.infrastructure.audit.AuditTrail;
 import com.example.crudapp.infrastructure.transactions.TransactionManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,17 +25,36 @@ public class LibroService {
     
     private static final Logger logger = LoggerFactory.getLogger(LibroService.class);
     
+    // SQLState de PostgreSQL para una restricción única violada
+    private static final String UNIQUE_VIOLATION = "23505";
+    
+    private static final String TABLA = "libros";
+    
     private final LibroRepository libroRepository;
     private final TransactionManager transactionManager;
+    private final AuditTrail auditoria;
     
     /**
-     * Constructor del servicio de libros
+     * Constructor del servicio de libros sin auditoría
      * 
      * @param libroRepository repositorio de libros
      * @param transactionManager gestor de transacciones
      * @throws IllegalArgumentException si algún parámetro es null
      */
     public LibroService(LibroRepository libroRepository, TransactionManager transactionManager) {
+        this(libroRepository, transactionManager, null);
+    }
+    
+    /**
+     * Constructor del servicio de libros
+     * 
+     * @param libroRepository repositorio de libros
+     * @param transactionManager gestor de transacciones
+     * @param auditoria registro de auditoría de los cambios (null para no auditar)
+     * @throws IllegalArgumentException si el repositorio o el gestor es null
+     */
+    public LibroService(LibroRepository libroRepository, TransactionManager transactionManager,
+            AuditTrail auditoria) {
         if (libroRepository == null) {
             throw new IllegalArgumentException("El repositorio de libros no puede ser null");
         }
@@ -41,6 +64,7 @@ public class LibroService {
         
         this.libroRepository = libroRepository;
         this.transactionManager = transactionManager;
+        this.auditoria = auditoria;
         
         logger.info("LibroService inicializado correctamente");
     }
@@ -63,13 +87,6 @@ public class LibroService {
         validarDatosLibro(libroDTO);
         
         return transactionManager.executeInTransaction(connection -> {
-            // Verificar que no exista un libro con el mismo ISBN
-            if (libroRepository.existsByIsbn(connection, libroDTO.getIsbn())) {
-                String mensaje = String.format("Ya existe un libro con el ISBN: %s", libroDTO.getIsbn());
-                logger.warn(mensaje);
-                throw new IllegalArgumentException(mensaje);
-            }
-            
             Libro libro = new Libro();
             libro.setTitulo(libroDTO.getTitulo());
             libro.setAutor(libroDTO.getAutor());
@@ -78,10 +95,17 @@ public class LibroService {
             libro.setAñoPublicacion(libroDTO.getAñoPublicacion());
             libro.setDisponible(libroDTO.getDisponible() != null ? libroDTO.getDisponible() : true);
             
-            Libro libroCreado = libroRepository.save(connection, libro);
-            logger.info("Libro creado exitosamente con ID: {}", libroCreado.getId());
+            // El índice único del ISBN descarta los duplicados en la misma sentencia
+            Optional<Libro> libroCreado = libroRepository.saveIfAbsent(connection, libro);
+            if (libroCreado.isEmpty()) {
+                String mensaje = String.format("Ya existe un libro con el ISBN: %s", libroDTO.getIsbn());
+                logger.warn(mensaje);
+                throw new IllegalArgumentException(mensaje);
+            }
+            auditar(connection, AuditTrail.Operacion.INSERT, libroCreado.get().getId(), null, libroCreado.get());
+            logger.info("Libro creado exitosamente con ID: {}", libroCreado.get().getId());
             
-            return libroCreado;
+            return libroCreado.get();
         });
     }
     
@@ -219,6 +243,25 @@ public class LibroService {
         return libros;
     }
     
+    /**
+     * Obtiene una página de libros ordenada por ID (paginación por clave)
+     * 
+     * @param despuesDeId ID del último elemento de la página anterior (0 para la primera)
+     * @param tamaño cantidad máxima de elementos de la página
+     * @return libros de la página, vacía si no hay más
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el tamaño no es positivo
+     */
+    public List<Libro> obtenerPagina(long despuesDeId, int tamaño) throws SQLException {
+        if (tamaño <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+        }
+        
+        return transactionManager.executeInTransaction(connection -> 
+            libroRepository.findPage(connection, despuesDeId, tamaño)
+        );
+    }
+    
     /**
      * Obtiene todos los libros disponibles
      * 
@@ -257,22 +300,14 @@ public class LibroService {
         validarDatosLibro(libroDTO);
         
         transactionManager.executeInTransactionVoid(connection -> {
-            Optional<Libro> libroExistente = libroRepository.findById(connection, id);
-            if (libroExistente.isEmpty()) {
-                String mensaje = String.format("No existe un libro con ID: %d", id);
-                logger.warn(mensaje);
-                throw new IllegalArgumentException(mensaje);
-            }
-            
-            // Verificar que el ISBN no esté siendo usado por otro libro
-            Optional<Libro> libroConIsbn = libroRepository.findByIsbn(connection, libroDTO.getIsbn());
-            if (libroConIsbn.isPresent() && !libroConIsbn.get().getId().equals(id)) {
-                String mensaje = String.format("Ya existe otro libro con el ISBN: %s", libroDTO.getIsbn());
-                logger.warn(mensaje);
-                throw new IllegalArgumentException(mensaje);
-            }
+            // Si se audita la fila ya se lee para la instantánea: los datos se aplican sobre ella y
+            // el UPDATE escribe solo las columnas que cambian. Sin auditoría la entidad nueva no está
+            // sincronizada y el repositorio compara la fila completa antes de escribirla.
+            Libro actual = auditoria != null ? libroRepository.findById(connection, id).orElse(null) : null;
+            String antes = auditoria != null ? AuditTrail.instantanea(actual) : null;
             
-            Libro libro = libroExistente.get();
+            Libro libro = actual != null ? actual : new Libro();
+            libro.setId(id);
             libro.setTitulo(libroDTO.getTitulo());
             libro.setAutor(libroDTO.getAutor());
             libro.setIsbn(libroDTO.getIsbn());
@@ -280,7 +315,24 @@ public class LibroService {
             libro.setAñoPublicacion(libroDTO.getAñoPublicacion());
             libro.setDisponible(libroDTO.getDisponible() != null ? libroDTO.getDisponible() : true);
             
-            libroRepository.update(connection, libro);
+            // Un solo UPDATE: la fila inexistente y el ISBN repetido los informa la base de datos
+            Optional<Libro> libroActualizado;
+            try {
+                libroActualizado = libroRepository.updateIfExists(connection, libro);
+            } catch (SQLException e) {
+                if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+                String mensaje = String.format("Ya existe otro libro con el ISBN: %s", libroDTO.getIsbn());
+                logger.warn(mensaje);
+                throw new IllegalArgumentException(mensaje, e);
+            }
+            if (libroActualizado.isEmpty()) {
+                String mensaje = String.format("No existe un libro con ID: %d", id);
+                logger.warn(mensaje);
+                throw new IllegalArgumentException(mensaje);
+            }
+            auditar(connection, AuditTrail.Operacion.UPDATE, id, antes, libroActualizado.get());
             logger.info("Libro actualizado exitosamente con ID: {}", id);
         });
     }
@@ -300,13 +352,13 @@ public class LibroService {
         logger.debug("Eliminando libro con ID: {}", id);
         
         transactionManager.executeInTransactionVoid(connection -> {
-            if (!libroRepository.existsById(connection, id)) {
+            String antes = estadoAnterior(connection, id);
+            if (!libroRepository.deleteById(connection, id)) {
                 String mensaje = String.format("No existe un libro con ID: %d", id);
                 logger.warn(mensaje);
                 throw new IllegalArgumentException(mensaje);
             }
-            
-            libroRepository.deleteById(connection, id);
+            auditar(connection, AuditTrail.Operacion.DELETE, id, antes, null);
             logger.info("Libro eliminado exitosamente con ID: {}", id);
         });
     }
@@ -327,24 +379,95 @@ public class LibroService {
         logger.debug("Actualizando disponibilidad del libro ID: {} a {}", id, disponible);
         
         transactionManager.executeInTransactionVoid(connection -> {
-            if (!libroRepository.existsById(connection, id)) {
+            String antes = estadoAnterior(connection, id);
+            if (!libroRepository.updateDisponibilidad(connection, id, disponible)) {
                 String mensaje = String.format("No existe un libro con ID: %d", id);
                 logger.warn(mensaje);
                 throw new IllegalArgumentException(mensaje);
             }
-            
-            libroRepository.updateDisponibilidad(connection, id, disponible);
+            if (auditoria != null) {
+                // El libro leído para el estado anterior quedó actualizado en el mapa de identidad
+                auditar(connection, AuditTrail.Operacion.UPDATE, id, antes,
+                        libroRepository.findById(connection, id).orElse(null));
+            }
             logger.info("Disponibilidad actualizada exitosamente para libro ID: {}", id);
         });
     }
     
+    /**
+     * Sincroniza el catálogo con un envío completo de libros identificados por ISBN
+     * Inserta los nuevos y actualiza solo los que cambiaron, en una transacción y
+     * con una sentencia para todo el envío. La disponibilidad de los libros
+     * existentes no se modifica.
+     * 
+     * @param libros libros del catálogo central
+     * @return cantidades de libros insertados, actualizados y sin cambios
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si la lista es null o algún libro es inválido
+     */
+    public UpsertResult sincronizarCatalogo(List<LibroDTO> libros) throws SQLException {
+        if (libros == null) {
+            throw new IllegalArgumentException("La lista de libros no puede ser null");
+        }
+        
+        logger.debug("Sincronizando catálogo con {} libros", libros.size());
+        
+        List<Libro> entidades = new ArrayList<>(libros.size());
+        for (LibroDTO libroDTO : libros) {
+            validarDatosLibro(libroDTO);
+            Libro libro = new Libro();
+            libro.setTitulo(libroDTO.getTitulo());
+            libro.setAutor(libroDTO.getAutor());
+            libro.setIsbn(libroDTO.getIsbn());
+            libro.setGenero(libroDTO.getGenero());
+            libro.setAñoPublicacion(libroDTO.getAñoPublicacion());
+            entidades.add(libro);
+        }
+        
+        long inicio = System.nanoTime();
+        UpsertResult resultado = transactionManager.executeInTransaction(connection -> 
+            libroRepository.upsertAll(connection, entidades)
+        );
+        
+        logger.info("Catálogo sincronizado en {} ms: {}", (System.nanoTime() - inicio) / 1_000_000, resultado);
+        return resultado;
+    }
+    
+    /**
+     * Lee el estado de un libro antes de modificarlo, solo si se audita
+     * 
+     * @param connection conexión de la transacción
+     * @param id identificador del libro
+     * @return instantánea JSON del libro, o null si no se audita o no existe
+     * @throws SQLException si ocurre un error de base de datos
+     */
+    private String estadoAnterior(Connection connection, Long id) throws SQLException {
+        return auditoria != null ? AuditTrail.instantanea(libroRepository.findById(connection, id).orElse(null)) : null;
+    }
+    
+    /**
+     * Registra un cambio en la auditoría (se escribe después del commit)
+     * 
+     * @param connection conexión de la transacción
+     * @param operacion tipo de cambio
+     * @param id identificador del libro
+     * @param antes instantánea anterior (null en INSERT)
+     * @param despues libro después del cambio (null en DELETE)
+     */
+    private void auditar(Connection connection, AuditTrail.Operacion operacion, Long id, String antes, Libro despues) {
+        if (auditoria != null) {
+            auditoria.registrar(connection, TABLA, operacion, id, antes, AuditTrail.instantanea(despues));
+        }
+    }
+    
     /**
      * Valida los datos del libro
+     * También la usa LibroImportService para validar cada fila importada
      * 
      * @param libroDTO datos a validar
      * @throws IllegalArgumentException si los datos son inválidos
      */
-    private void validarDatosLibro(LibroDTO libroDTO) {
+    static void validarDatosLibro(LibroDTO libroDTO) {
         if (libroDTO.getTitulo() == null || libroDTO.getTitulo().trim().isEmpty()) {
             throw new IllegalArgumentException("El título del libro no puede estar vacío");
         }
@@ -7,16 +7,23 @@ import com.example.crudapp.domain.repositories.PrestamoRepository;
 import com.example.crudapp.domain.repositories.UsuarioRepository;
 import com.example.crudapp.domain.repositories.LibroRepository;
 import com.example.crudapp.application.dto.PrestamoDTO;
+import com.example.crudapp.infrastructure.audit.AuditTrail;
+import com.example.crudapp.infrastructure.events.EventoPrestamo;
+import com.example.crudapp.infrastructure.events.PrestamoOutbox;
+import com.example.crudapp.infrastructure.transactions.DataLoader;
 import com.example.crudapp.infrastructure.transactions.TransactionManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Types;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -41,13 +48,19 @@ public class PrestamoService {
     private static final String ESTADO_DEVUELTO = "DEVUELTO";
     private static final String ESTADO_VENCIDO = "VENCIDO";
 
+    private static final String TABLA = "prestamos";
+
+    private static final String ACTUALIZAR_VENCIDOS = "SELECT * FROM actualizar_prestamos_vencidos()";
+
     private final PrestamoRepository prestamoRepository;
     private final UsuarioRepository usuarioRepository;
     private final LibroRepository libroRepository;
     private final TransactionManager transactionManager;
+    private final PrestamoOutbox outbox;
+    private final AuditTrail auditoria;
 
     /**
-     * Constructor del servicio de préstamos
+     * Constructor del servicio de préstamos sin outbox de eventos
      * 
      * @param prestamoRepository repositorio de préstamos
      * @param usuarioRepository  repositorio de usuarios
@@ -59,6 +72,28 @@ public class PrestamoService {
             UsuarioRepository usuarioRepository,
             LibroRepository libroRepository,
             TransactionManager transactionManager) {
+        this(prestamoRepository, usuarioRepository, libroRepository, transactionManager, null, null);
+    }
+
+    /**
+     * Constructor del servicio de préstamos
+     * 
+     * @param prestamoRepository repositorio de préstamos
+     * @param usuarioRepository  repositorio de usuarios
+     * @param libroRepository    repositorio de libros
+     * @param transactionManager gestor de transacciones
+     * @param outbox             outbox donde se registran los eventos de cada
+     *                           cambio (null para no registrarlos)
+     * @param auditoria          registro de auditoría de los cambios (null para
+     *                           no auditar)
+     * @throws IllegalArgumentException si algún repositorio o el gestor es null
+     */
+    public PrestamoService(PrestamoRepository prestamoRepository,
+            UsuarioRepository usuarioRepository,
+            LibroRepository libroRepository,
+            TransactionManager transactionManager,
+            PrestamoOutbox outbox,
+            AuditTrail auditoria) {
         if (prestamoRepository == null) {
             throw new IllegalArgumentException("El repositorio de préstamos no puede ser null");
         }
@@ -76,6 +111,8 @@ public class PrestamoService {
         this.usuarioRepository = usuarioRepository;
         this.libroRepository = libroRepository;
         this.transactionManager = transactionManager;
+        this.outbox = outbox;
+        this.auditoria = auditoria;
 
         logger.info("PrestamoService inicializado correctamente");
     }
@@ -99,8 +136,14 @@ public class PrestamoService {
         validarDatosPrestamo(prestamoDTO);
 
         return transactionManager.executeInTransaction(connection -> {
+            // Usuario y libro se piden juntos y se resuelven al despachar el lote
+            DataLoader loader = new DataLoader(connection, usuarioRepository, libroRepository);
+            DataLoader.Carga<Usuario> cargaUsuario = loader.cargarUsuario(prestamoDTO.getUsuarioId());
+            DataLoader.Carga<Libro> cargaLibro = loader.cargarLibro(prestamoDTO.getLibroId());
+            loader.despachar();
+
             // Verificar que el usuario existe
-            Optional<Usuario> usuario = usuarioRepository.findById(connection, prestamoDTO.getUsuarioId());
+            Optional<Usuario> usuario = cargaUsuario.obtener();
             if (usuario.isEmpty()) {
                 String mensaje = String.format("No existe un usuario con ID: %d", prestamoDTO.getUsuarioId());
                 logger.warn(mensaje);
@@ -108,7 +151,7 @@ public class PrestamoService {
             }
 
             // Verificar que el libro existe y está disponible
-            Optional<Libro> libro = libroRepository.findById(connection, prestamoDTO.getLibroId());
+            Optional<Libro> libro = cargaLibro.obtener();
             if (libro.isEmpty()) {
                 String mensaje = String.format("No existe un libro con ID: %d", prestamoDTO.getLibroId());
                 logger.warn(mensaje);
@@ -147,9 +190,12 @@ public class PrestamoService {
             // Guardar préstamo y actualizar disponibilidad del libro
             Prestamo prestamoCreado = prestamoRepository.save(connection, prestamo);
             libroRepository.updateDisponibilidad(connection, prestamoDTO.getLibroId(), false);
+            registrarEvento(connection, EventoPrestamo.Tipo.CREADO, prestamoCreado);
+            auditar(connection, AuditTrail.Operacion.INSERT, prestamoCreado.getId(), null, prestamoCreado);
 
             logger.info("Préstamo creado exitosamente con ID: {} para usuario: {} y libro: {}",
                     prestamoCreado.getId(), usuario.get().getNombre(), libro.get().getTitulo());
+            logger.debug("Carga de entidades de crearPrestamo: {}", loader);
 
             return prestamoCreado;
         });
@@ -198,6 +244,124 @@ public class PrestamoService {
         return prestamos;
     }
 
+    /**
+     * Obtiene una página de préstamos ordenada por ID (paginación por clave)
+     * 
+     * @param despuesDeId ID del último elemento de la página anterior (0 para la primera)
+     * @param tamaño cantidad máxima de elementos de la página
+     * @return préstamos de la página, vacía si no hay más
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el tamaño no es positivo
+     */
+    public List<Prestamo> obtenerPagina(long despuesDeId, int tamaño) throws SQLException {
+        if (tamaño <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+        }
+
+        return transactionManager
+                .executeInTransaction(connection -> prestamoRepository.findPage(connection, despuesDeId, tamaño));
+    }
+
+    /**
+     * Busca un préstamo con su usuario y su libro cargados en la misma consulta
+     * 
+     * @param id ID del préstamo
+     * @return Optional con el préstamo y sus detalles si existe
+     * @throws SQLException             si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el ID es null
+     */
+    public Optional<Prestamo> buscarDetallePorId(Long id) throws SQLException {
+        if (id == null) {
+            throw new IllegalArgumentException("El ID no puede ser null");
+        }
+
+        logger.debug("Buscando préstamo con detalles por ID: {}", id);
+
+        return transactionManager
+                .executeInTransaction(connection -> prestamoRepository.findConDetallesById(connection, id));
+    }
+
+    /**
+     * Obtiene una página de préstamos con usuario y libro cargados (paginación por clave)
+     * 
+     * @param despuesDeId ID del último elemento de la página anterior (0 para la primera)
+     * @param tamaño cantidad máxima de elementos de la página
+     * @return préstamos de la página con sus detalles, vacía si no hay más
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el tamaño no es positivo
+     */
+    public List<Prestamo> obtenerPaginaConDetalles(long despuesDeId, int tamaño) throws SQLException {
+        validarTamañoPagina(tamaño);
+
+        return transactionManager.executeInTransaction(
+                connection -> prestamoRepository.findConDetallesPage(connection, despuesDeId, tamaño));
+    }
+
+    /**
+     * Obtiene una página de los préstamos de un usuario con sus detalles
+     * 
+     * @param usuarioId ID del usuario
+     * @param estado estado de los préstamos a incluir, o null para todos
+     * @param despuesDeId ID del último elemento de la página anterior (0 para la primera)
+     * @param tamaño cantidad máxima de elementos de la página
+     * @return préstamos de la página con sus detalles, vacía si no hay más
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el ID es null o el tamaño no es positivo
+     */
+    public List<Prestamo> obtenerPaginaConDetallesUsuario(Long usuarioId, String estado, long despuesDeId, int tamaño)
+            throws SQLException {
+        if (usuarioId == null) {
+            throw new IllegalArgumentException("El ID del usuario no puede ser null");
+        }
+        validarTamañoPagina(tamaño);
+
+        return transactionManager.executeInTransaction(connection -> prestamoRepository
+                .findConDetallesByUsuarioIdPage(connection, usuarioId, estado, despuesDeId, tamaño));
+    }
+
+    /**
+     * Obtiene una página de los préstamos en un estado con sus detalles
+     * 
+     * @param estado estado de los préstamos
+     * @param despuesDeId ID del último elemento de la página anterior (0 para la primera)
+     * @param tamaño cantidad máxima de elementos de la página
+     * @return préstamos de la página con sus detalles, vacía si no hay más
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el estado está vacío o el tamaño no es positivo
+     */
+    public List<Prestamo> obtenerPaginaConDetallesPorEstado(String estado, long despuesDeId, int tamaño)
+            throws SQLException {
+        if (estado == null || estado.trim().isEmpty()) {
+            throw new IllegalArgumentException("El estado no puede estar vacío");
+        }
+        validarTamañoPagina(tamaño);
+
+        return transactionManager.executeInTransaction(
+                connection -> prestamoRepository.findConDetallesByEstadoPage(connection, estado, despuesDeId, tamaño));
+    }
+
+    /**
+     * Obtiene una página de los préstamos vencidos con sus detalles
+     * 
+     * @param despuesDeId ID del último elemento de la página anterior (0 para la primera)
+     * @param tamaño cantidad máxima de elementos de la página
+     * @return préstamos vencidos de la página con sus detalles, vacía si no hay más
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el tamaño no es positivo
+     */
+    public List<Prestamo> obtenerPaginaConDetallesVencidos(long despuesDeId, int tamaño) throws SQLException {
+        validarTamañoPagina(tamaño);
+
+        return transactionManager.executeInTransaction(
+                connection -> prestamoRepository.findConDetallesVencidosPage(connection, despuesDeId, tamaño));
+    }
+
+    private static void validarTamañoPagina(int tamaño) {
+        if (tamaño <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+        }
+    }
+
     /**
      * Obtiene los préstamos activos de un usuario
      * 
@@ -217,6 +381,41 @@ public class PrestamoService {
                 connection -> prestamoRepository.findPrestamosActivosByUsuarioId(connection, usuarioId));
     }
 
+    /**
+     * Obtiene el historial completo de préstamos de un usuario
+     * Incluye los préstamos devueltos que ya fueron movidos al archivo histórico
+     * 
+     * @param usuarioId ID del usuario
+     * @return lista de préstamos del usuario, con usuario y libro cargados
+     * @throws SQLException             si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el ID es null
+     */
+    public List<Prestamo> obtenerHistorialUsuario(Long usuarioId) throws SQLException {
+        if (usuarioId == null) {
+            throw new IllegalArgumentException("El ID del usuario no puede ser null");
+        }
+
+        logger.debug("Obteniendo historial de préstamos para usuario ID: {}", usuarioId);
+
+        return transactionManager.executeInTransaction(connection -> {
+            List<Prestamo> prestamos = prestamoRepository.findByUsuarioId(connection, usuarioId);
+
+            // Los préstamos archivados no están en la tabla y no se pueden resolver con
+            // el join: usuario y libros se cargan por lotes, una consulta por tipo
+            DataLoader loader = new DataLoader(connection, usuarioRepository, libroRepository);
+            Map<Long, Usuario> usuarios = loader.cargarUsuarios(prestamos.stream().map(Prestamo::getUsuarioId).toList());
+            Map<Long, Libro> libros = loader.cargarLibros(prestamos.stream().map(Prestamo::getLibroId).toList());
+            for (Prestamo prestamo : prestamos) {
+                prestamo.setUsuario(usuarios.get(prestamo.getUsuarioId()));
+                prestamo.setLibro(libros.get(prestamo.getLibroId()));
+            }
+
+            logger.debug("Historial de {} préstamos resuelto con {} consultas de detalle", prestamos.size(),
+                    loader.getIdasYVueltas());
+            return prestamos;
+        });
+    }
+
     /**
      * Obtiene los préstamos vencidos
      * 
@@ -252,28 +451,22 @@ public class PrestamoService {
                 prestamoId, fechaDevolucionFinal, observaciones);
 
         transactionManager.executeInTransactionVoid(connection -> {
-            Optional<Prestamo> prestamoOpt = prestamoRepository.findById(connection, prestamoId);
-            if (prestamoOpt.isEmpty()) {
-                String mensaje = String.format("No existe un préstamo con ID: %d", prestamoId);
+            String antes = estadoAnterior(connection, prestamoId);
+
+            // El UPDATE solo aplica si el préstamo no estaba devuelto; si no devuelve fila se averigua el motivo
+            Optional<Prestamo> prestamo = prestamoRepository.devolver(connection, prestamoId, fechaDevolucionFinal);
+            if (prestamo.isEmpty()) {
+                String mensaje = prestamoRepository.existsById(connection, prestamoId)
+                        ? String.format("El préstamo con ID: %d ya fue devuelto", prestamoId)
+                        : String.format("No existe un préstamo con ID: %d", prestamoId);
                 logger.warn(mensaje);
                 throw new IllegalArgumentException(mensaje);
             }
 
-            Prestamo prestamo = prestamoOpt.get();
-
-            if (ESTADO_DEVUELTO.equals(prestamo.getEstado())) {
-                String mensaje = String.format("El préstamo con ID: %d ya fue devuelto", prestamoId);
-                logger.warn(mensaje);
-                throw new IllegalArgumentException(mensaje);
-            }
-
-            // Actualizar el préstamo
-            prestamo.setFechaDevolucionReal(fechaDevolucionFinal);
-            prestamo.setEstado(ESTADO_DEVUELTO);
-
-            // Guardar cambios y actualizar disponibilidad del libro
-            prestamoRepository.update(connection, prestamo);
-            libroRepository.updateDisponibilidad(connection, prestamo.getLibroId(), true);
+            // Actualizar disponibilidad del libro
+            libroRepository.updateDisponibilidad(connection, prestamo.get().getLibroId(), true);
+            registrarEvento(connection, EventoPrestamo.Tipo.DEVUELTO, prestamo.get());
+            auditar(connection, AuditTrail.Operacion.UPDATE, prestamoId, antes, prestamo.get());
 
             logger.info("Libro devuelto exitosamente para préstamo ID: {}", prestamoId);
         });
@@ -299,34 +492,33 @@ public class PrestamoService {
         logger.debug("Renovando préstamo ID: {} por {} días", prestamoId, diasExtension);
 
         transactionManager.executeInTransactionVoid(connection -> {
-            Optional<Prestamo> prestamoOpt = prestamoRepository.findById(connection, prestamoId);
-            if (prestamoOpt.isEmpty()) {
-                String mensaje = String.format("No existe un préstamo con ID: %d", prestamoId);
-                logger.warn(mensaje);
-                throw new IllegalArgumentException(mensaje);
-            }
-
-            Prestamo prestamo = prestamoOpt.get();
-
-            if (!ESTADO_ACTIVO.equals(prestamo.getEstado())) {
-                String mensaje = String.format("Solo se pueden renovar préstamos activos. Estado actual: %s",
-                        prestamo.getEstado());
+            String antes = estadoAnterior(connection, prestamoId);
+
+            // El UPDATE solo aplica a préstamos activos; si no devuelve fila se lee el préstamo para el mensaje
+            Optional<Prestamo> prestamo = prestamoRepository.renovar(connection, prestamoId, diasExtension);
+            if (prestamo.isEmpty()) {
+                Optional<Prestamo> actual = prestamoRepository.findById(connection, prestamoId);
+                String mensaje = actual.isPresent()
+                        ? String.format("Solo se pueden renovar préstamos activos. Estado actual: %s",
+                                actual.get().getEstado())
+                        : String.format("No existe un préstamo con ID: %d", prestamoId);
                 logger.warn(mensaje);
                 throw new IllegalArgumentException(mensaje);
             }
 
-            // Extender la fecha de devolución
-            LocalDate nuevaFechaDevolucion = prestamo.getFechaDevolucionEsperada().plusDays(diasExtension);
-            prestamo.setFechaDevolucionEsperada(nuevaFechaDevolucion);
+            registrarEvento(connection, EventoPrestamo.Tipo.RENOVADO, prestamo.get());
+            auditar(connection, AuditTrail.Operacion.UPDATE, prestamoId, antes, prestamo.get());
 
-            prestamoRepository.update(connection, prestamo);
-            logger.info("Préstamo renovado exitosamente ID: {} hasta {}", prestamoId, nuevaFechaDevolucion);
+            logger.info("Préstamo renovado exitosamente ID: {} hasta {}", prestamoId,
+                    prestamo.get().getFechaDevolucionEsperada());
         });
     }
 
     /**
      * Actualiza el estado de préstamos vencidos
-     * Utiliza la función PL/pgSQL actualizar_prestamos_vencidos()
+     * Utiliza la función PL/pgSQL actualizar_prestamos_vencidos(), que devuelve
+     * los préstamos marcados; con outbox se registra un evento VENCIDO por cada
+     * uno en la misma transacción
      * 
      * @return número de préstamos marcados como vencidos
      * @throws SQLException si ocurre un error de base de datos
@@ -335,17 +527,26 @@ public class PrestamoService {
         logger.debug("Actualizando préstamos vencidos mediante función PL/pgSQL");
 
         return transactionManager.executeInTransaction(connection -> {
-            try (CallableStatement stmt = connection.prepareCall("{? = call actualizar_prestamos_vencidos()}")) {
-                // Registrar el parámetro de retorno (número de filas actualizadas)
-                stmt.registerOutParameter(1, Types.INTEGER);
-                stmt.execute();
-
-                // Obtener el contador de actualizaciones
-                int filasActualizadas = stmt.getInt(1);
+            List<Prestamo> vencidos = new ArrayList<>();
+            try (PreparedStatement stmt = connection.prepareStatement(ACTUALIZAR_VENCIDOS);
+                    ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Prestamo prestamo = new Prestamo();
+                    prestamo.setId(rs.getLong("id"));
+                    prestamo.setUsuarioId(rs.getLong("usuario_id"));
+                    prestamo.setLibroId(rs.getLong("libro_id"));
+                    prestamo.setFechaDevolucionEsperada(rs.getDate("fecha_devolucion_esperada").toLocalDate());
+                    prestamo.setEstado(ESTADO_VENCIDO);
+                    vencidos.add(prestamo);
+                }
+            }
 
-                logger.info("Se marcaron {} préstamos como vencidos", filasActualizadas);
-                return filasActualizadas;
+            if (outbox != null && !vencidos.isEmpty()) {
+                outbox.registrarTodos(connection, EventoPrestamo.Tipo.VENCIDO, vencidos);
             }
+
+            logger.info("Se marcaron {} préstamos como vencidos", vencidos.size());
+            return vencidos.size();
         });
     }
 
@@ -375,4 +576,48 @@ public class PrestamoService {
         logger.debug("Validación exitosa para préstamo usuario ID: {}, libro ID: {}",
                 prestamoDTO.getUsuarioId(), prestamoDTO.getLibroId());
     }
+
+    /**
+     * Registra un evento del préstamo en el outbox, en la transacción del cambio
+     * 
+     * @param connection conexión de la transacción
+     * @param tipo       tipo de evento
+     * @param prestamo   préstamo después del cambio
+     * @throws SQLException si hay error al registrar el evento
+     */
+    private void registrarEvento(Connection connection, EventoPrestamo.Tipo tipo, Prestamo prestamo)
+            throws SQLException {
+        if (outbox != null) {
+            outbox.registrar(connection, tipo, prestamo);
+        }
+    }
+
+    /**
+     * Lee el estado de un préstamo antes de modificarlo, solo si se audita
+     * 
+     * @param connection conexión de la transacción
+     * @param id         identificador del préstamo
+     * @return instantánea JSON del préstamo, o null si no se audita o no existe
+     * @throws SQLException si ocurre un error de base de datos
+     */
+    private String estadoAnterior(Connection connection, Long id) throws SQLException {
+        return auditoria != null ? AuditTrail.instantanea(prestamoRepository.findById(connection, id).orElse(null))
+                : null;
+    }
+
+    /**
+     * Registra un cambio en la auditoría (se escribe después del commit)
+     * 
+     * @param connection conexión de la transacción
+     * @param operacion  tipo de cambio
+     * @param id         identificador del préstamo
+     * @param antes      instantánea anterior (null en INSERT)
+     * @param despues    préstamo después del cambio
+     */
+    private void auditar(Connection connection, AuditTrail.Operacion operacion, Long id, String antes,
+            Prestamo despues) {
+        if (auditoria != null) {
+            auditoria.registrar(connection, TABLA, operacion, id, antes, AuditTrail.instantanea(despues));
+        }
+    }
 }
@@ -3,11 +3,13 @@ package com.example.crudapp.application.services;
 import com.example.crudapp.domain.entities.Usuario;
 import com.example.crudapp.domain.repositories.UsuarioRepository;
 import com.example.crudapp.application.dto.UsuarioDTO;
+import com.example.crudapp.infrastructure.audit.AuditTrail;
 import com.example.crudapp.infrastructure.transactions.TransactionManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
@@ -21,17 +23,36 @@ public class UsuarioService {
     
     private static final Logger logger = LoggerFactory.getLogger(UsuarioService.class);
     
+    // SQLState de PostgreSQL para una restricción única violada
+    private static final String UNIQUE_VIOLATION = "23505";
+    
+    private static final String TABLA = "usuarios";
+    
     private final UsuarioRepository usuarioRepository;
     private final TransactionManager transactionManager;
+    private final AuditTrail auditoria;
     
     /**
-     * Constructor del servicio de usuarios
+     * Constructor del servicio de usuarios sin auditoría
      * 
      * @param usuarioRepository repositorio de usuarios
      * @param transactionManager gestor de transacciones
      * @throws IllegalArgumentException si algún parámetro es null
      */
     public UsuarioService(UsuarioRepository usuarioRepository, TransactionManager transactionManager) {
+        this(usuarioRepository, transactionManager, null);
+    }
+    
+    /**
+     * Constructor del servicio de usuarios
+     * 
+     * @param usuarioRepository repositorio de usuarios
+     * @param transactionManager gestor de transacciones
+     * @param auditoria registro de auditoría de los cambios (null para no auditar)
+     * @throws IllegalArgumentException si el repositorio o el gestor es null
+     */
+    public UsuarioService(UsuarioRepository usuarioRepository, TransactionManager transactionManager,
+            AuditTrail auditoria) {
         if (usuarioRepository == null) {
             throw new IllegalArgumentException("El repositorio de usuarios no puede ser null");
         }
@@ -41,6 +62,7 @@ public class UsuarioService {
         
         this.usuarioRepository = usuarioRepository;
         this.transactionManager = transactionManager;
+        this.auditoria = auditoria;
         
         logger.info("UsuarioService inicializado correctamente");
     }
@@ -63,24 +85,23 @@ public class UsuarioService {
         validarDatosUsuario(usuarioDTO);
         
         return transactionManager.executeInTransaction(connection -> {
-            // Verificar que no exista un usuario con el mismo email
-            Optional<Usuario> usuarioExistente = usuarioRepository.findByEmail(connection, usuarioDTO.getEmail());
-            if (usuarioExistente.isPresent()) {
-                String mensaje = String.format("Ya existe un usuario con el email: %s", usuarioDTO.getEmail());
-                logger.warn(mensaje);
-                throw new IllegalArgumentException(mensaje);
-            }
-            
             Usuario usuario = new Usuario();
             usuario.setNombre(usuarioDTO.getNombre());
             usuario.setEmail(usuarioDTO.getEmail());
             usuario.setTelefono(usuarioDTO.getTelefono());
             usuario.setFechaRegistro(null); // Se asigna automáticamente en el repositorio
             
-            Usuario usuarioCreado = usuarioRepository.save(connection, usuario);
-            logger.info("Usuario creado exitosamente con ID: {}", usuarioCreado.getId());
+            // El índice único del email descarta los duplicados en la misma sentencia
+            Optional<Usuario> usuarioCreado = usuarioRepository.saveIfAbsent(connection, usuario);
+            if (usuarioCreado.isEmpty()) {
+                String mensaje = String.format("Ya existe un usuario con el email: %s", usuarioDTO.getEmail());
+                logger.warn(mensaje);
+                throw new IllegalArgumentException(mensaje);
+            }
+            auditar(connection, AuditTrail.Operacion.INSERT, usuarioCreado.get().getId(), null, usuarioCreado.get());
+            logger.info("Usuario creado exitosamente con ID: {}", usuarioCreado.get().getId());
             
-            return usuarioCreado;
+            return usuarioCreado.get();
         });
     }
     
@@ -129,6 +150,25 @@ public class UsuarioService {
         return usuarios;
     }
     
+    /**
+     * Obtiene una página de usuarios ordenada por ID (paginación por clave)
+     * 
+     * @param despuesDeId ID del último elemento de la página anterior (0 para la primera)
+     * @param tamaño cantidad máxima de elementos de la página
+     * @return usuarios de la página, vacía si no hay más
+     * @throws SQLException si ocurre un error de base de datos
+     * @throws IllegalArgumentException si el tamaño no es positivo
+     */
+    public List<Usuario> obtenerPagina(long despuesDeId, int tamaño) throws SQLException {
+        if (tamaño <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+        }
+        
+        return transactionManager.executeInTransaction(connection -> 
+            usuarioRepository.findPage(connection, despuesDeId, tamaño)
+        );
+    }
+    
     /**
      * Actualiza un usuario existente
      * 
@@ -138,7 +178,7 @@ public class UsuarioService {
      * @throws SQLException si ocurre un error de base de datos
      * @throws IllegalArgumentException si los parámetros son inválidos
      */
-    public void actualizarUsuario(Long id, UsuarioDTO usuarioDTO) throws SQLException {
+    public Usuario actualizarUsuario(Long id, UsuarioDTO usuarioDTO) throws SQLException {
         if (id == null) {
             throw new IllegalArgumentException("El ID del usuario no puede ser null");
         }
@@ -150,22 +190,40 @@ public class UsuarioService {
         
         validarDatosUsuario(usuarioDTO);
         
-        transactionManager.executeInTransactionVoid(connection -> {
-            Optional<Usuario> usuarioExistente = usuarioRepository.findById(connection, id);
-            if (usuarioExistente.isEmpty()) {
-                String mensaje = String.format("No existe un usuario con ID: %d", id);
-                logger.warn(mensaje);
-                throw new IllegalArgumentException(mensaje);
-            }
+        return transactionManager.executeInTransaction(connection -> {
+            // Si se audita la fila ya se lee para la instantánea: los datos se aplican sobre ella y
+            // el UPDATE escribe solo las columnas que cambian. Sin auditoría la entidad nueva no está
+            // sincronizada y el repositorio compara la fila completa antes de escribirla.
+            Usuario actual = auditoria != null ? usuarioRepository.findById(connection, id).orElse(null) : null;
+            String antes = auditoria != null ? AuditTrail.instantanea(actual) : null;
             
-            Usuario usuario = usuarioExistente.get();
+            Usuario usuario = actual != null ? actual : new Usuario();
+            usuario.setId(id);
             usuario.setNombre(usuarioDTO.getNombre());
             usuario.setEmail(usuarioDTO.getEmail());
             usuario.setTelefono(usuarioDTO.getTelefono());
             
-            usuarioRepository.update(connection, usuario);
-            logger.info("Usuario actualizado exitosamente: {}", usuario.getId());
-
+            // Un solo UPDATE ... RETURNING: la fila inexistente y el email repetido los informa la base de datos
+            Optional<Usuario> usuarioActualizado;
+            try {
+                usuarioActualizado = usuarioRepository.updateIfExists(connection, usuario);
+            } catch (SQLException e) {
+                if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+                String mensaje = String.format("Ya existe otro usuario con el email: %s", usuarioDTO.getEmail());
+                logger.warn(mensaje);
+                throw new IllegalArgumentException(mensaje, e);
+            }
+            if (usuarioActualizado.isEmpty()) {
+                String mensaje = String.format("No existe un usuario con ID: %d", id);
+                logger.warn(mensaje);
+                throw new IllegalArgumentException(mensaje);
+            }
+            auditar(connection, AuditTrail.Operacion.UPDATE, id, antes, usuarioActualizado.get());
+            
+            logger.info("Usuario actualizado exitosamente: {}", id);
+            return usuarioActualizado.get();
         });
     }
     
@@ -185,18 +243,45 @@ public class UsuarioService {
         logger.debug("Eliminando usuario con ID: {}", id);
         
         transactionManager.executeInTransactionVoid(connection -> {
-            Optional<Usuario> usuario = usuarioRepository.findById(connection, id);
-            if (usuario.isEmpty()) {
+            String antes = estadoAnterior(connection, id);
+            if (!usuarioRepository.deleteById(connection, id)) {
                 String mensaje = String.format("No existe un usuario con ID: %d", id);
                 logger.warn(mensaje);
                 throw new IllegalArgumentException(mensaje);
             }
-            
-            usuarioRepository.deleteById(connection, id);
+            auditar(connection, AuditTrail.Operacion.DELETE, id, antes, null);
 
         });
     }
     
+    /**
+     * Lee el estado de un usuario antes de modificarlo, solo si se audita
+     * 
+     * @param connection conexión de la transacción
+     * @param id identificador del usuario
+     * @return instantánea JSON del usuario, o null si no se audita o no existe
+     * @throws SQLException si ocurre un error de base de datos
+     */
+    private String estadoAnterior(Connection connection, Long id) throws SQLException {
+        return auditoria != null ? AuditTrail.instantanea(usuarioRepository.findById(connection, id).orElse(null)) : null;
+    }
+    
+    /**
+     * Registra un cambio en la auditoría (se escribe después del commit)
+     * 
+     * @param connection conexión de la transacción
+     * @param operacion tipo de cambio
+     * @param id identificador del usuario
+     * @param antes instantánea anterior (null en INSERT)
+     * @param despues usuario después del cambio (null en DELETE)
+     */
+    private void auditar(Connection connection, AuditTrail.Operacion operacion, Long id, String antes,
+            Usuario despues) {
+        if (auditoria != null) {
+            auditoria.registrar(connection, TABLA, operacion, id, antes, AuditTrail.instantanea(despues));
+        }
+    }
+    
     /**
      * Valida los datos del usuario
      * 
@@ -0,0 +1,71 @@
+package com.example.crudapp.domain.entities;
+
+import java.util.Objects;
+
+/**
+ * Base de las entidades con seguimiento de cambios
+ * Cada columna actualizable tiene un bit; los setters marcan la columna solo si
+ * el valor realmente cambia, y los repositorios actualizan únicamente las
+ * columnas marcadas. Mientras la entidad no esté sincronizada con la base de
+ * datos (no se leyó ni se guardó) se consideran modificadas todas sus columnas.
+ */
+public abstract class EntidadConCambios {
+
+    private final int todasLasColumnas;
+    private int cambios;
+    private boolean sincronizada;
+
+    protected EntidadConCambios(int todasLasColumnas) {
+        this.todasLasColumnas = todasLasColumnas;
+    }
+
+    /**
+     * Obtiene las columnas modificadas desde la última sincronización
+     *
+     * @return máscara de bits de las columnas modificadas
+     */
+    public int getCambios() {
+        return sincronizada ? cambios : todasLasColumnas;
+    }
+
+    /**
+     * Indica si hay columnas por escribir
+     *
+     * @return true si alguna columna cambió
+     */
+    public boolean tieneCambios() {
+        return getCambios() != 0;
+    }
+
+    /**
+     * Indica si la entidad se leyó o se guardó, es decir, si su máscara de cambios es exacta
+     *
+     * @return true si está sincronizada con su fila
+     */
+    public boolean isSincronizada() {
+        return sincronizada;
+    }
+
+    /**
+     * Marca la entidad como igual a su fila en la base de datos (después de leerla o escribirla)
+     */
+    public void marcarSincronizada() {
+        cambios = 0;
+        sincronizada = true;
+    }
+
+    /**
+     * Marca como escritas algunas columnas, dejando pendientes las demás
+     *
+     * @param columnas máscara de bits de las columnas ya escritas
+     */
+    public void marcarSincronizada(int columnas) {
+        cambios &= ~columnas;
+    }
+
+    protected void marcar(int columna, Object anterior, Object nuevo) {
+        if (!Objects.equals(anterior, nuevo)) {
+            cambios |= columna;
+        }
+    }
+}
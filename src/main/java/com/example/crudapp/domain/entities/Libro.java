@@ -2,7 +2,17 @@ package com.example.crudapp.domain.entities;
 
 import java.util.Objects;
 
-public class Libro {
+public class Libro extends EntidadConCambios {
+    
+    // Columnas actualizables, en el orden de la tabla
+    public static final int COLUMNA_TITULO = 1;
+    public static final int COLUMNA_AUTOR = 1 << 1;
+    public static final int COLUMNA_ISBN = 1 << 2;
+    public static final int COLUMNA_GENERO = 1 << 3;
+    public static final int COLUMNA_AÑO_PUBLICACION = 1 << 4;
+    public static final int COLUMNA_DISPONIBLE = 1 << 5;
+    public static final int TODAS_LAS_COLUMNAS = (1 << 6) - 1;
+    
     private Long id;
     private String titulo;
     private String autor;
@@ -11,9 +21,12 @@ public class Libro {
     private Integer añoPublicacion;
     private Boolean disponible;
     
-    public Libro() {}
+    public Libro() {
+        super(TODAS_LAS_COLUMNAS);
+    }
     
     public Libro(String titulo, String autor, String isbn, String genero, Integer añoPublicacion) {
+        super(TODAS_LAS_COLUMNAS);
         this.titulo = titulo;
         this.autor = autor;
         this.isbn = isbn;
@@ -27,22 +40,28 @@ public class Libro {
     public void setId(Long id) { this.id = id; }
     
     public String getTitulo() { return titulo; }
-    public void setTitulo(String titulo) { this.titulo = titulo; }
+    public void setTitulo(String titulo) { marcar(COLUMNA_TITULO, this.titulo, titulo); this.titulo = titulo; }
     
     public String getAutor() { return autor; }
-    public void setAutor(String autor) { this.autor = autor; }
+    public void setAutor(String autor) { marcar(COLUMNA_AUTOR, this.autor, autor); this.autor = autor; }
     
     public String getIsbn() { return isbn; }
-    public void setIsbn(String isbn) { this.isbn = isbn; }
+    public void setIsbn(String isbn) { marcar(COLUMNA_ISBN, this.isbn, isbn); this.isbn = isbn; }
     
     public String getGenero() { return genero; }
-    public void setGenero(String genero) { this.genero = genero; }
+    public void setGenero(String genero) { marcar(COLUMNA_GENERO, this.genero, genero); this.genero = genero; }
     
     public Integer getAñoPublicacion() { return añoPublicacion; }
-    public void setAñoPublicacion(Integer añoPublicacion) { this.añoPublicacion = añoPublicacion; }
+    public void setAñoPublicacion(Integer añoPublicacion) { 
+        marcar(COLUMNA_AÑO_PUBLICACION, this.añoPublicacion, añoPublicacion); 
+        this.añoPublicacion = añoPublicacion; 
+    }
     
     public Boolean getDisponible() { return disponible; }
-    public void setDisponible(Boolean disponible) { this.disponible = disponible; }
+    public void setDisponible(Boolean disponible) { 
+        marcar(COLUMNA_DISPONIBLE, this.disponible, disponible); 
+        this.disponible = disponible; 
+    }
     
     @Override
     public boolean equals(Object o) {
@@ -3,7 +3,17 @@ package com.example.crudapp.domain.entities;
 import java.time.LocalDate;
 import java.util.Objects;
 
-public class Prestamo {
+public class Prestamo extends EntidadConCambios {
+    
+    // Columnas actualizables, en el orden de la tabla
+    public static final int COLUMNA_USUARIO_ID = 1;
+    public static final int COLUMNA_LIBRO_ID = 1 << 1;
+    public static final int COLUMNA_FECHA_PRESTAMO = 1 << 2;
+    public static final int COLUMNA_FECHA_DEVOLUCION_ESPERADA = 1 << 3;
+    public static final int COLUMNA_FECHA_DEVOLUCION_REAL = 1 << 4;
+    public static final int COLUMNA_ESTADO = 1 << 5;
+    public static final int TODAS_LAS_COLUMNAS = (1 << 6) - 1;
+    
     private Long id;
     private Long usuarioId;
     private Long libroId;
@@ -17,9 +27,12 @@ public class Prestamo {
     private Usuario usuario;
     private Libro libro;
     
-    public Prestamo() {}
+    public Prestamo() {
+        super(TODAS_LAS_COLUMNAS);
+    }
     
     public Prestamo(Long usuarioId, Long libroId, LocalDate fechaDevolucionEsperada) {
+        super(TODAS_LAS_COLUMNAS);
         this.usuarioId = usuarioId;
         this.libroId = libroId;
         this.fechaPrestamo = LocalDate.now();
@@ -32,26 +45,31 @@ public class Prestamo {
     public void setId(Long id) { this.id = id; }
     
     public Long getUsuarioId() { return usuarioId; }
-    public void setUsuarioId(Long usuarioId) { this.usuarioId = usuarioId; }
+    public void setUsuarioId(Long usuarioId) { marcar(COLUMNA_USUARIO_ID, this.usuarioId, usuarioId); this.usuarioId = usuarioId; }
     
     public Long getLibroId() { return libroId; }
-    public void setLibroId(Long libroId) { this.libroId = libroId; }
+    public void setLibroId(Long libroId) { marcar(COLUMNA_LIBRO_ID, this.libroId, libroId); this.libroId = libroId; }
     
     public LocalDate getFechaPrestamo() { return fechaPrestamo; }
-    public void setFechaPrestamo(LocalDate fechaPrestamo) { this.fechaPrestamo = fechaPrestamo; }
+    public void setFechaPrestamo(LocalDate fechaPrestamo) { 
+        marcar(COLUMNA_FECHA_PRESTAMO, this.fechaPrestamo, fechaPrestamo); 
+        this.fechaPrestamo = fechaPrestamo; 
+    }
     
     public LocalDate getFechaDevolucionEsperada() { return fechaDevolucionEsperada; }
     public void setFechaDevolucionEsperada(LocalDate fechaDevolucionEsperada) { 
+        marcar(COLUMNA_FECHA_DEVOLUCION_ESPERADA, this.fechaDevolucionEsperada, fechaDevolucionEsperada); 
         this.fechaDevolucionEsperada = fechaDevolucionEsperada; 
     }
     
     public LocalDate getFechaDevolucionReal() { return fechaDevolucionReal; }
     public void setFechaDevolucionReal(LocalDate fechaDevolucionReal) { 
+        marcar(COLUMNA_FECHA_DEVOLUCION_REAL, this.fechaDevolucionReal, fechaDevolucionReal); 
         this.fechaDevolucionReal = fechaDevolucionReal; 
     }
     
     public String getEstado() { return estado; }
-    public void setEstado(String estado) { this.estado = estado; }
+    public void setEstado(String estado) { marcar(COLUMNA_ESTADO, this.estado, estado); this.estado = estado; }
     
     public Usuario getUsuario() { return usuario; }
     public void setUsuario(Usuario usuario) { this.usuario = usuario; }
@@ -70,8 +88,8 @@ public class Prestamo {
     }
     
     public void devolver() {
-        this.fechaDevolucionReal = LocalDate.now();
-        this.estado = "DEVUELTO";
+        setFechaDevolucionReal(LocalDate.now());
+        setEstado("DEVUELTO");
     }
     
     @Override
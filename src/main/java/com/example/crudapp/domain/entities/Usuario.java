@@ -3,16 +3,26 @@ package com.example.crudapp.domain.entities;
 import java.time.LocalDate;
 import java.util.Objects;
 
-public class Usuario {
+public class Usuario extends EntidadConCambios {
+    
+    // Columnas actualizables, en el orden de la tabla
+    public static final int COLUMNA_NOMBRE = 1;
+    public static final int COLUMNA_EMAIL = 1 << 1;
+    public static final int COLUMNA_TELEFONO = 1 << 2;
+    public static final int TODAS_LAS_COLUMNAS = (1 << 3) - 1;
+    
     private Long id;
     private String nombre;
     private String email;
     private String telefono;
     private LocalDate fechaRegistro;
     
-    public Usuario() {}
+    public Usuario() {
+        super(TODAS_LAS_COLUMNAS);
+    }
     
     public Usuario(String nombre, String email, String telefono) {
+        super(TODAS_LAS_COLUMNAS);
         this.nombre = nombre;
         this.email = email;
         this.telefono = telefono;
@@ -24,13 +34,13 @@ public class Usuario {
     public void setId(Long id) { this.id = id; }
     
     public String getNombre() { return nombre; }
-    public void setNombre(String nombre) { this.nombre = nombre; }
+    public void setNombre(String nombre) { marcar(COLUMNA_NOMBRE, this.nombre, nombre); this.nombre = nombre; }
     
     public String getEmail() { return email; }
-    public void setEmail(String email) { this.email = email; }
+    public void setEmail(String email) { marcar(COLUMNA_EMAIL, this.email, email); this.email = email; }
     
     public String getTelefono() { return telefono; }
-    public void setTelefono(String telefono) { this.telefono = telefono; }
+    public void setTelefono(String telefono) { marcar(COLUMNA_TELEFONO, this.telefono, telefono); this.telefono = telefono; }
     
     public LocalDate getFechaRegistro() { return fechaRegistro; }
     public void setFechaRegistro(LocalDate fechaRegistro) { this.fechaRegistro = fechaRegistro; }
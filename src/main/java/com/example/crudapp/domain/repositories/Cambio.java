@@ -0,0 +1,64 @@
+package com.example.crudapp.domain.repositories;
+
+import java.time.Instant;
+
+/**
+ * Cambio de una fila para el feed incremental: la fila modificada (o insertada)
+ * o la lápida de una fila eliminada
+ * La fecha de modificación y el ID del último cambio leído son el cursor para
+ * pedir la página siguiente.
+ *
+ * @param <T> tipo de la entidad
+ */
+public final class Cambio<T> {
+    private final Long id;
+    private final Instant fechaModificacion;
+    private final T entidad;
+
+    private Cambio(Long id, Instant fechaModificacion, T entidad) {
+        this.id = id;
+        this.fechaModificacion = fechaModificacion;
+        this.entidad = entidad;
+    }
+
+    /**
+     * Crea el cambio de una fila insertada o modificada
+     *
+     * @param <T> tipo de la entidad
+     * @param id ID de la fila
+     * @param fechaModificacion fecha de la última modificación
+     * @param entidad estado actual de la fila
+     * @return el cambio
+     */
+    public static <T> Cambio<T> modificado(Long id, Instant fechaModificacion, T entidad) {
+        return new Cambio<>(id, fechaModificacion, entidad);
+    }
+
+    /**
+     * Crea el cambio de una fila eliminada
+     *
+     * @param <T> tipo de la entidad
+     * @param id ID de la fila eliminada
+     * @param fechaModificacion fecha de la eliminación
+     * @return el cambio, sin entidad
+     */
+    public static <T> Cambio<T> eliminado(Long id, Instant fechaModificacion) {
+        return new Cambio<>(id, fechaModificacion, null);
+    }
+
+    public Long getId() { return id; }
+    public Instant getFechaModificacion() { return fechaModificacion; }
+
+    /**
+     * @return el estado actual de la fila, o null si fue eliminada
+     */
+    public T getEntidad() { return entidad; }
+
+    public boolean isEliminado() { return entidad == null; }
+
+    @Override
+    public String toString() {
+        return String.format("Cambio{id=%d, fechaModificacion=%s, %s}", id, fechaModificacion,
+                isEliminado() ? "eliminado" : entidad);
+    }
+}
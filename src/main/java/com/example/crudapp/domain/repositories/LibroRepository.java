@@ -6,6 +6,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repositorio específico para Libro
@@ -13,9 +14,16 @@ import java.util.Optional;
 public interface LibroRepository extends Repository<Libro, Long> {
     Optional<Libro> findByIsbn(Connection connection, String isbn) throws SQLException;
     boolean existsByIsbn(Connection connection, String isbn) throws SQLException;
+
+    // Escrituras que resuelve la restricción única del ISBN, sin consulta previa
+    Optional<Libro> saveIfAbsent(Connection connection, Libro libro) throws SQLException;
+    Optional<Libro> updateIfExists(Connection connection, Libro libro) throws SQLException;
+
     List<Libro> findByTitulo(Connection connection, String titulo) throws SQLException;
     List<Libro> findByAutor(Connection connection, String autor) throws SQLException;
     List<Libro> findByGenero(Connection connection, String genero) throws SQLException;
     List<Libro> findDisponibles(Connection connection) throws SQLException;
-    void updateDisponibilidad(Connection connection, Long id, boolean disponible) throws SQLException;
+    boolean updateDisponibilidad(Connection connection, Long id, boolean disponible) throws SQLException;
+    Set<String> saveAllIgnoringDuplicates(Connection connection, List<Libro> libros) throws SQLException;
+    UpsertResult upsertAll(Connection connection, Iterable<Libro> libros) throws SQLException;
 }
\ No newline at end of file
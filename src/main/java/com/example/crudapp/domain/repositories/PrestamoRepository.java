@@ -4,6 +4,7 @@ import com.example.crudapp.domain.entities.Prestamo;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,5 +21,17 @@ public interface PrestamoRepository extends Repository<Prestamo, Long> {
     Optional<Prestamo> findPrestamoActivoByLibroId(Connection connection, Long libroId) throws SQLException;
     List<Prestamo> findPrestamosActivosByLibroId(Connection connection, Long libroId) throws SQLException;
     List<Prestamo> findPrestamosConDetalles(Connection connection) throws SQLException;
-    void devolver(Connection connection, Long id) throws SQLException;
+
+    // Préstamos con usuario y libro cargados en la misma consulta (join), paginados por ID
+    Optional<Prestamo> findConDetallesById(Connection connection, Long id) throws SQLException;
+    List<Prestamo> findConDetallesPage(Connection connection, long despuesDeId, int limite) throws SQLException;
+    List<Prestamo> findConDetallesByUsuarioIdPage(Connection connection, Long usuarioId, String estado,
+            long despuesDeId, int limite) throws SQLException;
+    List<Prestamo> findConDetallesByEstadoPage(Connection connection, String estado, long despuesDeId, int limite)
+            throws SQLException;
+    List<Prestamo> findConDetallesVencidosPage(Connection connection, long despuesDeId, int limite) throws SQLException;
+
+    // Cambios de estado condicionados al estado actual: vacío si el préstamo no existe o no estaba en ese estado
+    Optional<Prestamo> devolver(Connection connection, Long id, LocalDate fechaDevolucion) throws SQLException;
+    Optional<Prestamo> renovar(Connection connection, Long id, int diasExtension) throws SQLException;
 }
\ No newline at end of file
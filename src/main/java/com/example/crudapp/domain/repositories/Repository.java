@@ -2,6 +2,8 @@ package com.example.crudapp.domain.repositories;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,7 +14,19 @@ public interface Repository<T, ID> {
     T save(Connection connection, T entity) throws SQLException;
     Optional<T> findById(Connection connection, ID id) throws SQLException;
     List<T> findAll(Connection connection) throws SQLException;
+    List<T> findAllById(Connection connection, Collection<ID> ids) throws SQLException;
+    List<T> findPage(Connection connection, long despuesDeId, int limite) throws SQLException;
     void update(Connection connection, T entity) throws SQLException;
-    void deleteById(Connection connection, ID id) throws SQLException;
+    // false si no existía una fila con ese ID
+    boolean deleteById(Connection connection, ID id) throws SQLException;
     boolean existsById(Connection connection, ID id) throws SQLException;
+
+    // Feed incremental: filas modificadas y lápidas de eliminadas, por (fecha_modificacion, id)
+    List<Cambio<T>> findModifiedSince(Connection connection, Instant watermark, long despuesDeId, int limite)
+            throws SQLException;
+
+    default List<Cambio<T>> findModifiedSince(Connection connection, Instant watermark, int limite)
+            throws SQLException {
+        return findModifiedSince(connection, watermark, 0L, limite);
+    }
 }
\ No newline at end of file
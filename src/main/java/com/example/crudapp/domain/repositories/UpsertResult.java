@@ -0,0 +1,46 @@
+package com.example.crudapp.domain.repositories;
+
+/**
+ * Resultado de una sincronización masiva (upsert) de filas
+ */
+public final class UpsertResult {
+    private final long filasRecibidas;
+    private final long insertadas;
+    private final long actualizadas;
+    private final long sinCambios;
+
+    /**
+     * Constructor del resultado
+     *
+     * @param filasRecibidas filas enviadas, incluidas las repetidas
+     * @param insertadas filas nuevas
+     * @param actualizadas filas existentes con algún cambio
+     * @param sinCambios filas existentes idénticas, que no se escribieron
+     */
+    public UpsertResult(long filasRecibidas, long insertadas, long actualizadas, long sinCambios) {
+        this.filasRecibidas = filasRecibidas;
+        this.insertadas = insertadas;
+        this.actualizadas = actualizadas;
+        this.sinCambios = sinCambios;
+    }
+
+    public long getFilasRecibidas() { return filasRecibidas; }
+    public long getInsertadas() { return insertadas; }
+    public long getActualizadas() { return actualizadas; }
+    public long getSinCambios() { return sinCambios; }
+
+    /**
+     * Filas descartadas por repetir la clave de otra fila del mismo envío (gana la última)
+     *
+     * @return filas repetidas
+     */
+    public long getRepetidas() {
+        return filasRecibidas - insertadas - actualizadas - sinCambios;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d recibidas: %d insertadas, %d actualizadas, %d sin cambios, %d repetidas",
+                filasRecibidas, insertadas, actualizadas, sinCambios, getRepetidas());
+    }
+}
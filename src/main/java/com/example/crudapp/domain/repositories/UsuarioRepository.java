@@ -13,5 +13,10 @@ import java.util.Optional;
 public interface UsuarioRepository extends Repository<Usuario, Long> {
     Optional<Usuario> findByEmail(Connection connection, String email) throws SQLException;
     boolean existsByEmail(Connection connection, String email) throws SQLException;
+
+    // Escrituras que resuelve la restricción única del email, sin consulta previa
+    Optional<Usuario> saveIfAbsent(Connection connection, Usuario usuario) throws SQLException;
+    Optional<Usuario> updateIfExists(Connection connection, Usuario usuario) throws SQLException;
+
     List<Usuario> findByNombre(Connection connection, String nombre) throws SQLException;
 }
@@ -0,0 +1,402 @@
+package com.example.crudapp.infrastructure.archive;
+
+import com.example.crudapp.domain.entities.Prestamo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Archivo histórico de préstamos devueltos en formato columnar comprimido
+ *
+ * Cada archivo (.pcol) es de solo anexado y contiene uno o más grupos de filas.
+ * Un grupo de filas guarda cada columna como un bloque Deflate independiente,
+ * ordenado por usuario_id, y una cabecera con el rango de usuario_id que contiene.
+ * La lectura mapea el archivo en memoria, descarta grupos por rango y solo
+ * descomprime el resto de columnas cuando el usuario está presente.
+ *
+ */
+public class PrestamoArchive {
+    private static final Logger logger = LoggerFactory.getLogger(PrestamoArchive.class);
+
+    private static final String EXTENSION = ".pcol";
+
+    /**
+     * Tamaño máximo recomendado por archivo (debe caber en un único mapeo en memoria)
+     */
+    public static final long MAX_BYTES_POR_ARCHIVO = 1L << 30;
+
+    private static final int MAGIC = 0x50524152; // "PRAR"
+    private static final short VERSION = 1;
+
+    // Columnas del grupo de filas
+    private static final int COL_ID = 0;
+    private static final int COL_USUARIO_ID = 1;
+    private static final int COL_LIBRO_ID = 2;
+    private static final int COL_FECHA_PRESTAMO = 3;
+    private static final int COL_FECHA_ESPERADA = 4;
+    private static final int COL_FECHA_REAL = 5;
+    private static final int COL_OBSERVACIONES = 6;
+    private static final int NUM_COLUMNAS = 7;
+
+    // magic + version + filas + min/max usuario_id + (raw, comprimido) por columna
+    private static final int HEADER_SIZE = 4 + 2 + 4 + 8 + 8 + NUM_COLUMNAS * 8;
+
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+    private static final String ESTADO_DEVUELTO = "DEVUELTO";
+
+    private final Path directorio;
+
+    /**
+     * Constructor del archivo histórico
+     *
+     * @param directorio directorio donde se guardan los archivos .pcol
+     */
+    public PrestamoArchive(Path directorio) {
+        this.directorio = directorio;
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * Abre un nuevo archivo de solo anexado para una ejecución de archivado
+     *
+     * @return escritor de grupos de filas
+     * @throws IOException si no se puede crear el archivo
+     */
+    public Writer abrirEscritor() throws IOException {
+        Files.createDirectories(directorio);
+        String nombre = "prestamos-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"))
+                + EXTENSION;
+        FileChannel channel = FileChannel.open(directorio.resolve(nombre),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logger.debug("Archivo histórico abierto: {}", nombre);
+        return new Writer(channel);
+    }
+
+    /**
+     * Busca en los archivos históricos los préstamos de un usuario
+     *
+     * @param usuarioId ID del usuario
+     * @return préstamos archivados del usuario (puede contener IDs repetidos
+     *         si un archivado se reintentó)
+     * @throws IOException si hay error leyendo los archivos
+     */
+    public List<Prestamo> findByUsuarioId(long usuarioId) throws IOException {
+        List<Prestamo> prestamos = new ArrayList<>();
+
+        if (!Files.isDirectory(directorio)) {
+            return prestamos;
+        }
+
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "*" + EXTENSION)) {
+            for (Path archivo : archivos) {
+                buscarEnArchivo(archivo, usuarioId, prestamos);
+            }
+        }
+
+        logger.debug("Se encontraron {} préstamos archivados para usuario_id: {}", prestamos.size(), usuarioId);
+        return prestamos;
+    }
+
+    private void buscarEnArchivo(Path archivo, long usuarioId, List<Prestamo> resultado) throws IOException {
+        try (FileChannel channel = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archivo histórico demasiado grande para mapear: " + archivo);
+            }
+
+            MappedByteBuffer mapa = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int pos = 0;
+
+            while (pos + HEADER_SIZE <= size) {
+                mapa.position(pos);
+                if (mapa.getInt() != MAGIC || mapa.getShort() != VERSION) {
+                    logger.warn("Grupo de filas inválido en {} (posición {}), se omite el resto", archivo, pos);
+                    return;
+                }
+
+                int filas = mapa.getInt();
+                long minUsuario = mapa.getLong();
+                long maxUsuario = mapa.getLong();
+
+                int[] rawLen = new int[NUM_COLUMNAS];
+                int[] compLen = new int[NUM_COLUMNAS];
+                int total = 0;
+                for (int c = 0; c < NUM_COLUMNAS; c++) {
+                    rawLen[c] = mapa.getInt();
+                    compLen[c] = mapa.getInt();
+                    total += compLen[c];
+                }
+
+                int inicioDatos = pos + HEADER_SIZE;
+                if ((long) inicioDatos + total > size) {
+                    // Grupo incompleto: el proceso terminó mientras se escribía
+                    logger.warn("Grupo de filas truncado en {} (posición {}), se omite", archivo, pos);
+                    return;
+                }
+
+                if (usuarioId >= minUsuario && usuarioId <= maxUsuario) {
+                    leerGrupo(mapa, inicioDatos, filas, rawLen, compLen, usuarioId, resultado);
+                }
+
+                pos = inicioDatos + total;
+            }
+        }
+    }
+
+    private void leerGrupo(MappedByteBuffer mapa, int inicioDatos, int filas, int[] rawLen, int[] compLen,
+            long usuarioId, List<Prestamo> resultado) throws IOException {
+        int[] offsets = new int[NUM_COLUMNAS];
+        int offset = inicioDatos;
+        for (int c = 0; c < NUM_COLUMNAS; c++) {
+            offsets[c] = offset;
+            offset += compLen[c];
+        }
+
+        // Solo se descomprime la columna de usuario para ubicar el rango
+        ByteBuffer usuarios = inflar(mapa, offsets[COL_USUARIO_ID], compLen[COL_USUARIO_ID], rawLen[COL_USUARIO_ID]);
+        int desde = primeraFila(usuarios, filas, usuarioId);
+        if (desde >= filas || usuarios.getLong(desde * 8) != usuarioId) {
+            return;
+        }
+        int hasta = desde;
+        while (hasta < filas && usuarios.getLong(hasta * 8) == usuarioId) {
+            hasta++;
+        }
+
+        ByteBuffer ids = inflar(mapa, offsets[COL_ID], compLen[COL_ID], rawLen[COL_ID]);
+        ByteBuffer libros = inflar(mapa, offsets[COL_LIBRO_ID], compLen[COL_LIBRO_ID], rawLen[COL_LIBRO_ID]);
+        ByteBuffer fechasPrestamo = inflar(mapa, offsets[COL_FECHA_PRESTAMO], compLen[COL_FECHA_PRESTAMO],
+                rawLen[COL_FECHA_PRESTAMO]);
+        ByteBuffer fechasEsperadas = inflar(mapa, offsets[COL_FECHA_ESPERADA], compLen[COL_FECHA_ESPERADA],
+                rawLen[COL_FECHA_ESPERADA]);
+        ByteBuffer fechasReales = inflar(mapa, offsets[COL_FECHA_REAL], compLen[COL_FECHA_REAL],
+                rawLen[COL_FECHA_REAL]);
+        ByteBuffer observaciones = inflar(mapa, offsets[COL_OBSERVACIONES], compLen[COL_OBSERVACIONES],
+                rawLen[COL_OBSERVACIONES]);
+
+        // La columna de observaciones es de largo variable: avanzar hasta la primera fila
+        for (int i = 0; i < desde; i++) {
+            int largo = observaciones.getInt();
+            if (largo > 0) {
+                observaciones.position(observaciones.position() + largo);
+            }
+        }
+
+        for (int i = desde; i < hasta; i++) {
+            Prestamo prestamo = new Prestamo();
+            prestamo.setId(ids.getLong(i * 8));
+            prestamo.setUsuarioId(usuarioId);
+            prestamo.setLibroId(libros.getLong(i * 8));
+            prestamo.setFechaPrestamo(aFecha(fechasPrestamo.getInt(i * 4)));
+            prestamo.setFechaDevolucionEsperada(aFecha(fechasEsperadas.getInt(i * 4)));
+            prestamo.setFechaDevolucionReal(aFecha(fechasReales.getInt(i * 4)));
+            prestamo.setEstado(ESTADO_DEVUELTO);
+
+            int largo = observaciones.getInt();
+            if (largo >= 0) {
+                byte[] bytes = new byte[largo];
+                observaciones.get(bytes);
+                prestamo.setObservaciones(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            resultado.add(prestamo);
+        }
+    }
+
+    /**
+     * Búsqueda binaria de la primera fila con usuario_id mayor o igual al buscado
+     */
+    private int primeraFila(ByteBuffer usuarios, int filas, long usuarioId) {
+        int bajo = 0;
+        int alto = filas;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (usuarios.getLong(medio * 8) < usuarioId) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private ByteBuffer inflar(MappedByteBuffer mapa, int offset, int compLen, int rawLen) throws IOException {
+        ByteBuffer entrada = mapa.slice(offset, compLen);
+        ByteBuffer salida = ByteBuffer.allocate(rawLen);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(entrada);
+            while (!inflater.finished()) {
+                if (inflater.inflate(salida) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Bloque comprimido incompleto en archivo histórico");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloque comprimido inválido en archivo histórico", e);
+        } finally {
+            inflater.end();
+        }
+        salida.flip();
+        return salida;
+    }
+
+    private static LocalDate aFecha(int epochDay) {
+        return epochDay == SIN_FECHA ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static int aEpochDay(LocalDate fecha) {
+        return fecha == null ? SIN_FECHA : (int) fecha.toEpochDay();
+    }
+
+    /**
+     * Escritor de grupos de filas sobre un archivo de solo anexado
+     */
+    public static class Writer implements AutoCloseable {
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private long bytesEscritos;
+
+        private Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Anexa un grupo de filas y lo sincroniza a disco antes de retornar
+         *
+         * @param prestamos préstamos devueltos a archivar
+         * @throws IOException si hay error de escritura
+         */
+        public void append(List<Prestamo> prestamos) throws IOException {
+            if (prestamos.isEmpty()) {
+                return;
+            }
+
+            List<Prestamo> filas = new ArrayList<>(prestamos);
+            filas.sort(Comparator.comparing(Prestamo::getUsuarioId).thenComparing(Prestamo::getId));
+            int n = filas.size();
+
+            ByteBuffer[] columnas = {
+                ByteBuffer.allocate(n * 8),
+                ByteBuffer.allocate(n * 8),
+                ByteBuffer.allocate(n * 8),
+                ByteBuffer.allocate(n * 4),
+                ByteBuffer.allocate(n * 4),
+                ByteBuffer.allocate(n * 4),
+                null
+            };
+
+            List<byte[]> textos = new ArrayList<>(n);
+            int largoObservaciones = 0;
+
+            for (Prestamo prestamo : filas) {
+                columnas[COL_ID].putLong(prestamo.getId());
+                columnas[COL_USUARIO_ID].putLong(prestamo.getUsuarioId());
+                columnas[COL_LIBRO_ID].putLong(prestamo.getLibroId());
+                columnas[COL_FECHA_PRESTAMO].putInt(aEpochDay(prestamo.getFechaPrestamo()));
+                columnas[COL_FECHA_ESPERADA].putInt(aEpochDay(prestamo.getFechaDevolucionEsperada()));
+                columnas[COL_FECHA_REAL].putInt(aEpochDay(prestamo.getFechaDevolucionReal()));
+
+                byte[] texto = prestamo.getObservaciones() != null
+                        ? prestamo.getObservaciones().getBytes(StandardCharsets.UTF_8)
+                        : null;
+                textos.add(texto);
+                largoObservaciones += 4 + (texto != null ? texto.length : 0);
+            }
+
+            ByteBuffer observaciones = ByteBuffer.allocate(largoObservaciones);
+            for (byte[] texto : textos) {
+                if (texto == null) {
+                    observaciones.putInt(-1);
+                } else {
+                    observaciones.putInt(texto.length);
+                    observaciones.put(texto);
+                }
+            }
+            columnas[COL_OBSERVACIONES] = observaciones;
+
+            ByteBuffer[] bloques = new ByteBuffer[NUM_COLUMNAS + 1];
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putShort(VERSION);
+            header.putInt(n);
+            header.putLong(filas.get(0).getUsuarioId());
+            header.putLong(filas.get(n - 1).getUsuarioId());
+
+            for (int c = 0; c < NUM_COLUMNAS; c++) {
+                columnas[c].flip();
+                int rawLen = columnas[c].remaining();
+                bloques[c + 1] = comprimir(columnas[c]);
+                header.putInt(rawLen);
+                header.putInt(bloques[c + 1].remaining());
+            }
+            header.flip();
+            bloques[0] = header;
+
+            long total = 0;
+            for (ByteBuffer bloque : bloques) {
+                total += bloque.remaining();
+            }
+            long escritos = 0;
+            while (escritos < total) {
+                escritos += channel.write(bloques);
+            }
+            channel.force(false);
+            bytesEscritos += total;
+
+            logger.debug("Grupo de {} préstamos archivado ({} bytes)", n, total);
+        }
+
+        private ByteBuffer comprimir(ByteBuffer entrada) {
+            deflater.reset();
+            deflater.setInput(entrada);
+            deflater.finish();
+
+            ByteBuffer salida = ByteBuffer.allocate(Math.max(64, entrada.remaining() / 2));
+            while (!deflater.finished()) {
+                if (!salida.hasRemaining()) {
+                    ByteBuffer mayor = ByteBuffer.allocate(salida.capacity() * 2);
+                    salida.flip();
+                    mayor.put(salida);
+                    salida = mayor;
+                }
+                deflater.deflate(salida);
+            }
+            salida.flip();
+            return salida;
+        }
+
+        public long getBytesEscritos() {
+            return bytesEscritos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+    }
+}
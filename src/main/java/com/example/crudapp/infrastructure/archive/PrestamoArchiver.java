@@ -0,0 +1,193 @@
+package com.example.crudapp.infrastructure.archive;
+
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Proceso de archivado de préstamos devueltos
+ * Mueve por lotes los préstamos DEVUELTO más antiguos que la edad configurada
+ * desde la tabla prestamos hacia el archivo histórico columnar
+ *
+ * Cada lote se lee con FOR UPDATE, se escribe y sincroniza a disco, y recién
+ * entonces se elimina de la tabla en la misma transacción. Si el commit falla
+ * después de escribir, el lote queda repetido en el archivo y la lectura
+ * descarta los duplicados por ID.
+ *
+ */
+public class PrestamoArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(PrestamoArchiver.class);
+
+    private static final String SELECT_ARCHIVABLES = "SELECT id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado, observaciones "
+            +
+            "FROM prestamos WHERE estado = 'DEVUELTO' AND fecha_devolucion_real < ? AND id > ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String DELETE_ARCHIVADOS = "DELETE FROM prestamos WHERE id = ANY(?)";
+
+    // El trigger de eliminación no deja lápidas en el feed de cambios para esta transacción
+    private static final String MARCAR_ARCHIVADO = "SET LOCAL crudapp.archivando = on";
+
+    private final PrestamoArchive archive;
+    private final TransactionManager transactionManager;
+    private final int edadMinimaDias;
+    private final int tamañoLote;
+
+    private PrestamoArchive.Writer writer;
+
+    /**
+     * Constructor del proceso de archivado
+     *
+     * @param archive            archivo histórico de destino
+     * @param transactionManager gestor de transacciones
+     * @param edadMinimaDias     días desde la devolución para archivar un préstamo
+     * @param tamañoLote         cantidad de préstamos por transacción
+     * @throws IllegalArgumentException si algún parámetro es inválido
+     */
+    public PrestamoArchiver(PrestamoArchive archive, TransactionManager transactionManager,
+            int edadMinimaDias, int tamañoLote) {
+        if (archive == null) {
+            throw new IllegalArgumentException("El archivo histórico no puede ser null");
+        }
+        if (transactionManager == null) {
+            throw new IllegalArgumentException("El gestor de transacciones no puede ser null");
+        }
+        if (edadMinimaDias < 0) {
+            throw new IllegalArgumentException("La edad mínima no puede ser negativa");
+        }
+        if (tamañoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor a 0");
+        }
+
+        this.archive = archive;
+        this.transactionManager = transactionManager;
+        this.edadMinimaDias = edadMinimaDias;
+        this.tamañoLote = tamañoLote;
+    }
+
+    /**
+     * Archiva los préstamos devueltos hace más de la edad mínima configurada
+     *
+     * @return número de préstamos archivados
+     * @throws SQLException si ocurre un error de base de datos o de escritura
+     */
+    public synchronized int archivarDevueltos() throws SQLException {
+        LocalDate limite = LocalDate.now().minusDays(edadMinimaDias);
+        logger.info("Archivando préstamos devueltos antes de {}", limite);
+
+        int total = 0;
+        long ultimoId = 0;
+
+        try {
+            while (true) {
+                final long desdeId = ultimoId;
+                List<Prestamo> lote = transactionManager.executeInTransaction(
+                        connection -> archivarLote(connection, limite, desdeId));
+
+                if (lote.isEmpty()) {
+                    break;
+                }
+
+                total += lote.size();
+                ultimoId = lote.get(lote.size() - 1).getId();
+
+                if (writer.getBytesEscritos() >= PrestamoArchive.MAX_BYTES_POR_ARCHIVO) {
+                    cerrarEscritor();
+                }
+            }
+        } finally {
+            cerrarEscritor();
+        }
+
+        logger.info("Se archivaron {} préstamos devueltos", total);
+        return total;
+    }
+
+    private List<Prestamo> archivarLote(Connection connection, LocalDate limite, long desdeId) throws SQLException {
+        List<Prestamo> lote = new ArrayList<>();
+
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_ARCHIVABLES)) {
+            stmt.setDate(1, Date.valueOf(limite));
+            stmt.setLong(2, desdeId);
+            stmt.setInt(3, tamañoLote);
+            stmt.setFetchSize(tamañoLote);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    lote.add(mapResultSetToPrestamo(rs));
+                }
+            }
+        }
+
+        if (lote.isEmpty()) {
+            return lote;
+        }
+
+        try {
+            if (writer == null) {
+                writer = archive.abrirEscritor();
+            }
+            writer.append(lote);
+        } catch (IOException e) {
+            throw new SQLException("Error al escribir el archivo histórico: " + e.getMessage(), e);
+        }
+
+        Long[] ids = new Long[lote.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = lote.get(i).getId();
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(MARCAR_ARCHIVADO);
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(DELETE_ARCHIVADOS)) {
+            Array array = connection.createArrayOf("bigint", ids);
+            stmt.setArray(1, array);
+            int eliminados = stmt.executeUpdate();
+            array.free();
+            logger.debug("Lote archivado: {} préstamos escritos, {} eliminados", lote.size(), eliminados);
+        }
+
+        return lote;
+    }
+
+    private void cerrarEscritor() throws SQLException {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new SQLException("Error al cerrar el archivo histórico: " + e.getMessage(), e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    private Prestamo mapResultSetToPrestamo(ResultSet rs) throws SQLException {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setId(rs.getLong("id"));
+        prestamo.setUsuarioId(rs.getLong("usuario_id"));
+        prestamo.setLibroId(rs.getLong("libro_id"));
+        prestamo.setFechaPrestamo(rs.getDate("fecha_prestamo").toLocalDate());
+        prestamo.setFechaDevolucionEsperada(rs.getDate("fecha_devolucion_esperada").toLocalDate());
+        prestamo.setFechaDevolucionReal(rs.getDate("fecha_devolucion_real").toLocalDate());
+        prestamo.setEstado(rs.getString("estado"));
+        prestamo.setObservaciones(rs.getString("observaciones"));
+        return prestamo;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.crudapp.infrastructure.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cola circular acotada y sin bloqueos para varios productores y un consumidor
+ *
+ * Cada celda lleva un número de secuencia que indica si está libre para la
+ * vuelta actual del productor o lista para el consumidor. Un productor reserva
+ * su posición con un CAS sobre la cola y publica el elemento escribiendo la
+ * secuencia de la celda; ofrecer nunca espera y devuelve false si la cola está
+ * llena. Solo un hilo puede sacar elementos.
+ *
+ * @param <E> tipo de los elementos
+ */
+final class AuditRingBuffer<E> {
+
+    private final int mascara;
+    private final AtomicReferenceArray<E> elementos;
+    private final AtomicLongArray secuencias;
+    private final AtomicLong cola = new AtomicLong();
+    private final AtomicLong cabeza = new AtomicLong();
+
+    /**
+     * Constructor de la cola
+     *
+     * @param capacidad cantidad mínima de elementos (se redondea a potencia de 2, como mínimo 2)
+     * @throws IllegalArgumentException si la capacidad no es positiva
+     */
+    AuditRingBuffer(int capacidad) {
+        if (capacidad <= 0 || capacidad > (1 << 30)) {
+            throw new IllegalArgumentException("La capacidad debe estar entre 1 y 2^30");
+        }
+        // Con una sola celda la secuencia publicada (posición + 1) coincide con la
+        // siguiente posición del productor y la celda ocupada parecería libre
+        int tamaño = Math.max(2, Integer.highestOneBit(capacidad) == capacidad ? capacidad
+                : Integer.highestOneBit(capacidad) << 1);
+        this.mascara = tamaño - 1;
+        this.elementos = new AtomicReferenceArray<>(tamaño);
+        this.secuencias = new AtomicLongArray(tamaño);
+        for (int i = 0; i < tamaño; i++) {
+            secuencias.set(i, i);
+        }
+    }
+
+    /**
+     * Agrega un elemento sin esperar
+     *
+     * @param elemento elemento a agregar
+     * @return false si la cola está llena
+     */
+    boolean ofrecer(E elemento) {
+        long posicion = cola.get();
+        while (true) {
+            int celda = (int) (posicion & mascara);
+            long diferencia = secuencias.get(celda) - posicion;
+            if (diferencia == 0) {
+                if (cola.compareAndSet(posicion, posicion + 1)) {
+                    elementos.set(celda, elemento);
+                    secuencias.set(celda, posicion + 1);
+                    return true;
+                }
+                posicion = cola.get();
+            } else if (diferencia < 0) {
+                // El consumidor todavía no liberó la celda de la vuelta anterior
+                return false;
+            } else {
+                // Otro productor tomó esta posición
+                posicion = cola.get();
+            }
+        }
+    }
+
+    /**
+     * Saca elementos en orden de llegada (solo desde el hilo consumidor)
+     *
+     * @param destino lista donde se agregan
+     * @param maximo cantidad máxima de elementos
+     * @return cantidad de elementos sacados
+     */
+    int drenar(List<E> destino, int maximo) {
+        long posicion = cabeza.get();
+        int sacados = 0;
+
+        while (sacados < maximo) {
+            int celda = (int) (posicion & mascara);
+            // Reservada pero aún no publicada: se corta para mantener el orden
+            if (secuencias.get(celda) != posicion + 1) {
+                break;
+            }
+            destino.add(elementos.get(celda));
+            elementos.set(celda, null);
+            secuencias.set(celda, posicion + mascara + 1);
+            posicion++;
+            sacados++;
+        }
+
+        cabeza.set(posicion);
+        return sacados;
+    }
+
+    /**
+     * Cantidad aproximada de elementos en la cola
+     *
+     * @return profundidad de la cola
+     */
+    int tamaño() {
+        return (int) Math.max(0, cola.get() - cabeza.get());
+    }
+
+    int capacidad() {
+        return mascara + 1;
+    }
+}
@@ -0,0 +1,609 @@
+package com.example.crudapp.infrastructure.audit;
+
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de auditoría asíncrono
+ *
+ * Los servicios registran el estado anterior y posterior de cada cambio. El
+ * registro se arma en el hilo del servicio pero se encola recién cuando la
+ * transacción confirma (un cambio revertido no se audita) en una cola circular
+ * sin bloqueos. Un único hilo escritor la vacía por lotes con COPY hacia la tabla
+ * auditoria, particionada por mes, así la operación del usuario no espera
+ * ningún INSERT de auditoría.
+ *
+ * Cuando la cola está llena se aplica la política configurada: esperar a que
+ * haya lugar, descartar contando los registros perdidos, o derramarlos a
+ * archivos en disco que el escritor carga cuando la cola queda vacía. Un lote
+ * que no se pudo escribir también se derrama si hay directorio configurado.
+ *
+ */
+public class AuditTrail implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AuditTrail.class);
+
+    /**
+     * Tipo de cambio auditado
+     */
+    public enum Operacion {
+        INSERT, UPDATE, DELETE
+    }
+
+    /**
+     * Qué hacer con un registro cuando la cola está llena
+     */
+    public enum PoliticaLlenado {
+        /** El hilo del servicio espera a que el escritor libere lugar */
+        BLOQUEAR,
+        /** El registro se descarta y se cuenta */
+        DESCARTAR,
+        /** El registro se escribe en un archivo de derrame y se carga más tarde */
+        DERRAMAR
+    }
+
+    private static final String COPY_AUDITORIA = "COPY auditoria (fecha, tabla, operacion, entidad_id, actor, antes, despues) FROM STDIN";
+    private static final String CREAR_PARTICIONES = "SELECT crear_particiones_auditoria(?)";
+
+    // Particiones creadas por adelantado: el mes actual y los siguientes
+    private static final int MESES_PARTICIONES = 2;
+    private static final int TAMAÑO_BLOQUE_COPY = 1 << 20;
+    private static final long ESPERA_BLOQUEO_NANOS = 50_000;
+    private static final String EXTENSION_DERRAME = ".copy";
+    private static final String EXTENSION_RECHAZADO = ".rechazado";
+    // SQLState de PostgreSQL para datos inválidos (clase 22): el archivo no se reintenta
+    private static final String CLASE_DATOS_INVALIDOS = "22";
+
+    private final TransactionManager transactionManager;
+    private final String actor;
+    private final AuditRingBuffer<String> buffer;
+    private final PoliticaLlenado politica;
+    private final Path directorioDerrame;
+    private final int tamañoLote;
+    private final long esperaNanos;
+
+    private volatile boolean activo;
+    private Thread escritor;
+    private YearMonth mesParticiones;
+
+    private final Object lockDerrame = new Object();
+    private BufferedWriter derrame;
+    private long archivosDerrame;
+    private volatile boolean hayDerrames = true;
+
+    // Métricas
+    private final LongAdder encolados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder derramados = new LongAdder();
+    private final LongAdder bloqueos = new LongAdder();
+    private final AtomicLong escritos = new AtomicLong();
+    private final AtomicLong recuperados = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private volatile int profundidadMaxima;
+
+    /**
+     * Constructor del registro de auditoría
+     *
+     * @param transactionManager gestor de transacciones del escritor
+     * @param actor              quién realiza los cambios (se guarda en cada registro)
+     * @param capacidad          registros que admite la cola
+     * @param politica           política cuando la cola está llena
+     * @param directorioDerrame  directorio de los archivos de derrame (obligatorio con DERRAMAR, puede ser null con las demás)
+     * @param tamañoLote         registros por COPY
+     * @param esperaMs           pausa del escritor cuando la cola está vacía
+     * @throws IllegalArgumentException si algún parámetro es inválido
+     */
+    public AuditTrail(TransactionManager transactionManager, String actor, int capacidad, PoliticaLlenado politica,
+            Path directorioDerrame, int tamañoLote, long esperaMs) {
+        if (transactionManager == null) {
+            throw new IllegalArgumentException("El gestor de transacciones no puede ser null");
+        }
+        if (politica == null) {
+            throw new IllegalArgumentException("La política de llenado no puede ser null");
+        }
+        if (politica == PoliticaLlenado.DERRAMAR && directorioDerrame == null) {
+            throw new IllegalArgumentException("La política DERRAMAR necesita un directorio de derrame");
+        }
+        if (tamañoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor a 0");
+        }
+        if (esperaMs <= 0) {
+            throw new IllegalArgumentException("La espera debe ser mayor a 0");
+        }
+
+        this.transactionManager = transactionManager;
+        this.actor = actor;
+        this.buffer = new AuditRingBuffer<>(capacidad);
+        this.politica = politica;
+        this.directorioDerrame = directorioDerrame;
+        this.tamañoLote = tamañoLote;
+        this.esperaNanos = esperaMs * 1_000_000;
+    }
+
+    /**
+     * Crea las particiones del mes e inicia el hilo escritor
+     * Los registros encolados antes de iniciar esperan en la cola.
+     */
+    public synchronized void iniciar() {
+        if (escritor != null) {
+            return;
+        }
+        asegurarParticiones();
+        activo = true;
+        escritor = new Thread(this::ejecutar, "audit-writer");
+        escritor.setDaemon(true);
+        escritor.start();
+        logger.info("Auditoría iniciada (cola {}, política {}, lote {})", buffer.capacidad(), politica, tamañoLote);
+    }
+
+    /**
+     * Registra un cambio de la transacción en curso
+     * El registro se encola cuando la transacción confirma.
+     *
+     * @param connection conexión de la transacción que hizo el cambio
+     * @param tabla      tabla modificada
+     * @param operacion  tipo de cambio
+     * @param entidadId  ID de la fila
+     * @param antes      estado anterior (ver {@link #instantanea(Object)}), null en INSERT
+     * @param despues    estado posterior, null en DELETE
+     */
+    public void registrar(Connection connection, String tabla, Operacion operacion, Long entidadId, String antes,
+            String despues) {
+        StringBuilder linea = new StringBuilder(128);
+        agregarCampo(linea, LocalDateTime.now().toString()).append('\t');
+        agregarCampo(linea, tabla).append('\t');
+        agregarCampo(linea, operacion.name()).append('\t');
+        agregarCampo(linea, entidadId != null ? entidadId.toString() : null).append('\t');
+        agregarCampo(linea, actor).append('\t');
+        agregarCampo(linea, antes).append('\t');
+        agregarCampo(linea, despues).append('\n');
+
+        String registro = linea.toString();
+        TransactionManager.alConfirmar(connection, () -> encolar(registro));
+    }
+
+    private void encolar(String registro) {
+        if (buffer.ofrecer(registro)) {
+            encolados.increment();
+            return;
+        }
+
+        switch (politica) {
+            case BLOQUEAR -> {
+                bloqueos.increment();
+                while (!buffer.ofrecer(registro)) {
+                    // Sin escritor nadie libera lugar: esperar colgaría al servicio
+                    if (!activo) {
+                        contarDescartados(1);
+                        return;
+                    }
+                    LockSupport.parkNanos(ESPERA_BLOQUEO_NANOS);
+                }
+                encolados.increment();
+            }
+            case DESCARTAR -> contarDescartados(1);
+            case DERRAMAR -> derramar(List.of(registro));
+        }
+    }
+
+    private void contarDescartados(long cantidad) {
+        long anteriores = descartados.sum();
+        descartados.add(cantidad);
+        // Un aviso por cada mil descartados para no inundar el log
+        if (anteriores / 1000 != (anteriores + cantidad) / 1000 || anteriores == 0) {
+            logger.warn("Cola de auditoría llena: {} registros descartados en total", anteriores + cantidad);
+        }
+    }
+
+    private void ejecutar() {
+        List<String> lote = new ArrayList<>(tamañoLote);
+
+        while (true) {
+            int profundidad = buffer.tamaño();
+            if (profundidad > profundidadMaxima) {
+                profundidadMaxima = profundidad;
+            }
+
+            lote.clear();
+            buffer.drenar(lote, tamañoLote);
+            if (!lote.isEmpty()) {
+                escribir(lote);
+                continue;
+            }
+
+            // Al cerrar se sale recién con la cola vacía
+            if (!activo) {
+                return;
+            }
+
+            if (hayDerrames) {
+                importarDerrames();
+            }
+            LockSupport.parkNanos(esperaNanos);
+        }
+    }
+
+    private void escribir(List<String> lote) {
+        if (!YearMonth.now().equals(mesParticiones)) {
+            asegurarParticiones();
+        }
+
+        try {
+            transactionManager.executeInTransaction(connection -> copiar(connection, lote));
+            escritos.addAndGet(lote.size());
+            lotes.incrementAndGet();
+            logger.debug("Lote de auditoría escrito: {} registros, {} en cola", lote.size(), buffer.tamaño());
+        } catch (SQLException e) {
+            errores.incrementAndGet();
+            if (directorioDerrame != null) {
+                logger.warn("No se pudo escribir un lote de auditoría ({}), se derraman {} registros",
+                        e.getMessage(), lote.size());
+                derramar(lote);
+            } else {
+                logger.error("No se pudo escribir un lote de auditoría ({}), se pierden {} registros",
+                        e.getMessage(), lote.size());
+                contarDescartados(lote.size());
+            }
+        }
+    }
+
+    private long copiar(Connection connection, List<String> lote) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_AUDITORIA);
+        try {
+            StringBuilder bloque = new StringBuilder(Math.min(TAMAÑO_BLOQUE_COPY, lote.size() * 256) + 1024);
+            for (String registro : lote) {
+                bloque.append(registro);
+                if (bloque.length() >= TAMAÑO_BLOQUE_COPY) {
+                    enviarBloque(copyIn, bloque);
+                }
+            }
+            enviarBloque(copyIn, bloque);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void enviarBloque(CopyIn copyIn, StringBuilder bloque) throws SQLException {
+        if (bloque.length() > 0) {
+            byte[] bytes = bloque.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            bloque.setLength(0);
+        }
+    }
+
+    private void derramar(List<String> registros) {
+        synchronized (lockDerrame) {
+            try {
+                if (derrame == null) {
+                    Files.createDirectories(directorioDerrame);
+                    String nombre = String.format("auditoria-%s-%d%s",
+                            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS")),
+                            archivosDerrame++, EXTENSION_DERRAME);
+                    derrame = Files.newBufferedWriter(directorioDerrame.resolve(nombre), StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                }
+                for (String registro : registros) {
+                    derrame.write(registro);
+                }
+                derrame.flush();
+                derramados.add(registros.size());
+                hayDerrames = true;
+            } catch (IOException e) {
+                logger.error("No se pudo derramar la auditoría a disco: {}", e.getMessage());
+                contarDescartados(registros.size());
+            }
+        }
+    }
+
+    /**
+     * Carga los archivos de derrame cerrados, incluidos los de ejecuciones anteriores
+     */
+    private void importarDerrames() {
+        List<Path> archivos = new ArrayList<>();
+
+        synchronized (lockDerrame) {
+            hayDerrames = false;
+            if (directorioDerrame == null || !Files.isDirectory(directorioDerrame)) {
+                return;
+            }
+            try {
+                // Los derrames siguientes van a un archivo nuevo que no está en esta lista
+                if (derrame != null) {
+                    derrame.close();
+                    derrame = null;
+                }
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directorioDerrame,
+                        "*" + EXTENSION_DERRAME)) {
+                    stream.forEach(archivos::add);
+                }
+            } catch (IOException e) {
+                logger.warn("No se pudieron listar los derrames de auditoría: {}", e.getMessage());
+                hayDerrames = true;
+                return;
+            }
+        }
+
+        for (Path archivo : archivos) {
+            try {
+                long filas = transactionManager.executeInTransaction(connection -> {
+                    try (InputStream entrada = Files.newInputStream(archivo)) {
+                        return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_AUDITORIA, entrada);
+                    } catch (IOException e) {
+                        throw new SQLException("Error al leer " + archivo + ": " + e.getMessage(), e);
+                    }
+                });
+                Files.delete(archivo);
+                recuperados.addAndGet(filas);
+                logger.info("Derrame de auditoría cargado: {} ({} registros)", archivo.getFileName(), filas);
+            } catch (SQLException e) {
+                if (e.getSQLState() != null && e.getSQLState().startsWith(CLASE_DATOS_INVALIDOS)) {
+                    // Típicamente una línea cortada por una caída: se aparta para revisión manual
+                    logger.error("Derrame de auditoría inválido, se aparta: {} ({})", archivo.getFileName(),
+                            e.getMessage());
+                    apartar(archivo);
+                } else {
+                    logger.warn("No se pudo cargar el derrame {}: {}", archivo.getFileName(), e.getMessage());
+                    hayDerrames = true;
+                    return;
+                }
+            } catch (IOException e) {
+                logger.warn("No se pudo eliminar el derrame cargado {}: {}", archivo.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    private void apartar(Path archivo) {
+        try {
+            Files.move(archivo, archivo.resolveSibling(archivo.getFileName() + EXTENSION_RECHAZADO));
+        } catch (IOException e) {
+            logger.error("No se pudo apartar {}: {}", archivo.getFileName(), e.getMessage());
+        }
+    }
+
+    private void asegurarParticiones() {
+        try {
+            int creadas = transactionManager.executeInTransaction(connection -> {
+                try (PreparedStatement stmt = connection.prepareStatement(CREAR_PARTICIONES)) {
+                    stmt.setInt(1, MESES_PARTICIONES);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        return rs.getInt(1);
+                    }
+                }
+            });
+            if (creadas > 0) {
+                logger.info("Se crearon {} particiones de auditoría", creadas);
+            }
+        } catch (SQLException e) {
+            // Los registros van a la partición por defecto hasta el próximo intento
+            logger.warn("No se pudieron crear las particiones de auditoría: {}", e.getMessage());
+        }
+        mesParticiones = YearMonth.now();
+    }
+
+    /**
+     * Convierte una entidad en el JSON que se guarda como estado anterior o posterior
+     *
+     * @param entidad libro, usuario o préstamo (puede ser null)
+     * @return objeto JSON con las columnas de la entidad, o null
+     * @throws IllegalArgumentException si la entidad no es auditable
+     */
+    public static String instantanea(Object entidad) {
+        if (entidad == null) {
+            return null;
+        }
+
+        Map<String, Object> valores = new LinkedHashMap<>();
+        if (entidad instanceof Libro libro) {
+            valores.put("id", libro.getId());
+            valores.put("titulo", libro.getTitulo());
+            valores.put("autor", libro.getAutor());
+            valores.put("isbn", libro.getIsbn());
+            valores.put("genero", libro.getGenero());
+            valores.put("año_publicacion", libro.getAñoPublicacion());
+            valores.put("disponible", libro.getDisponible());
+        } else if (entidad instanceof Usuario usuario) {
+            valores.put("id", usuario.getId());
+            valores.put("nombre", usuario.getNombre());
+            valores.put("email", usuario.getEmail());
+            valores.put("telefono", usuario.getTelefono());
+            valores.put("fecha_registro", usuario.getFechaRegistro());
+        } else if (entidad instanceof Prestamo prestamo) {
+            valores.put("id", prestamo.getId());
+            valores.put("usuario_id", prestamo.getUsuarioId());
+            valores.put("libro_id", prestamo.getLibroId());
+            valores.put("fecha_prestamo", prestamo.getFechaPrestamo());
+            valores.put("fecha_devolucion_esperada", prestamo.getFechaDevolucionEsperada());
+            valores.put("fecha_devolucion_real", prestamo.getFechaDevolucionReal());
+            valores.put("estado", prestamo.getEstado());
+            valores.put("observaciones", prestamo.getObservaciones());
+        } else {
+            throw new IllegalArgumentException("Entidad no auditable: " + entidad.getClass().getSimpleName());
+        }
+
+        StringBuilder json = new StringBuilder(128).append('{');
+        for (Map.Entry<String, Object> valor : valores.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            agregarTextoJson(json, valor.getKey()).append(':');
+            Object v = valor.getValue();
+            if (v == null) {
+                json.append("null");
+            } else if (v instanceof Number || v instanceof Boolean) {
+                json.append(v);
+            } else {
+                agregarTextoJson(json, v.toString());
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    private static StringBuilder agregarTextoJson(StringBuilder json, String texto) {
+        json.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"');
+    }
+
+    /**
+     * Agrega un valor escapado para el formato texto de COPY (null se escribe como \N)
+     */
+    private static StringBuilder agregarCampo(StringBuilder linea, String valor) {
+        if (valor == null) {
+            return linea.append("\\N");
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '\\' -> linea.append("\\\\");
+                case '\t' -> linea.append("\\t");
+                case '\n' -> linea.append("\\n");
+                case '\r' -> linea.append("\\r");
+                default -> linea.append(c);
+            }
+        }
+        return linea;
+    }
+
+    /**
+     * @return registros en la cola esperando al escritor
+     */
+    public int getProfundidad() {
+        return buffer.tamaño();
+    }
+
+    /**
+     * @return mayor profundidad de la cola observada por el escritor
+     */
+    public int getProfundidadMaxima() {
+        return profundidadMaxima;
+    }
+
+    public int getCapacidad() {
+        return buffer.capacidad();
+    }
+
+    public long getEncolados() {
+        return encolados.sum();
+    }
+
+    public long getEscritos() {
+        return escritos.get();
+    }
+
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    public long getDerramados() {
+        return derramados.sum();
+    }
+
+    public long getRecuperados() {
+        return recuperados.get();
+    }
+
+    /**
+     * @return veces que un servicio tuvo que esperar lugar en la cola (política BLOQUEAR)
+     */
+    public long getBloqueos() {
+        return bloqueos.sum();
+    }
+
+    public long getErrores() {
+        return errores.get();
+    }
+
+    /**
+     * Detiene el escritor después de vaciar la cola y cierra el archivo de derrame
+     * Los derrames pendientes se cargan en el próximo inicio.
+     */
+    @Override
+    public void close() {
+        Thread actual;
+        synchronized (this) {
+            actual = escritor;
+            activo = false;
+        }
+        if (actual != null) {
+            LockSupport.unpark(actual);
+            try {
+                actual.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                escritor = null;
+            }
+        }
+
+        synchronized (lockDerrame) {
+            if (derrame != null) {
+                try {
+                    derrame.close();
+                } catch (IOException e) {
+                    logger.warn("No se pudo cerrar el derrame de auditoría: {}", e.getMessage());
+                }
+                derrame = null;
+            }
+        }
+
+        logger.info("Auditoría detenida: {}", this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d encolados, %d escritos en %d lotes, %d descartados, %d derramados, "
+                + "%d recuperados, %d esperas por cola llena, %d errores, cola %d/%d (máximo %d)",
+                getEncolados(), getEscritos(), lotes.get(), getDescartados(), getDerramados(), getRecuperados(),
+                getBloqueos(), getErrores(), getProfundidad(), getCapacidad(), profundidadMaxima);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.crudapp.infrastructure.capture;
+
+import com.example.crudapp.application.services.LibroService;
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.repositories.LibroRepository;
+import com.example.crudapp.infrastructure.audit.AuditTrail;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Operacion;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * LibroService que graba las consultas de la consola en un WorkloadRecorder
+ * Las altas y modificaciones del catálogo no se graban.
+ *
+ */
+public class RecordingLibroService extends LibroService {
+
+    private final WorkloadRecorder grabador;
+
+    /**
+     * @param grabador destino de las llamadas grabadas
+     * @see LibroService#LibroService(LibroRepository, TransactionManager, AuditTrail)
+     */
+    public RecordingLibroService(LibroRepository libroRepository, TransactionManager transactionManager,
+            AuditTrail auditoria, WorkloadRecorder grabador) {
+        super(libroRepository, transactionManager, auditoria);
+        this.grabador = grabador;
+    }
+
+    @Override
+    public Optional<Libro> buscarPorId(Long id) throws SQLException {
+        return grabador.grabar(Operacion.BUSCAR_LIBRO, () -> super.buscarPorId(id), id);
+    }
+
+    @Override
+    public Optional<Libro> buscarPorIsbn(String isbn) throws SQLException {
+        return grabador.grabar(Operacion.BUSCAR_LIBRO_ISBN, () -> super.buscarPorIsbn(isbn), isbn);
+    }
+
+    @Override
+    public List<Libro> buscarPorTitulo(String titulo) throws SQLException {
+        return grabador.grabar(Operacion.BUSCAR_LIBROS_TITULO, () -> super.buscarPorTitulo(titulo), titulo);
+    }
+
+    @Override
+    public List<Libro> buscarPorAutor(String autor) throws SQLException {
+        return grabador.grabar(Operacion.BUSCAR_LIBROS_AUTOR, () -> super.buscarPorAutor(autor), autor);
+    }
+
+    @Override
+    public List<Libro> obtenerPagina(long despuesDeId, int tamaño) throws SQLException {
+        return grabador.grabar(Operacion.PAGINA_LIBROS, () -> super.obtenerPagina(despuesDeId, tamaño), despuesDeId,
+                tamaño);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.crudapp.infrastructure.capture;
+
+import com.example.crudapp.application.dto.PrestamoDTO;
+import com.example.crudapp.application.services.PrestamoService;
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.domain.repositories.LibroRepository;
+import com.example.crudapp.domain.repositories.PrestamoRepository;
+import com.example.crudapp.domain.repositories.UsuarioRepository;
+import com.example.crudapp.infrastructure.audit.AuditTrail;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Operacion;
+import com.example.crudapp.infrastructure.events.PrestamoOutbox;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * PrestamoService que graba las llamadas de la consola en un WorkloadRecorder
+ * Solo se usa cuando la grabación está activada, así el servicio normal no
+ * paga nada por ella.
+ *
+ */
+public class RecordingPrestamoService extends PrestamoService {
+
+    private final WorkloadRecorder grabador;
+
+    /**
+     * @param grabador destino de las llamadas grabadas
+     * @see PrestamoService#PrestamoService(PrestamoRepository, UsuarioRepository, LibroRepository,
+     *      TransactionManager, PrestamoOutbox, AuditTrail)
+     */
+    public RecordingPrestamoService(PrestamoRepository prestamoRepository, UsuarioRepository usuarioRepository,
+            LibroRepository libroRepository, TransactionManager transactionManager, PrestamoOutbox outbox,
+            AuditTrail auditoria, WorkloadRecorder grabador) {
+        super(prestamoRepository, usuarioRepository, libroRepository, transactionManager, outbox, auditoria);
+        this.grabador = grabador;
+    }
+
+    @Override
+    public Prestamo crearPrestamo(PrestamoDTO prestamoDTO) throws SQLException {
+        if (prestamoDTO == null) {
+            return super.crearPrestamo(null);
+        }
+        return grabador.grabar(Operacion.CREAR_PRESTAMO, () -> super.crearPrestamo(prestamoDTO),
+                prestamoDTO.getUsuarioId(), prestamoDTO.getLibroId(), prestamoDTO.getFechaPrestamo(),
+                prestamoDTO.getFechaDevolucionEsperada());
+    }
+
+    @Override
+    public void devolverLibro(Long prestamoId, LocalDate fechaDevolucion, String observaciones) throws SQLException {
+        grabador.grabar(Operacion.DEVOLVER_LIBRO, () -> {
+            super.devolverLibro(prestamoId, fechaDevolucion, observaciones);
+            return null;
+        }, prestamoId, fechaDevolucion, observaciones);
+    }
+
+    @Override
+    public void renovarPrestamo(Long prestamoId, int diasExtension) throws SQLException {
+        grabador.grabar(Operacion.RENOVAR_PRESTAMO, () -> {
+            super.renovarPrestamo(prestamoId, diasExtension);
+            return null;
+        }, prestamoId, diasExtension);
+    }
+
+    @Override
+    public Optional<Prestamo> buscarDetallePorId(Long id) throws SQLException {
+        return grabador.grabar(Operacion.BUSCAR_DETALLE_PRESTAMO, () -> super.buscarDetallePorId(id), id);
+    }
+
+    @Override
+    public List<Prestamo> obtenerPaginaConDetalles(long despuesDeId, int tamaño) throws SQLException {
+        return grabador.grabar(Operacion.PAGINA_PRESTAMOS, () -> super.obtenerPaginaConDetalles(despuesDeId, tamaño),
+                despuesDeId, tamaño);
+    }
+
+    @Override
+    public List<Prestamo> obtenerPaginaConDetallesUsuario(Long usuarioId, String estado, long despuesDeId, int tamaño)
+            throws SQLException {
+        return grabador.grabar(Operacion.PAGINA_PRESTAMOS_USUARIO,
+                () -> super.obtenerPaginaConDetallesUsuario(usuarioId, estado, despuesDeId, tamaño),
+                usuarioId, estado, despuesDeId, tamaño);
+    }
+
+    @Override
+    public List<Prestamo> obtenerPaginaConDetallesVencidos(long despuesDeId, int tamaño) throws SQLException {
+        return grabador.grabar(Operacion.PAGINA_PRESTAMOS_VENCIDOS,
+                () -> super.obtenerPaginaConDetallesVencidos(despuesDeId, tamaño), despuesDeId, tamaño);
+    }
+}
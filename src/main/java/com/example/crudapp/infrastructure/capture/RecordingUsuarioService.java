@@ -0,0 +1,43 @@
+package com.example.crudapp.infrastructure.capture;
+
+import com.example.crudapp.application.services.UsuarioService;
+import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.domain.repositories.UsuarioRepository;
+import com.example.crudapp.infrastructure.audit.AuditTrail;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Operacion;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * UsuarioService que graba las consultas de la consola en un WorkloadRecorder
+ * Las altas, modificaciones y bajas de usuarios no se graban.
+ *
+ */
+public class RecordingUsuarioService extends UsuarioService {
+
+    private final WorkloadRecorder grabador;
+
+    /**
+     * @param grabador destino de las llamadas grabadas
+     * @see UsuarioService#UsuarioService(UsuarioRepository, TransactionManager, AuditTrail)
+     */
+    public RecordingUsuarioService(UsuarioRepository usuarioRepository, TransactionManager transactionManager,
+            AuditTrail auditoria, WorkloadRecorder grabador) {
+        super(usuarioRepository, transactionManager, auditoria);
+        this.grabador = grabador;
+    }
+
+    @Override
+    public Optional<Usuario> buscarPorId(Long id) throws SQLException {
+        return grabador.grabar(Operacion.BUSCAR_USUARIO, () -> super.buscarPorId(id), id);
+    }
+
+    @Override
+    public List<Usuario> obtenerPagina(long despuesDeId, int tamaño) throws SQLException {
+        return grabador.grabar(Operacion.PAGINA_USUARIOS, () -> super.obtenerPagina(despuesDeId, tamaño), despuesDeId,
+                tamaño);
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.crudapp.infrastructure.capture;
+
+import com.example.crudapp.domain.entities.Prestamo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Grabación de las llamadas a los servicios en un archivo binario compacto
+ *
+ * Por cada llamada se guarda la operación, el hilo que la hizo, el instante de
+ * inicio relativo al comienzo de la grabación, la duración, el resultado
+ * (exitosa, rechazada o error) con un resumen del valor devuelto, y los
+ * argumentos. Los enteros se escriben como varint, así un registro típico
+ * ocupa entre 10 y 20 bytes. WorkloadReplayer lee el archivo y repite las
+ * llamadas contra otra base de datos.
+ *
+ * Los registros se escriben al terminar cada llamada, por lo que el archivo
+ * no queda ordenado por inicio. Si la escritura falla la grabación se
+ * desactiva sin afectar a los servicios.
+ *
+ */
+public class WorkloadRecorder implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadRecorder.class);
+
+    private static final int MAGICO = 0x43415054; // "CAPT"
+    private static final short VERSION = 1;
+    private static final int TAMAÑO_BUFFER = 64 * 1024;
+
+    private static final byte NULO = 0;
+    private static final byte ENTERO = 1;
+    private static final byte TEXTO = 2;
+    private static final byte FECHA = 3;
+
+    /**
+     * Operaciones que se graban
+     * No se agregan ni reordenan constantes sin subir la versión del formato:
+     * el archivo guarda el ordinal.
+     */
+    public enum Operacion {
+        CREAR_PRESTAMO,
+        DEVOLVER_LIBRO,
+        RENOVAR_PRESTAMO,
+        BUSCAR_DETALLE_PRESTAMO,
+        PAGINA_PRESTAMOS,
+        PAGINA_PRESTAMOS_USUARIO,
+        PAGINA_PRESTAMOS_VENCIDOS,
+        BUSCAR_LIBRO,
+        BUSCAR_LIBRO_ISBN,
+        BUSCAR_LIBROS_TITULO,
+        BUSCAR_LIBROS_AUTOR,
+        PAGINA_LIBROS,
+        BUSCAR_USUARIO,
+        PAGINA_USUARIOS
+    }
+
+    /**
+     * Resultado de una llamada
+     */
+    public enum Estado {
+        EXITOSA, RECHAZADA, ERROR;
+
+        /**
+         * Las validaciones de negocio llegan como IllegalArgumentException o
+         * IllegalStateException, envueltas en SQLException cuando ocurren
+         * dentro de una transacción
+         *
+         * @param error excepción lanzada por la llamada
+         * @return RECHAZADA o ERROR
+         */
+        public static Estado de(Throwable error) {
+            for (Throwable t = error; t != null; t = t.getCause()) {
+                if (t instanceof IllegalArgumentException || t instanceof IllegalStateException) {
+                    return RECHAZADA;
+                }
+            }
+            return ERROR;
+        }
+    }
+
+    /**
+     * Llamada a un servicio
+     *
+     * @param <T> tipo devuelto
+     */
+    @FunctionalInterface
+    public interface Llamada<T> {
+        T ejecutar() throws SQLException;
+    }
+
+    /**
+     * Llamada grabada
+     *
+     * @param operacion  operación
+     * @param hilo       número del hilo que la hizo (desde 1, propio de la grabación)
+     * @param inicio     nanosegundos desde el comienzo de la grabación
+     * @param duracion   nanosegundos que tardó
+     * @param estado     resultado
+     * @param resumen    resumen del valor devuelto (ver {@link #resumir(Object)})
+     * @param argumentos argumentos: Long, String, LocalDate o null
+     */
+    public record Registro(Operacion operacion, int hilo, long inicio, long duracion, Estado estado, long resumen,
+            Object[] argumentos) {
+    }
+
+    private final Path archivo;
+    private final DataOutputStream salida;
+    private final long origen = System.nanoTime();
+    private final AtomicInteger hilos = new AtomicInteger();
+    private final ThreadLocal<Integer> hiloActual = ThreadLocal.withInitial(hilos::incrementAndGet);
+    private long registros;
+    private volatile boolean activa = true;
+
+    /**
+     * Abre (o reemplaza) el archivo de grabación
+     *
+     * @param archivo destino
+     * @throws IOException si no se puede crear
+     */
+    public WorkloadRecorder(Path archivo) throws IOException {
+        this.archivo = archivo;
+        this.salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archivo), TAMAÑO_BUFFER));
+        salida.writeInt(MAGICO);
+        salida.writeShort(VERSION);
+        salida.writeLong(System.currentTimeMillis());
+        logger.info("Grabando las llamadas a los servicios en {}", archivo);
+    }
+
+    /**
+     * Ejecuta la llamada y la graba con su duración y resultado
+     *
+     * @param operacion  operación que se ejecuta
+     * @param llamada    llamada al servicio
+     * @param argumentos argumentos de la llamada (Long, Integer, String, LocalDate o null)
+     * @return lo que devuelve la llamada
+     * @throws SQLException lo que lance la llamada
+     */
+    public <T> T grabar(Operacion operacion, Llamada<T> llamada, Object... argumentos) throws SQLException {
+        long inicio = System.nanoTime();
+        try {
+            T resultado = llamada.ejecutar();
+            escribir(operacion, inicio, Estado.EXITOSA, resumir(resultado), argumentos);
+            return resultado;
+        } catch (SQLException | RuntimeException e) {
+            escribir(operacion, inicio, Estado.de(e), 0, argumentos);
+            throw e;
+        }
+    }
+
+    /**
+     * Resume el valor devuelto para comparar resultados entre grabación y repetición
+     * Listas: cantidad de elementos; Optional: 1 si hay valor; préstamo creado: su ID.
+     *
+     * @param valor valor devuelto por el servicio
+     * @return resumen comparable
+     */
+    public static long resumir(Object valor) {
+        if (valor == null) {
+            return 0;
+        }
+        if (valor instanceof Collection<?> coleccion) {
+            return coleccion.size();
+        }
+        if (valor instanceof Optional<?> opcional) {
+            return opcional.isPresent() ? 1 : 0;
+        }
+        if (valor instanceof Prestamo prestamo) {
+            return prestamo.getId() != null ? prestamo.getId() : 0;
+        }
+        if (valor instanceof Number numero) {
+            return numero.longValue();
+        }
+        return 1;
+    }
+
+    private void escribir(Operacion operacion, long inicio, Estado estado, long resumen, Object[] argumentos) {
+        if (!activa) {
+            return;
+        }
+        long fin = System.nanoTime();
+        int hilo = hiloActual.get();
+        synchronized (this) {
+            if (!activa) {
+                return;
+            }
+            try {
+                salida.writeByte(operacion.ordinal());
+                escribirVarint(salida, hilo);
+                escribirVarint(salida, inicio - origen);
+                escribirVarint(salida, fin - inicio);
+                salida.writeByte(estado.ordinal());
+                escribirVarint(salida, zigzag(resumen));
+                salida.writeByte(argumentos.length);
+                for (Object argumento : argumentos) {
+                    escribirArgumento(salida, argumento);
+                }
+                registros++;
+            } catch (IOException e) {
+                logger.warn("Se detiene la grabación en {}: {}", archivo, e.getMessage());
+                activa = false;
+            }
+        }
+    }
+
+    /**
+     * @return llamadas grabadas hasta ahora
+     */
+    public synchronized long getRegistros() {
+        return registros;
+    }
+
+    /**
+     * Vacía el buffer y cierra el archivo
+     */
+    @Override
+    public synchronized void close() {
+        activa = false;
+        try {
+            salida.close();
+            logger.info("Grabación cerrada: {} llamadas en {}", registros, archivo);
+        } catch (IOException e) {
+            logger.warn("No se pudo cerrar la grabación {}: {}", archivo, e.getMessage());
+        }
+    }
+
+    /**
+     * Lee un archivo de grabación completo
+     * Un último registro cortado (proceso terminado a la fuerza) se descarta.
+     *
+     * @param archivo archivo escrito por WorkloadRecorder
+     * @return registros en el orden en que se escribieron
+     * @throws IOException si no se puede leer o no es una grabación
+     */
+    public static List<Registro> leer(Path archivo) throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(archivo), TAMAÑO_BUFFER))) {
+            if (entrada.readInt() != MAGICO) {
+                throw new IOException("El archivo no es una grabación de llamadas: " + archivo);
+            }
+            short version = entrada.readShort();
+            if (version != VERSION) {
+                throw new IOException("Versión de grabación no soportada: " + version);
+            }
+            entrada.readLong();
+
+            Operacion[] operaciones = Operacion.values();
+            Estado[] estados = Estado.values();
+            while (true) {
+                int operacion = entrada.read();
+                if (operacion < 0) {
+                    break;
+                }
+                try {
+                    int hilo = (int) leerVarint(entrada);
+                    long inicio = leerVarint(entrada);
+                    long duracion = leerVarint(entrada);
+                    Estado estado = estados[entrada.readUnsignedByte()];
+                    long resumen = dezigzag(leerVarint(entrada));
+                    Object[] argumentos = new Object[entrada.readUnsignedByte()];
+                    for (int i = 0; i < argumentos.length; i++) {
+                        argumentos[i] = leerArgumento(entrada);
+                    }
+                    registros.add(new Registro(operaciones[operacion], hilo, inicio, duracion, estado, resumen,
+                            argumentos));
+                } catch (EOFException e) {
+                    logger.warn("Registro incompleto al final de {}; se descarta", archivo);
+                    break;
+                }
+            }
+        }
+        return registros;
+    }
+
+    private static void escribirArgumento(DataOutputStream salida, Object argumento) throws IOException {
+        if (argumento == null) {
+            salida.writeByte(NULO);
+        } else if (argumento instanceof Long || argumento instanceof Integer) {
+            salida.writeByte(ENTERO);
+            escribirVarint(salida, zigzag(((Number) argumento).longValue()));
+        } else if (argumento instanceof String texto) {
+            salida.writeByte(TEXTO);
+            salida.writeUTF(texto);
+        } else if (argumento instanceof LocalDate fecha) {
+            salida.writeByte(FECHA);
+            escribirVarint(salida, zigzag(fecha.toEpochDay()));
+        } else {
+            throw new IllegalArgumentException("Tipo de argumento no grabable: " + argumento.getClass().getName());
+        }
+    }
+
+    private static Object leerArgumento(DataInputStream entrada) throws IOException {
+        byte tipo = entrada.readByte();
+        return switch (tipo) {
+            case NULO -> null;
+            case ENTERO -> dezigzag(leerVarint(entrada));
+            case TEXTO -> entrada.readUTF();
+            case FECHA -> LocalDate.ofEpochDay(dezigzag(leerVarint(entrada)));
+            default -> throw new IOException("Tipo de argumento desconocido: " + tipo);
+        };
+    }
+
+    // 7 bits por byte, el bit alto indica que sigue otro byte
+    private static void escribirVarint(DataOutputStream salida, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            salida.writeByte((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        salida.writeByte((int) valor);
+    }
+
+    private static long leerVarint(DataInputStream entrada) throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            int b = entrada.readUnsignedByte();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new IOException("Varint inválido");
+    }
+
+    // Los negativos pequeños también ocupan pocos bytes
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long dezigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.crudapp.infrastructure.capture;
+
+import com.example.crudapp.application.dto.PrestamoDTO;
+import com.example.crudapp.application.services.LibroService;
+import com.example.crudapp.application.services.PrestamoService;
+import com.example.crudapp.application.services.UsuarioService;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Estado;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Operacion;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Registro;
+import com.example.crudapp.infrastructure.stats.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Repetición de una grabación de WorkloadRecorder contra otra base de datos
+ *
+ * Cada hilo grabado se repite en su propio hilo virtual con sus llamadas en
+ * el mismo orden, así se conserva la concurrencia original. A velocidad 1
+ * cada llamada empieza en el mismo instante relativo que en la grabación, a
+ * velocidad 10 en la décima parte; sin velocidad (máxima) cada hilo encadena
+ * sus llamadas sin esperar.
+ *
+ * Por operación se comparan las latencias grabadas con las repetidas y se
+ * cuentan las llamadas cuyo resultado cambió: otro estado (exitosa, rechazada
+ * o error) u otro resumen del valor devuelto (cantidad de filas, presencia).
+ * Los IDs de préstamos creados durante la grabación se traducen a los que
+ * crea la repetición, para que las devoluciones y renovaciones apunten al
+ * préstamo correcto.
+ *
+ */
+public class WorkloadReplayer {
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadReplayer.class);
+
+    private static final int DIFERENCIAS_MAXIMAS = 100;
+
+    // Margen para que arranquen los hilos antes de la primera llamada
+    private static final long MARGEN_INICIO_NANOS = 50_000_000L;
+
+    private final PrestamoService prestamoService;
+    private final LibroService libroService;
+    private final UsuarioService usuarioService;
+
+    /**
+     * Constructor del repetidor
+     *
+     * @param prestamoService servicio de préstamos de la base de prueba
+     * @param libroService    servicio de libros de la base de prueba
+     * @param usuarioService  servicio de usuarios de la base de prueba
+     * @throws IllegalArgumentException si algún servicio es null
+     */
+    public WorkloadReplayer(PrestamoService prestamoService, LibroService libroService,
+            UsuarioService usuarioService) {
+        if (prestamoService == null || libroService == null || usuarioService == null) {
+            throw new IllegalArgumentException("Los servicios no pueden ser null");
+        }
+        this.prestamoService = prestamoService;
+        this.libroService = libroService;
+        this.usuarioService = usuarioService;
+    }
+
+    /**
+     * Repite las llamadas grabadas y compara latencias y resultados
+     *
+     * @param registros llamadas leídas con {@link WorkloadRecorder#leer}
+     * @param velocidad factor de aceleración (1 = tiempo real); 0 o menos para
+     *                  repetir tan rápido como se pueda
+     * @return comparación por operación y llamadas cuyo resultado cambió
+     */
+    public Reporte reproducir(List<Registro> registros, double velocidad) {
+        Map<Integer, List<Registro>> porHilo = new TreeMap<>();
+        for (Registro registro : registros) {
+            porHilo.computeIfAbsent(registro.hilo(), h -> new ArrayList<>()).add(registro);
+        }
+        porHilo.values().forEach(llamadas -> llamadas.sort(Comparator.comparingLong(Registro::inicio)));
+
+        Map<Operacion, Comparacion> comparaciones = new EnumMap<>(Operacion.class);
+        for (Registro registro : registros) {
+            comparaciones.computeIfAbsent(registro.operacion(), o -> new Comparacion());
+        }
+        Map<Long, Long> prestamos = new ConcurrentHashMap<>();
+        List<Diferencia> diferencias = Collections.synchronizedList(new ArrayList<>());
+
+        logger.info("Repitiendo {} llamadas de {} hilos a velocidad {}", registros.size(), porHilo.size(),
+                velocidad > 0 ? velocidad + "x" : "máxima");
+
+        long origen = System.nanoTime() + (velocidad > 0 ? MARGEN_INICIO_NANOS : 0);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<Registro> llamadas : porHilo.values()) {
+                executor.execute(() -> {
+                    for (Registro registro : llamadas) {
+                        if (velocidad > 0) {
+                            esperarHasta(origen + (long) (registro.inicio() / velocidad));
+                        }
+                        repetir(registro, comparaciones.get(registro.operacion()), prestamos, diferencias);
+                    }
+                });
+            }
+        }
+        double segundos = (System.nanoTime() - origen) / 1e9;
+
+        return new Reporte(registros.size(), porHilo.size(), segundos, comparaciones, diferencias);
+    }
+
+    private void repetir(Registro registro, Comparacion comparacion, Map<Long, Long> prestamos,
+            List<Diferencia> diferencias) {
+        Estado estado;
+        long resumen = 0;
+        String mensaje = null;
+        long inicio = System.nanoTime();
+        try {
+            resumen = WorkloadRecorder.resumir(invocar(registro.operacion(), registro.argumentos(), prestamos));
+            estado = Estado.EXITOSA;
+        } catch (SQLException | RuntimeException e) {
+            estado = Estado.de(e);
+            mensaje = e.getMessage();
+        }
+        long duracion = System.nanoTime() - inicio;
+
+        boolean creacion = registro.operacion() == Operacion.CREAR_PRESTAMO;
+        if (creacion && estado == Estado.EXITOSA && registro.estado() == Estado.EXITOSA) {
+            prestamos.put(registro.resumen(), resumen);
+        }
+
+        boolean cambio = estado != registro.estado() || (!creacion && resumen != registro.resumen());
+        comparacion.registrar(registro.duracion(), duracion, cambio);
+        if (cambio) {
+            if (diferencias.size() < DIFERENCIAS_MAXIMAS) {
+                diferencias.add(new Diferencia(registro, estado, resumen, mensaje));
+            }
+            logger.debug("Resultado distinto en {} {}: {} ({}) -> {} ({})", registro.operacion(),
+                    Arrays.toString(registro.argumentos()), registro.estado(), registro.resumen(), estado, resumen);
+        }
+    }
+
+    private Object invocar(Operacion operacion, Object[] a, Map<Long, Long> prestamos) throws SQLException {
+        return switch (operacion) {
+            case CREAR_PRESTAMO -> prestamoService.crearPrestamo(new PrestamoDTO(entero(a[0]), entero(a[1]),
+                    (LocalDate) a[2], (LocalDate) a[3], null, "ACTIVO", null));
+            case DEVOLVER_LIBRO -> {
+                prestamoService.devolverLibro(prestamo(a[0], prestamos), (LocalDate) a[1], (String) a[2]);
+                yield null;
+            }
+            case RENOVAR_PRESTAMO -> {
+                prestamoService.renovarPrestamo(prestamo(a[0], prestamos), entero(a[1]).intValue());
+                yield null;
+            }
+            case BUSCAR_DETALLE_PRESTAMO -> prestamoService.buscarDetallePorId(prestamo(a[0], prestamos));
+            case PAGINA_PRESTAMOS -> prestamoService.obtenerPaginaConDetalles(entero(a[0]), entero(a[1]).intValue());
+            case PAGINA_PRESTAMOS_USUARIO -> prestamoService.obtenerPaginaConDetallesUsuario(entero(a[0]),
+                    (String) a[1], entero(a[2]), entero(a[3]).intValue());
+            case PAGINA_PRESTAMOS_VENCIDOS -> prestamoService.obtenerPaginaConDetallesVencidos(entero(a[0]),
+                    entero(a[1]).intValue());
+            case BUSCAR_LIBRO -> libroService.buscarPorId(entero(a[0]));
+            case BUSCAR_LIBRO_ISBN -> libroService.buscarPorIsbn((String) a[0]);
+            case BUSCAR_LIBROS_TITULO -> libroService.buscarPorTitulo((String) a[0]);
+            case BUSCAR_LIBROS_AUTOR -> libroService.buscarPorAutor((String) a[0]);
+            case PAGINA_LIBROS -> libroService.obtenerPagina(entero(a[0]), entero(a[1]).intValue());
+            case BUSCAR_USUARIO -> usuarioService.buscarPorId(entero(a[0]));
+            case PAGINA_USUARIOS -> usuarioService.obtenerPagina(entero(a[0]), entero(a[1]).intValue());
+        };
+    }
+
+    private static Long entero(Object argumento) {
+        return (Long) argumento;
+    }
+
+    // Préstamos creados durante la grabación: se usa el ID que les dio la repetición
+    private static Long prestamo(Object argumento, Map<Long, Long> prestamos) {
+        Long id = entero(argumento);
+        return id != null ? prestamos.getOrDefault(id, id) : null;
+    }
+
+    private static void esperarHasta(long nanos) {
+        long restante;
+        while ((restante = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    /**
+     * Llamada cuyo resultado cambió en la repetición
+     *
+     * @param registro llamada grabada
+     * @param estado   estado en la repetición
+     * @param resumen  resumen del valor devuelto en la repetición
+     * @param mensaje  mensaje de la excepción de la repetición, si hubo
+     */
+    public record Diferencia(Registro registro, Estado estado, long resumen, String mensaje) {
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: %s (%d) -> %s (%d)%s", registro.operacion(),
+                    Arrays.toString(registro.argumentos()), registro.estado(), registro.resumen(), estado, resumen,
+                    mensaje != null ? " " + mensaje : "");
+        }
+    }
+
+    /**
+     * Latencias grabadas y repetidas de una operación
+     */
+    private static final class Comparacion {
+        private final LatencyHistogram grabada = new LatencyHistogram();
+        private final LatencyHistogram repetida = new LatencyHistogram();
+        private final LongAdder cambios = new LongAdder();
+
+        void registrar(long nanosGrabada, long nanosRepetida, boolean cambio) {
+            grabada.registrar(nanosGrabada);
+            repetida.registrar(nanosRepetida);
+            if (cambio) {
+                cambios.increment();
+            }
+        }
+    }
+
+    /**
+     * Resultado de una repetición
+     */
+    public static class Reporte {
+        private final int llamadas;
+        private final int hilos;
+        private final double segundos;
+        private final Map<Operacion, Comparacion> comparaciones;
+        private final List<Diferencia> diferencias;
+
+        Reporte(int llamadas, int hilos, double segundos, Map<Operacion, Comparacion> comparaciones,
+                List<Diferencia> diferencias) {
+            this.llamadas = llamadas;
+            this.hilos = hilos;
+            this.segundos = segundos;
+            this.comparaciones = comparaciones;
+            this.diferencias = List.copyOf(diferencias);
+        }
+
+        /**
+         * @return llamadas cuyo resultado cambió, en todas las operaciones
+         */
+        public long getCambios() {
+            return comparaciones.values().stream().mapToLong(c -> c.cambios.sum()).sum();
+        }
+
+        /**
+         * @return las primeras llamadas cuyo resultado cambió
+         */
+        public List<Diferencia> getDiferencias() {
+            return diferencias;
+        }
+
+        /**
+         * @return encabezados de {@link #getFilas()}
+         */
+        public static String[] getEncabezados() {
+            return new String[] { "Operación", "Llamadas", "Grabada p50", "Repetida p50", "Grabada p99",
+                    "Repetida p99", "Cambios" };
+        }
+
+        /**
+         * @return anchos de columna para TableFormatter
+         */
+        public static int[] getAnchos() {
+            return new int[] { 26, 9, 12, 13, 12, 13, 8 };
+        }
+
+        /**
+         * @return una fila por operación con sus latencias en milisegundos
+         */
+        public String[][] getFilas() {
+            List<String[]> filas = new ArrayList<>();
+            comparaciones.forEach((operacion, c) -> filas.add(new String[] {
+                    operacion.name(),
+                    String.valueOf(c.grabada.getCantidad()),
+                    ms(c.grabada.percentil(50)),
+                    ms(c.repetida.percentil(50)),
+                    ms(c.grabada.percentil(99)),
+                    ms(c.repetida.percentil(99)),
+                    String.valueOf(c.cambios.sum())
+            }));
+            return filas.toArray(new String[0][]);
+        }
+
+        private static String ms(long nanos) {
+            return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d llamadas de %d hilos repetidas en %.1f s, %d con resultado distinto",
+                    llamadas, hilos, segundos, getCambios());
+        }
+    }
+}
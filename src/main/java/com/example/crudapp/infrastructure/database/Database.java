@@ -1,5 +1,7 @@
 package com.example.crudapp.infrastructure.database;
 
+import com.example.crudapp.infrastructure.metrics.JmxMetrics;
+import com.example.crudapp.infrastructure.metrics.PoolMetrics;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
@@ -10,7 +12,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Configuración de la base de datos con pool de conexiones HikariCP
@@ -22,10 +32,12 @@ public class Database {
     private static final Logger logger = LoggerFactory.getLogger(Database.class);
     private static Database instance;
     private final HikariDataSource dataSource;
+    private final Properties properties;
     
     private Database() throws SQLException {
         try {
             Properties props = loadDatabaseProperties();
+            this.properties = props;
             this.dataSource = createDataSource(props);
             logger.info("Pool de conexiones inicializado correctamente");
         } catch (IOException e) {
@@ -63,7 +75,9 @@ public class Database {
         config.setDriverClassName("org.postgresql.Driver");
         
         // Configuración del pool para transacciones ACID
-        config.setMaximumPoolSize(10);
+        // db.pool.size en db.properties; una propiedad de sistema con el mismo nombre tiene prioridad
+        config.setMaximumPoolSize(Integer.getInteger("db.pool.size",
+                Integer.parseInt(props.getProperty("db.pool.size", "10"))));
         config.setMinimumIdle(2);
         config.setConnectionTimeout(30000); // 30 segundos
         config.setIdleTimeout(600000); // 10 minutos
@@ -78,6 +92,14 @@ public class Database {
         config.setValidationTimeout(5000);
         config.setLeakDetectionThreshold(60000);
         
+        // Métricas por JMX: los MBeans propios de Hikari (activas, inactivas, esperando)
+        // y los histogramas de adquisición de PoolMetrics
+        config.setPoolName("crudapp");
+        if (JmxMetrics.isHabilitado()) {
+            config.setRegisterMbeans(true);
+            config.setMetricsTrackerFactory(PoolMetrics::crear);
+        }
+        
         return new HikariDataSource(config);
     }
     
@@ -87,10 +109,65 @@ public class Database {
         return connection;
     }
     
+    /**
+     * Abre en paralelo varias conexiones del pool y las devuelve, para que las
+     * primeras operaciones no esperen el establecimiento de conexiones
+     * 
+     * @param conexiones número de conexiones a abrir (se limita al tamaño del pool)
+     * @throws SQLException si no se puede abrir alguna conexión
+     */
+    public void calentarPool(int conexiones) throws SQLException {
+        int total = Math.min(conexiones, dataSource.getMaximumPoolSize());
+        List<Future<?>> pendientes = new ArrayList<>(total);
+        CountDownLatch todasAbiertas = new CountDownLatch(total);
+        
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < total; i++) {
+                pendientes.add(executor.submit(() -> {
+                    // Se retienen todas a la vez para obligar al pool a crear conexiones nuevas
+                    Connection connection = getConnection();
+                    try {
+                        todasAbiertas.countDown();
+                        todasAbiertas.await(dataSource.getConnectionTimeout(), TimeUnit.MILLISECONDS);
+                    } finally {
+                        connection.close();
+                    }
+                    return null;
+                }));
+            }
+            
+            for (Future<?> pendiente : pendientes) {
+                pendiente.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Calentamiento del pool interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Error al calentar el pool: " + e.getCause().getMessage(), e.getCause());
+        }
+        
+        logger.debug("Pool calentado con {} conexiones", total);
+    }
+    
     public DataSource getDataSource() {
         return dataSource;
     }
     
+    /**
+     * Obtiene una propiedad de configuración de db.properties
+     * Las propiedades del sistema (-Dclave=valor) tienen prioridad sobre el archivo
+     * 
+     * @param key nombre de la propiedad
+     * @param defaultValue valor por defecto si no está definida
+     * @return valor de la propiedad
+     */
+    public String getProperty(String key, String defaultValue) {
+        return System.getProperty(key, properties.getProperty(key, defaultValue));
+    }
+    
     public void close() {
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
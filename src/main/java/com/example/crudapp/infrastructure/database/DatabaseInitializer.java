@@ -3,25 +3,57 @@ package com.example.crudapp.infrastructure.database;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Inicializador de base de datos
  * Ejecuta scripts SQL de forma idempotente (puede ejecutarse múltiples veces)
  * 
+ * Cada script de esquema se registra en la tabla schema_version con el
+ * SHA-256 de su contenido. Al iniciar basta una consulta para comprobar que
+ * nada cambió; solo los scripts nuevos o modificados se vuelven a aplicar,
+ * en orden y dentro de una única transacción.
+ * 
  */
 public class DatabaseInitializer {
     
     private static final Logger logger = LoggerFactory.getLogger(DatabaseInitializer.class);
+
+    /** Scripts de esquema en orden de aplicación */
+    private static final List<String> SCRIPTS_ESQUEMA = List.of("schema-functions.sql", "schema.sql");
+
+    private static final String SELECT_VERSIONES = "SELECT script, checksum FROM schema_version";
+
+    private static final String CREATE_SCHEMA_VERSION = "CREATE TABLE IF NOT EXISTS schema_version (" +
+            "script VARCHAR(100) PRIMARY KEY, " +
+            "checksum CHAR(64) NOT NULL, " +
+            "aplicado_en TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "duracion_ms INTEGER)";
+
+    private static final String UPSERT_VERSION = "INSERT INTO schema_version (script, checksum, aplicado_en, duracion_ms) " +
+            "VALUES (?, ?, CURRENT_TIMESTAMP, ?) " +
+            "ON CONFLICT (script) DO UPDATE SET checksum = EXCLUDED.checksum, " +
+            "aplicado_en = EXCLUDED.aplicado_en, duracion_ms = EXCLUDED.duracion_ms";
+
+    // Evita que dos instancias que arrancan a la vez apliquen los mismos scripts
+    private static final String LOCK_MIGRACION = "SELECT pg_advisory_xact_lock(hashtext('schema_version'))";
+
+    private static final String UNDEFINED_TABLE = "42P01";
+
     private final Database database;
     
     /**
@@ -35,97 +67,133 @@ public class DatabaseInitializer {
     
     /**
      * Inicializa la base de datos de forma idempotente
+     * Si ningún script cambió desde el último arranque solo hace una consulta
      * 
      * @throws SQLException si hay error en la inicialización
      */
     public void initializeDatabase() throws SQLException {
         logger.info("Inicializando base de datos...");
+        long inicio = System.nanoTime();
         
-        if (!database.testConnection()) {
-            throw new SQLException("No se puede conectar a la base de datos");
-        }
-        
-        // 1. Ejecutar funciones PL/pgSQL primero
-        executeFunctionsScript();
-        
-        // 2. Luego ejecutar schema (tablas, triggers, índices)
-        executeSchemaScript();
+        List<Script> scripts = cargarScripts();
         
-        // 3. Finalmente insertar datos iniciales si es necesario
-        insertInitialDataIfNeeded();
+        try (Connection connection = database.getConnection()) {
+            
+            // 1. Comparar checksums con los registrados (también comprueba la conexión)
+            Map<String, String> aplicados = leerVersiones(connection);
+            
+            List<Script> pendientes = filtrarPendientes(scripts, aplicados);
+            
+            if (pendientes.isEmpty()) {
+                connection.commit();
+                logger.info("Esquema al día ({} scripts sin cambios), inicializado en {} ms",
+                        scripts.size(), (System.nanoTime() - inicio) / 1_000_000);
+                return;
+            }
+            
+            // 2. Aplicar los scripts nuevos o modificados en una sola transacción
+            boolean esquemaNuevo = !aplicados.containsKey("schema.sql");
+            aplicarMigraciones(connection, scripts);
+            
+            // 3. Insertar datos iniciales si el esquema se acaba de crear
+            if (esquemaNuevo) {
+                insertInitialDataIfNeeded(connection);
+            }
+        }
         
-        logger.info("Base de datos inicializada correctamente");
+        logger.info("Base de datos inicializada correctamente en {} ms", (System.nanoTime() - inicio) / 1_000_000);
     }
     
     /**
-     * Ejecuta el script de funciones PL/pgSQL
+     * Lee los checksums registrados en schema_version
      * 
-     * @throws SQLException si hay error ejecutando el script
+     * @param connection conexión a la base de datos
+     * @return checksum registrado por nombre de script (vacío si la tabla no existe)
+     * @throws SQLException si hay error en la consulta
      */
-    private void executeFunctionsScript() throws SQLException {
-        logger.debug("Ejecutando schema-functions.sql...");
+    private Map<String, String> leerVersiones(Connection connection) throws SQLException {
+        Map<String, String> versiones = new HashMap<>();
         
-        try (Connection connection = database.getConnection()) {
-            String functionsScript = loadResourceAsString("schema-functions.sql");
-            
-            // Ejecutar script completo (funciones PL/pgSQL pueden tener $$ delimiters)
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute(functionsScript);
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(SELECT_VERSIONES)) {
+            while (rs.next()) {
+                versiones.put(rs.getString("script"), rs.getString("checksum"));
             }
             
-            connection.commit();
-            logger.debug("Funciones PL/pgSQL ejecutadas correctamente");
-            
-        } catch (IOException e) {
-            logger.warn("No se encontró schema-functions.sql, omitiendo funciones");
+        } catch (SQLException e) {
+            if (!UNDEFINED_TABLE.equals(e.getSQLState())) {
+                throw e;
+            }
+            logger.debug("No existe schema_version, se aplicarán todos los scripts");
+            connection.rollback();
         }
+        
+        return versiones;
     }
     
     /**
-     * Ejecuta el script schema.sql (tablas, triggers, índices)
+     * Aplica en orden los scripts cuyo checksum no coincide con el registrado
+     * Todo ocurre en una transacción: si un script falla no queda ningún cambio
      * 
-     * @throws SQLException si hay error ejecutando el script
+     * @param connection conexión a la base de datos
+     * @param scripts scripts de esquema en orden
+     * @throws SQLException si hay error aplicando algún script
      */
-    private void executeSchemaScript() throws SQLException {
-        logger.debug("Ejecutando schema.sql...");
-        
-        try (Connection connection = database.getConnection()) {
-            String schemaScript = loadResourceAsString("schema.sql");
+    private void aplicarMigraciones(Connection connection, List<Script> scripts) throws SQLException {
+        try {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(LOCK_MIGRACION);
+            }
             
-            // Dividir el script en statements individuales por ;
-            String[] statements = schemaScript.split(";");
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute(CREATE_SCHEMA_VERSION);
+            }
             
-            for (String statement : statements) {
-                String trimmedStatement = statement.trim();
-                if (!trimmedStatement.isEmpty()) {
-                    logger.trace("Ejecutando: {}", trimmedStatement.substring(0, Math.min(50, trimmedStatement.length())) + "...");
-                    try (Statement stmt = connection.createStatement()) {
-                        stmt.execute(trimmedStatement);
-                    }
+            // Releer con el lock tomado por si otra instancia ya migró
+            Map<String, String> aplicados = leerVersiones(connection);
+            List<Script> pendientes = filtrarPendientes(scripts, aplicados);
+            
+            for (Script script : pendientes) {
+                logger.info("Aplicando {} ({})", script.nombre,
+                        aplicados.containsKey(script.nombre) ? "modificado" : "nuevo");
+                long inicio = System.nanoTime();
+                
+                // El driver envía todas las sentencias del script en un solo viaje
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute(script.contenido);
+                }
+                
+                try (PreparedStatement stmt = connection.prepareStatement(UPSERT_VERSION)) {
+                    stmt.setString(1, script.nombre);
+                    stmt.setString(2, script.checksum);
+                    stmt.setInt(3, (int) ((System.nanoTime() - inicio) / 1_000_000));
+                    stmt.executeUpdate();
                 }
             }
             
             connection.commit();
-            logger.debug("Schema ejecutado correctamente");
+            logger.info("Se aplicaron {} scripts de esquema", pendientes.size());
             
-        } catch (IOException e) {
-            throw new SQLException("Error al cargar schema.sql", e);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
         }
     }
     
     /**
      * Inserta datos iniciales solo si las tablas están vacías
      * 
+     * @param connection conexión a la base de datos
      * @throws SQLException si hay error insertando datos
      */
-    private void insertInitialDataIfNeeded() throws SQLException {
+    private void insertInitialDataIfNeeded(Connection connection) throws SQLException {
         logger.debug("Verificando si se necesitan datos iniciales...");
         
-        try (Connection connection = database.getConnection()) {
-            
+        try {
             // Verificar si ya hay datos
             if (hasInitialData(connection)) {
                 logger.info("Ya existen datos iniciales, omitiendo inserción");
+                connection.commit();
                 return;
             }
             
@@ -135,6 +203,7 @@ public class DatabaseInitializer {
             
         } catch (IOException e) {
             logger.warn("No se encontró initial-data.sql, omitiendo datos iniciales");
+            connection.rollback();
         }
     }
     
@@ -146,18 +215,12 @@ public class DatabaseInitializer {
      * @throws SQLException si hay error en la consulta
      */
     private boolean hasInitialData(Connection connection) throws SQLException {
-        String checkQuery = "SELECT COUNT(*) FROM usuarios";
+        String checkQuery = "SELECT EXISTS (SELECT 1 FROM usuarios)";
         
         try (PreparedStatement stmt = connection.prepareStatement(checkQuery);
              ResultSet rs = stmt.executeQuery()) {
             
-            if (rs.next()) {
-                int count = rs.getInt(1);
-                logger.debug("Usuarios existentes: {}", count);
-                return count > 0;
-            }
-            
-            return false;
+            return rs.next() && rs.getBoolean(1);
         }
     }
     
@@ -169,40 +232,74 @@ public class DatabaseInitializer {
      * @throws IOException si no se puede leer el archivo
      */
     private void executeInitialDataScript(Connection connection) throws SQLException, IOException {
-        String dataScript = loadResourceAsString("initial-data.sql");
+        String dataScript = new String(loadResource("initial-data.sql"), StandardCharsets.UTF_8);
         
-        // Dividir el script en statements individuales por ;
-        String[] statements = dataScript.split(";");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(dataScript);
+        }
         
-        for (String statement : statements) {
-            String trimmedStatement = statement.trim();
-            if (!trimmedStatement.isEmpty()) {
-                logger.trace("Ejecutando data: {}", trimmedStatement.substring(0, Math.min(50, trimmedStatement.length())) + "...");
-                try (Statement stmt = connection.createStatement()) {
-                    stmt.execute(trimmedStatement);
-                }
+        logger.debug("Datos iniciales insertados correctamente");
+    }
+    
+    /**
+     * Carga los scripts de esquema y calcula su checksum
+     * 
+     * @return scripts en orden de aplicación
+     * @throws SQLException si falta algún script
+     */
+    private List<Script> cargarScripts() throws SQLException {
+        List<Script> scripts = new ArrayList<>();
+        
+        for (String nombre : SCRIPTS_ESQUEMA) {
+            try {
+                byte[] bytes = loadResource(nombre);
+                scripts.add(new Script(nombre, new String(bytes, StandardCharsets.UTF_8), sha256(bytes)));
+            } catch (IOException e) {
+                throw new SQLException("Error al cargar " + nombre, e);
             }
         }
         
-        logger.debug("Datos iniciales insertados correctamente");
+        return scripts;
+    }
+    
+    /**
+     * Devuelve los scripts cuyo checksum difiere del registrado
+     * 
+     * @param scripts scripts de esquema en orden
+     * @param aplicados checksum registrado por nombre de script
+     * @return scripts pendientes, en el mismo orden
+     */
+    private List<Script> filtrarPendientes(List<Script> scripts, Map<String, String> aplicados) {
+        List<Script> pendientes = new ArrayList<>();
+        for (Script script : scripts) {
+            if (!script.checksum.equals(aplicados.get(script.nombre))) {
+                pendientes.add(script);
+            }
+        }
+        return pendientes;
     }
     
     /**
-     * Carga un archivo de recursos como string
+     * Carga un archivo de recursos
      * 
      * @param resourceName nombre del recurso
      * @return contenido del archivo
      * @throws IOException si no se puede leer el archivo
      */
-    private String loadResourceAsString(String resourceName) throws IOException {
+    private byte[] loadResource(String resourceName) throws IOException {
         try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
             if (inputStream == null) {
                 throw new IOException(String.format("Recurso no encontrado: %s", resourceName));
             }
-            
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                return reader.lines().collect(Collectors.joining("\n"));
-            }
+            return inputStream.readAllBytes();
+        }
+    }
+    
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
         }
     }
     
@@ -222,4 +319,19 @@ public class DatabaseInitializer {
             return false;
         }
     }
+    
+    /**
+     * Script de esquema con su contenido y checksum
+     */
+    private static class Script {
+        private final String nombre;
+        private final String contenido;
+        private final String checksum;
+        
+        Script(String nombre, String contenido, String checksum) {
+            this.nombre = nombre;
+            this.contenido = contenido;
+            this.checksum = checksum;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,466 @@
+package com.example.crudapp.infrastructure.datagen;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de datos sintéticos para pruebas de volumen y benchmarks
+ *
+ * Produce usuarios, libros y préstamos con la forma de una biblioteca real:
+ * la popularidad de los libros sigue una distribución de Zipf (unos pocos
+ * títulos concentran la mayoría de los préstamos), la actividad de los
+ * usuarios una ley de potencia más suave, y los préstamos se reparten en
+ * orden cronológico a lo largo de varios años. Un libro no se vuelve a
+ * prestar mientras su préstamo anterior siga abierto (uno que nunca se
+ * devuelve queda prestado para siempre); los más recientes quedan ACTIVO, los
+ * que pasaron su fecha sin devolverse VENCIDO y el resto DEVUELTO.
+ *
+ * Todo se deriva de la semilla y de la fecha de referencia: la misma
+ * configuración genera exactamente los mismos datos. Las filas se cargan con
+ * COPY en formato texto, en bloques de 1 MiB, sobre las tablas creadas por
+ * DatabaseInitializer (escala probada de 10 mil a 50 millones de préstamos).
+ *
+ */
+public class SyntheticDataGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    private static final int TAMAÑO_BLOQUE_COPY = 1 << 20; // caracteres por envío a COPY
+
+    private static final double EXPONENTE_LIBROS = 1.0;
+    private static final double EXPONENTE_USUARIOS = 0.8;
+    private static final double EXPONENTE_AUTORES = 1.1;
+
+    private static final int DIAS_PRESTAMO = 14;
+    private static final double PROBABILIDAD_NO_DEVUELTO = 0.005;
+    private static final int INTENTOS_LIBRO_LIBRE = 8;
+
+    private static final String COPY_USUARIOS =
+        "COPY usuarios (id, nombre, email, telefono, fecha_registro) FROM STDIN";
+
+    private static final String COPY_LIBROS =
+        "COPY libros (id, titulo, autor, isbn, genero, año_publicacion, disponible) FROM STDIN";
+
+    private static final String COPY_PRESTAMOS =
+        "COPY prestamos (id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, " +
+        "fecha_devolucion_real, estado) FROM STDIN";
+
+    private static final String HAY_DATOS =
+        "SELECT EXISTS (SELECT 1 FROM usuarios) OR EXISTS (SELECT 1 FROM libros) OR EXISTS (SELECT 1 FROM prestamos)";
+
+    private static final String VACIAR_TABLAS = "TRUNCATE prestamos, libros, usuarios RESTART IDENTITY";
+
+    private static final String AJUSTAR_SECUENCIAS =
+        "SELECT setval(pg_get_serial_sequence('usuarios', 'id'), %d), " +
+        "setval(pg_get_serial_sequence('libros', 'id'), %d), " +
+        "setval(pg_get_serial_sequence('prestamos', 'id'), %d)";
+
+    private static final String MARCAR_PRESTADOS =
+        "UPDATE libros SET disponible = false WHERE id IN " +
+        "(SELECT libro_id FROM prestamos WHERE estado IN ('ACTIVO', 'VENCIDO'))";
+
+    private static final String ANALIZAR = "ANALYZE usuarios, libros, prestamos";
+
+    private static final String[] NOMBRES = {
+        "Ana", "Luis", "María", "José", "Carmen", "Pedro", "Sofía", "Javier", "Lucía", "Diego",
+        "Valentina", "Andrés", "Camila", "Felipe", "Isabel", "Tomás", "Elena", "Martín", "Paula", "Gabriel",
+        "Fernanda", "Ignacio", "Daniela", "Rodrigo", "Catalina", "Sebastián", "Josefa", "Matías", "Antonia", "Benjamín"
+    };
+
+    private static final String[] APELLIDOS = {
+        "González", "Muñoz", "Rojas", "Díaz", "Pérez", "Soto", "Contreras", "Silva", "Martínez", "Sepúlveda",
+        "Morales", "Rodríguez", "López", "Fuentes", "Hernández", "Torres", "Araya", "Flores", "Espinoza", "Valenzuela",
+        "Castillo", "Ramírez", "Reyes", "Gutiérrez", "Castro", "Vargas", "Álvarez", "Vásquez", "Tapia", "Fernández"
+    };
+
+    private static final String[] SUSTANTIVOS = {
+        "El jardín", "La sombra", "El viaje", "La casa", "El silencio", "La memoria", "El río", "La ciudad",
+        "El invierno", "La isla", "El camino", "La noche", "El espejo", "La herencia", "El faro", "La tormenta"
+    };
+
+    private static final String[] COMPLEMENTOS = {
+        "de los recuerdos", "del olvido", "perdido", "sin nombre", "de cristal", "del sur", "infinito",
+        "de las palabras", "en llamas", "de medianoche", "escondido", "de papel", "del tiempo", "junto al mar"
+    };
+
+    // Ordenados de más a menos frecuente: el rango de Zipf elige el género
+    private static final String[] GENEROS = {
+        "Novela", "Infantil", "Historia", "Ciencia", "Ensayo", "Poesía", "Biografía", "Arte", "Viajes", "Filosofía"
+    };
+
+    private static final String[] NOMBRES_ASCII = sinTildes(NOMBRES);
+    private static final String[] APELLIDOS_ASCII = sinTildes(APELLIDOS);
+
+    private final long semilla;
+    private final int usuarios;
+    private final int libros;
+    private final int prestamos;
+    private final int años;
+    private final LocalDate hoy;
+
+    /**
+     * Destino de los bloques de filas en formato texto de COPY
+     */
+    @FunctionalInterface
+    interface Destino {
+        void enviar(StringBuilder bloque) throws SQLException;
+    }
+
+    /**
+     * Cantidades cargadas por {@link #generar}
+     */
+    public static class Resultado {
+        private final int usuarios;
+        private final int libros;
+        private final int prestamos;
+        private final long milisegundos;
+
+        Resultado(int usuarios, int libros, int prestamos, long milisegundos) {
+            this.usuarios = usuarios;
+            this.libros = libros;
+            this.prestamos = prestamos;
+            this.milisegundos = milisegundos;
+        }
+
+        public int getUsuarios() { return usuarios; }
+        public int getLibros() { return libros; }
+        public int getPrestamos() { return prestamos; }
+        public long getMilisegundos() { return milisegundos; }
+
+        @Override
+        public String toString() {
+            return String.format("%d usuarios, %d libros y %d préstamos en %d ms", usuarios, libros, prestamos,
+                    milisegundos);
+        }
+    }
+
+    /**
+     * Constructor con todas las dimensiones explícitas
+     *
+     * @param semilla   semilla de la generación
+     * @param usuarios  cantidad de usuarios
+     * @param libros    cantidad de libros
+     * @param prestamos cantidad de préstamos
+     * @param años      años de historia que cubren los préstamos
+     * @param hoy       fecha de referencia para los estados de los préstamos
+     */
+    public SyntheticDataGenerator(long semilla, int usuarios, int libros, int prestamos, int años, LocalDate hoy) {
+        if (usuarios < 1 || libros < 1 || prestamos < 0) {
+            throw new IllegalArgumentException("Se necesita al menos un usuario y un libro");
+        }
+        if (años < 1) {
+            throw new IllegalArgumentException("La historia debe cubrir al menos un año");
+        }
+        this.semilla = semilla;
+        this.usuarios = usuarios;
+        this.libros = libros;
+        this.prestamos = prestamos;
+        this.años = años;
+        this.hoy = hoy;
+    }
+
+    /**
+     * Crea un generador dimensionado a partir de la cantidad de préstamos:
+     * un usuario cada 20 préstamos y un libro cada 10, cinco años de historia
+     * hasta hoy
+     *
+     * @param prestamos cantidad de préstamos
+     * @param semilla   semilla de la generación
+     * @return generador configurado
+     */
+    public static SyntheticDataGenerator paraPrestamos(int prestamos, long semilla) {
+        return new SyntheticDataGenerator(semilla, Math.max(100, prestamos / 20), Math.max(100, prestamos / 10),
+                prestamos, 5, LocalDate.now());
+    }
+
+    public int getUsuarios() { return usuarios; }
+    public int getLibros() { return libros; }
+    public int getPrestamos() { return prestamos; }
+
+    /**
+     * Carga los datos en la conexión dada, dentro de su transacción actual
+     * No confirma: el llamador hace commit o rollback.
+     *
+     * @param connection conexión con el esquema ya creado
+     * @param reemplazar si es true vacía las tablas antes; si no, exige que estén vacías
+     * @return cantidades cargadas
+     * @throws SQLException si hay error en la carga
+     * @throws IllegalStateException si las tablas tienen datos y no se pidió reemplazarlos
+     */
+    public Resultado generar(Connection connection, boolean reemplazar) throws SQLException {
+        long inicio = System.nanoTime();
+
+        try (Statement stmt = connection.createStatement()) {
+            if (reemplazar) {
+                stmt.execute(VACIAR_TABLAS);
+            } else {
+                try (ResultSet rs = stmt.executeQuery(HAY_DATOS)) {
+                    rs.next();
+                    if (rs.getBoolean(1)) {
+                        throw new IllegalStateException(
+                                "Las tablas usuarios, libros o prestamos ya tienen datos; use la opción de reemplazarlos");
+                    }
+                }
+            }
+        }
+
+        logger.info("Generando {} usuarios, {} libros y {} préstamos (semilla {})", usuarios, libros, prestamos, semilla);
+        copiar(connection, COPY_USUARIOS, this::escribirUsuarios);
+        copiar(connection, COPY_LIBROS, this::escribirLibros);
+        int cargados = copiar(connection, COPY_PRESTAMOS, this::escribirPrestamos);
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(String.format(AJUSTAR_SECUENCIAS, usuarios, libros, Math.max(1, cargados)));
+            int prestados = stmt.executeUpdate(MARCAR_PRESTADOS);
+            logger.debug("{} libros marcados como prestados", prestados);
+            stmt.execute(ANALIZAR);
+        }
+
+        Resultado resultado = new Resultado(usuarios, libros, cargados, (System.nanoTime() - inicio) / 1_000_000);
+        logger.info("Datos sintéticos cargados: {}", resultado);
+        return resultado;
+    }
+
+    @FunctionalInterface
+    private interface Escritor {
+        void escribir(Destino destino) throws SQLException;
+    }
+
+    private int copiar(Connection connection, String sql, Escritor escritor) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        try {
+            escritor.escribir(bloque -> enviarBloque(copyIn, bloque));
+            long filas = copyIn.endCopy();
+            logger.debug("{}: {} filas", sql.substring(5, sql.indexOf(' ', 5)), filas);
+            return (int) filas;
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void enviarBloque(CopyIn copyIn, StringBuilder bloque) throws SQLException {
+        if (bloque.length() > 0) {
+            byte[] bytes = bloque.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            bloque.setLength(0);
+        }
+    }
+
+    /**
+     * Escribe los usuarios: nombre, email único (derivado del id), teléfono
+     * móvil y fecha de registro anterior al primer préstamo posible
+     */
+    void escribirUsuarios(Destino destino) throws SQLException {
+        SplittableRandom random = new SplittableRandom(semilla);
+        LocalDate inicio = inicioHistoria();
+        StringBuilder bloque = new StringBuilder(TAMAÑO_BLOQUE_COPY + 1024);
+
+        for (int id = 1; id <= usuarios; id++) {
+            int nombre = random.nextInt(NOMBRES.length);
+            int apellido = random.nextInt(APELLIDOS.length);
+            int segundoApellido = random.nextInt(APELLIDOS.length);
+
+            bloque.append(id).append('\t')
+                  .append(NOMBRES[nombre]).append(' ').append(APELLIDOS[apellido]).append(' ')
+                  .append(APELLIDOS[segundoApellido]).append('\t')
+                  .append(NOMBRES_ASCII[nombre].toLowerCase()).append('.')
+                  .append(APELLIDOS_ASCII[apellido].toLowerCase()).append(id).append("@ejemplo.cl\t")
+                  .append("+569").append(10_000_000 + random.nextInt(90_000_000)).append('\t')
+                  .append(inicio.minusDays(random.nextInt(730))).append('\n');
+
+            if (bloque.length() >= TAMAÑO_BLOQUE_COPY) {
+                destino.enviar(bloque);
+            }
+        }
+        destino.enviar(bloque);
+    }
+
+    /**
+     * Escribe los libros: la productividad de los autores también es de Zipf,
+     * el género sale según su popularidad y los años recientes son más comunes
+     */
+    void escribirLibros(Destino destino) throws SQLException {
+        SplittableRandom random = new SplittableRandom(semilla + 1);
+        ZipfSampler autores = new ZipfSampler(Math.max(10, libros / 8), EXPONENTE_AUTORES);
+        ZipfSampler generos = new ZipfSampler(GENEROS.length, 1.0);
+        int ultimoAño = Math.min(hoy.getYear(), LocalDate.now().getYear());
+        int rangoAños = ultimoAño - 1900;
+        StringBuilder bloque = new StringBuilder(TAMAÑO_BLOQUE_COPY + 1024);
+
+        for (int id = 1; id <= libros; id++) {
+            int autor = autores.muestra(random) - 1;
+            double u = random.nextDouble();
+
+            bloque.append(id).append('\t')
+                  .append(SUSTANTIVOS[random.nextInt(SUSTANTIVOS.length)]).append(' ')
+                  .append(COMPLEMENTOS[random.nextInt(COMPLEMENTOS.length)]).append('\t')
+                  .append(NOMBRES[autor % NOMBRES.length]).append(' ')
+                  .append(APELLIDOS[(autor / NOMBRES.length) % APELLIDOS.length]);
+            if (autor >= NOMBRES.length * APELLIDOS.length) {
+                // Más autores que combinaciones: una inicial los distingue
+                bloque.append(' ').append((char) ('A' + (autor / (NOMBRES.length * APELLIDOS.length)) % 26)).append('.');
+            }
+            bloque.append('\t')
+                  .append("978-").append(String.format("%010d", id)).append('\t')
+                  .append(GENEROS[generos.muestra(random) - 1]).append('\t')
+                  .append(ultimoAño - (int) (rangoAños * u * u)).append('\t')
+                  .append("t\n");
+
+            if (bloque.length() >= TAMAÑO_BLOQUE_COPY) {
+                destino.enviar(bloque);
+            }
+        }
+        destino.enviar(bloque);
+    }
+
+    /**
+     * Escribe los préstamos en orden cronológico
+     *
+     * Usuario y libro salen por rango de Zipf, mezclados con una permutación
+     * para que los más populares no sean los primeros ids. Si el libro elegido
+     * sigue prestado se prueba otro, como en una biblioteca con un ejemplar
+     * por título; tras {@value #INTENTOS_LIBRO_LIBRE} intentos se toma el
+     * siguiente libro libre en orden de popularidad, y si no queda ninguno el
+     * préstamo se omite (los ids siguen siendo correlativos).
+     */
+    void escribirPrestamos(Destino destino) throws SQLException {
+        SplittableRandom random = new SplittableRandom(semilla + 2);
+        ZipfSampler popularidadUsuarios = new ZipfSampler(usuarios, EXPONENTE_USUARIOS);
+        ZipfSampler popularidadLibros = new ZipfSampler(libros, EXPONENTE_LIBROS);
+        Permutacion idUsuario = new Permutacion(usuarios, random);
+        Permutacion idLibro = new Permutacion(libros, random);
+
+        long primerDia = inicioHistoria().toEpochDay();
+        long diaHoy = hoy.toEpochDay();
+        long diasHistoria = diaHoy - primerDia + 1;
+
+        // Día hasta el que cada libro sigue prestado (el índice es el id)
+        long[] ocupadoHasta = new long[libros + 1];
+        Arrays.fill(ocupadoHasta, Long.MIN_VALUE);
+
+        StringBuilder bloque = new StringBuilder(TAMAÑO_BLOQUE_COPY + 1024);
+
+        int id = 0;
+        for (int i = 0; i < prestamos; i++) {
+            long dia = primerDia + i * diasHistoria / prestamos;
+
+            int rango = popularidadLibros.muestra(random);
+            for (int intento = 1; ocupadoHasta[idLibro.de(rango)] >= dia && intento < INTENTOS_LIBRO_LIBRE; intento++) {
+                rango = popularidadLibros.muestra(random);
+            }
+            int libro = libroLibre(idLibro, rango, ocupadoHasta, dia);
+            if (libro == 0) {
+                continue;
+            }
+            id++;
+            int usuario = idUsuario.de(popularidadUsuarios.muestra(random));
+
+            long esperada = dia + DIAS_PRESTAMO;
+            // La mayoría devuelve dentro del plazo, algunos con hasta una semana de atraso
+            long devolucion = random.nextDouble() < PROBABILIDAD_NO_DEVUELTO
+                    ? Long.MAX_VALUE
+                    : dia + 1 + random.nextInt(DIAS_PRESTAMO + 7);
+
+            String estado;
+            if (devolucion <= diaHoy) {
+                estado = "DEVUELTO";
+            } else {
+                estado = esperada < diaHoy ? "VENCIDO" : "ACTIVO";
+            }
+            ocupadoHasta[libro] = devolucion;
+
+            bloque.append(id).append('\t')
+                  .append(usuario).append('\t')
+                  .append(libro).append('\t')
+                  .append(LocalDate.ofEpochDay(dia)).append('\t')
+                  .append(LocalDate.ofEpochDay(esperada)).append('\t');
+            if ("DEVUELTO".equals(estado)) {
+                bloque.append(LocalDate.ofEpochDay(devolucion));
+            } else {
+                bloque.append("\\N");
+            }
+            bloque.append('\t').append(estado).append('\n');
+
+            if (bloque.length() >= TAMAÑO_BLOQUE_COPY) {
+                destino.enviar(bloque);
+            }
+        }
+        destino.enviar(bloque);
+
+        if (id < prestamos) {
+            logger.warn("Se omitieron {} préstamos: todos los libros estaban prestados", prestamos - id);
+        }
+    }
+
+    /**
+     * Id del primer libro libre el día dado, desde el rango indicado hacia los
+     * menos populares (volviendo al comienzo), o 0 si todos están prestados
+     */
+    private int libroLibre(Permutacion idLibro, int rango, long[] ocupadoHasta, long dia) {
+        for (int i = 0; i < libros; i++) {
+            int libro = idLibro.de((rango - 1 + i) % libros + 1);
+            if (ocupadoHasta[libro] < dia) {
+                return libro;
+            }
+        }
+        return 0;
+    }
+
+    private LocalDate inicioHistoria() {
+        return hoy.minusYears(años);
+    }
+
+    /**
+     * Biyección de los rangos 1..n sobre los ids 1..n: id = (paso · rango + desplazamiento) mod n,
+     * con paso coprimo con n
+     */
+    private static final class Permutacion {
+        private final long n;
+        private final long paso;
+        private final long desplazamiento;
+
+        Permutacion(int n, SplittableRandom random) {
+            this.n = n;
+            long candidato = Math.max(1, (long) (n * 0.6180339887) + random.nextInt(Math.max(1, n / 100 + 1)));
+            while (mcd(candidato, n) != 1) {
+                candidato++;
+            }
+            this.paso = candidato;
+            this.desplazamiento = random.nextInt(n);
+        }
+
+        int de(int rango) {
+            return (int) (((rango - 1) * paso + desplazamiento) % n) + 1;
+        }
+
+        private static long mcd(long a, long b) {
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+
+    private static String[] sinTildes(String[] palabras) {
+        String[] resultado = new String[palabras.length];
+        for (int i = 0; i < palabras.length; i++) {
+            resultado[i] = Normalizer.normalize(palabras[i], Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.crudapp.infrastructure.datagen;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Muestreo de una distribución de Zipf sobre los rangos 1..n
+ *
+ * P(k) es proporcional a 1 / k^exponente: con exponente 1 el rango 1 sale el
+ * doble de veces que el 2 y diez veces más que el 10. Usa rechazo-inversión
+ * (Hörmann y Derflinger, 1996), así no necesita tablas: memoria constante y
+ * costo por muestra casi constante para cualquier n.
+ *
+ */
+public final class ZipfSampler {
+
+    private final int elementos;
+    private final double exponente;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    /**
+     * @param elementos cantidad de rangos (n)
+     * @param exponente exponente de la distribución, mayor que 0
+     */
+    public ZipfSampler(int elementos, double exponente) {
+        if (elementos < 1) {
+            throw new IllegalArgumentException("La distribución necesita al menos un elemento");
+        }
+        if (!(exponente > 0)) {
+            throw new IllegalArgumentException("El exponente debe ser mayor que 0: " + exponente);
+        }
+        this.elementos = elementos;
+        this.exponente = exponente;
+        this.hIntegralX1 = hIntegral(1.5) - 1d;
+        this.hIntegralN = hIntegral(elementos + 0.5);
+        this.s = 2d - hIntegralInversa(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Es seguro entre hilos si cada uno usa su propio generador
+     *
+     * @param random generador de números aleatorios
+     * @return un rango entre 1 y n
+     */
+    public int muestra(RandomGenerator random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInversa(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > elementos) {
+                k = elementos;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    // H(x), primitiva de h(x) = 1 / x^exponente
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1SobreX((1d - exponente) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponente * Math.log(x));
+    }
+
+    private double hIntegralInversa(double x) {
+        double t = x * (1d - exponente);
+        if (t < -1d) {
+            t = -1d;
+        }
+        return Math.exp(log1pSobreX(t) * x);
+    }
+
+    // log(1 + x) / x, con serie de Taylor cerca de 0 para no perder precisión
+    private static double log1pSobreX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1d - x * (0.5 - x * (1d / 3d - x * 0.25));
+    }
+
+    // (e^x - 1) / x, con serie de Taylor cerca de 0
+    private static double expm1SobreX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1d + x * 0.5 * (1d + x / 3d * (1d + x * 0.25));
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.crudapp.infrastructure.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+/**
+ * Log local de solo anexado, dividido en segmentos
+ *
+ * Cada registro tiene un offset lógico consecutivo desde 0. Los segmentos se
+ * nombran por el offset de su primer registro (00000000000000001000.log), así un
+ * lector ubica el segmento de un offset sin abrir los demás. Un registro es
+ * [largo int][crc32 int][datos]. El escritor hace un solo force por lote: los
+ * offsets de un lote solo se publican a los lectores después de estar en disco.
+ *
+ * Al abrir el log se recorre el último segmento y se trunca un registro
+ * incompleto o con CRC inválido (el proceso terminó a mitad de un lote; ese lote
+ * sigue en el outbox porque su borrado no se confirmó).
+ *
+ */
+public class EventLog implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EventLog.class);
+
+    private static final String EXTENSION = ".log";
+    private static final int HEADER_SIZE = 4 + 4;
+
+    /**
+     * Tamaño a partir del cual se abre un segmento nuevo
+     */
+    public static final long TAMAÑO_SEGMENTO_POR_DEFECTO = 64L << 20;
+
+    private final Path directorio;
+    private final long tamañoSegmento;
+    private final ConcurrentSkipListMap<Long, Path> segmentos = new ConcurrentSkipListMap<>();
+
+    private FileChannel activo;
+    private long bytesActivo;
+    private volatile long siguienteOffset;
+
+    /**
+     * Registro leído del log
+     */
+    public static final class Registro {
+        private final long offset;
+        private final byte[] datos;
+
+        Registro(long offset, byte[] datos) {
+            this.offset = offset;
+            this.datos = datos;
+        }
+
+        public long getOffset() { return offset; }
+        public byte[] getDatos() { return datos; }
+    }
+
+    /**
+     * Abre (o crea) el log en un directorio y recupera el final del último segmento
+     *
+     * @param directorio directorio de los segmentos
+     * @param tamañoSegmento bytes a partir de los cuales se abre un segmento nuevo
+     * @throws IOException si no se puede abrir el log
+     */
+    public EventLog(Path directorio, long tamañoSegmento) throws IOException {
+        this.directorio = directorio;
+        this.tamañoSegmento = tamañoSegmento;
+
+        Files.createDirectories(directorio);
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, "*" + EXTENSION)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                segmentos.put(Long.parseLong(nombre.substring(0, nombre.length() - EXTENSION.length())), archivo);
+            }
+        }
+
+        if (segmentos.isEmpty()) {
+            abrirSegmento(0);
+        } else {
+            Map.Entry<Long, Path> ultimo = segmentos.lastEntry();
+            recuperar(ultimo.getKey(), ultimo.getValue());
+        }
+
+        logger.info("Log de eventos abierto en {}: {} segmentos, siguiente offset {}",
+                directorio, segmentos.size(), siguienteOffset);
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * Offset que recibirá el próximo registro (cantidad de registros en el log)
+     *
+     * @return siguiente offset
+     */
+    public long getSiguienteOffset() {
+        return siguienteOffset;
+    }
+
+    /**
+     * Anexa un lote de registros y lo fuerza a disco
+     *
+     * @param registros datos de cada registro
+     * @return offset del primer registro del lote
+     * @throws IOException si hay error al escribir
+     */
+    public synchronized long append(List<byte[]> registros) throws IOException {
+        long primero = siguienteOffset;
+        if (registros.isEmpty()) {
+            return primero;
+        }
+
+        if (bytesActivo >= tamañoSegmento) {
+            activo.close();
+            abrirSegmento(primero);
+        }
+
+        int total = 0;
+        for (byte[] datos : registros) {
+            total += HEADER_SIZE + datos.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (byte[] datos : registros) {
+            crc.reset();
+            crc.update(datos);
+            buffer.putInt(datos.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(datos);
+        }
+        buffer.flip();
+
+        try {
+            while (buffer.hasRemaining()) {
+                activo.write(buffer);
+            }
+            activo.force(false);
+        } catch (IOException e) {
+            descartarLoteParcial(e);
+            throw e;
+        }
+
+        bytesActivo += total;
+        siguienteOffset = primero + registros.size();
+        return primero;
+    }
+
+    /**
+     * Quita del segmento los bytes de un lote que no terminó de escribirse o forzarse,
+     * así el próximo append escribe donde termina el último registro confirmado
+     * (lo mismo que hace la recuperación al abrir el log)
+     *
+     * @param error error de la escritura; los de la limpieza se le agregan como suprimidos
+     */
+    private void descartarLoteParcial(IOException error) {
+        try {
+            activo.truncate(bytesActivo);
+            activo.position(bytesActivo);
+            activo.force(false);
+        } catch (IOException e) {
+            error.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Lee registros a partir de un offset
+     * Solo devuelve registros ya forzados a disco; puede llamarse mientras otro
+     * hilo anexa.
+     *
+     * @param desdeOffset offset del primer registro a leer
+     * @param maximo cantidad máxima de registros
+     * @return registros en orden de offset (vacío si no hay registros desde ese offset)
+     * @throws IOException si hay error leyendo los segmentos
+     */
+    public List<Registro> leer(long desdeOffset, int maximo) throws IOException {
+        List<Registro> registros = new ArrayList<>();
+        long hasta = siguienteOffset;
+        long offset = desdeOffset;
+
+        while (offset < hasta && registros.size() < maximo) {
+            Map.Entry<Long, Path> segmento = segmentos.floorEntry(offset);
+            if (segmento == null) {
+                throw new IOException("Offset " + offset + " anterior al primer segmento del log");
+            }
+            Long siguiente = segmentos.higherKey(segmento.getKey());
+            long finSegmento = siguiente != null ? siguiente : hasta;
+
+            try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                    Channels.newInputStream(FileChannel.open(segmento.getValue(), StandardOpenOption.READ)), 64 << 10))) {
+                for (long actual = segmento.getKey(); actual < finSegmento && registros.size() < maximo; actual++) {
+                    int largo = entrada.readInt();
+                    entrada.readInt();
+                    if (actual < offset) {
+                        entrada.skipNBytes(largo);
+                        continue;
+                    }
+                    byte[] datos = new byte[largo];
+                    entrada.readFully(datos);
+                    registros.add(new Registro(actual, datos));
+                    offset = actual + 1;
+                }
+            }
+            offset = Math.max(offset, finSegmento);
+        }
+
+        return registros;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (activo != null) {
+            activo.close();
+            activo = null;
+        }
+    }
+
+    private void abrirSegmento(long base) throws IOException {
+        Path archivo = directorio.resolve(String.format("%020d%s", base, EXTENSION));
+        activo = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        activo.position(activo.size());
+        bytesActivo = activo.size();
+        segmentos.put(base, archivo);
+        siguienteOffset = base;
+        logger.debug("Segmento de eventos abierto: {}", archivo.getFileName());
+    }
+
+    private void recuperar(long base, Path archivo) throws IOException {
+        long registros = 0;
+        long posicion = 0;
+
+        try (FileChannel channel = FileChannel.open(archivo, StandardOpenOption.READ);
+                DataInputStream entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))) {
+            long size = channel.size();
+            CRC32 crc = new CRC32();
+            while (posicion + HEADER_SIZE <= size) {
+                int largo = entrada.readInt();
+                int esperado = entrada.readInt();
+                if (largo < 0 || posicion + HEADER_SIZE + largo > size) {
+                    break;
+                }
+                byte[] datos = new byte[largo];
+                entrada.readFully(datos);
+                crc.reset();
+                crc.update(datos);
+                if ((int) crc.getValue() != esperado) {
+                    break;
+                }
+                posicion += HEADER_SIZE + largo;
+                registros++;
+            }
+            if (posicion < size) {
+                logger.warn("Registro incompleto al final de {} (posición {}), se truncan {} bytes",
+                        archivo.getFileName(), posicion, size - posicion);
+            }
+        } catch (EOFException e) {
+            // No puede ocurrir: los largos se validan contra el tamaño antes de leer
+            throw new IOException("Segmento de eventos ilegible: " + archivo, e);
+        }
+
+        activo = FileChannel.open(archivo, StandardOpenOption.WRITE);
+        activo.truncate(posicion);
+        activo.position(posicion);
+        activo.force(false);
+        bytesActivo = posicion;
+        siguienteOffset = base + registros;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.crudapp.infrastructure.events;
+
+import com.example.crudapp.domain.entities.Prestamo;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Evento del ciclo de vida de un préstamo
+ * La fecha del evento depende del tipo: la devolución esperada para CREADO,
+ * RENOVADO y VENCIDO, y la devolución real para DEVUELTO.
+ *
+ * En el log de eventos cada evento ocupa un registro binario de largo fijo.
+ * El ID es el del outbox: si un lote se relevó dos veces (el commit falló
+ * después de escribir el log) los consumidores descartan los repetidos por ID.
+ */
+public final class EventoPrestamo {
+
+    /**
+     * Tipos de evento
+     */
+    public enum Tipo {
+        CREADO, RENOVADO, DEVUELTO, VENCIDO
+    }
+
+    private static final byte VERSION = 1;
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+
+    // version + id + tipo + prestamo, usuario y libro + fecha + fecha del evento (microsegundos)
+    static final int TAMAÑO_SERIALIZADO = 1 + 8 + 1 + 8 * 3 + 4 + 8;
+
+    private final long id;
+    private final Tipo tipo;
+    private final long prestamoId;
+    private final long usuarioId;
+    private final long libroId;
+    private final LocalDate fecha;
+    private final Instant fechaEvento;
+
+    /**
+     * Constructor del evento
+     *
+     * @param id ID del evento en el outbox
+     * @param tipo tipo de evento
+     * @param prestamoId ID del préstamo
+     * @param usuarioId ID del usuario
+     * @param libroId ID del libro
+     * @param fecha fecha asociada al evento, o null
+     * @param fechaEvento momento en que se registró el evento
+     */
+    public EventoPrestamo(long id, Tipo tipo, long prestamoId, long usuarioId, long libroId, LocalDate fecha,
+            Instant fechaEvento) {
+        this.id = id;
+        this.tipo = tipo;
+        this.prestamoId = prestamoId;
+        this.usuarioId = usuarioId;
+        this.libroId = libroId;
+        this.fecha = fecha;
+        this.fechaEvento = fechaEvento;
+    }
+
+    /**
+     * Obtiene la fecha que corresponde al tipo de evento para un préstamo
+     *
+     * @param tipo tipo de evento
+     * @param prestamo préstamo del evento
+     * @return devolución real para DEVUELTO, devolución esperada para el resto
+     */
+    static LocalDate fechaDe(Tipo tipo, Prestamo prestamo) {
+        return tipo == Tipo.DEVUELTO ? prestamo.getFechaDevolucionReal() : prestamo.getFechaDevolucionEsperada();
+    }
+
+    public long getId() { return id; }
+    public Tipo getTipo() { return tipo; }
+    public long getPrestamoId() { return prestamoId; }
+    public long getUsuarioId() { return usuarioId; }
+    public long getLibroId() { return libroId; }
+    public LocalDate getFecha() { return fecha; }
+    public Instant getFechaEvento() { return fechaEvento; }
+
+    /**
+     * Serializa el evento para el log
+     *
+     * @return registro binario de largo fijo
+     */
+    public byte[] serializar() {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMAÑO_SERIALIZADO);
+        buffer.put(VERSION);
+        buffer.putLong(id);
+        buffer.put((byte) tipo.ordinal());
+        buffer.putLong(prestamoId);
+        buffer.putLong(usuarioId);
+        buffer.putLong(libroId);
+        buffer.putInt(fecha != null ? (int) fecha.toEpochDay() : SIN_FECHA);
+        buffer.putLong(ChronoUnit.MICROS.between(Instant.EPOCH, fechaEvento));
+        return buffer.array();
+    }
+
+    /**
+     * Lee un evento serializado
+     *
+     * @param datos registro del log
+     * @return el evento
+     * @throws IllegalArgumentException si el registro no es un evento válido
+     */
+    public static EventoPrestamo deserializar(byte[] datos) {
+        if (datos.length != TAMAÑO_SERIALIZADO || datos[0] != VERSION) {
+            throw new IllegalArgumentException("Registro de evento inválido (" + datos.length + " bytes)");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(datos, 1, datos.length - 1);
+        long id = buffer.getLong();
+        Tipo tipo = Tipo.values()[buffer.get()];
+        long prestamoId = buffer.getLong();
+        long usuarioId = buffer.getLong();
+        long libroId = buffer.getLong();
+        int epochDay = buffer.getInt();
+        Instant fechaEvento = Instant.EPOCH.plus(buffer.getLong(), ChronoUnit.MICROS);
+        return new EventoPrestamo(id, tipo, prestamoId, usuarioId, libroId,
+                epochDay == SIN_FECHA ? null : LocalDate.ofEpochDay(epochDay), fechaEvento);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventoPrestamo{id=%d, tipo=%s, prestamoId=%d, usuarioId=%d, libroId=%d, fecha=%s, fechaEvento=%s}",
+                id, tipo, prestamoId, usuarioId, libroId, fecha, fechaEvento);
+    }
+}
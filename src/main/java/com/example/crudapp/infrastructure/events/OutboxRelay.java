@@ -0,0 +1,237 @@
+package com.example.crudapp.infrastructure.events;
+
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relay del outbox de préstamos hacia el log de eventos
+ * Un hilo en segundo plano toma lotes del outbox con FOR UPDATE SKIP LOCKED, los
+ * anexa al log (un fsync por lote) y los elimina en la misma transacción. Si el
+ * commit falla después del fsync, el lote queda repetido en el log y los
+ * consumidores lo descartan por ID de evento.
+ *
+ * Mide el throughput (eventos por segundo desde el inicio) y el lag de punta a
+ * punta de cada evento: el tiempo en el outbox según el reloj de la base de datos
+ * más el tiempo hasta que su lote quedó en disco.
+ *
+ */
+public class OutboxRelay implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final PrestamoOutbox outbox;
+    private final EventLog log;
+    private final TransactionManager transactionManager;
+    private final int tamañoLote;
+    private final long esperaMs;
+
+    private final Object señal = new Object();
+    private volatile boolean activo;
+    private Thread hilo;
+
+    // Métricas: se actualizan en registrarLote
+    private volatile long inicioNanos;
+    private volatile long eventosRelevados;
+    private volatile long lotes;
+    private volatile double lagTotalMs;
+    private volatile double lagMaximoMs;
+    private volatile double ultimoLagMs;
+
+    /**
+     * Constructor del relay
+     *
+     * @param outbox             outbox de origen
+     * @param log                log de eventos de destino
+     * @param transactionManager gestor de transacciones
+     * @param tamañoLote         eventos por transacción
+     * @param esperaMs           pausa entre consultas cuando el outbox está vacío
+     * @throws IllegalArgumentException si algún parámetro es inválido
+     */
+    public OutboxRelay(PrestamoOutbox outbox, EventLog log, TransactionManager transactionManager,
+            int tamañoLote, long esperaMs) {
+        if (outbox == null) {
+            throw new IllegalArgumentException("El outbox no puede ser null");
+        }
+        if (log == null) {
+            throw new IllegalArgumentException("El log de eventos no puede ser null");
+        }
+        if (transactionManager == null) {
+            throw new IllegalArgumentException("El gestor de transacciones no puede ser null");
+        }
+        if (tamañoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor a 0");
+        }
+        if (esperaMs <= 0) {
+            throw new IllegalArgumentException("La espera debe ser mayor a 0");
+        }
+
+        this.outbox = outbox;
+        this.log = log;
+        this.transactionManager = transactionManager;
+        this.tamañoLote = tamañoLote;
+        this.esperaMs = esperaMs;
+    }
+
+    /**
+     * Inicia el hilo del relay
+     */
+    public synchronized void iniciar() {
+        if (hilo != null) {
+            return;
+        }
+        activo = true;
+        inicioNanos = System.nanoTime();
+        hilo = new Thread(this::ejecutar, "outbox-relay");
+        hilo.setDaemon(true);
+        hilo.start();
+        logger.info("Relay de eventos iniciado (lote {}, espera {} ms)", tamañoLote, esperaMs);
+    }
+
+    /**
+     * Releva un lote del outbox al log
+     *
+     * @return cantidad de eventos relevados (0 si el outbox está vacío)
+     * @throws SQLException si ocurre un error de base de datos o de escritura del log
+     */
+    public int relevarLote() throws SQLException {
+        return transactionManager.executeInTransaction(connection -> {
+            PrestamoOutbox.Lote lote = outbox.leerLote(connection, tamañoLote);
+            if (lote.eventos.isEmpty()) {
+                return 0;
+            }
+
+            long leidoNanos = System.nanoTime();
+            List<byte[]> registros = new ArrayList<>(lote.eventos.size());
+            for (EventoPrestamo evento : lote.eventos) {
+                registros.add(evento.serializar());
+            }
+
+            try {
+                log.append(registros);
+            } catch (IOException e) {
+                throw new SQLException("Error al escribir el log de eventos: " + e.getMessage(), e);
+            }
+            double escrituraMs = (System.nanoTime() - leidoNanos) / 1_000_000.0;
+
+            outbox.eliminar(connection, lote.eventos);
+            registrarLote(lote, escrituraMs);
+            return lote.eventos.size();
+        });
+    }
+
+    private void ejecutar() {
+        while (activo) {
+            int relevados;
+            try {
+                relevados = relevarLote();
+            } catch (SQLException e) {
+                logger.warn("Error al relevar eventos, se reintenta: {}", e.getMessage());
+                relevados = 0;
+            }
+
+            // Con un lote completo probablemente quedan más: se sigue sin esperar
+            if (relevados < tamañoLote) {
+                synchronized (señal) {
+                    if (activo) {
+                        try {
+                            señal.wait(esperaMs);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized void registrarLote(PrestamoOutbox.Lote lote, double escrituraMs) {
+        double maximo = lagMaximoMs;
+        double total = 0;
+        for (double espera : lote.esperasMs) {
+            double lag = espera + escrituraMs;
+            total += lag;
+            maximo = Math.max(maximo, lag);
+        }
+
+        lagTotalMs += total;
+        lagMaximoMs = maximo;
+        ultimoLagMs = lote.esperasMs.get(lote.esperasMs.size() - 1) + escrituraMs;
+        eventosRelevados += lote.eventos.size();
+        lotes++;
+        logger.debug("Lote de {} eventos relevado, lag último evento {} ms", lote.eventos.size(),
+                String.format("%.1f", ultimoLagMs));
+    }
+
+    public EventLog getLog() {
+        return log;
+    }
+
+    public long getEventosRelevados() {
+        return eventosRelevados;
+    }
+
+    public long getLotes() {
+        return lotes;
+    }
+
+    /**
+     * @return eventos relevados por segundo desde que se inició el relay
+     */
+    public double getEventosPorSegundo() {
+        long transcurrido = System.nanoTime() - inicioNanos;
+        return transcurrido > 0 ? eventosRelevados * 1_000_000_000.0 / transcurrido : 0;
+    }
+
+    /**
+     * @return lag medio de punta a punta en milisegundos
+     */
+    public double getLagMedioMs() {
+        long eventos = eventosRelevados;
+        return eventos > 0 ? lagTotalMs / eventos : 0;
+    }
+
+    public double getLagMaximoMs() {
+        return lagMaximoMs;
+    }
+
+    public double getUltimoLagMs() {
+        return ultimoLagMs;
+    }
+
+    /**
+     * Detiene el relay, espera el lote en curso y registra las métricas
+     * Los eventos que queden en el outbox se relevan en el próximo inicio.
+     */
+    @Override
+    public void close() {
+        Thread actual;
+        synchronized (this) {
+            actual = hilo;
+            hilo = null;
+        }
+        if (actual == null) {
+            return;
+        }
+
+        synchronized (señal) {
+            activo = false;
+            señal.notifyAll();
+        }
+        // No se interrumpe: una interrupción durante el fsync cerraría el canal del log
+        try {
+            actual.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info(String.format("Relay de eventos detenido: %d eventos en %d lotes (%.1f eventos/s), "
+                + "lag medio %.1f ms, máximo %.1f ms", eventosRelevados, lotes, getEventosPorSegundo(),
+                getLagMedioMs(), lagMaximoMs));
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.crudapp.infrastructure.events;
+
+import com.example.crudapp.domain.entities.Prestamo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outbox transaccional de eventos de préstamos
+ * Los servicios registran el evento con la misma conexión del cambio, así el
+ * evento existe si y solo si la transacción confirma. OutboxRelay lo saca de
+ * la tabla y lo anexa al log de eventos fuera del camino de la operación.
+ *
+ */
+public class PrestamoOutbox {
+    private static final Logger logger = LoggerFactory.getLogger(PrestamoOutbox.class);
+
+    private static final String INSERT_EVENTO = "INSERT INTO eventos_prestamo (tipo, prestamo_id, usuario_id, libro_id, fecha) "
+            + "VALUES (?, ?, ?, ?, ?)";
+
+    // Lote más antiguo sin bloquear: dos relays nunca toman el mismo evento.
+    // La espera se mide con el reloj de la base de datos, el mismo que puso fecha_evento
+    private static final String SELECT_LOTE = "SELECT id, tipo, prestamo_id, usuario_id, libro_id, fecha, fecha_evento, "
+            + "EXTRACT(EPOCH FROM clock_timestamp() - fecha_evento) * 1000 AS espera_ms "
+            + "FROM eventos_prestamo ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String DELETE_RELEVADOS = "DELETE FROM eventos_prestamo WHERE id = ANY(?)";
+
+    /**
+     * Lote de eventos leídos del outbox
+     */
+    static final class Lote {
+        final List<EventoPrestamo> eventos = new ArrayList<>();
+        // Milisegundos que llevaba cada evento en el outbox al leerlo
+        final List<Double> esperasMs = new ArrayList<>();
+    }
+
+    /**
+     * Registra un evento de un préstamo en la transacción en curso
+     *
+     * @param connection conexión de la transacción que modificó el préstamo
+     * @param tipo tipo de evento
+     * @param prestamo préstamo con su estado después del cambio
+     * @throws SQLException si hay error al insertar
+     */
+    public void registrar(Connection connection, EventoPrestamo.Tipo tipo, Prestamo prestamo) throws SQLException {
+        LocalDate fecha = EventoPrestamo.fechaDe(tipo, prestamo);
+
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_EVENTO)) {
+            stmt.setString(1, tipo.name());
+            stmt.setLong(2, prestamo.getId());
+            stmt.setLong(3, prestamo.getUsuarioId());
+            stmt.setLong(4, prestamo.getLibroId());
+            stmt.setDate(5, fecha != null ? Date.valueOf(fecha) : null);
+            stmt.executeUpdate();
+        }
+
+        logger.debug("Evento {} registrado para préstamo ID: {}", tipo, prestamo.getId());
+    }
+
+    /**
+     * Registra un evento del mismo tipo para varios préstamos en un solo lote
+     *
+     * @param connection conexión de la transacción que modificó los préstamos
+     * @param tipo tipo de evento
+     * @param prestamos préstamos con su estado después del cambio
+     * @throws SQLException si hay error al insertar
+     */
+    public void registrarTodos(Connection connection, EventoPrestamo.Tipo tipo, List<Prestamo> prestamos)
+            throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_EVENTO)) {
+            for (Prestamo prestamo : prestamos) {
+                LocalDate fecha = EventoPrestamo.fechaDe(tipo, prestamo);
+                stmt.setString(1, tipo.name());
+                stmt.setLong(2, prestamo.getId());
+                stmt.setLong(3, prestamo.getUsuarioId());
+                stmt.setLong(4, prestamo.getLibroId());
+                stmt.setDate(5, fecha != null ? Date.valueOf(fecha) : null);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        logger.debug("{} eventos {} registrados", prestamos.size(), tipo);
+    }
+
+    /**
+     * Lee y bloquea los eventos más antiguos del outbox
+     *
+     * @param connection conexión de la transacción del relay
+     * @param tamañoLote cantidad máxima de eventos
+     * @return lote en orden de registro
+     * @throws SQLException si hay error en la consulta
+     */
+    Lote leerLote(Connection connection, int tamañoLote) throws SQLException {
+        Lote lote = new Lote();
+
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_LOTE)) {
+            stmt.setInt(1, tamañoLote);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Date fecha = rs.getDate("fecha");
+                    lote.eventos.add(new EventoPrestamo(
+                            rs.getLong("id"),
+                            EventoPrestamo.Tipo.valueOf(rs.getString("tipo")),
+                            rs.getLong("prestamo_id"),
+                            rs.getLong("usuario_id"),
+                            rs.getLong("libro_id"),
+                            fecha != null ? fecha.toLocalDate() : null,
+                            rs.getTimestamp("fecha_evento").toInstant()));
+                    lote.esperasMs.add(rs.getDouble("espera_ms"));
+                }
+            }
+        }
+
+        return lote;
+    }
+
+    /**
+     * Elimina del outbox los eventos ya anexados al log
+     *
+     * @param connection conexión de la transacción del relay
+     * @param eventos eventos relevados
+     * @throws SQLException si hay error al eliminar
+     */
+    void eliminar(Connection connection, List<EventoPrestamo> eventos) throws SQLException {
+        Long[] ids = new Long[eventos.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = eventos.get(i).getId();
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(DELETE_RELEVADOS)) {
+            Array array = connection.createArrayOf("bigint", ids);
+            stmt.setArray(1, array);
+            stmt.executeUpdate();
+            array.free();
+        }
+    }
+}
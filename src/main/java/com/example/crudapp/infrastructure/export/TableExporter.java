@@ -0,0 +1,318 @@
+package com.example.crudapp.infrastructure.export;
+
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyOut;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Exportador de tablas a archivos CSV o JSON (una línea por fila)
+ * Usa COPY ... TO STDOUT del driver de PostgreSQL y escribe los bloques
+ * recibidos directamente en un FileChannel a través de buffers directos,
+ * opcionalmente comprimidos con gzip. La memoria usada no depende del
+ * número de filas exportadas.
+ *
+ */
+public class TableExporter {
+    private static final Logger logger = LoggerFactory.getLogger(TableExporter.class);
+
+    private static final int BUFFER_SIZE = 1 << 20; // 1 MiB
+    private static final Set<String> ESTADOS_VALIDOS = Set.of("ACTIVO", "DEVUELTO", "VENCIDO");
+
+    private static final String SELECT_USUARIOS = "SELECT id, nombre, email, telefono, fecha_registro FROM usuarios";
+    private static final String SELECT_LIBROS = "SELECT id, titulo, autor, isbn, genero, año_publicacion, disponible FROM libros";
+    private static final String SELECT_PRESTAMOS = "SELECT id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado, observaciones FROM prestamos";
+
+    // Para JSON se usa CSV con comillas y delimitador que row_to_json nunca emite sin escapar,
+    // así cada fila sale tal cual sin el escapado de barras del formato texto
+    private static final String COPY_CSV = "COPY (%s) TO STDOUT WITH (FORMAT csv, HEADER)";
+    private static final String COPY_JSON = "COPY (SELECT row_to_json(t) FROM (%s) t) TO STDOUT WITH (FORMAT csv, QUOTE E'\\x01', DELIMITER E'\\x02')";
+
+    /**
+     * Tablas exportables
+     */
+    public enum Tabla {
+        USUARIOS, LIBROS, PRESTAMOS
+    }
+
+    /**
+     * Formatos de exportación
+     */
+    public enum Formato {
+        CSV, JSON
+    }
+
+    private final TransactionManager transactionManager;
+
+    /**
+     * Constructor del exportador
+     *
+     * @param transactionManager gestor de transacciones
+     * @throws IllegalArgumentException si el gestor es null
+     */
+    public TableExporter(TransactionManager transactionManager) {
+        if (transactionManager == null) {
+            throw new IllegalArgumentException("El gestor de transacciones no puede ser null");
+        }
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * Exporta una tabla a un archivo
+     *
+     * @param tabla   tabla a exportar
+     * @param formato formato de salida
+     * @param estado  estado de préstamo a filtrar (solo préstamos, opcional)
+     * @param desde   fecha de préstamo mínima inclusive (solo préstamos, opcional)
+     * @param hasta   fecha de préstamo máxima inclusive (solo préstamos, opcional)
+     * @param destino archivo de salida (se sobrescribe)
+     * @param gzip    true para comprimir la salida con gzip
+     * @return resultado con filas, bytes y duración
+     * @throws SQLException             si ocurre un error de base de datos o de escritura
+     * @throws IllegalArgumentException si los filtros son inválidos
+     */
+    public ExportResult exportar(Tabla tabla, Formato formato, String estado, LocalDate desde, LocalDate hasta,
+            Path destino, boolean gzip) throws SQLException {
+        if (tabla == null || formato == null || destino == null) {
+            throw new IllegalArgumentException("La tabla, el formato y el destino no pueden ser null");
+        }
+
+        String sql = String.format(formato == Formato.CSV ? COPY_CSV : COPY_JSON,
+                construirConsulta(tabla, estado, desde, hasta));
+
+        logger.info("Exportando {} a {} ({}{})", tabla, destino, formato, gzip ? ", gzip" : "");
+        logger.debug("Sentencia de exportación: {}", sql);
+
+        long inicio = System.nanoTime();
+
+        return transactionManager.executeInTransaction(connection -> {
+            try (FileChannel channel = FileChannel.open(destino, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                    ChannelSink sink = gzip ? new GzipChannelSink(channel) : new ChannelSink(channel)) {
+
+                long filas = copiar(connection, sql, sink);
+                sink.finish();
+                channel.force(false);
+
+                ExportResult resultado = new ExportResult(filas, sink.getBytesLeidos(), channel.size(),
+                        System.nanoTime() - inicio);
+                logger.info("Exportación terminada: {}", resultado);
+                return resultado;
+
+            } catch (IOException e) {
+                throw new SQLException("Error al escribir el archivo de exportación: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private long copiar(Connection connection, String sql, ChannelSink sink) throws SQLException, IOException {
+        CopyOut copyOut = connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql);
+        try {
+            byte[] bloque;
+            while ((bloque = copyOut.readFromCopy()) != null) {
+                sink.write(bloque);
+            }
+        } finally {
+            if (copyOut.isActive()) {
+                copyOut.cancelCopy();
+            }
+        }
+        return copyOut.getHandledRowCount();
+    }
+
+    private String construirConsulta(Tabla tabla, String estado, LocalDate desde, LocalDate hasta) {
+        if (tabla != Tabla.PRESTAMOS) {
+            if (estado != null || desde != null || hasta != null) {
+                throw new IllegalArgumentException("Los filtros de estado y fecha solo aplican a préstamos");
+            }
+            return (tabla == Tabla.USUARIOS ? SELECT_USUARIOS : SELECT_LIBROS) + " ORDER BY id";
+        }
+
+        // COPY no admite parámetros: los valores se validan antes de incluirlos en la sentencia
+        List<String> condiciones = new ArrayList<>();
+        if (estado != null) {
+            if (!ESTADOS_VALIDOS.contains(estado)) {
+                throw new IllegalArgumentException("Estado no válido: " + estado);
+            }
+            condiciones.add("estado = '" + estado + "'");
+        }
+        if (desde != null) {
+            condiciones.add("fecha_prestamo >= DATE '" + desde + "'");
+        }
+        if (hasta != null) {
+            condiciones.add("fecha_prestamo <= DATE '" + hasta + "'");
+        }
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+        }
+
+        String where = condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones);
+        return SELECT_PRESTAMOS + where + " ORDER BY id";
+    }
+
+    /**
+     * Destino que acumula los bloques de COPY en un buffer directo y los vuelca al canal
+     */
+    private static class ChannelSink implements AutoCloseable {
+        protected final FileChannel channel;
+        protected final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long bytesLeidos;
+
+        ChannelSink(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(byte[] bloque) throws IOException {
+            bytesLeidos += bloque.length;
+            int offset = 0;
+            while (offset < bloque.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int n = Math.min(buffer.remaining(), bloque.length - offset);
+                buffer.put(bloque, offset, n);
+                offset += n;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void finish() throws IOException {
+            flush();
+        }
+
+        long getBytesLeidos() {
+            return bytesLeidos;
+        }
+
+        @Override
+        public void close() {
+            // El canal lo cierra quien lo abrió
+        }
+    }
+
+    /**
+     * Destino gzip: comprime el buffer directo con Deflater sin pasar por streams
+     */
+    private static class GzipChannelSink extends ChannelSink {
+        private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+        private static final byte[] SIN_DATOS = new byte[0];
+
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private final ByteBuffer comprimido = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private long totalEntrada;
+
+        GzipChannelSink(FileChannel channel) throws IOException {
+            super(channel);
+            ByteBuffer header = ByteBuffer.wrap(GZIP_HEADER);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        }
+
+        @Override
+        void flush() throws IOException {
+            buffer.flip();
+            totalEntrada += buffer.remaining();
+            crc.update(buffer.duplicate());
+            deflater.setInput(buffer);
+            while (!deflater.needsInput()) {
+                deflar();
+            }
+            // El Deflater conserva la referencia al buffer; se suelta antes de reutilizarlo
+            deflater.setInput(SIN_DATOS);
+            buffer.clear();
+        }
+
+        @Override
+        void finish() throws IOException {
+            flush();
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflar();
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue());
+            trailer.putInt((int) totalEntrada);
+            trailer.flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+        }
+
+        private void deflar() throws IOException {
+            deflater.deflate(comprimido);
+            comprimido.flip();
+            while (comprimido.hasRemaining()) {
+                channel.write(comprimido);
+            }
+            comprimido.clear();
+        }
+
+        @Override
+        public void close() {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Resultado de una exportación
+     */
+    public static class ExportResult {
+        private final long filas;
+        private final long bytesDatos;
+        private final long bytesArchivo;
+        private final long nanos;
+
+        ExportResult(long filas, long bytesDatos, long bytesArchivo, long nanos) {
+            this.filas = filas;
+            this.bytesDatos = bytesDatos;
+            this.bytesArchivo = bytesArchivo;
+            this.nanos = nanos;
+        }
+
+        public long getFilas() { return filas; }
+        public long getBytesDatos() { return bytesDatos; }
+        public long getBytesArchivo() { return bytesArchivo; }
+        public double getSegundos() { return nanos / 1_000_000_000.0; }
+
+        public double getFilasPorSegundo() {
+            return getSegundos() > 0 ? filas / getSegundos() : filas;
+        }
+
+        public double getMegabytesPorSegundo() {
+            return getSegundos() > 0 ? bytesDatos / (1024.0 * 1024.0) / getSegundos() : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d filas, %.1f MiB de datos, %.1f MiB en disco, %.2f s (%.0f filas/s, %.1f MiB/s)",
+                    filas, bytesDatos / (1024.0 * 1024.0), bytesArchivo / (1024.0 * 1024.0),
+                    getSegundos(), getFilasPorSegundo(), getMegabytesPorSegundo());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.crudapp.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de JFR para una sentencia SQL ejecutada por un repositorio
+ * Lo emite la conexión instrumentada de StatementStats. En una consulta el
+ * evento termina al cerrar el ResultSet, así la duración incluye la lectura
+ * de las filas. La pila (habilitada en crudapp.jfc) muestra el método del
+ * repositorio que la ejecutó.
+ *
+ */
+@Name("com.example.crudapp.Sentencia")
+@Label("Sentencia SQL")
+@Category({ "CRUD App", "Base de datos" })
+@Description("Ejecución de una sentencia SQL de un repositorio")
+@StackTrace(true)
+public class StatementEvent extends jdk.jfr.Event {
+
+    @Label("Sentencia")
+    @Description("Nombre de la constante SQL (por ejemplo Libro.SELECT_BY_ID)")
+    public String sentencia;
+
+    @Label("Filas")
+    @Description("Filas leídas o afectadas")
+    public long filas;
+}
@@ -0,0 +1,38 @@
+package com.example.crudapp.infrastructure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento de JFR para una transacción del TransactionManager
+ * La duración del evento cubre desde que se pide la conexión hasta que se
+ * confirma o revierte, así una grabación muestra la latencia por operación de
+ * negocio. Sin una grabación activa que lo habilite, begin y commit no hacen nada.
+ *
+ */
+@Name("com.example.crudapp.Transaccion")
+@Label("Transacción")
+@Category({ "CRUD App", "Base de datos" })
+@Description("Transacción de una operación de servicio")
+@StackTrace(false)
+public class TransactionEvent extends jdk.jfr.Event {
+
+    @Label("Operación")
+    @Description("Método de servicio que abrió la transacción")
+    public String operacion;
+
+    @Label("Confirmada")
+    public boolean confirmada;
+
+    @Label("Espera de conexión")
+    @Description("Tiempo para obtener la conexión del pool")
+    @Timespan(Timespan.NANOSECONDS)
+    public long esperaConexion;
+
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,528 @@
+package com.example.crudapp.infrastructure.load;
+
+import com.example.crudapp.application.dto.PrestamoDTO;
+import com.example.crudapp.application.services.LibroService;
+import com.example.crudapp.application.services.PrestamoService;
+import com.example.crudapp.application.services.UsuarioService;
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.infrastructure.database.Database;
+import com.example.crudapp.infrastructure.datagen.ZipfSampler;
+import com.example.crudapp.infrastructure.metrics.TransactionMetrics;
+import com.example.crudapp.infrastructure.stats.LatencyHistogram;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga concurrente sobre los servicios
+ *
+ * Ejecuta una mezcla configurable de operaciones (prestar, devolver, renovar,
+ * buscar y listar) contra la base de datos real, cada una en su propio hilo
+ * virtual.
+ *
+ * Con una tasa de llegada el ciclo es abierto: las operaciones se programan a
+ * intervalos fijos (o de Poisson) sin esperar a que terminen las anteriores,
+ * como llegan los usuarios de verdad. La latencia se mide desde el instante en
+ * que la operación debía empezar y no desde que empezó, así la cola que se
+ * forma cuando el sistema no da abasto queda en los percentiles (corrección
+ * de la omisión coordinada). El tiempo de servicio, desde el inicio real, se
+ * informa aparte. Sin tasa el ciclo es cerrado: cada hilo ejecuta una
+ * operación tras otra.
+ *
+ * El reporte por operación incluye rendimiento, p50/p95/p99/p99.9, rechazos de
+ * negocio (libro no disponible, préstamo ya devuelto) y errores, y la espera
+ * de conexión del pool medida por TransactionManager.
+ *
+ */
+public class WorkloadDriver {
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadDriver.class);
+
+    /**
+     * Operaciones de la mezcla
+     */
+    public enum Operacion {
+        PRESTAR, DEVOLVER, RENOVAR, BUSCAR, LISTAR
+    }
+
+    private static final String RANGO_IDS =
+        "SELECT (SELECT COALESCE(max(id), 0) FROM usuarios), (SELECT COALESCE(max(id), 0) FROM libros)";
+
+    private static final String PRESTAMOS_ACTIVOS = "SELECT id FROM prestamos WHERE estado = 'ACTIVO' LIMIT ?";
+
+    private static final int PRESTAMOS_PRECARGADOS = 10_000;
+    private static final int TAMAÑO_PAGINA = 20;
+    private static final int DIAS_RENOVACION = 7;
+    private static final double EXPONENTE_LIBROS = 1.0;
+
+    // Palabras de los títulos de SyntheticDataGenerator
+    private static final String[] TERMINOS_BUSQUEDA = {
+        "jardín", "sombra", "viaje", "memoria", "silencio", "ciudad", "espejo", "faro", "tormenta", "cristal"
+    };
+
+    private final Database database;
+    private final PrestamoService prestamoService;
+    private final LibroService libroService;
+    private final UsuarioService usuarioService;
+    private final Operacion[] operaciones;
+    private final int[] pesosAcumulados;
+
+    // Préstamos activos conocidos: los precargados y los que crea la carga
+    private final ConcurrentLinkedQueue<Long> activos = new ConcurrentLinkedQueue<>();
+
+    private long maxUsuarioId;
+    private long maxLibroId;
+    private ZipfSampler popularidadLibros;
+
+    /**
+     * Constructor del generador de carga
+     *
+     * @param database        base de datos (rangos de ids y préstamos activos)
+     * @param prestamoService servicio de préstamos
+     * @param libroService    servicio de libros
+     * @param usuarioService  servicio de usuarios
+     * @param mezcla          peso relativo de cada operación
+     * @throws IllegalArgumentException si la mezcla no tiene ninguna operación con peso
+     */
+    public WorkloadDriver(Database database, PrestamoService prestamoService, LibroService libroService,
+            UsuarioService usuarioService, Map<Operacion, Integer> mezcla) {
+        this.database = database;
+        this.prestamoService = prestamoService;
+        this.libroService = libroService;
+        this.usuarioService = usuarioService;
+
+        List<Operacion> conPeso = new ArrayList<>();
+        List<Integer> acumulados = new ArrayList<>();
+        int total = 0;
+        for (Map.Entry<Operacion, Integer> entrada : new EnumMap<>(mezcla).entrySet()) {
+            if (entrada.getValue() > 0) {
+                total += entrada.getValue();
+                conPeso.add(entrada.getKey());
+                acumulados.add(total);
+            }
+        }
+        if (conPeso.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla debe tener al menos una operación con peso positivo");
+        }
+        this.operaciones = conPeso.toArray(new Operacion[0]);
+        this.pesosAcumulados = acumulados.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Mezcla por defecto: más lecturas que escrituras, como en el mostrador
+     *
+     * @return pesos por operación
+     */
+    public static Map<Operacion, Integer> mezclaPorDefecto() {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        mezcla.put(Operacion.PRESTAR, 20);
+        mezcla.put(Operacion.DEVOLVER, 15);
+        mezcla.put(Operacion.RENOVAR, 5);
+        mezcla.put(Operacion.BUSCAR, 30);
+        mezcla.put(Operacion.LISTAR, 30);
+        return mezcla;
+    }
+
+    /**
+     * Interpreta una mezcla escrita como "prestar=20,devolver=15,buscar=65"
+     * Las operaciones que no aparecen quedan con peso 0.
+     *
+     * @param texto pares operación=peso separados por coma
+     * @return pesos por operación
+     * @throws IllegalArgumentException si el formato o la operación no son válidos
+     */
+    public static Map<Operacion, Integer> parsearMezcla(String texto) {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (String par : texto.split(",")) {
+            String[] partes = par.split("=");
+            if (partes.length != 2) {
+                throw new IllegalArgumentException("Formato de mezcla inválido (operación=peso): " + par);
+            }
+            int peso = Integer.parseInt(partes[1].trim());
+            if (peso < 0) {
+                throw new IllegalArgumentException("El peso no puede ser negativo: " + par);
+            }
+            mezcla.put(Operacion.valueOf(partes[0].trim().toUpperCase(Locale.ROOT)), peso);
+        }
+        return mezcla;
+    }
+
+    /**
+     * Ejecuta la carga y devuelve lo medido después del calentamiento
+     *
+     * @param tasa         operaciones por segundo programadas (0 o menos para ciclo cerrado)
+     * @param poisson      si es true los intervalos entre llegadas son exponenciales
+     * @param concurrencia máximo de operaciones en curso (hilos en ciclo cerrado)
+     * @param calentamiento tiempo inicial que no se mide
+     * @param duracion     tiempo medido
+     * @return reporte de la ejecución
+     * @throws SQLException si no se pueden leer los datos iniciales
+     * @throws IllegalStateException si no hay usuarios o libros cargados
+     */
+    public Reporte ejecutar(double tasa, boolean poisson, int concurrencia, Duration calentamiento, Duration duracion)
+            throws SQLException {
+        if (concurrencia < 1) {
+            throw new IllegalArgumentException("La concurrencia debe ser al menos 1");
+        }
+        prepararDatos();
+
+        Map<Operacion, Estadistica> estadisticas = new EnumMap<>(Operacion.class);
+        for (Operacion operacion : operaciones) {
+            estadisticas.put(operacion, new Estadistica());
+        }
+        LatencyHistogram esperaConexion = TransactionMetrics.getInstance().getHistogramaEsperaConexion();
+
+        long inicio = System.nanoTime();
+        long inicioMedicion = inicio + calentamiento.toNanos();
+        long fin = inicioMedicion + duracion.toNanos();
+        long atrasoMaximo;
+
+        logger.info("Carga {}: {} ops/s, concurrencia {}, {} s de calentamiento y {} s medidos",
+                tasa > 0 ? "en ciclo abierto" : "en ciclo cerrado", tasa > 0 ? tasa : "sin límite", concurrencia,
+                calentamiento.toSeconds(), duracion.toSeconds());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (tasa > 0) {
+                atrasoMaximo = despacharCicloAbierto(executor, estadisticas, esperaConexion, tasa, poisson,
+                        concurrencia, inicio, inicioMedicion, fin);
+            } else {
+                for (int i = 0; i < concurrencia; i++) {
+                    executor.execute(() -> cicloCerrado(estadisticas, inicioMedicion, fin));
+                }
+                esperarHasta(inicioMedicion);
+                esperaConexion.reiniciar();
+                atrasoMaximo = 0;
+            }
+        }
+
+        return new Reporte(tasa, concurrencia, duracion, estadisticas, esperaConexion, tamañoPool(), atrasoMaximo);
+    }
+
+    /**
+     * Programa las llegadas y las entrega a hilos virtuales
+     *
+     * @return atraso máximo del despachador en nanosegundos
+     */
+    private long despacharCicloAbierto(ExecutorService executor, Map<Operacion, Estadistica> estadisticas,
+            LatencyHistogram esperaConexion, double tasa, boolean poisson, int concurrencia, long inicio,
+            long inicioMedicion, long fin) {
+        SplittableRandom random = new SplittableRandom();
+        Semaphore enCurso = new Semaphore(concurrencia);
+        double intervalo = 1e9 / tasa;
+        double programada = inicio;
+        boolean midiendo = false;
+        long atrasoMaximo = 0;
+
+        while (programada < fin) {
+            long intencion = (long) programada;
+            esperarHasta(intencion);
+
+            if (!midiendo && intencion >= inicioMedicion) {
+                esperaConexion.reiniciar();
+                midiendo = true;
+            }
+
+            // Si no hay lugar el despachador se atrasa, pero la latencia se sigue midiendo desde la intención
+            enCurso.acquireUninterruptibly();
+            atrasoMaximo = Math.max(atrasoMaximo, System.nanoTime() - intencion);
+
+            Operacion operacion = elegir(random.nextInt(pesosAcumulados[pesosAcumulados.length - 1]));
+            boolean medir = midiendo;
+            executor.execute(() -> {
+                try {
+                    medir(operacion, intencion, medir ? estadisticas.get(operacion) : null);
+                } finally {
+                    enCurso.release();
+                }
+            });
+
+            programada += poisson ? -Math.log(1 - random.nextDouble()) * intervalo : intervalo;
+        }
+        return midiendo ? atrasoMaximo : 0;
+    }
+
+    private void cicloCerrado(Map<Operacion, Estadistica> estadisticas, long inicioMedicion, long fin) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long ahora;
+        while ((ahora = System.nanoTime()) < fin) {
+            Operacion operacion = elegir(random.nextInt(pesosAcumulados[pesosAcumulados.length - 1]));
+            medir(operacion, ahora, ahora >= inicioMedicion ? estadisticas.get(operacion) : null);
+        }
+    }
+
+    private void medir(Operacion operacion, long intencion, Estadistica estadistica) {
+        long inicio = System.nanoTime();
+        Resultado resultado;
+        try {
+            resultado = operar(operacion) ? Resultado.EXITOSA : Resultado.OMITIDA;
+        } catch (Exception e) {
+            resultado = esRechazo(e) ? Resultado.RECHAZADA : Resultado.ERROR;
+            if (resultado == Resultado.ERROR) {
+                logger.debug("Error en {}: {}", operacion, e.getMessage());
+            }
+        }
+        long termino = System.nanoTime();
+        if (estadistica != null) {
+            estadistica.registrar(resultado, termino - intencion, termino - inicio);
+        }
+    }
+
+    /**
+     * Ejecuta una operación contra los servicios
+     *
+     * @return false si no había datos para ejecutarla (sin préstamos activos conocidos)
+     */
+    private boolean operar(Operacion operacion) throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operacion) {
+            case PRESTAR -> {
+                long usuarioId = 1 + random.nextLong(maxUsuarioId);
+                long libroId = popularidadLibros.muestra(random);
+                Prestamo prestamo = prestamoService.crearPrestamo(new PrestamoDTO(usuarioId, libroId, null));
+                activos.offer(prestamo.getId());
+            }
+            case DEVOLVER -> {
+                Long prestamoId = activos.poll();
+                if (prestamoId == null) {
+                    return false;
+                }
+                prestamoService.devolverLibro(prestamoId, null, null);
+            }
+            case RENOVAR -> {
+                Long prestamoId = activos.poll();
+                if (prestamoId == null) {
+                    return false;
+                }
+                prestamoService.renovarPrestamo(prestamoId, DIAS_RENOVACION);
+                activos.offer(prestamoId);
+            }
+            case BUSCAR -> libroService.buscarPorTitulo(TERMINOS_BUSQUEDA[random.nextInt(TERMINOS_BUSQUEDA.length)]);
+            case LISTAR -> {
+                // Mitad catálogo de libros, mitad padrón de usuarios, desde una página al azar
+                if (random.nextBoolean()) {
+                    libroService.obtenerPagina(random.nextLong(maxLibroId), TAMAÑO_PAGINA);
+                } else {
+                    usuarioService.obtenerPagina(random.nextLong(maxUsuarioId), TAMAÑO_PAGINA);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Las validaciones de negocio llegan como IllegalArgumentException o IllegalStateException,
+    // envueltas en SQLException cuando ocurren dentro de la transacción
+    private static boolean esRechazo(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof IllegalArgumentException || t instanceof IllegalStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Operacion elegir(int valor) {
+        for (int i = 0; i < pesosAcumulados.length; i++) {
+            if (valor < pesosAcumulados[i]) {
+                return operaciones[i];
+            }
+        }
+        return operaciones[operaciones.length - 1];
+    }
+
+    private void prepararDatos() throws SQLException {
+        try (Connection connection = database.getConnection()) {
+            try (PreparedStatement stmt = connection.prepareStatement(RANGO_IDS);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                maxUsuarioId = rs.getLong(1);
+                maxLibroId = rs.getLong(2);
+            }
+            if (activos.isEmpty()) {
+                try (PreparedStatement stmt = connection.prepareStatement(PRESTAMOS_ACTIVOS)) {
+                    stmt.setInt(1, PRESTAMOS_PRECARGADOS);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            activos.offer(rs.getLong(1));
+                        }
+                    }
+                }
+            }
+            connection.commit();
+        }
+
+        if (maxUsuarioId == 0 || maxLibroId == 0) {
+            throw new IllegalStateException("No hay usuarios o libros cargados; genere datos antes de la carga");
+        }
+        popularidadLibros = new ZipfSampler((int) maxLibroId, EXPONENTE_LIBROS);
+        logger.debug("Carga sobre {} usuarios, {} libros y {} préstamos activos conocidos", maxUsuarioId, maxLibroId,
+                activos.size());
+    }
+
+    private int tamañoPool() {
+        return database.getDataSource() instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 0;
+    }
+
+    private static void esperarHasta(long nanos) {
+        long restante;
+        while ((restante = nanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    private enum Resultado {
+        EXITOSA, RECHAZADA, ERROR, OMITIDA
+    }
+
+    /**
+     * Mediciones de una operación
+     */
+    private static final class Estadistica {
+        private final LatencyHistogram latencia = new LatencyHistogram();
+        private final LatencyHistogram servicio = new LatencyHistogram();
+        private final LongAdder exitosas = new LongAdder();
+        private final LongAdder rechazadas = new LongAdder();
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder omitidas = new LongAdder();
+
+        void registrar(Resultado resultado, long nanosLatencia, long nanosServicio) {
+            switch (resultado) {
+                case EXITOSA -> exitosas.increment();
+                case RECHAZADA -> rechazadas.increment();
+                case ERROR -> errores.increment();
+                case OMITIDA -> {
+                    omitidas.increment();
+                    return;
+                }
+            }
+            latencia.registrar(nanosLatencia);
+            servicio.registrar(nanosServicio);
+        }
+
+        long completadas() {
+            return exitosas.sum() + rechazadas.sum() + errores.sum();
+        }
+    }
+
+    /**
+     * Resultado de una ejecución
+     */
+    public static class Reporte {
+        private final double tasaObjetivo;
+        private final int concurrencia;
+        private final double segundos;
+        private final Map<Operacion, Estadistica> estadisticas;
+        private final long completadas;
+        private final long errores;
+        private final double esperaConexionP50Ms;
+        private final double esperaConexionP99Ms;
+        private final double esperaConexionP999Ms;
+        private final int tamañoPool;
+        private final long atrasoMaximoNanos;
+
+        Reporte(double tasaObjetivo, int concurrencia, Duration duracion, Map<Operacion, Estadistica> estadisticas,
+                LatencyHistogram esperaConexion, int tamañoPool, long atrasoMaximoNanos) {
+            this.tasaObjetivo = tasaObjetivo;
+            this.concurrencia = concurrencia;
+            this.segundos = duracion.toNanos() / 1e9;
+            this.estadisticas = estadisticas;
+            this.completadas = estadisticas.values().stream().mapToLong(Estadistica::completadas).sum();
+            this.errores = estadisticas.values().stream().mapToLong(e -> e.errores.sum()).sum();
+            this.esperaConexionP50Ms = esperaConexion.percentil(50) / 1e6;
+            this.esperaConexionP99Ms = esperaConexion.percentil(99) / 1e6;
+            this.esperaConexionP999Ms = esperaConexion.percentil(99.9) / 1e6;
+            this.tamañoPool = tamañoPool;
+            this.atrasoMaximoNanos = atrasoMaximoNanos;
+        }
+
+        /**
+         * @return operaciones completadas por segundo en el intervalo medido
+         */
+        public double getRendimiento() {
+            return completadas / segundos;
+        }
+
+        public long getCompletadas() { return completadas; }
+        public long getErrores() { return errores; }
+        public double getEsperaConexionP99Ms() { return esperaConexionP99Ms; }
+        public int getTamañoPool() { return tamañoPool; }
+
+        /**
+         * Indica si el sistema no sostuvo la tasa pedida: se completó menos del
+         * 95% de lo programado o más del 1% fueron errores
+         *
+         * @return true si la tasa superó la capacidad
+         */
+        public boolean isSaturado() {
+            return (tasaObjetivo > 0 && getRendimiento() < tasaObjetivo * 0.95)
+                    || errores > Math.max(1, completadas / 100);
+        }
+
+        /**
+         * @return encabezados de {@link #getFilas()}
+         */
+        public static String[] getEncabezados() {
+            return new String[] { "Operación", "Completadas", "Ops/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms",
+                    "Servicio p99 ms", "Rechazos", "Errores", "Omitidas" };
+        }
+
+        /**
+         * @return anchos de columna para TableFormatter
+         */
+        public static int[] getAnchos() {
+            return new int[] { 10, 12, 10, 9, 9, 9, 9, 16, 9, 8, 9 };
+        }
+
+        /**
+         * @return una fila por operación con sus latencias en milisegundos
+         */
+        public String[][] getFilas() {
+            List<String[]> filas = new ArrayList<>();
+            estadisticas.forEach((operacion, e) -> filas.add(new String[] {
+                    operacion.name(),
+                    String.valueOf(e.completadas()),
+                    String.format(Locale.ROOT, "%.1f", e.completadas() / segundos),
+                    ms(e.latencia.percentil(50)),
+                    ms(e.latencia.percentil(95)),
+                    ms(e.latencia.percentil(99)),
+                    ms(e.latencia.percentil(99.9)),
+                    ms(e.servicio.percentil(99)),
+                    String.valueOf(e.rechazadas.sum()),
+                    String.valueOf(e.errores.sum()),
+                    String.valueOf(e.omitidas.sum())
+            }));
+            return filas.toArray(new String[0][]);
+        }
+
+        private static String ms(long nanos) {
+            return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%s ops/s objetivo, concurrencia %d, pool %d: %.1f ops/s en %.0f s, %d errores, "
+                            + "espera de conexión p50 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, atraso máximo del despachador %.1f ms%s",
+                    tasaObjetivo > 0 ? String.format(Locale.ROOT, "%.0f", tasaObjetivo) : "sin límite de", concurrencia,
+                    tamañoPool, getRendimiento(), segundos, errores, esperaConexionP50Ms, esperaConexionP99Ms,
+                    esperaConexionP999Ms, atrasoMaximoNanos / 1e6, isSaturado() ? " (SATURADO)" : "");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.crudapp.infrastructure.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registro de las métricas de la aplicación en el servidor JMX de la plataforma
+ * Los MBeans quedan bajo el dominio com.example.crudapp y se consultan con
+ * jconsole o cualquier cliente JMX local. Con -Dmetrics.jmx=false no se registra nada.
+ *
+ */
+public final class JmxMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(JmxMetrics.class);
+
+    public static final String DOMINIO = "com.example.crudapp";
+
+    private static final boolean ACTIVO = !"false".equalsIgnoreCase(System.getProperty("metrics.jmx"));
+
+    private JmxMetrics() {
+    }
+
+    /**
+     * @return false si se desactivó con -Dmetrics.jmx=false
+     */
+    public static boolean isHabilitado() {
+        return ACTIVO;
+    }
+
+    /**
+     * Registra un MBean, reemplazando uno anterior con el mismo nombre
+     * Un error de JMX se registra en el log y no se propaga: las métricas no
+     * deben impedir que la aplicación funcione.
+     *
+     * @param tipo tipo del MBean (Pool, Transacciones, Servicio)
+     * @param nombre nombre dentro del tipo, o null si hay uno solo
+     * @param mbean objeto que implementa una interfaz *MXBean
+     */
+    public static void registrar(String tipo, String nombre, Object mbean) {
+        if (!ACTIVO) {
+            return;
+        }
+        try {
+            ObjectName objectName = nombreObjeto(tipo, nombre);
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            if (servidor.isRegistered(objectName)) {
+                servidor.unregisterMBean(objectName);
+            }
+            servidor.registerMBean(mbean, objectName);
+            logger.debug("MBean registrado: {}", objectName);
+        } catch (JMException e) {
+            logger.warn("No se pudo registrar el MBean {}/{}: {}", tipo, nombre, e.getMessage());
+        }
+    }
+
+    /**
+     * Quita un MBean registrado con {@link #registrar}
+     *
+     * @param tipo tipo del MBean
+     * @param nombre nombre dentro del tipo, o null
+     */
+    public static void quitar(String tipo, String nombre) {
+        if (!ACTIVO) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(nombreObjeto(tipo, nombre));
+        } catch (InstanceNotFoundException e) {
+            // Ya no estaba registrado
+        } catch (JMException e) {
+            logger.warn("No se pudo quitar el MBean {}/{}: {}", tipo, nombre, e.getMessage());
+        }
+    }
+
+    private static ObjectName nombreObjeto(String tipo, String nombre) throws JMException {
+        String texto = DOMINIO + ":type=" + tipo;
+        if (nombre != null) {
+            texto += ",name=" + ObjectName.quote(nombre);
+        }
+        return new ObjectName(texto);
+    }
+}
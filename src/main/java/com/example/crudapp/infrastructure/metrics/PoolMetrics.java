@@ -0,0 +1,144 @@
+package com.example.crudapp.infrastructure.metrics;
+
+import com.example.crudapp.infrastructure.stats.LatencyHistogram;
+import com.example.crudapp.infrastructure.stats.RateMeter;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Receptor de métricas de HikariCP que las publica como MBean
+ * Hikari llama a estos métodos en cada préstamo y devolución de conexión, por
+ * eso solo hacen incrementos atómicos. Los contadores de conexiones salen de
+ * PoolStats, que Hikari recalcula como mucho una vez por segundo.
+ *
+ */
+public class PoolMetrics implements IMetricsTracker, PoolMetricsMXBean {
+
+    private static final String TIPO = "Pool";
+
+    private final String poolName;
+    private final PoolStats poolStats;
+    private final LatencyHistogram adquisicion = new LatencyHistogram();
+    private final LatencyHistogram uso = new LatencyHistogram();
+    private final RateMeter adquisiciones = new RateMeter();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder creadas = new LongAdder();
+
+    private PoolMetrics(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+    }
+
+    /**
+     * Crea el receptor y lo registra como MBean ya construido; lo invoca Hikari
+     * al crear el pool (ver Database)
+     *
+     * @param poolName nombre del pool
+     * @param poolStats estadísticas de conexiones del pool
+     * @return receptor de métricas del pool
+     */
+    public static PoolMetrics crear(String poolName, PoolStats poolStats) {
+        PoolMetrics metricas = new PoolMetrics(poolName, poolStats);
+        JmxMetrics.registrar(TIPO, poolName, metricas);
+        return metricas;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long nanos) {
+        adquisicion.registrar(nanos);
+        adquisiciones.registrar();
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(long millis) {
+        uso.registrar(millis * 1_000_000L);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeouts.increment();
+    }
+
+    @Override
+    public void recordConnectionCreatedMillis(long millis) {
+        creadas.increment();
+    }
+
+    @Override
+    public void close() {
+        JmxMetrics.quitar(TIPO, poolName);
+    }
+
+    @Override
+    public int getConexionesActivas() {
+        return poolStats.getActiveConnections();
+    }
+
+    @Override
+    public int getConexionesInactivas() {
+        return poolStats.getIdleConnections();
+    }
+
+    @Override
+    public int getConexionesTotales() {
+        return poolStats.getTotalConnections();
+    }
+
+    @Override
+    public int getHilosEsperando() {
+        return poolStats.getPendingThreads();
+    }
+
+    @Override
+    public long getAdquisiciones() {
+        return adquisiciones.getTotal();
+    }
+
+    @Override
+    public double getAdquisicionesPorSegundo() {
+        return adquisiciones.tasaPorSegundo();
+    }
+
+    @Override
+    public double getAdquisicionP50Ms() {
+        return adquisicion.percentil(50) / 1e6;
+    }
+
+    @Override
+    public double getAdquisicionP99Ms() {
+        return adquisicion.percentil(99) / 1e6;
+    }
+
+    @Override
+    public double getAdquisicionP999Ms() {
+        return adquisicion.percentil(99.9) / 1e6;
+    }
+
+    @Override
+    public double getUsoP50Ms() {
+        return uso.percentil(50) / 1e6;
+    }
+
+    @Override
+    public double getUsoP99Ms() {
+        return uso.percentil(99) / 1e6;
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getConexionesCreadas() {
+        return creadas.sum();
+    }
+
+    @Override
+    public void reiniciarHistogramas() {
+        adquisicion.reiniciar();
+        uso.reiniciar();
+    }
+}
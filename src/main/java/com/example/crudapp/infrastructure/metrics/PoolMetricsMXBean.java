@@ -0,0 +1,40 @@
+package com.example.crudapp.infrastructure.metrics;
+
+/**
+ * Métricas del pool de conexiones expuestas por JMX
+ * Los tiempos están en milisegundos
+ *
+ */
+public interface PoolMetricsMXBean {
+
+    int getConexionesActivas();
+
+    int getConexionesInactivas();
+
+    int getConexionesTotales();
+
+    int getHilosEsperando();
+
+    long getAdquisiciones();
+
+    double getAdquisicionesPorSegundo();
+
+    double getAdquisicionP50Ms();
+
+    double getAdquisicionP99Ms();
+
+    double getAdquisicionP999Ms();
+
+    double getUsoP50Ms();
+
+    double getUsoP99Ms();
+
+    long getTimeouts();
+
+    long getConexionesCreadas();
+
+    /**
+     * Pone en cero los histogramas de adquisición y uso
+     */
+    void reiniciarHistogramas();
+}
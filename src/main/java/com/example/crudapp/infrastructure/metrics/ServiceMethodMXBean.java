@@ -0,0 +1,23 @@
+package com.example.crudapp.infrastructure.metrics;
+
+/**
+ * Métricas de un método de servicio expuestas por JMX
+ * Las tasas son promedios del último minuto y los tiempos están en milisegundos
+ *
+ */
+public interface ServiceMethodMXBean {
+
+    long getLlamadas();
+
+    long getErrores();
+
+    double getLlamadasPorSegundo();
+
+    double getLatenciaMediaMs();
+
+    double getLatenciaP50Ms();
+
+    double getLatenciaP99Ms();
+
+    double getLatenciaP999Ms();
+}
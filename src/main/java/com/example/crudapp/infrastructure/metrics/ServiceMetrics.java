@@ -0,0 +1,165 @@
+package com.example.crudapp.infrastructure.metrics;
+
+import com.example.crudapp.infrastructure.stats.LatencyHistogram;
+import com.example.crudapp.infrastructure.stats.RateMeter;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas por método de los servicios de aplicación
+ *
+ * Cada operación de servicio se ejecuta en una transacción del
+ * TransactionManager, que al empezar identifica el método del servicio que lo
+ * llamó recorriendo los primeros marcos de la pila. Así no hace falta tocar
+ * cada método de LibroService, UsuarioService y PrestamoService; el costo es
+ * de unos pocos microsegundos por transacción. Cada método queda registrado
+ * como MBean la primera vez que se ejecuta.
+ *
+ */
+public final class ServiceMetrics {
+
+    private static final String TIPO = "Servicio";
+    private static final String PAQUETE_SERVICIOS = "com.example.crudapp.application.services.";
+
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+
+    // Clase del servicio -> nombre del método -> métricas
+    private static final Map<String, Map<String, Metodo>> metodos = new ConcurrentHashMap<>();
+
+    private ServiceMetrics() {
+    }
+
+    /**
+     * Métricas de un método de servicio
+     */
+    public static final class Metodo implements ServiceMethodMXBean {
+        private final String nombre;
+        private final RateMeter llamadas = new RateMeter();
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LatencyHistogram latencia = new LatencyHistogram();
+
+        Metodo(String nombre) {
+            this.nombre = nombre;
+        }
+
+        /**
+         * @return servicio y método, por ejemplo LibroService.crearLibro
+         */
+        public String getNombre() {
+            return nombre;
+        }
+
+        /**
+         * Registra una llamada
+         *
+         * @param duracion duración en nanosegundos
+         * @param exitosa false si terminó con una excepción
+         */
+        public void registrar(long duracion, boolean exitosa) {
+            llamadas.registrar();
+            nanos.add(duracion);
+            latencia.registrar(duracion);
+            if (!exitosa) {
+                errores.increment();
+            }
+        }
+
+        @Override
+        public long getLlamadas() {
+            return llamadas.getTotal();
+        }
+
+        @Override
+        public long getErrores() {
+            return errores.sum();
+        }
+
+        @Override
+        public double getLlamadasPorSegundo() {
+            return llamadas.tasaPorSegundo();
+        }
+
+        @Override
+        public double getLatenciaMediaMs() {
+            long total = llamadas.getTotal();
+            return total == 0 ? 0 : nanos.sum() / 1e6 / total;
+        }
+
+        @Override
+        public double getLatenciaP50Ms() {
+            return latencia.percentil(50) / 1e6;
+        }
+
+        @Override
+        public double getLatenciaP99Ms() {
+            return latencia.percentil(99) / 1e6;
+        }
+
+        @Override
+        public double getLatenciaP999Ms() {
+            return latencia.percentil(99.9) / 1e6;
+        }
+    }
+
+    /**
+     * Busca en la pila el método de servicio que está llamando
+     * Si ese método abre varias transacciones, cada una cuenta como una llamada.
+     *
+     * @return métricas de ese método, o null si la llamada no viene de un servicio
+     *         o las métricas JMX están desactivadas
+     */
+    public static Metodo llamador() {
+        if (!JmxMetrics.isHabilitado()) {
+            return null;
+        }
+        return marcoLlamador().map(m -> de(m.getClassName(), m.getMethodName())).orElse(null);
+    }
+
+    /**
+     * Nombre del método de servicio que está llamando, aunque las métricas JMX
+     * estén desactivadas (lo usan los eventos de JFR)
+     *
+     * @return servicio y método, o "(sin servicio)" si la llamada no viene de un servicio
+     */
+    public static String nombreLlamador() {
+        return marcoLlamador().map(m -> nombre(m.getClassName(), m.getMethodName())).orElse("(sin servicio)");
+    }
+
+    private static Optional<StackWalker.StackFrame> marcoLlamador() {
+        // El último marco del tramo de servicios es el método que invocó la presentación
+        // (no un auxiliar privado ni otro servicio llamado desde él)
+        return stackWalker.walk(marcos -> marcos
+                .dropWhile(m -> !m.getClassName().startsWith(PAQUETE_SERVICIOS))
+                .takeWhile(m -> m.getClassName().startsWith(PAQUETE_SERVICIOS))
+                .filter(m -> !m.getMethodName().startsWith("lambda$"))
+                .reduce((primero, siguiente) -> siguiente));
+    }
+
+    private static String nombre(String clase, String metodo) {
+        return clase.substring(clase.lastIndexOf('.') + 1) + "." + metodo;
+    }
+
+    /**
+     * Obtiene (o crea y registra) las métricas de un método
+     *
+     * @param clase nombre completo de la clase del servicio
+     * @param metodo nombre del método
+     * @return métricas del método
+     */
+    public static Metodo de(String clase, String metodo) {
+        Map<String, Metodo> porMetodo = metodos.computeIfAbsent(clase, c -> new ConcurrentHashMap<>());
+        Metodo metricas = porMetodo.get(metodo);
+        if (metricas == null) {
+            metricas = porMetodo.computeIfAbsent(metodo, m -> {
+                Metodo nuevo = new Metodo(nombre(clase, m));
+                JmxMetrics.registrar(TIPO, nuevo.getNombre(), nuevo);
+                return nuevo;
+            });
+        }
+        return metricas;
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.crudapp.infrastructure.metrics;
+
+import com.example.crudapp.infrastructure.stats.LatencyHistogram;
+import com.example.crudapp.infrastructure.stats.RateMeter;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de transacciones confirmadas y revertidas
+ * Implementa patrón Singleton: hay un único MBean de transacciones por proceso.
+ *
+ * El gestor de transacciones no reintenta por su cuenta; las "reintentables"
+ * son las reversiones por conflicto de serialización o deadlock (SQLState
+ * 40001 y 40P01), que son las que un llamador puede repetir con éxito.
+ *
+ */
+public final class TransactionMetrics implements TransactionMetricsMXBean {
+
+    private static final String TIPO = "Transacciones";
+
+    private static TransactionMetrics instance;
+
+    private final RateMeter confirmadas = new RateMeter();
+    private final RateMeter revertidas = new RateMeter();
+    private final RateMeter reintentables = new RateMeter();
+    private final LatencyHistogram duracion = new LatencyHistogram();
+    private final LatencyHistogram esperaConexion = new LatencyHistogram();
+    private final LongAdder cargasSolicitadas = new LongAdder();
+    private final LongAdder cargasIdasYVueltas = new LongAdder();
+
+    private TransactionMetrics() {
+    }
+
+    public static synchronized TransactionMetrics getInstance() {
+        if (instance == null) {
+            instance = new TransactionMetrics();
+            JmxMetrics.registrar(TIPO, null, instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Registra una transacción confirmada
+     *
+     * @param nanos duración desde que se obtuvo la conexión
+     */
+    public void registrarConfirmada(long nanos) {
+        confirmadas.registrar();
+        duracion.registrar(nanos);
+    }
+
+    /**
+     * Registra una transacción revertida
+     *
+     * @param nanos duración desde que se obtuvo la conexión
+     * @param causa error que provocó la reversión
+     */
+    public void registrarRevertida(long nanos, Throwable causa) {
+        revertidas.registrar();
+        duracion.registrar(nanos);
+        if (esReintentable(causa)) {
+            reintentables.registrar();
+        }
+    }
+
+    /**
+     * Registra el tiempo que una transacción esperó su conexión del pool
+     *
+     * @param nanos espera en nanosegundos
+     */
+    public void registrarEsperaConexion(long nanos) {
+        esperaConexion.registrar(nanos);
+    }
+
+    /**
+     * @return histograma de espera de conexión (se puede reiniciar para medir un intervalo)
+     */
+    public LatencyHistogram getHistogramaEsperaConexion() {
+        return esperaConexion;
+    }
+
+    /**
+     * Registra una entidad pedida a un DataLoader
+     */
+    public void registrarCargaSolicitada() {
+        cargasSolicitadas.increment();
+    }
+
+    /**
+     * Registra una consulta por lotes despachada por un DataLoader
+     */
+    public void registrarCargaIdaYVuelta() {
+        cargasIdasYVueltas.increment();
+    }
+
+    static boolean esReintentable(Throwable causa) {
+        for (Throwable t = causa; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sqlException) {
+                String estado = sqlException.getSQLState();
+                if ("40001".equals(estado) || "40P01".equals(estado)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long getConfirmadas() {
+        return confirmadas.getTotal();
+    }
+
+    @Override
+    public long getRevertidas() {
+        return revertidas.getTotal();
+    }
+
+    @Override
+    public long getReintentables() {
+        return reintentables.getTotal();
+    }
+
+    @Override
+    public double getConfirmadasPorSegundo() {
+        return confirmadas.tasaPorSegundo();
+    }
+
+    @Override
+    public double getRevertidasPorSegundo() {
+        return revertidas.tasaPorSegundo();
+    }
+
+    @Override
+    public double getReintentablesPorSegundo() {
+        return reintentables.tasaPorSegundo();
+    }
+
+    @Override
+    public double getDuracionP50Ms() {
+        return duracion.percentil(50) / 1e6;
+    }
+
+    @Override
+    public double getDuracionP99Ms() {
+        return duracion.percentil(99) / 1e6;
+    }
+
+    @Override
+    public double getDuracionP999Ms() {
+        return duracion.percentil(99.9) / 1e6;
+    }
+
+    @Override
+    public double getEsperaConexionP50Ms() {
+        return esperaConexion.percentil(50) / 1e6;
+    }
+
+    @Override
+    public double getEsperaConexionP99Ms() {
+        return esperaConexion.percentil(99) / 1e6;
+    }
+
+    @Override
+    public long getCargasSolicitadas() {
+        return cargasSolicitadas.sum();
+    }
+
+    @Override
+    public long getCargasIdasYVueltas() {
+        return cargasIdasYVueltas.sum();
+    }
+
+    @Override
+    public double getCargasPorIdaYVuelta() {
+        long idasYVueltas = cargasIdasYVueltas.sum();
+        return idasYVueltas == 0 ? 0 : (double) cargasSolicitadas.sum() / idasYVueltas;
+    }
+}
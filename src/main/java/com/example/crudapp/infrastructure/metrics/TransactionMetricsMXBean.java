@@ -0,0 +1,39 @@
+package com.example.crudapp.infrastructure.metrics;
+
+/**
+ * Métricas de transacciones expuestas por JMX
+ * Las tasas son promedios del último minuto. Las cargas son las entidades
+ * pedidas a los DataLoader y las consultas por lotes que las resolvieron:
+ * su cociente mide cuánto agrupa el cargador.
+ *
+ */
+public interface TransactionMetricsMXBean {
+
+    long getConfirmadas();
+
+    long getRevertidas();
+
+    long getReintentables();
+
+    double getConfirmadasPorSegundo();
+
+    double getRevertidasPorSegundo();
+
+    double getReintentablesPorSegundo();
+
+    double getDuracionP50Ms();
+
+    double getDuracionP99Ms();
+
+    double getDuracionP999Ms();
+
+    double getEsperaConexionP50Ms();
+
+    double getEsperaConexionP99Ms();
+
+    long getCargasSolicitadas();
+
+    long getCargasIdasYVueltas();
+
+    double getCargasPorIdaYVuelta();
+}
@@ -1,14 +1,25 @@
 package com.example.crudapp.infrastructure.repositories;
 
 import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.repositories.Cambio;
 import com.example.crudapp.domain.repositories.LibroRepository;
+import com.example.crudapp.domain.repositories.UpsertResult;
+import com.example.crudapp.infrastructure.stats.StatementStats;
+import com.example.crudapp.infrastructure.transactions.IdentityMap;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Implementación del repositorio de Libro
@@ -21,12 +32,21 @@ public class LibroRepositoryImpl implements LibroRepository {
     // Queries SQL
     private static final String INSERT_LIBRO = 
         "INSERT INTO libros (titulo, autor, isbn, genero, año_publicacion, disponible) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_LIBRO_SI_NO_EXISTE = 
+        "INSERT INTO libros (titulo, autor, isbn, genero, año_publicacion, disponible) VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (isbn) DO NOTHING RETURNING id";
     private static final String SELECT_BY_ID = 
         "SELECT id, titulo, autor, isbn, genero, año_publicacion, disponible FROM libros WHERE id = ?";
     private static final String SELECT_ALL = 
         "SELECT id, titulo, autor, isbn, genero, año_publicacion, disponible FROM libros ORDER BY id";
-    private static final String UPDATE_LIBRO = 
-        "UPDATE libros SET titulo = ?, autor = ?, isbn = ?, genero = ?, año_publicacion = ?, disponible = ? WHERE id = ?";
+    private static final String SELECT_PAGE = 
+        "SELECT id, titulo, autor, isbn, genero, año_publicacion, disponible FROM libros WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_BY_IDS = 
+        "SELECT id, titulo, autor, isbn, genero, año_publicacion, disponible FROM libros WHERE id = ANY(?)";
+    // UPDATE de las columnas modificadas, en el orden de Libro.COLUMNA_*
+    private static final PartialUpdate UPDATE_LIBRO = 
+        new PartialUpdate("libros", "titulo", "autor", "isbn", "genero", "año_publicacion", "disponible");
+    private static final String COLUMNAS_LIBRO = "id, titulo, autor, isbn, genero, año_publicacion, disponible";
     private static final String DELETE_BY_ID = 
         "DELETE FROM libros WHERE id = ?";
     private static final String EXISTS_BY_ID = 
@@ -45,18 +65,52 @@ public class LibroRepositoryImpl implements LibroRepository {
         "SELECT id, titulo, autor, isbn, genero, año_publicacion, disponible FROM libros WHERE disponible = true ORDER BY titulo";
     private static final String UPDATE_DISPONIBILIDAD = 
         "UPDATE libros SET disponible = ? WHERE id = ?";
+    private static final String INSERT_LIBROS_BATCH = 
+        "INSERT INTO libros (titulo, autor, isbn, genero, año_publicacion, disponible) " +
+        "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::integer[], ?::boolean[]) " +
+        "ON CONFLICT (isbn) DO NOTHING RETURNING isbn";
+    
+    private static final ChangeFeed FEED = new ChangeFeed("libros", COLUMNAS_LIBRO,
+        "NULL::varchar, NULL::varchar, NULL::varchar, NULL::varchar, NULL::integer, NULL::boolean");
+    
+    // Sincronización masiva: tabla temporal cargada con COPY y un único INSERT ... ON CONFLICT
+    private static final String CREATE_STAGING = 
+        "CREATE TEMP TABLE libros_sync (orden BIGINT, titulo VARCHAR(200), autor VARCHAR(150), " +
+        "isbn VARCHAR(20), genero VARCHAR(50), año_publicacion INTEGER) ON COMMIT DROP";
+    private static final String DROP_STAGING = "DROP TABLE IF EXISTS libros_sync";
+    private static final String COPY_STAGING = 
+        "COPY libros_sync (orden, titulo, autor, isbn, genero, año_publicacion) FROM STDIN";
+    // Si el envío repite un ISBN gana la última fila. La disponibilidad no viene del catálogo:
+    // los libros nuevos quedan disponibles y los existentes conservan la suya.
+    // Solo se escriben las filas con algún cambio; xmax = 0 distingue las insertadas de las actualizadas
+    private static final String UPSERT_DESDE_STAGING = 
+        "WITH escritas AS (" +
+        "INSERT INTO libros AS l (titulo, autor, isbn, genero, año_publicacion) " +
+        "SELECT DISTINCT ON (isbn) titulo, autor, isbn, genero, año_publicacion FROM libros_sync " +
+        "ORDER BY isbn, orden DESC " +
+        "ON CONFLICT (isbn) DO UPDATE SET titulo = EXCLUDED.titulo, autor = EXCLUDED.autor, " +
+        "genero = EXCLUDED.genero, año_publicacion = EXCLUDED.año_publicacion " +
+        "WHERE (l.titulo, l.autor, l.genero, l.año_publicacion) IS DISTINCT FROM " +
+        "(EXCLUDED.titulo, EXCLUDED.autor, EXCLUDED.genero, EXCLUDED.año_publicacion) " +
+        "RETURNING (xmax = 0) AS insertada) " +
+        "SELECT (SELECT count(DISTINCT isbn) FROM libros_sync), " +
+        "count(*) FILTER (WHERE insertada), count(*) FILTER (WHERE NOT insertada) FROM escritas";
+    private static final int TAMAÑO_BLOQUE_COPY = 1 << 20; // caracteres por envío a COPY
+    // Las estadísticas por sentencia se agrupan por el nombre de estas constantes
+    static {
+        StatementStats.registrarConstantes(LibroRepositoryImpl.class);
+    }
+
+    
+    // Libros en el mapa de identidad de la transacción, con el ISBN como clave natural
+    static final IdentityMap.Tipo<Libro> TIPO = new IdentityMap.Tipo<>("libros", Libro::getId, Libro::getIsbn);
     
     @Override
     public Libro save(Connection connection, Libro libro) throws SQLException {
         logger.debug("Guardando libro: {}", libro.getTitulo());
         
         try (PreparedStatement stmt = connection.prepareStatement(INSERT_LIBRO, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, libro.getTitulo());
-            stmt.setString(2, libro.getAutor());
-            stmt.setString(3, libro.getIsbn());
-            stmt.setString(4, libro.getGenero());
-            stmt.setObject(5, libro.getAñoPublicacion());
-            stmt.setBoolean(6, libro.getDisponible());
+            setParametrosInsert(stmt, libro);
             
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
@@ -66,26 +120,58 @@ public class LibroRepositoryImpl implements LibroRepository {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     libro.setId(generatedKeys.getLong(1));
+                    libro.marcarSincronizada();
                 } else {
                     throw new SQLException("Error al crear libro, no se obtuvo ID");
                 }
             }
             
             logger.debug("Libro guardado exitosamente con ID: {}", libro.getId());
+            recordar(connection, libro);
             return libro;
         }
     }
     
+    @Override
+    public Optional<Libro> saveIfAbsent(Connection connection, Libro libro) throws SQLException {
+        logger.debug("Guardando libro si no existe el ISBN: {}", libro.getIsbn());
+        
+        // La restricción única decide en la misma sentencia: sin fila devuelta, el ISBN ya existía
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_LIBRO_SI_NO_EXISTE)) {
+            setParametrosInsert(stmt, libro);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    logger.debug("No se insertó el libro, el ISBN {} ya existe", libro.getIsbn());
+                    return Optional.empty();
+                }
+                libro.setId(rs.getLong("id"));
+                libro.marcarSincronizada();
+            }
+        }
+        
+        logger.debug("Libro guardado exitosamente con ID: {}", libro.getId());
+        recordar(connection, libro);
+        return Optional.of(libro);
+    }
+    
     @Override
     public Optional<Libro> findById(Connection connection, Long id) throws SQLException {
         logger.debug("Buscando libro por ID: {}", id);
         
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Libro> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+        if (conocido != null) {
+            logger.debug("Libro ID {} resuelto desde el mapa de identidad", id);
+            return conocido;
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_ID)) {
             stmt.setLong(1, id);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Libro libro = mapResultSetToLibro(rs);
+                    Libro libro = unificar(connection, mapResultSetToLibro(rs));
                     logger.debug("Libro encontrado: {}", libro.getTitulo());
                     return Optional.of(libro);
                 }
@@ -93,6 +179,9 @@ public class LibroRepositoryImpl implements LibroRepository {
         }
         
         logger.debug("Libro no encontrado con ID: {}", id);
+        if (mapa != null) {
+            mapa.registrarAusente(TIPO, id);
+        }
         return Optional.empty();
     }
     
@@ -115,45 +204,163 @@ public class LibroRepositoryImpl implements LibroRepository {
     }
     
     @Override
-    public void update(Connection connection, Libro libro) throws SQLException {
-        logger.debug("Actualizando libro ID: {}", libro.getId());
+    public List<Libro> findAllById(Connection connection, Collection<Long> ids) throws SQLException {
+        logger.debug("Buscando {} libros por lote de IDs", ids.size());
+        
+        List<Libro> libros = new ArrayList<>(ids.size());
+        
+        // Solo se consultan los IDs que el mapa de identidad no conoce
+        IdentityMap mapa = IdentityMap.de(connection);
+        List<Long> pendientes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Optional<Libro> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+            if (conocido == null) {
+                pendientes.add(id);
+            } else {
+                conocido.ifPresent(libros::add);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return libros;
+        }
         
-        try (PreparedStatement stmt = connection.prepareStatement(UPDATE_LIBRO)) {
-            stmt.setString(1, libro.getTitulo());
-            stmt.setString(2, libro.getAutor());
-            stmt.setString(3, libro.getIsbn());
-            stmt.setString(4, libro.getGenero());
-            stmt.setObject(5, libro.getAñoPublicacion());
-            stmt.setBoolean(6, libro.getDisponible());
-            stmt.setLong(7, libro.getId());
+        // Una sola consulta para todo el lote: el arreglo viaja como un único parámetro
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_IDS)) {
+            stmt.setArray(1, connection.createArrayOf("bigint", pendientes.toArray()));
             
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Error al actualizar libro, no se encontró el ID: " + libro.getId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (mapa != null) {
+                    // Los que no vuelvan en el resultado quedan registrados como inexistentes
+                    pendientes.forEach(id -> mapa.registrarAusente(TIPO, id));
+                }
+                while (rs.next()) {
+                    Libro entidad = unificar(connection, mapResultSetToLibro(rs));
+                    libros.add(entidad);
+                }
             }
+        }
+        
+        return libros;
+    }
+    
+    @Override
+    public List<Libro> findPage(Connection connection, long despuesDeId, int limite) throws SQLException {
+        logger.debug("Obteniendo página de libros después del ID: {}", despuesDeId);
+        
+        List<Libro> libros = new ArrayList<>(limite);
+        
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_PAGE)) {
+            stmt.setLong(1, despuesDeId);
+            stmt.setInt(2, limite);
             
-            logger.debug("Libro actualizado exitosamente");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    libros.add(mapResultSetToLibro(rs));
+                }
+            }
         }
+        
+        return libros;
     }
     
     @Override
-    public void deleteById(Connection connection, Long id) throws SQLException {
+    public void update(Connection connection, Libro libro) throws SQLException {
+        logger.debug("Actualizando libro ID: {}", libro.getId());
+        
+        if (!libro.tieneCambios()) {
+            logger.debug("Libro ID {} sin cambios", libro.getId());
+            return;
+        }
+        
+        int affectedRows = UPDATE_LIBRO.ejecutar(connection, libro.getCambios(), libro.getId(),
+                columna -> switch (columna) {
+                    case 0 -> libro.getTitulo();
+                    case 1 -> libro.getAutor();
+                    case 2 -> libro.getIsbn();
+                    case 3 -> libro.getGenero();
+                    case 4 -> libro.getAñoPublicacion();
+                    default -> libro.getDisponible();
+                });
+        if (affectedRows == 0) {
+            throw new SQLException("Error al actualizar libro, no se encontró el ID: " + libro.getId());
+        }
+        
+        libro.marcarSincronizada();
+        logger.debug("Libro actualizado exitosamente");
+        recordar(connection, libro);
+    }
+    
+    @Override
+    public Optional<Libro> updateIfExists(Connection connection, Libro libro) throws SQLException {
+        logger.debug("Actualizando libro ID: {} si existe", libro.getId());
+        
+        Optional<Libro> actualizado = UPDATE_LIBRO.ejecutar(connection, libro.getCambios(),
+                libro.isSincronizada(), libro.getId(),
+                columna -> switch (columna) {
+                    case 0 -> libro.getTitulo();
+                    case 1 -> libro.getAutor();
+                    case 2 -> libro.getIsbn();
+                    case 3 -> libro.getGenero();
+                    case 4 -> libro.getAñoPublicacion();
+                    default -> libro.getDisponible();
+                }, COLUMNAS_LIBRO, this::mapResultSetToLibro);
+        
+        IdentityMap mapa = IdentityMap.de(connection);
+        if (actualizado.isEmpty()) {
+            logger.debug("No se actualizó el libro, no existe el ID: {}", libro.getId());
+            if (mapa != null) {
+                mapa.registrarAusente(TIPO, libro.getId());
+            }
+            return Optional.empty();
+        }
+        
+        libro.marcarSincronizada();
+        logger.debug("Libro actualizado exitosamente");
+        // La fila devuelta reemplaza a la instancia que tuviera la transacción
+        recordar(connection, actualizado.get());
+        return actualizado;
+    }
+    
+    @Override
+    public boolean deleteById(Connection connection, Long id) throws SQLException {
         logger.debug("Eliminando libro ID: {}", id);
         
         try (PreparedStatement stmt = connection.prepareStatement(DELETE_BY_ID)) {
             stmt.setLong(1, id);
             
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Error al eliminar libro, no se encontró el ID: " + id);
+            boolean eliminado = stmt.executeUpdate() > 0;
+            if (eliminado) {
+                logger.debug("Libro eliminado exitosamente");
+            } else {
+                logger.debug("No se eliminó el libro, no existe el ID: {}", id);
             }
-            
-            logger.debug("Libro eliminado exitosamente");
+            IdentityMap mapa = IdentityMap.de(connection);
+            if (mapa != null) {
+                mapa.registrarAusente(TIPO, id);
+                if (eliminado) {
+                    // Sus préstamos se borran en cascada
+                    mapa.olvidarTodos(PrestamoRepositoryImpl.TIPO);
+                }
+            }
+            return eliminado;
         }
     }
     
+    @Override
+    public List<Cambio<Libro>> findModifiedSince(Connection connection, Instant watermark, long despuesDeId,
+            int limite) throws SQLException {
+        logger.debug("Buscando cambios de libros desde {} (ID > {})", watermark, despuesDeId);
+        return FEED.buscar(connection, watermark, despuesDeId, limite, this::mapResultSetToLibro);
+    }
+    
     @Override
     public boolean existsById(Connection connection, Long id) throws SQLException {
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Libro> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+        if (conocido != null) {
+            return conocido.isPresent();
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(EXISTS_BY_ID)) {
             stmt.setLong(1, id);
             
@@ -167,12 +374,19 @@ public class LibroRepositoryImpl implements LibroRepository {
     public Optional<Libro> findByIsbn(Connection connection, String isbn) throws SQLException {
         logger.debug("Buscando libro por ISBN: {}", isbn);
         
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Libro> conocido = mapa != null ? mapa.buscarPorClave(TIPO, isbn) : null;
+        if (conocido != null) {
+            logger.debug("Libro con ISBN {} resuelto desde el mapa de identidad", isbn);
+            return conocido;
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_ISBN)) {
             stmt.setString(1, isbn);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Libro libro = mapResultSetToLibro(rs);
+                    Libro libro = unificar(connection, mapResultSetToLibro(rs));
                     logger.debug("Libro encontrado por ISBN");
                     return Optional.of(libro);
                 }
@@ -180,11 +394,20 @@ public class LibroRepositoryImpl implements LibroRepository {
         }
         
         logger.debug("Libro no encontrado con ISBN: {}", isbn);
+        if (mapa != null) {
+            mapa.registrarClaveAusente(TIPO, isbn);
+        }
         return Optional.empty();
     }
     
     @Override
     public boolean existsByIsbn(Connection connection, String isbn) throws SQLException {
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Libro> conocido = mapa != null ? mapa.buscarPorClave(TIPO, isbn) : null;
+        if (conocido != null) {
+            return conocido.isPresent();
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(EXISTS_BY_ISBN)) {
             stmt.setString(1, isbn);
             
@@ -273,7 +496,7 @@ public class LibroRepositoryImpl implements LibroRepository {
     }
     
     @Override
-    public void updateDisponibilidad(Connection connection, Long id, boolean disponible) throws SQLException {
+    public boolean updateDisponibilidad(Connection connection, Long id, boolean disponible) throws SQLException {
         logger.debug("Actualizando disponibilidad del libro ID: {} a {}", id, disponible);
         
         try (PreparedStatement stmt = connection.prepareStatement(UPDATE_DISPONIBILIDAD)) {
@@ -282,11 +505,205 @@ public class LibroRepositoryImpl implements LibroRepository {
             
             int affectedRows = stmt.executeUpdate();
             if (affectedRows == 0) {
-                throw new SQLException("Error al actualizar disponibilidad, no se encontró el ID: " + id);
+                logger.debug("No se actualizó la disponibilidad, no existe el ID: {}", id);
+                return false;
             }
             
             logger.debug("Disponibilidad actualizada exitosamente");
+            
+            // Actualizar en el lugar la instancia que ya tiene la transacción
+            IdentityMap mapa = IdentityMap.de(connection);
+            Optional<Libro> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+            if (conocido != null) {
+                conocido.ifPresent(libro -> {
+                    libro.setDisponible(disponible);
+                    libro.marcarSincronizada(Libro.COLUMNA_DISPONIBLE);
+                });
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Inserta varios libros en una sola sentencia (un único viaje a la base de datos)
+     * Los libros cuyo ISBN ya existe se omiten sin error
+     * 
+     * @return ISBNs de los libros efectivamente insertados
+     */
+    @Override
+    public Set<String> saveAllIgnoringDuplicates(Connection connection, List<Libro> libros) throws SQLException {
+        logger.debug("Insertando lote de {} libros", libros.size());
+        
+        Set<String> insertados = new HashSet<>();
+        if (libros.isEmpty()) {
+            return insertados;
+        }
+        
+        int n = libros.size();
+        String[] titulos = new String[n];
+        String[] autores = new String[n];
+        String[] isbns = new String[n];
+        String[] generos = new String[n];
+        Integer[] años = new Integer[n];
+        Boolean[] disponibles = new Boolean[n];
+        
+        for (int i = 0; i < n; i++) {
+            Libro libro = libros.get(i);
+            titulos[i] = libro.getTitulo();
+            autores[i] = libro.getAutor();
+            isbns[i] = libro.getIsbn();
+            generos[i] = libro.getGenero();
+            años[i] = libro.getAñoPublicacion();
+            disponibles[i] = libro.getDisponible() != null ? libro.getDisponible() : true;
+        }
+        
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_LIBROS_BATCH)) {
+            stmt.setArray(1, connection.createArrayOf("varchar", titulos));
+            stmt.setArray(2, connection.createArrayOf("varchar", autores));
+            stmt.setArray(3, connection.createArrayOf("varchar", isbns));
+            stmt.setArray(4, connection.createArrayOf("varchar", generos));
+            stmt.setArray(5, connection.createArrayOf("integer", años));
+            stmt.setArray(6, connection.createArrayOf("boolean", disponibles));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    insertados.add(rs.getString(1));
+                }
+            }
+        }
+        
+        IdentityMap mapa = IdentityMap.de(connection);
+        if (mapa != null && !insertados.isEmpty()) {
+            // Los ISBN recién insertados pudieron quedar registrados como inexistentes
+            mapa.olvidarTodos(TIPO);
+        }
+        
+        logger.debug("Se insertaron {} de {} libros del lote", insertados.size(), n);
+        return insertados;
+    }
+    
+    /**
+     * Sincroniza los libros por ISBN: los copia a una tabla temporal con COPY y
+     * un único INSERT ... ON CONFLICT inserta los nuevos y actualiza los que cambiaron
+     */
+    @Override
+    public UpsertResult upsertAll(Connection connection, Iterable<Libro> libros) throws SQLException {
+        logger.debug("Sincronizando libros por ISBN");
+        
+        try (Statement stmt = connection.createStatement()) {
+            // Por si otra sincronización de la misma transacción dejó la tabla
+            stmt.execute(DROP_STAGING);
+            stmt.execute(CREATE_STAGING);
         }
+        
+        long recibidas = copiarAStaging(connection, libros);
+        
+        UpsertResult resultado;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(UPSERT_DESDE_STAGING)) {
+            rs.next();
+            long distintas = rs.getLong(1);
+            long insertadas = rs.getLong(2);
+            long actualizadas = rs.getLong(3);
+            resultado = new UpsertResult(recibidas, insertadas, actualizadas, distintas - insertadas - actualizadas);
+        }
+        
+        IdentityMap mapa = IdentityMap.de(connection);
+        if (mapa != null && resultado.getInsertadas() + resultado.getActualizadas() > 0) {
+            mapa.olvidarTodos(TIPO);
+        }
+        
+        logger.debug("Sincronización de libros: {}", resultado);
+        return resultado;
+    }
+    
+    /**
+     * Carga los libros en la tabla temporal con COPY en formato texto, en bloques de hasta 1 MiB
+     *
+     * @return filas copiadas
+     */
+    private long copiarAStaging(Connection connection, Iterable<Libro> libros) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+        try {
+            StringBuilder bloque = new StringBuilder(TAMAÑO_BLOQUE_COPY + 1024);
+            long orden = 0;
+            for (Libro libro : libros) {
+                if (libro.getIsbn() == null) {
+                    throw new SQLException("No se puede sincronizar un libro sin ISBN: " + libro.getTitulo());
+                }
+                bloque.append(orden++).append('\t');
+                agregarCampoCopy(bloque, libro.getTitulo()).append('\t');
+                agregarCampoCopy(bloque, libro.getAutor()).append('\t');
+                agregarCampoCopy(bloque, libro.getIsbn()).append('\t');
+                agregarCampoCopy(bloque, libro.getGenero()).append('\t');
+                agregarCampoCopy(bloque, libro.getAñoPublicacion() != null ? libro.getAñoPublicacion().toString() : null)
+                        .append('\n');
+                if (bloque.length() >= TAMAÑO_BLOQUE_COPY) {
+                    enviarBloque(copyIn, bloque);
+                }
+            }
+            enviarBloque(copyIn, bloque);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+    
+    private static void enviarBloque(CopyIn copyIn, StringBuilder bloque) throws SQLException {
+        if (bloque.length() > 0) {
+            byte[] bytes = bloque.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            bloque.setLength(0);
+        }
+    }
+    
+    /**
+     * Agrega un valor escapado para el formato texto de COPY (null se escribe como \N)
+     */
+    private static StringBuilder agregarCampoCopy(StringBuilder bloque, String valor) {
+        if (valor == null) {
+            return bloque.append("\\N");
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '\\' -> bloque.append("\\\\");
+                case '\t' -> bloque.append("\\t");
+                case '\n' -> bloque.append("\\n");
+                case '\r' -> bloque.append("\\r");
+                default -> bloque.append(c);
+            }
+        }
+        return bloque;
+    }
+    
+    private static void setParametrosInsert(PreparedStatement stmt, Libro libro) throws SQLException {
+        stmt.setString(1, libro.getTitulo());
+        stmt.setString(2, libro.getAutor());
+        stmt.setString(3, libro.getIsbn());
+        stmt.setString(4, libro.getGenero());
+        stmt.setObject(5, libro.getAñoPublicacion());
+        stmt.setBoolean(6, libro.getDisponible());
+    }
+    
+    /**
+     * Registra el libro en el mapa de identidad de la transacción, si la conexión tiene uno
+     */
+    private static void recordar(Connection connection, Libro libro) {
+        IdentityMap mapa = IdentityMap.de(connection);
+        if (mapa != null) {
+            mapa.registrar(TIPO, libro);
+        }
+    }
+    
+    /**
+     * Devuelve la instancia de la transacción para el libro recién leído, registrándolo si es nuevo
+     */
+    private static Libro unificar(Connection connection, Libro libro) {
+        IdentityMap mapa = IdentityMap.de(connection);
+        return mapa != null ? mapa.unificar(TIPO, libro) : libro;
     }
     
     private Libro mapResultSetToLibro(ResultSet rs) throws SQLException {
@@ -298,6 +715,7 @@ public class LibroRepositoryImpl implements LibroRepository {
         libro.setGenero(rs.getString("genero"));
         libro.setAñoPublicacion((Integer) rs.getObject("año_publicacion"));
         libro.setDisponible(rs.getBoolean("disponible"));
+        libro.marcarSincronizada();
         return libro;
     }
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+package com.example.crudapp.infrastructure.repositories;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UPDATE parcial de una tabla: escribe solo las columnas modificadas de la entidad
+ * La sentencia de cada combinación de columnas se arma una vez y queda en caché,
+ * así el driver reutiliza la misma forma de sentencia (y su plan preparado) en
+ * cada actualización con las mismas columnas.
+ *
+ * Propiedades de sistema para comparar:
+ * - update.completo=true escribe siempre todas las columnas, como antes
+ * - wal.medir=true registra los bytes de WAL que genera cada UPDATE
+ */
+final class PartialUpdate {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartialUpdate.class);
+
+    private static final boolean UPDATE_COMPLETO = Boolean.getBoolean("update.completo");
+    private static final boolean MEDIR_WAL = Boolean.getBoolean("wal.medir");
+
+    private static final String SELECT_WAL_LSN = "SELECT pg_current_wal_insert_lsn()::text";
+    private static final String SELECT_WAL_DIFF = "SELECT pg_wal_lsn_diff(pg_current_wal_insert_lsn(), ?::pg_lsn)::bigint";
+
+    /**
+     * Valores de las columnas de una entidad
+     */
+    @FunctionalInterface
+    interface Valores {
+        /**
+         * @param columna índice de la columna (su bit en la máscara)
+         * @return valor a escribir, con el tipo JDBC de la columna
+         */
+        Object valor(int columna);
+    }
+
+    /**
+     * Convierte la fila devuelta por RETURNING en una entidad
+     *
+     * @param <T> tipo de la entidad
+     */
+    @FunctionalInterface
+    interface Mapeo<T> {
+        T mapear(ResultSet rs) throws SQLException;
+    }
+
+    private final String tabla;
+    private final String[] columnas;
+    private final int todas;
+    private final ConcurrentHashMap<Integer, String> sentencias = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param tabla tabla a actualizar
+     * @param columnas columnas actualizables, en el orden de sus bits
+     */
+    PartialUpdate(String tabla, String... columnas) {
+        this.tabla = tabla;
+        this.columnas = columnas;
+        this.todas = (1 << columnas.length) - 1;
+    }
+
+    /**
+     * Actualiza las columnas indicadas de una fila
+     *
+     * @param connection conexión de la transacción
+     * @param cambios máscara de las columnas modificadas
+     * @param id ID de la fila
+     * @param valores valores de las columnas
+     * @return filas afectadas; 0 si no había columnas que escribir
+     * @throws SQLException si hay error al actualizar
+     */
+    int ejecutar(Connection connection, int cambios, Long id, Valores valores) throws SQLException {
+        int mascara = UPDATE_COMPLETO ? todas : cambios & todas;
+        if (mascara == 0) {
+            logger.debug("{} ID {} sin cambios, no se actualiza", tabla, id);
+            return 0;
+        }
+
+        String walAntes = MEDIR_WAL ? lsnActual(connection) : null;
+
+        int filas;
+        try (PreparedStatement stmt = connection.prepareStatement(sentencia(mascara))) {
+            vincular(stmt, mascara, id, valores);
+            filas = stmt.executeUpdate();
+        }
+
+        medirWal(connection, walAntes, mascara, id);
+        return filas;
+    }
+
+    /**
+     * Actualiza las columnas indicadas y devuelve la fila tal como quedó (UPDATE ... RETURNING)
+     * Con una entidad sincronizada la máscara es exacta: sin columnas modificadas
+     * no se escribe nada y solo se relee la fila. Con una entidad que no salió de
+     * la base de datos la máscara no se conoce, así que se escriben todas las
+     * columnas pero solo si alguna difiere de la fila (IS DISTINCT FROM); una
+     * fila idéntica no genera WAL ni dispara el trigger de fecha_modificacion.
+     * En ambos casos, si el UPDATE no devuelve nada se relee la fila para
+     * distinguir "sin cambios" de "no existe".
+     *
+     * @param <T> tipo de la entidad
+     * @param connection conexión de la transacción
+     * @param cambios máscara de las columnas modificadas
+     * @param sincronizada si la entidad se leyó o escribió antes (su máscara es exacta)
+     * @param id ID de la fila
+     * @param valores valores de las columnas
+     * @param devueltas columnas de la cláusula RETURNING
+     * @param mapeo convierte la fila devuelta en entidad
+     * @return la fila actualizada, o vacío si no existe el ID
+     * @throws SQLException si hay error al actualizar (incluida una restricción violada)
+     */
+    <T> Optional<T> ejecutar(Connection connection, int cambios, boolean sincronizada, Long id, Valores valores,
+            String devueltas, Mapeo<T> mapeo) throws SQLException {
+        int mascara = UPDATE_COMPLETO || !sincronizada ? todas : cambios & todas;
+        if (mascara == 0) {
+            logger.debug("{} ID {} sin cambios, no se actualiza", tabla, id);
+            return releer(connection, id, devueltas, mapeo);
+        }
+        boolean comparar = !UPDATE_COMPLETO && !sincronizada;
+
+        String walAntes = MEDIR_WAL ? lsnActual(connection) : null;
+
+        Optional<T> fila;
+        String sql = (comparar ? sentenciaComparada() : sentencia(mascara)) + " RETURNING " + devueltas;
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int indice = vincular(stmt, mascara, id, valores);
+            if (comparar) {
+                for (int columna = 0; columna < columnas.length; columna++) {
+                    stmt.setObject(++indice, valores.valor(columna));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                fila = rs.next() ? Optional.of(mapeo.mapear(rs)) : Optional.empty();
+            }
+        }
+
+        medirWal(connection, walAntes, mascara, id);
+        if (fila.isEmpty() && comparar) {
+            logger.debug("{} ID {} sin diferencias con la fila, no se actualizó", tabla, id);
+            return releer(connection, id, devueltas, mapeo);
+        }
+        return fila;
+    }
+
+    /**
+     * Obtiene la sentencia de una combinación de columnas, armándola la primera vez
+     *
+     * @param mascara columnas a escribir
+     * @return UPDATE con un parámetro por columna y el ID al final
+     */
+    String sentencia(int mascara) {
+        return sentencias.computeIfAbsent(mascara, m -> {
+            StringBuilder sql = new StringBuilder("UPDATE ").append(tabla).append(" SET ");
+            boolean primera = true;
+            for (int columna = 0; columna < columnas.length; columna++) {
+                if ((m & (1 << columna)) != 0) {
+                    if (!primera) {
+                        sql.append(", ");
+                    }
+                    sql.append(columnas[columna]).append(" = ?");
+                    primera = false;
+                }
+            }
+            return sql.append(" WHERE id = ?").toString();
+        });
+    }
+
+    /**
+     * UPDATE de todas las columnas que solo toca la fila si alguna difiere
+     *
+     * @return sentencia con los valores dos veces: en el SET y en la comparación
+     */
+    String sentenciaComparada() {
+        // Fuera de la función de computeIfAbsent: el mapa no admite cargar otra clave desde ella
+        String completa = sentencia(todas);
+        return sentencias.computeIfAbsent(-1, m -> {
+            String lista = String.join(", ", columnas);
+            String parametros = String.join(", ", Collections.nCopies(columnas.length, "?"));
+            return completa + " AND (" + lista + ") IS DISTINCT FROM (" + parametros + ")";
+        });
+    }
+
+    private <T> Optional<T> releer(Connection connection, Long id, String devueltas, Mapeo<T> mapeo)
+            throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "SELECT " + devueltas + " FROM " + tabla + " WHERE id = ?")) {
+            stmt.setLong(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapeo.mapear(rs)) : Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * @return índice del último parámetro vinculado (el ID)
+     */
+    private int vincular(PreparedStatement stmt, int mascara, Long id, Valores valores) throws SQLException {
+        int indice = 1;
+        for (int columna = 0; columna < columnas.length; columna++) {
+            if ((mascara & (1 << columna)) != 0) {
+                stmt.setObject(indice++, valores.valor(columna));
+            }
+        }
+        stmt.setLong(indice, id);
+        return indice;
+    }
+
+    private void medirWal(Connection connection, String walAntes, int mascara, Long id) throws SQLException {
+        if (walAntes != null) {
+            logger.info("UPDATE {} ID {} ({} de {} columnas): {} bytes de WAL", tabla, id, Integer.bitCount(mascara),
+                    columnas.length, bytesDesde(connection, walAntes));
+        }
+    }
+
+    private static String lsnActual(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery(SELECT_WAL_LSN)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static long bytesDesde(Connection connection, String lsn) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_WAL_DIFF)) {
+            stmt.setString(1, lsn);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
@@ -3,14 +3,24 @@ package com.example.crudapp.infrastructure.repositories;
 import com.example.crudapp.domain.entities.Libro;
 import com.example.crudapp.domain.entities.Prestamo;
 import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.domain.repositories.Cambio;
 import com.example.crudapp.domain.repositories.PrestamoRepository;
+import com.example.crudapp.infrastructure.archive.PrestamoArchive;
+import com.example.crudapp.infrastructure.stats.StatementStats;
+import com.example.crudapp.infrastructure.transactions.IdentityMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Implementación del repositorio de Préstamo
@@ -33,11 +43,24 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
             +
             "FROM prestamos ORDER BY id";
 
-    private static final String UPDATE_SQL = "UPDATE prestamos SET usuario_id = ?, libro_id = ?, fecha_prestamo = ?, " +
-            "fecha_devolucion_esperada = ?, fecha_devolucion_real = ?, estado = ? WHERE id = ?";
+    private static final String SELECT_PAGE = "SELECT id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado "
+            +
+            "FROM prestamos WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_BY_IDS = "SELECT id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado "
+            +
+            "FROM prestamos WHERE id = ANY(?)";
+
+    // UPDATE de las columnas modificadas, en el orden de Prestamo.COLUMNA_*
+    private static final PartialUpdate UPDATE_SQL = new PartialUpdate("prestamos", "usuario_id", "libro_id",
+            "fecha_prestamo", "fecha_devolucion_esperada", "fecha_devolucion_real", "estado");
 
     private static final String DELETE_BY_ID = "DELETE FROM prestamos WHERE id = ?";
 
+    private static final ChangeFeed FEED = new ChangeFeed("prestamos",
+            "id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado",
+            "NULL::integer, NULL::integer, NULL::date, NULL::date, NULL::date, NULL::varchar");
+
     private static final String SELECT_BY_USUARIO_ID = "SELECT id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado "
             +
             "FROM prestamos WHERE usuario_id = ?";
@@ -73,18 +96,67 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
 
     private static final String SELECT_CON_DETALLES = "SELECT p.id, p.usuario_id, p.libro_id, p.fecha_prestamo, p.fecha_devolucion_esperada, "
             +
-            "p.fecha_devolucion_real, p.estado, " +
+            "p.fecha_devolucion_real, p.estado, p.observaciones, " +
             "u.nombre AS usuario_nombre, u.email, u.telefono, u.fecha_registro, " +
             "l.titulo, l.autor, l.isbn, l.genero, l.año_publicacion, l.disponible " +
             "FROM prestamos p " +
             "JOIN usuarios u ON p.usuario_id = u.id " +
             "JOIN libros l ON p.libro_id = l.id";
 
-    private static final String DEVOLVER_SQL = "UPDATE prestamos SET estado = 'devuelto', fecha_devolucion_real = CURRENT_DATE WHERE id = ?";
+    // Variantes filtradas del join: cada pantalla de préstamos se resuelve con una sola consulta
+    private static final String SELECT_CON_DETALLES_BY_ID = SELECT_CON_DETALLES + " WHERE p.id = ?";
+
+    private static final String SELECT_CON_DETALLES_PAGE = SELECT_CON_DETALLES + " WHERE p.id > ? ORDER BY p.id LIMIT ?";
+
+    private static final String SELECT_CON_DETALLES_BY_USUARIO_ID_PAGE = SELECT_CON_DETALLES
+            + " WHERE p.usuario_id = ? AND p.id > ? ORDER BY p.id LIMIT ?";
+
+    private static final String SELECT_CON_DETALLES_BY_USUARIO_ID_ESTADO_PAGE = SELECT_CON_DETALLES
+            + " WHERE p.usuario_id = ? AND p.estado = ? AND p.id > ? ORDER BY p.id LIMIT ?";
+
+    private static final String SELECT_CON_DETALLES_BY_ESTADO_PAGE = SELECT_CON_DETALLES
+            + " WHERE p.estado = ? AND p.id > ? ORDER BY p.id LIMIT ?";
+
+    private static final String SELECT_CON_DETALLES_VENCIDOS_PAGE = SELECT_CON_DETALLES
+            + " WHERE p.estado = 'ACTIVO' AND p.fecha_devolucion_esperada < CURRENT_DATE AND p.id > ? ORDER BY p.id LIMIT ?";
+
+    // Cambios de estado condicionados: la misma sentencia comprueba el estado y devuelve la fila
+    private static final String DEVOLVER_SQL = "UPDATE prestamos SET estado = 'DEVUELTO', fecha_devolucion_real = ? "
+            + "WHERE id = ? AND estado <> 'DEVUELTO' "
+            + "RETURNING id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado";
+
+    private static final String RENOVAR_SQL = "UPDATE prestamos SET fecha_devolucion_esperada = fecha_devolucion_esperada + ? "
+            + "WHERE id = ? AND estado = 'ACTIVO' "
+            + "RETURNING id, usuario_id, libro_id, fecha_prestamo, fecha_devolucion_esperada, fecha_devolucion_real, estado";
 
     // Agregar constante para existsById
     private static final String EXISTS_BY_ID = "SELECT 1 FROM prestamos WHERE id = ?";
 
+    // Las estadísticas por sentencia se agrupan por el nombre de estas constantes
+    static {
+        StatementStats.registrarConstantes(PrestamoRepositoryImpl.class);
+    }
+
+    // Préstamos en el mapa de identidad de la transacción (sin clave natural)
+    static final IdentityMap.Tipo<Prestamo> TIPO = new IdentityMap.Tipo<>("prestamos", Prestamo::getId, null);
+
+    // Archivo histórico de préstamos devueltos (opcional)
+    private final PrestamoArchive archive;
+
+    public PrestamoRepositoryImpl() {
+        this(null);
+    }
+
+    /**
+     * Constructor con archivo histórico
+     * findByUsuarioId combina los préstamos de la tabla con los archivados
+     * 
+     * @param archive archivo histórico de préstamos devueltos, o null
+     */
+    public PrestamoRepositoryImpl(PrestamoArchive archive) {
+        this.archive = archive;
+    }
+
     @Override
     public Prestamo save(Connection connection, Prestamo prestamo) throws SQLException {
         logger.debug("Guardando préstamo para usuario_id: {} y libro_id: {}", prestamo.getUsuarioId(),
@@ -107,12 +179,14 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     prestamo.setId(generatedKeys.getLong(1));
+                    prestamo.marcarSincronizada();
                 } else {
                     throw new SQLException("Error al crear préstamo, no se obtuvo ID");
                 }
             }
 
             logger.debug("Préstamo guardado exitosamente con ID: {}", prestamo.getId());
+            recordar(connection, prestamo);
             return prestamo;
         }
     }
@@ -121,12 +195,19 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
     public Optional<Prestamo> findById(Connection connection, Long id) throws SQLException {
         logger.debug("Buscando préstamo por ID: {}", id);
 
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Prestamo> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+        if (conocido != null) {
+            logger.debug("Préstamo ID {} resuelto desde el mapa de identidad", id);
+            return conocido;
+        }
+
         try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_ID)) {
             stmt.setLong(1, id);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Prestamo prestamo = mapResultSetToPrestamo(rs);
+                    Prestamo prestamo = unificar(connection, mapResultSetToPrestamo(rs));
                     logger.debug("Préstamo encontrado: ID {}", id);
                     return Optional.of(prestamo);
                 }
@@ -134,6 +215,9 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
         }
 
         logger.debug("Préstamo no encontrado con ID: {}", id);
+        if (mapa != null) {
+            mapa.registrarAusente(TIPO, id);
+        }
         return Optional.empty();
     }
 
@@ -156,49 +240,131 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
     }
 
     @Override
-    public void update(Connection connection, Prestamo prestamo) throws SQLException {
-        logger.debug("Actualizando préstamo ID: {}", prestamo.getId());
+    public List<Prestamo> findAllById(Connection connection, Collection<Long> ids) throws SQLException {
+        logger.debug("Buscando {} préstamos por lote de IDs", ids.size());
+
+        List<Prestamo> prestamos = new ArrayList<>(ids.size());
+
+        // Solo se consultan los IDs que el mapa de identidad no conoce
+        IdentityMap mapa = IdentityMap.de(connection);
+        List<Long> pendientes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Optional<Prestamo> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+            if (conocido == null) {
+                pendientes.add(id);
+            } else {
+                conocido.ifPresent(prestamos::add);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return prestamos;
+        }
 
-        try (PreparedStatement stmt = connection.prepareStatement(UPDATE_SQL)) {
-            stmt.setLong(1, prestamo.getUsuarioId());
-            stmt.setLong(2, prestamo.getLibroId());
-            stmt.setDate(3, Date.valueOf(prestamo.getFechaPrestamo()));
-            stmt.setDate(4, Date.valueOf(prestamo.getFechaDevolucionEsperada()));
-            stmt.setDate(5,
-                    prestamo.getFechaDevolucionReal() != null ? Date.valueOf(prestamo.getFechaDevolucionReal()) : null);
-            stmt.setString(6, prestamo.getEstado());
-            stmt.setLong(7, prestamo.getId());
+        // Una sola consulta para todo el lote: el arreglo viaja como un único parámetro
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_IDS)) {
+            stmt.setArray(1, connection.createArrayOf("bigint", pendientes.toArray()));
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Error al actualizar préstamo, no se encontró el ID: " + prestamo.getId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (mapa != null) {
+                    // Los que no vuelvan en el resultado quedan registrados como inexistentes
+                    pendientes.forEach(id -> mapa.registrarAusente(TIPO, id));
+                }
+                while (rs.next()) {
+                    prestamos.add(unificar(connection, mapResultSetToPrestamo(rs)));
+                }
             }
+        }
+
+        return prestamos;
+    }
 
-            logger.debug("Préstamo actualizado exitosamente");
+    @Override
+    public List<Prestamo> findPage(Connection connection, long despuesDeId, int limite) throws SQLException {
+        logger.debug("Obteniendo página de préstamos después del ID: {}", despuesDeId);
+
+        List<Prestamo> prestamos = new ArrayList<>(limite);
+
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_PAGE)) {
+            stmt.setLong(1, despuesDeId);
+            stmt.setInt(2, limite);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    prestamos.add(mapResultSetToPrestamo(rs));
+                }
+            }
         }
+
+        return prestamos;
+    }
+
+    @Override
+    public void update(Connection connection, Prestamo prestamo) throws SQLException {
+        logger.debug("Actualizando préstamo ID: {}", prestamo.getId());
+
+        if (!prestamo.tieneCambios()) {
+            logger.debug("Préstamo ID {} sin cambios", prestamo.getId());
+            return;
+        }
+
+        int affectedRows = UPDATE_SQL.ejecutar(connection, prestamo.getCambios(), prestamo.getId(),
+                columna -> switch (columna) {
+                    case 0 -> prestamo.getUsuarioId();
+                    case 1 -> prestamo.getLibroId();
+                    case 2 -> Date.valueOf(prestamo.getFechaPrestamo());
+                    case 3 -> Date.valueOf(prestamo.getFechaDevolucionEsperada());
+                    case 4 -> prestamo.getFechaDevolucionReal() != null ? Date.valueOf(prestamo.getFechaDevolucionReal())
+                            : null;
+                    default -> prestamo.getEstado();
+                });
+        if (affectedRows == 0) {
+            throw new SQLException("Error al actualizar préstamo, no se encontró el ID: " + prestamo.getId());
+        }
+
+        prestamo.marcarSincronizada();
+        logger.debug("Préstamo actualizado exitosamente");
+        recordar(connection, prestamo);
     }
 
     @Override
-    public void deleteById(Connection connection, Long id) throws SQLException {
+    public boolean deleteById(Connection connection, Long id) throws SQLException {
         logger.debug("Eliminando préstamo ID: {}", id);
 
         try (PreparedStatement stmt = connection.prepareStatement(DELETE_BY_ID)) {
             stmt.setLong(1, id);
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Error al eliminar préstamo, no se encontró el ID: " + id);
+            boolean eliminado = stmt.executeUpdate() > 0;
+            if (eliminado) {
+                logger.debug("Préstamo eliminado exitosamente");
+            } else {
+                logger.debug("No se eliminó el préstamo, no existe el ID: {}", id);
             }
-
-            logger.debug("Préstamo eliminado exitosamente");
+            IdentityMap mapa = IdentityMap.de(connection);
+            if (mapa != null) {
+                mapa.registrarAusente(TIPO, id);
+            }
+            return eliminado;
         }
     }
 
+    @Override
+    public List<Cambio<Prestamo>> findModifiedSince(Connection connection, Instant watermark, long despuesDeId,
+            int limite) throws SQLException {
+        logger.debug("Buscando cambios de préstamos desde {} (ID > {})", watermark, despuesDeId);
+        return FEED.buscar(connection, watermark, despuesDeId, limite, this::mapResultSetToPrestamo);
+    }
+
     // Implementar método faltante
     @Override
     public boolean existsById(Connection connection, Long id) throws SQLException {
         logger.debug("Verificando existencia de préstamo ID: {}", id);
 
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Prestamo> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+        if (conocido != null) {
+            return conocido.isPresent();
+        }
+
         try (PreparedStatement stmt = connection.prepareStatement(EXISTS_BY_ID)) {
             stmt.setLong(1, id);
 
@@ -212,7 +378,28 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
     public List<Prestamo> findByUsuarioId(Connection connection, Long usuarioId) throws SQLException {
         logger.debug("Buscando préstamos por usuario_id: {}", usuarioId);
 
-        return findByParameter(connection, SELECT_BY_USUARIO_ID, usuarioId);
+        List<Prestamo> prestamos = findByParameter(connection, SELECT_BY_USUARIO_ID, usuarioId);
+        if (archive == null) {
+            return prestamos;
+        }
+
+        // Completar con el historial archivado; la tabla tiene prioridad ante IDs repetidos
+        Set<Long> ids = new HashSet<>();
+        for (Prestamo prestamo : prestamos) {
+            ids.add(prestamo.getId());
+        }
+
+        try {
+            for (Prestamo archivado : archive.findByUsuarioId(usuarioId)) {
+                if (ids.add(archivado.getId())) {
+                    prestamos.add(archivado);
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Error al leer el archivo histórico de préstamos: " + e.getMessage(), e);
+        }
+
+        return prestamos;
     }
 
     @Override
@@ -259,7 +446,7 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Prestamo prestamo = mapResultSetToPrestamo(rs);
+                    Prestamo prestamo = unificar(connection, mapResultSetToPrestamo(rs));
                     logger.debug("Préstamo activo encontrado para libro_id: {}", libroId);
                     return Optional.of(prestamo);
                 }
@@ -299,22 +486,119 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
     }
 
     @Override
-    public void devolver(Connection connection, Long id) throws SQLException {
+    public Optional<Prestamo> findConDetallesById(Connection connection, Long id) throws SQLException {
+        logger.debug("Buscando préstamo con detalles por ID: {}", id);
+
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_CON_DETALLES_BY_ID)) {
+            stmt.setLong(1, id);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapResultSetToPrestamoConDetalles(rs));
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Prestamo> findConDetallesPage(Connection connection, long despuesDeId, int limite)
+            throws SQLException {
+        logger.debug("Obteniendo página de préstamos con detalles después del ID: {}", despuesDeId);
+        return findConDetallesPorPagina(connection, SELECT_CON_DETALLES_PAGE, despuesDeId, limite);
+    }
+
+    @Override
+    public List<Prestamo> findConDetallesByUsuarioIdPage(Connection connection, Long usuarioId, String estado,
+            long despuesDeId, int limite) throws SQLException {
+        logger.debug("Obteniendo página de préstamos con detalles del usuario ID: {} (estado: {})", usuarioId, estado);
+        if (estado == null) {
+            return findConDetallesPorPagina(connection, SELECT_CON_DETALLES_BY_USUARIO_ID_PAGE, despuesDeId, limite,
+                    usuarioId);
+        }
+        return findConDetallesPorPagina(connection, SELECT_CON_DETALLES_BY_USUARIO_ID_ESTADO_PAGE, despuesDeId, limite,
+                usuarioId, estado);
+    }
+
+    @Override
+    public List<Prestamo> findConDetallesByEstadoPage(Connection connection, String estado, long despuesDeId,
+            int limite) throws SQLException {
+        logger.debug("Obteniendo página de préstamos con detalles en estado: {}", estado);
+        return findConDetallesPorPagina(connection, SELECT_CON_DETALLES_BY_ESTADO_PAGE, despuesDeId, limite, estado);
+    }
+
+    @Override
+    public List<Prestamo> findConDetallesVencidosPage(Connection connection, long despuesDeId, int limite)
+            throws SQLException {
+        logger.debug("Obteniendo página de préstamos vencidos con detalles después del ID: {}", despuesDeId);
+        return findConDetallesPorPagina(connection, SELECT_CON_DETALLES_VENCIDOS_PAGE, despuesDeId, limite);
+    }
+
+    @Override
+    public Optional<Prestamo> devolver(Connection connection, Long id, LocalDate fechaDevolucion) throws SQLException {
         logger.debug("Registrando devolución de préstamo ID: {}", id);
 
         try (PreparedStatement stmt = connection.prepareStatement(DEVOLVER_SQL)) {
-            stmt.setLong(1, id);
+            stmt.setDate(1, Date.valueOf(fechaDevolucion));
+            stmt.setLong(2, id);
+            return cambiarEstado(connection, stmt, id);
+        }
+    }
 
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Error al registrar devolución, no se encontró el préstamo con ID: " + id);
+    @Override
+    public Optional<Prestamo> renovar(Connection connection, Long id, int diasExtension) throws SQLException {
+        logger.debug("Renovando préstamo ID: {} por {} días", id, diasExtension);
+
+        try (PreparedStatement stmt = connection.prepareStatement(RENOVAR_SQL)) {
+            stmt.setInt(1, diasExtension);
+            stmt.setLong(2, id);
+            return cambiarEstado(connection, stmt, id);
+        }
+    }
+
+    /**
+     * Ejecuta un UPDATE ... RETURNING condicionado y registra la fila devuelta en el mapa de identidad
+     */
+    private Optional<Prestamo> cambiarEstado(Connection connection, PreparedStatement stmt, Long id)
+            throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) {
+                logger.debug("El préstamo ID {} no existe o su estado no permite el cambio", id);
+                // No se sabe cuál de los dos: se vuelve a leer si hace falta
+                IdentityMap mapa = IdentityMap.de(connection);
+                if (mapa != null) {
+                    mapa.olvidar(TIPO, id);
+                }
+                return Optional.empty();
             }
 
-            logger.debug("Devolución registrada exitosamente para préstamo ID: {}", id);
+            Prestamo prestamo = mapResultSetToPrestamo(rs);
+            recordar(connection, prestamo);
+            return Optional.of(prestamo);
         }
     }
 
     // Métodos auxiliares
+
+    /**
+     * Registra el préstamo en el mapa de identidad de la transacción, si la conexión tiene uno
+     */
+    private static void recordar(Connection connection, Prestamo prestamo) {
+        IdentityMap mapa = IdentityMap.de(connection);
+        if (mapa != null) {
+            mapa.registrar(TIPO, prestamo);
+        }
+    }
+
+    /**
+     * Devuelve la instancia de la transacción para el préstamo recién leído, registrándolo si es nuevo
+     */
+    private static Prestamo unificar(Connection connection, Prestamo prestamo) {
+        IdentityMap mapa = IdentityMap.de(connection);
+        return mapa != null ? mapa.unificar(TIPO, prestamo) : prestamo;
+    }
+
     private Prestamo mapResultSetToPrestamo(ResultSet rs) throws SQLException {
         Prestamo prestamo = new Prestamo();
         prestamo.setId(rs.getLong("id"));
@@ -329,6 +613,7 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
         }
 
         prestamo.setEstado(rs.getString("estado"));
+        prestamo.marcarSincronizada();
         return prestamo;
     }
 
@@ -342,6 +627,7 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
         usuario.setEmail(rs.getString("email"));
         usuario.setTelefono(rs.getString("telefono"));
         usuario.setFechaRegistro(rs.getDate("fecha_registro").toLocalDate());
+        usuario.marcarSincronizada();
         prestamo.setUsuario(usuario);
 
         // Mapear libro
@@ -353,11 +639,40 @@ public class PrestamoRepositoryImpl implements PrestamoRepository {
         libro.setGenero(rs.getString("genero"));
         libro.setAñoPublicacion(rs.getInt("año_publicacion"));
         libro.setDisponible(rs.getBoolean("disponible"));
+        libro.marcarSincronizada();
         prestamo.setLibro(libro);
 
+        prestamo.setObservaciones(rs.getString("observaciones"));
+
         return prestamo;
     }
 
+    /**
+     * Ejecuta una variante paginada del join de detalles
+     * Los filtros van primero y el cursor y el límite al final, en ese orden
+     */
+    private List<Prestamo> findConDetallesPorPagina(Connection connection, String sql, long despuesDeId, int limite,
+            Object... filtros) throws SQLException {
+        List<Prestamo> prestamos = new ArrayList<>(limite);
+
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            int indice = 1;
+            for (Object filtro : filtros) {
+                stmt.setObject(indice++, filtro);
+            }
+            stmt.setLong(indice++, despuesDeId);
+            stmt.setInt(indice, limite);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    prestamos.add(mapResultSetToPrestamoConDetalles(rs));
+                }
+            }
+        }
+
+        return prestamos;
+    }
+
     private List<Prestamo> findByParameter(Connection connection, String sql, Object parameter) throws SQLException {
         List<Prestamo> prestamos = new ArrayList<>();
 
@@ -0,0 +1,63 @@
+package com.example.crudapp.infrastructure.repositories;
+
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Retención de las lápidas del feed de cambios
+ * El trigger de eliminación solo agrega filas a la tabla eliminaciones; la tarea
+ * diaria borra las más antiguas que los días configurados. Un consumidor del
+ * feed con el cursor más atrasado que la retención pierde esas eliminaciones y
+ * debe releer la tabla completa.
+ */
+public final class TombstoneRetention {
+    private static final Logger logger = LoggerFactory.getLogger(TombstoneRetention.class);
+
+    private static final String PURGAR_ELIMINACIONES = "SELECT purgar_eliminaciones(?)";
+
+    private final TransactionManager transactionManager;
+    private final int dias;
+
+    /**
+     * Constructor
+     *
+     * @param transactionManager gestor de transacciones
+     * @param dias días que se conservan las lápidas
+     * @throws IllegalArgumentException si algún parámetro es inválido
+     */
+    public TombstoneRetention(TransactionManager transactionManager, int dias) {
+        if (transactionManager == null) {
+            throw new IllegalArgumentException("El gestor de transacciones no puede ser null");
+        }
+        if (dias <= 0) {
+            throw new IllegalArgumentException("La retención de lápidas debe ser mayor a 0 días");
+        }
+        this.transactionManager = transactionManager;
+        this.dias = dias;
+    }
+
+    /**
+     * Borra las lápidas más antiguas que la retención
+     *
+     * @return número de lápidas borradas
+     * @throws SQLException si ocurre un error de base de datos
+     */
+    public int purgar() throws SQLException {
+        int purgadas = transactionManager.executeInTransaction(connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(PURGAR_ELIMINACIONES)) {
+                stmt.setInt(1, dias);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            }
+        });
+        logger.debug("Se purgaron {} lápidas con más de {} días", purgadas, dias);
+        return purgadas;
+    }
+}
@@ -1,12 +1,17 @@
 package com.example.crudapp.infrastructure.repositories;
 
 import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.domain.repositories.Cambio;
 import com.example.crudapp.domain.repositories.UsuarioRepository;
+import com.example.crudapp.infrastructure.stats.StatementStats;
+import com.example.crudapp.infrastructure.transactions.IdentityMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,12 +26,23 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
     // Queries SQL
     private static final String INSERT_USUARIO = 
         "INSERT INTO usuarios (nombre, email, telefono) VALUES (?, ?, ?)";
+    private static final String INSERT_USUARIO_SI_NO_EXISTE = 
+        "INSERT INTO usuarios (nombre, email, telefono) VALUES (?, ?, ?) " +
+        "ON CONFLICT (email) DO NOTHING RETURNING id, fecha_registro";
     private static final String SELECT_BY_ID = 
         "SELECT id, nombre, email, telefono, fecha_registro FROM usuarios WHERE id = ?";
     private static final String SELECT_ALL = 
         "SELECT id, nombre, email, telefono, fecha_registro FROM usuarios ORDER BY id";
-    private static final String UPDATE_USUARIO = 
-        "UPDATE usuarios SET nombre = ?, email = ?, telefono = ? WHERE id = ?";
+    private static final String SELECT_PAGE = 
+        "SELECT id, nombre, email, telefono, fecha_registro FROM usuarios WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String SELECT_BY_IDS = 
+        "SELECT id, nombre, email, telefono, fecha_registro FROM usuarios WHERE id = ANY(?)";
+    // UPDATE de las columnas modificadas, en el orden de Usuario.COLUMNA_*
+    private static final PartialUpdate UPDATE_USUARIO = 
+        new PartialUpdate("usuarios", "nombre", "email", "telefono");
+    private static final String COLUMNAS_USUARIO = "id, nombre, email, telefono, fecha_registro";
+    private static final ChangeFeed FEED = new ChangeFeed("usuarios", COLUMNAS_USUARIO,
+        "NULL::varchar, NULL::varchar, NULL::varchar, NULL::date");
     private static final String DELETE_BY_ID = 
         "DELETE FROM usuarios WHERE id = ?";
     private static final String EXISTS_BY_ID = 
@@ -37,12 +53,23 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
         "SELECT 1 FROM usuarios WHERE email = ?";
     private static final String SELECT_BY_NOMBRE = 
         "SELECT id, nombre, email, telefono, fecha_registro FROM usuarios WHERE nombre ILIKE ?";
+    // Las estadísticas por sentencia se agrupan por el nombre de estas constantes
+    static {
+        StatementStats.registrarConstantes(UsuarioRepositoryImpl.class);
+    }
+
+    
+    // Usuarios en el mapa de identidad de la transacción, con el email como clave natural
+    static final IdentityMap.Tipo<Usuario> TIPO = new IdentityMap.Tipo<>("usuarios", Usuario::getId, Usuario::getEmail);
+    
+    // Columnas generadas por la base de datos que se leen al insertar
+    private static final String[] COLUMNAS_GENERADAS = {"id", "fecha_registro"};
     
     @Override
     public Usuario save(Connection connection, Usuario usuario) throws SQLException {
         logger.debug("Guardando usuario: {}", usuario.getEmail());
         
-        try (PreparedStatement stmt = connection.prepareStatement(INSERT_USUARIO, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_USUARIO, COLUMNAS_GENERADAS)) {
             stmt.setString(1, usuario.getNombre());
             stmt.setString(2, usuario.getEmail());
             stmt.setString(3, usuario.getTelefono());
@@ -55,26 +82,62 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     usuario.setId(generatedKeys.getLong(1));
+                    usuario.setFechaRegistro(generatedKeys.getDate(2).toLocalDate());
+                    usuario.marcarSincronizada();
                 } else {
                     throw new SQLException("Error al crear usuario, no se obtuvo ID");
                 }
             }
             
             logger.debug("Usuario guardado exitosamente con ID: {}", usuario.getId());
+            recordar(connection, usuario);
             return usuario;
         }
     }
     
+    @Override
+    public Optional<Usuario> saveIfAbsent(Connection connection, Usuario usuario) throws SQLException {
+        logger.debug("Guardando usuario si no existe el email: {}", usuario.getEmail());
+        
+        // La restricción única decide en la misma sentencia: sin fila devuelta, el email ya existía
+        try (PreparedStatement stmt = connection.prepareStatement(INSERT_USUARIO_SI_NO_EXISTE)) {
+            stmt.setString(1, usuario.getNombre());
+            stmt.setString(2, usuario.getEmail());
+            stmt.setString(3, usuario.getTelefono());
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    logger.debug("No se insertó el usuario, el email {} ya existe", usuario.getEmail());
+                    return Optional.empty();
+                }
+                usuario.setId(rs.getLong("id"));
+                usuario.setFechaRegistro(rs.getDate("fecha_registro").toLocalDate());
+                usuario.marcarSincronizada();
+            }
+        }
+        
+        logger.debug("Usuario guardado exitosamente con ID: {}", usuario.getId());
+        recordar(connection, usuario);
+        return Optional.of(usuario);
+    }
+    
     @Override
     public Optional<Usuario> findById(Connection connection, Long id) throws SQLException {
         logger.debug("Buscando usuario por ID: {}", id);
         
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Usuario> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+        if (conocido != null) {
+            logger.debug("Usuario ID {} resuelto desde el mapa de identidad", id);
+            return conocido;
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_ID)) {
             stmt.setLong(1, id);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Usuario usuario = mapResultSetToUsuario(rs);
+                    Usuario usuario = unificar(connection, mapResultSetToUsuario(rs));
                     logger.debug("Usuario encontrado: {}", usuario.getEmail());
                     return Optional.of(usuario);
                 }
@@ -82,6 +145,9 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
         }
         
         logger.debug("Usuario no encontrado con ID: {}", id);
+        if (mapa != null) {
+            mapa.registrarAusente(TIPO, id);
+        }
         return Optional.empty();
     }
     
@@ -104,42 +170,157 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
     }
     
     @Override
-    public void update(Connection connection, Usuario usuario) throws SQLException {
-        logger.debug("Actualizando usuario ID: {}", usuario.getId());
+    public List<Usuario> findAllById(Connection connection, Collection<Long> ids) throws SQLException {
+        logger.debug("Buscando {} usuarios por lote de IDs", ids.size());
         
-        try (PreparedStatement stmt = connection.prepareStatement(UPDATE_USUARIO)) {
-            stmt.setString(1, usuario.getNombre());
-            stmt.setString(2, usuario.getEmail());
-            stmt.setString(3, usuario.getTelefono());
-            stmt.setLong(4, usuario.getId());
+        List<Usuario> usuarios = new ArrayList<>(ids.size());
+        
+        // Solo se consultan los IDs que el mapa de identidad no conoce
+        IdentityMap mapa = IdentityMap.de(connection);
+        List<Long> pendientes = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Optional<Usuario> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+            if (conocido == null) {
+                pendientes.add(id);
+            } else {
+                conocido.ifPresent(usuarios::add);
+            }
+        }
+        if (pendientes.isEmpty()) {
+            return usuarios;
+        }
+        
+        // Una sola consulta para todo el lote: el arreglo viaja como un único parámetro
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_IDS)) {
+            stmt.setArray(1, connection.createArrayOf("bigint", pendientes.toArray()));
             
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Error al actualizar usuario, no se encontró el ID: " + usuario.getId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (mapa != null) {
+                    // Los que no vuelvan en el resultado quedan registrados como inexistentes
+                    pendientes.forEach(id -> mapa.registrarAusente(TIPO, id));
+                }
+                while (rs.next()) {
+                    Usuario entidad = unificar(connection, mapResultSetToUsuario(rs));
+                    usuarios.add(entidad);
+                }
             }
+        }
+        
+        return usuarios;
+    }
+    
+    @Override
+    public List<Usuario> findPage(Connection connection, long despuesDeId, int limite) throws SQLException {
+        logger.debug("Obteniendo página de usuarios después del ID: {}", despuesDeId);
+        
+        List<Usuario> usuarios = new ArrayList<>(limite);
+        
+        try (PreparedStatement stmt = connection.prepareStatement(SELECT_PAGE)) {
+            stmt.setLong(1, despuesDeId);
+            stmt.setInt(2, limite);
             
-            logger.debug("Usuario actualizado exitosamente");
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    usuarios.add(mapResultSetToUsuario(rs));
+                }
+            }
+        }
+        
+        return usuarios;
+    }
+    
+    @Override
+    public void update(Connection connection, Usuario usuario) throws SQLException {
+        logger.debug("Actualizando usuario ID: {}", usuario.getId());
+        
+        if (!usuario.tieneCambios()) {
+            logger.debug("Usuario ID {} sin cambios", usuario.getId());
+            return;
+        }
+        
+        int affectedRows = UPDATE_USUARIO.ejecutar(connection, usuario.getCambios(), usuario.getId(),
+                columna -> switch (columna) {
+                    case 0 -> usuario.getNombre();
+                    case 1 -> usuario.getEmail();
+                    default -> usuario.getTelefono();
+                });
+        if (affectedRows == 0) {
+            throw new SQLException("Error al actualizar usuario, no se encontró el ID: " + usuario.getId());
         }
+        
+        usuario.marcarSincronizada();
+        logger.debug("Usuario actualizado exitosamente");
+        recordar(connection, usuario);
     }
     
     @Override
-    public void deleteById(Connection connection, Long id) throws SQLException {
+    public boolean deleteById(Connection connection, Long id) throws SQLException {
         logger.debug("Eliminando usuario ID: {}", id);
         
         try (PreparedStatement stmt = connection.prepareStatement(DELETE_BY_ID)) {
             stmt.setLong(1, id);
             
-            int affectedRows = stmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Error al eliminar usuario, no se encontró el ID: " + id);
+            boolean eliminado = stmt.executeUpdate() > 0;
+            if (eliminado) {
+                logger.debug("Usuario eliminado exitosamente");
+            } else {
+                logger.debug("No se eliminó el usuario, no existe el ID: {}", id);
             }
-            
-            logger.debug("Usuario eliminado exitosamente");
+            IdentityMap mapa = IdentityMap.de(connection);
+            if (mapa != null) {
+                mapa.registrarAusente(TIPO, id);
+                if (eliminado) {
+                    // Sus préstamos se borran en cascada
+                    mapa.olvidarTodos(PrestamoRepositoryImpl.TIPO);
+                }
+            }
+            return eliminado;
+        }
+    }
+    
+    @Override
+    public Optional<Usuario> updateIfExists(Connection connection, Usuario usuario) throws SQLException {
+        logger.debug("Actualizando usuario ID: {} si existe", usuario.getId());
+        
+        Optional<Usuario> actualizado = UPDATE_USUARIO.ejecutar(connection, usuario.getCambios(),
+                usuario.isSincronizada(), usuario.getId(),
+                columna -> switch (columna) {
+                    case 0 -> usuario.getNombre();
+                    case 1 -> usuario.getEmail();
+                    default -> usuario.getTelefono();
+                }, COLUMNAS_USUARIO, this::mapResultSetToUsuario);
+        
+        IdentityMap mapa = IdentityMap.de(connection);
+        if (actualizado.isEmpty()) {
+            logger.debug("No se actualizó el usuario, no existe el ID: {}", usuario.getId());
+            if (mapa != null) {
+                mapa.registrarAusente(TIPO, usuario.getId());
+            }
+            return Optional.empty();
         }
+        
+        usuario.marcarSincronizada();
+        logger.debug("Usuario actualizado exitosamente");
+        // La fila devuelta reemplaza a la instancia que tuviera la transacción
+        recordar(connection, actualizado.get());
+        return actualizado;
+    }
+    
+    @Override
+    public List<Cambio<Usuario>> findModifiedSince(Connection connection, Instant watermark, long despuesDeId,
+            int limite) throws SQLException {
+        logger.debug("Buscando cambios de usuarios desde {} (ID > {})", watermark, despuesDeId);
+        return FEED.buscar(connection, watermark, despuesDeId, limite, this::mapResultSetToUsuario);
     }
     
     @Override
     public boolean existsById(Connection connection, Long id) throws SQLException {
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Usuario> conocido = mapa != null ? mapa.buscar(TIPO, id) : null;
+        if (conocido != null) {
+            return conocido.isPresent();
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(EXISTS_BY_ID)) {
             stmt.setLong(1, id);
             
@@ -153,12 +334,19 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
     public Optional<Usuario> findByEmail(Connection connection, String email) throws SQLException {
         logger.debug("Buscando usuario por email: {}", email);
         
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Usuario> conocido = mapa != null ? mapa.buscarPorClave(TIPO, email) : null;
+        if (conocido != null) {
+            logger.debug("Usuario con email {} resuelto desde el mapa de identidad", email);
+            return conocido;
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(SELECT_BY_EMAIL)) {
             stmt.setString(1, email);
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Usuario usuario = mapResultSetToUsuario(rs);
+                    Usuario usuario = unificar(connection, mapResultSetToUsuario(rs));
                     logger.debug("Usuario encontrado por email");
                     return Optional.of(usuario);
                 }
@@ -166,11 +354,20 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
         }
         
         logger.debug("Usuario no encontrado con email: {}", email);
+        if (mapa != null) {
+            mapa.registrarClaveAusente(TIPO, email);
+        }
         return Optional.empty();
     }
     
     @Override
     public boolean existsByEmail(Connection connection, String email) throws SQLException {
+        IdentityMap mapa = IdentityMap.de(connection);
+        Optional<Usuario> conocido = mapa != null ? mapa.buscarPorClave(TIPO, email) : null;
+        if (conocido != null) {
+            return conocido.isPresent();
+        }
+        
         try (PreparedStatement stmt = connection.prepareStatement(EXISTS_BY_EMAIL)) {
             stmt.setString(1, email);
             
@@ -200,6 +397,24 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
         return usuarios;
     }
     
+    /**
+     * Registra el usuario en el mapa de identidad de la transacción, si la conexión tiene uno
+     */
+    private static void recordar(Connection connection, Usuario usuario) {
+        IdentityMap mapa = IdentityMap.de(connection);
+        if (mapa != null) {
+            mapa.registrar(TIPO, usuario);
+        }
+    }
+    
+    /**
+     * Devuelve la instancia de la transacción para el usuario recién leído, registrándolo si es nuevo
+     */
+    private static Usuario unificar(Connection connection, Usuario usuario) {
+        IdentityMap mapa = IdentityMap.de(connection);
+        return mapa != null ? mapa.unificar(TIPO, usuario) : usuario;
+    }
+    
     private Usuario mapResultSetToUsuario(ResultSet rs) throws SQLException {
         Usuario usuario = new Usuario();
         usuario.setId(rs.getLong("id"));
@@ -207,6 +422,7 @@ public class UsuarioRepositoryImpl implements UsuarioRepository {
         usuario.setEmail(rs.getString("email"));
         usuario.setTelefono(rs.getString("telefono"));
         usuario.setFechaRegistro(rs.getDate("fecha_registro").toLocalDate());
+        usuario.marcarSincronizada();
         return usuario;
     }
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+package com.example.crudapp.infrastructure.startup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Orquestador del arranque de la aplicación
+ * Ejecuta las fases de inicio en hilos virtuales respetando sus dependencias:
+ * las fases independientes corren en paralelo y cada una empieza apenas
+ * terminan las fases de las que depende. Registra una línea de tiempo con el
+ * inicio y fin de cada fase relativa al arranque.
+ *
+ */
+public class StartupOrchestrator implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupOrchestrator.class);
+
+    /**
+     * Trabajo de una fase de arranque
+     *
+     * @param <T> tipo del resultado de la fase
+     */
+    @FunctionalInterface
+    public interface Tarea<T> {
+        T ejecutar() throws Exception;
+    }
+
+    private final long inicio;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Fase<?>> fases = new ArrayList<>();
+
+    /**
+     * Constructor del orquestador
+     *
+     * @param inicio instante de referencia de la línea de tiempo (System.nanoTime)
+     */
+    public StartupOrchestrator(long inicio) {
+        this.inicio = inicio;
+    }
+
+    /**
+     * Registra una fase y la lanza cuando terminan sus dependencias
+     * Si alguna dependencia falla, la fase no se ejecuta y falla con la misma causa
+     *
+     * @param <T> tipo del resultado de la fase
+     * @param nombre nombre de la fase para la línea de tiempo
+     * @param tarea trabajo de la fase
+     * @param dependencias fases que deben terminar antes
+     * @return la fase registrada
+     */
+    public synchronized <T> Fase<T> fase(String nombre, Tarea<T> tarea, Fase<?>... dependencias) {
+        CompletableFuture<?>[] previas = new CompletableFuture<?>[dependencias.length];
+        for (int i = 0; i < dependencias.length; i++) {
+            previas[i] = dependencias[i].futuro;
+        }
+
+        Fase<T> fase = new Fase<>(nombre);
+        fase.futuro = CompletableFuture.allOf(previas)
+                .thenApplyAsync(ignorado -> fase.ejecutar(tarea), executor);
+        fase.futuro.whenComplete((resultado, error) -> {
+            if (error != null && fase.fin == 0) {
+                fase.fallo = causa(error).getMessage();
+                logger.warn("Fase de arranque '{}' omitida: {}", nombre, fase.fallo);
+            }
+        });
+
+        fases.add(fase);
+        return fase;
+    }
+
+    /**
+     * Espera a que una fase termine y devuelve su resultado
+     *
+     * @param <T> tipo del resultado de la fase
+     * @param fase fase a esperar
+     * @return resultado de la fase
+     * @throws SQLException si la fase falló
+     */
+    public <T> T esperar(Fase<T> fase) throws SQLException {
+        try {
+            return fase.futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Arranque interrumpido esperando la fase " + fase.nombre, e);
+        } catch (ExecutionException e) {
+            Throwable causa = causa(e);
+            if (causa instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Error en la fase de arranque " + fase.nombre + ": " + causa.getMessage(), causa);
+        }
+    }
+
+    /**
+     * Registra la línea de tiempo completa cuando terminan todas las fases
+     * registradas hasta ahora, sin bloquear al llamador
+     *
+     * @param hito descripción del momento marcado en la línea de tiempo (por ejemplo, menú visible)
+     * @param instanteHito instante del hito (System.nanoTime)
+     */
+    public synchronized void registrarAlTerminar(String hito, long instanteHito) {
+        CompletableFuture<?>[] todas = fases.stream().map(f -> f.futuro).toArray(CompletableFuture<?>[]::new);
+        CompletableFuture.allOf(todas).whenComplete((r, e) -> logger.info("Línea de tiempo del arranque:\n{}",
+                lineaDeTiempo(hito, instanteHito)));
+    }
+
+    /**
+     * Genera la línea de tiempo de las fases registradas
+     *
+     * @param hito descripción de un momento a marcar (puede ser null)
+     * @param instanteHito instante del hito (System.nanoTime)
+     * @return una línea por fase con inicio, fin, duración e hilo
+     */
+    public synchronized String lineaDeTiempo(String hito, long instanteHito) {
+        StringBuilder sb = new StringBuilder();
+        for (Fase<?> fase : fases) {
+            if (fase.inicio == 0) {
+                sb.append(String.format("  %-22s %s%n", fase.nombre,
+                        fase.fallo != null ? "omitida: " + fase.fallo : "pendiente"));
+                continue;
+            }
+            long fin = fase.fin != 0 ? fase.fin : System.nanoTime();
+            sb.append(String.format("  %-22s %6d ms -> %6d ms  (%5d ms)  %s%s%n", fase.nombre,
+                    ms(fase.inicio), ms(fin), (fin - fase.inicio) / 1_000_000, fase.hilo,
+                    fase.fallo != null ? "  ERROR: " + fase.fallo : fase.fin == 0 ? "  (en curso)" : ""));
+        }
+        if (hito != null) {
+            sb.append(String.format("  %-22s %6d ms", hito, ms(instanteHito)));
+        }
+        return sb.toString();
+    }
+
+    private long ms(long instante) {
+        return (instante - inicio) / 1_000_000;
+    }
+
+    private static Throwable causa(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * No bloquea al llamador: el executor se apaga cuando terminan todas las
+     * fases registradas, así las que siguen en segundo plano (y las que aún
+     * esperan a sus dependencias) pueden lanzarse después de mostrar el menú
+     */
+    @Override
+    public synchronized void close() {
+        CompletableFuture<?>[] todas = fases.stream().map(f -> f.futuro).toArray(CompletableFuture<?>[]::new);
+        CompletableFuture.allOf(todas).whenComplete((r, e) -> executor.shutdown());
+    }
+
+    /**
+     * Fase de arranque con su resultado futuro y sus tiempos
+     *
+     * @param <T> tipo del resultado de la fase
+     */
+    public static class Fase<T> {
+        private final String nombre;
+        private CompletableFuture<T> futuro;
+        private volatile long inicio;
+        private volatile long fin;
+        private volatile String hilo;
+        private volatile String fallo;
+
+        private Fase(String nombre) {
+            this.nombre = nombre;
+        }
+
+        private T ejecutar(Tarea<T> tarea) {
+            inicio = System.nanoTime();
+            hilo = "hilo virtual #" + Thread.currentThread().threadId();
+            logger.debug("Iniciando fase de arranque '{}'", nombre);
+            try {
+                return tarea.ejecutar();
+            } catch (Exception e) {
+                fallo = e.getMessage();
+                throw new CompletionException(e);
+            } finally {
+                fin = System.nanoTime();
+                logger.debug("Fase de arranque '{}' terminada en {} ms", nombre, (fin - inicio) / 1_000_000);
+            }
+        }
+
+        /**
+         * Obtiene el nombre de la fase
+         *
+         * @return nombre de la fase
+         */
+        public String getNombre() {
+            return nombre;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.crudapp.infrastructure.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma log-lineal de latencias, sin bloqueos
+ *
+ * Cada potencia de 2 de nanosegundos se divide en 16 cubetas lineales, así el
+ * error de un percentil es menor al 6,25% en todo el rango (de 1 ns a
+ * 2^(MAX_EXPONENTE + 1) ns, unos 36 minutos) con un arreglo fijo de contadores. Registrar es un incremento
+ * atómico sobre una cubeta; leer un percentil recorre el arreglo y puede ver
+ * una muestra concurrente a medias, lo que alcanza para diagnóstico.
+ *
+ */
+public final class LatencyHistogram {
+
+    private static final int BITS_SUBCUBETA = 4;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int MAX_EXPONENTE = 40;
+    private static final long MAX_VALOR = (1L << (MAX_EXPONENTE + 1)) - 1;
+    private static final int CUBETAS = (MAX_EXPONENTE - BITS_SUBCUBETA + 2) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+
+    /**
+     * Registra una latencia
+     *
+     * @param nanos duración en nanosegundos (los valores fuera de rango se recortan)
+     */
+    public void registrar(long nanos) {
+        cubetas.incrementAndGet(indice(Math.min(Math.max(nanos, 0), MAX_VALOR)));
+    }
+
+    /**
+     * Calcula un percentil
+     *
+     * @param percentil entre 0 y 100 (por ejemplo 99.9)
+     * @return latencia en nanosegundos (punto medio de la cubeta), 0 si no hay muestras
+     */
+    public long percentil(double percentil) {
+        long[] copia = new long[CUBETAS];
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= objetivo) {
+                return (limiteInferior(i) + limiteInferior(i + 1) - 1) / 2;
+            }
+        }
+        return MAX_VALOR;
+    }
+
+    /**
+     * @return cantidad de muestras registradas
+     */
+    public long getCantidad() {
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            total += cubetas.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Pone todas las cubetas en cero (no es atómico respecto de registros concurrentes)
+     */
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int subcubeta = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + subcubeta;
+    }
+
+    static long limiteInferior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = indice / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long subcubeta = indice % SUBCUBETAS;
+        return (1L << exponente) + (subcubeta << (exponente - BITS_SUBCUBETA));
+    }
+}
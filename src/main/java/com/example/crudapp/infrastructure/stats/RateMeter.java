@@ -0,0 +1,75 @@
+package com.example.crudapp.infrastructure.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Medidor de eventos por segundo sobre una ventana deslizante, sin bloqueos
+ *
+ * Guarda un contador por segundo en un arreglo circular marcado con el segundo
+ * al que pertenece; la tasa es el promedio de los últimos segundos completos.
+ * Cuando un segundo nuevo reutiliza una celda puede perderse algún incremento
+ * concurrente con el reinicio, lo que alcanza para métricas operativas.
+ *
+ */
+public final class RateMeter {
+
+    private static final int VENTANA_SEGUNDOS = 60;
+    private static final int CELDAS = VENTANA_SEGUNDOS + 1;
+
+    private final AtomicLongArray conteos = new AtomicLongArray(CELDAS);
+    private final AtomicLongArray marcas = new AtomicLongArray(CELDAS);
+    private final LongAdder total = new LongAdder();
+    private final long segundoInicial = segundoActual();
+
+    public RateMeter() {
+        for (int i = 0; i < CELDAS; i++) {
+            marcas.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Registra un evento
+     */
+    public void registrar() {
+        long segundo = segundoActual();
+        int celda = Math.floorMod(segundo, CELDAS);
+        long marca = marcas.get(celda);
+        if (marca != segundo && marcas.compareAndSet(celda, marca, segundo)) {
+            conteos.set(celda, 0);
+        }
+        conteos.incrementAndGet(celda);
+        total.increment();
+    }
+
+    /**
+     * @return eventos por segundo en el último minuto (o desde el inicio, si pasó menos)
+     */
+    public double tasaPorSegundo() {
+        long segundo = segundoActual();
+        long segundos = Math.min(VENTANA_SEGUNDOS, segundo - segundoInicial);
+        if (segundos <= 0) {
+            return 0;
+        }
+
+        long suma = 0;
+        for (long s = segundo - segundos; s < segundo; s++) {
+            int celda = Math.floorMod(s, CELDAS);
+            if (marcas.get(celda) == s) {
+                suma += conteos.get(celda);
+            }
+        }
+        return (double) suma / segundos;
+    }
+
+    /**
+     * @return eventos registrados desde la creación
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    private static long segundoActual() {
+        return System.nanoTime() / 1_000_000_000L;
+    }
+}
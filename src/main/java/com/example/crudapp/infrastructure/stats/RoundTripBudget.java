@@ -0,0 +1,226 @@
+package com.example.crudapp.infrastructure.stats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cuenta sentencias e idas y vueltas a la base de datos por operación
+ *
+ * Un ámbito se abre en el hilo con la primera transacción de una llamada de
+ * servicio (TransactionManager) o con {@link #medir}; las transacciones
+ * anidadas suman al ámbito más externo. La conexión instrumentada de
+ * StatementStats informa cada ejecución, commit y rollback.
+ *
+ * Al cerrar el ámbito, cada forma de sentencia (la constante SQL, o el texto
+ * normalizado) que se ejecutó al menos {@code stats.n1.umbral} veces (3 por
+ * defecto) es candidata a N+1: una consulta por elemento donde alcanzaría una
+ * sola. En nivel DEBUG se registra con la pila de su segunda ejecución, que
+ * apunta al ciclo que la repite.
+ *
+ * Las pruebas pueden fijar un presupuesto:
+ * <pre>
+ * RoundTripBudget.medir("crearPrestamo", () -> service.crearPrestamo(dto)).verificarMaximo(6);
+ * </pre>
+ *
+ */
+public final class RoundTripBudget {
+    private static final Logger logger = LoggerFactory.getLogger(RoundTripBudget.class);
+
+    private static final int UMBRAL_N_MAS_UNO = Integer.getInteger("stats.n1.umbral", 3);
+
+    private static final ThreadLocal<Ambito> actual = new ThreadLocal<>();
+
+    private RoundTripBudget() {
+    }
+
+    /**
+     * Operación a medir
+     */
+    @FunctionalInterface
+    public interface Operacion {
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Conteo de un ámbito en curso (solo lo usa su hilo)
+     */
+    private static final class Ambito {
+        private final String nombre;
+        private final boolean conContexto = logger.isDebugEnabled();
+        private final Map<String, Integer> repeticiones = new LinkedHashMap<>();
+        private final Map<String, Throwable> contextos = new HashMap<>();
+        private int profundidad = 1;
+        private int sentencias;
+        private int idasYVueltas;
+
+        Ambito(String nombre) {
+            this.nombre = nombre;
+        }
+
+        void registrar(String forma, int cantidad) {
+            sentencias += cantidad;
+            idasYVueltas++;
+            int veces = repeticiones.merge(forma, 1, Integer::sum);
+            if (veces == 2 && conContexto) {
+                contextos.put(forma, new Throwable("Segunda ejecución de " + forma + " en " + nombre));
+            }
+        }
+    }
+
+    /**
+     * Resultado de un ámbito terminado
+     */
+    public static final class Resultado {
+        private final String nombre;
+        private final int sentencias;
+        private final int idasYVueltas;
+        private final Map<String, Integer> repeticiones;
+
+        private Resultado(Ambito ambito) {
+            this.nombre = ambito.nombre;
+            this.sentencias = ambito.sentencias;
+            this.idasYVueltas = ambito.idasYVueltas;
+            this.repeticiones = Collections.unmodifiableMap(ambito.repeticiones);
+        }
+
+        public String getNombre() { return nombre; }
+        public int getSentencias() { return sentencias; }
+        public int getIdasYVueltas() { return idasYVueltas; }
+
+        /**
+         * @return cantidad de ejecuciones por forma de sentencia, en orden de primera ejecución
+         */
+        public Map<String, Integer> getRepeticiones() {
+            return repeticiones;
+        }
+
+        /**
+         * @return formas ejecutadas al menos stats.n1.umbral veces
+         */
+        public List<String> getCandidatosNMasUno() {
+            List<String> candidatos = new ArrayList<>();
+            repeticiones.forEach((forma, veces) -> {
+                if (veces >= UMBRAL_N_MAS_UNO) {
+                    candidatos.add(forma);
+                }
+            });
+            return candidatos;
+        }
+
+        /**
+         * Verifica un presupuesto de idas y vueltas
+         *
+         * @param maximo idas y vueltas permitidas
+         * @return este resultado
+         * @throws IllegalStateException si se excedió el presupuesto
+         */
+        public Resultado verificarMaximo(int maximo) {
+            if (idasYVueltas > maximo) {
+                throw new IllegalStateException(String.format("%s excedió su presupuesto: %d idas y vueltas (máximo %d) %s",
+                        nombre, idasYVueltas, maximo, repeticiones));
+            }
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d sentencias en %d idas y vueltas %s", nombre, sentencias, idasYVueltas,
+                    repeticiones);
+        }
+    }
+
+    /**
+     * Abre un ámbito en el hilo actual, o se suma al que ya está abierto
+     * Cada llamada debe terminar con {@link #cerrar()} en un finally.
+     *
+     * @param nombre nombre de la operación (se evalúa solo si el ámbito es nuevo)
+     */
+    public static void abrir(Supplier<String> nombre) {
+        if (!StatementStats.isHabilitado()) {
+            return;
+        }
+        Ambito ambito = actual.get();
+        if (ambito != null) {
+            ambito.profundidad++;
+        } else {
+            actual.set(new Ambito(nombre.get()));
+        }
+    }
+
+    /**
+     * Cierra el ámbito abierto con {@link #abrir}
+     *
+     * @return resultado si se cerró el ámbito más externo, null si no
+     */
+    public static Resultado cerrar() {
+        Ambito ambito = actual.get();
+        if (ambito == null || --ambito.profundidad > 0) {
+            return null;
+        }
+        actual.remove();
+
+        Resultado resultado = new Resultado(ambito);
+        if (logger.isDebugEnabled()) {
+            for (String forma : resultado.getCandidatosNMasUno()) {
+                logger.debug("Posible N+1 en {}: {} se ejecutó {} veces ({} idas y vueltas en total)", ambito.nombre,
+                        forma, ambito.repeticiones.get(forma), ambito.idasYVueltas, ambito.contextos.get(forma));
+            }
+        }
+        logger.trace("{}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Ejecuta una operación dentro de su propio ámbito y devuelve el conteo
+     * Las transacciones que abra la operación suman a este ámbito.
+     *
+     * @param nombre nombre de la operación
+     * @param operacion operación a medir
+     * @return sentencias e idas y vueltas de la operación
+     * @throws IllegalStateException si el conteo está desactivado (-Dstats.sentencias=false): un
+     *         presupuesto verificado sin conteo pasaría siempre
+     * @throws Exception lo que lance la operación
+     */
+    public static Resultado medir(String nombre, Operacion operacion) throws Exception {
+        if (!StatementStats.isHabilitado()) {
+            throw new IllegalStateException("No se puede medir " + nombre
+                    + ": el conteo de sentencias está desactivado (-Dstats.sentencias=false)");
+        }
+        Ambito anterior = actual.get();
+        actual.remove();
+        Ambito ambito = new Ambito(nombre);
+        actual.set(ambito);
+        try {
+            operacion.ejecutar();
+        } finally {
+            ambito.profundidad = 1;
+            cerrar();
+            if (anterior != null) {
+                actual.set(anterior);
+            }
+        }
+        return new Resultado(ambito);
+    }
+
+    static void registrarSentencia(String forma, int cantidad) {
+        Ambito ambito = actual.get();
+        if (ambito != null) {
+            ambito.registrar(forma, cantidad);
+        }
+    }
+
+    static void registrarIdaYVuelta() {
+        Ambito ambito = actual.get();
+        if (ambito != null) {
+            ambito.idasYVueltas++;
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.crudapp.infrastructure.stats;
+
+import com.example.crudapp.infrastructure.jfr.StatementEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas de ejecución por sentencia SQL, al estilo de pg_stat_statements
+ * pero medidas desde la aplicación
+ *
+ * TransactionManager envuelve cada conexión con {@link #instrumentar(Connection)}:
+ * las sentencias preparadas miden el tiempo de cada ejecución y cuentan las filas
+ * devueltas o afectadas. Cada repositorio registra sus constantes SQL, así las
+ * estadísticas se agrupan por nombre de constante (Libro.SELECT_BY_ID); el SQL
+ * que no está registrado (UPDATE parciales, llamadas armadas en el momento) se
+ * agrupa por su texto. Como ese texto puede llevar literales (los filtros de un
+ * COPY, por ejemplo), solo se guardan {@value #MAXIMO_SIN_REGISTRAR} textos
+ * distintos; los siguientes se suman en una sola entrada de otras sentencias.
+ *
+ * Registrar una ejecución no toma locks: el mapa se consulta una vez al preparar
+ * la sentencia y los contadores son LongAdder y un histograma atómico.
+ *
+ * Cada ejecución también se cuenta en el ámbito de {@link RoundTripBudget} y
+ * emite un {@link StatementEvent} de JFR, que no cuesta nada mientras ninguna
+ * grabación lo habilite.
+ *
+ * Propiedad de sistema: stats.sentencias=false desactiva la instrumentación
+ * (y con ella los eventos de sentencia).
+ */
+public final class StatementStats {
+    private static final Logger logger = LoggerFactory.getLogger(StatementStats.class);
+
+    private static final boolean ACTIVO = !"false".equalsIgnoreCase(System.getProperty("stats.sentencias"));
+    private static final int LARGO_NOMBRE_SQL = 80;
+    private static final int MAXIMO_SIN_REGISTRAR = 1000;
+
+    // SQL -> nombre de la constante que lo declara
+    private static final Map<String, String> nombres = new ConcurrentHashMap<>();
+    // Nombre (o SQL normalizado) -> estadísticas
+    private static final Map<String, Sentencia> sentencias = new ConcurrentHashMap<>();
+    // Textos sin registrar con entrada propia, hasta MAXIMO_SIN_REGISTRAR
+    private static final AtomicInteger sinRegistrar = new AtomicInteger();
+    private static final Sentencia OTRAS = new Sentencia("(otras sentencias sin registrar)", "");
+    static {
+        sentencias.put(OTRAS.getNombre(), OTRAS);
+    }
+
+    private StatementStats() {
+    }
+
+    /**
+     * Estadísticas acumuladas de una sentencia
+     */
+    public static final class Sentencia {
+        private final String nombre;
+        private final String sql;
+        private final LongAdder llamadas = new LongAdder();
+        private final LongAdder filas = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LatencyHistogram histograma = new LatencyHistogram();
+
+        Sentencia(String nombre, String sql) {
+            this.nombre = nombre;
+            this.sql = sql;
+        }
+
+        void registrar(long duracionNanos, long filasAfectadas) {
+            llamadas.increment();
+            nanos.add(duracionNanos);
+            histograma.registrar(duracionNanos);
+            if (filasAfectadas > 0) {
+                filas.add(filasAfectadas);
+            }
+        }
+
+        void agregarFilas(long cantidad) {
+            if (cantidad > 0) {
+                filas.add(cantidad);
+            }
+        }
+
+        public String getNombre() { return nombre; }
+        public String getSql() { return sql; }
+        public long getLlamadas() { return llamadas.sum(); }
+        public long getFilas() { return filas.sum(); }
+        public long getTiempoTotalNanos() { return nanos.sum(); }
+
+        public double getTiempoMedioNanos() {
+            long cantidad = llamadas.sum();
+            return cantidad > 0 ? (double) nanos.sum() / cantidad : 0;
+        }
+
+        /**
+         * @param percentil entre 0 y 100
+         * @return latencia del percentil en nanosegundos
+         */
+        public long percentil(double percentil) {
+            return histograma.percentil(percentil);
+        }
+
+        void reiniciar() {
+            llamadas.reset();
+            filas.reset();
+            nanos.reset();
+            histograma.reiniciar();
+        }
+    }
+
+    /**
+     * Registra las constantes SQL de una clase con el nombre Clase.CONSTANTE
+     * Se consideran los campos static final String cuyo valor empieza con una
+     * palabra clave de SQL. Del nombre de la clase se quita el sufijo RepositoryImpl.
+     *
+     * @param clase clase que declara las sentencias
+     */
+    public static void registrarConstantes(Class<?> clase) {
+        String prefijo = clase.getSimpleName().replace("RepositoryImpl", "");
+        for (Field campo : clase.getDeclaredFields()) {
+            int modificadores = campo.getModifiers();
+            if (campo.getType() != String.class || !Modifier.isStatic(modificadores)
+                    || !Modifier.isFinal(modificadores)) {
+                continue;
+            }
+            try {
+                campo.setAccessible(true);
+                String sql = (String) campo.get(null);
+                if (sql != null && esSql(sql)) {
+                    registrar(prefijo + "." + campo.getName(), sql);
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.debug("No se pudo leer la constante {}.{}: {}", prefijo, campo.getName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registra el nombre con el que se agrupan las ejecuciones de un SQL
+     *
+     * @param nombre nombre a mostrar
+     * @param sql texto exacto de la sentencia
+     */
+    public static void registrar(String nombre, String sql) {
+        nombres.put(sql, nombre);
+    }
+
+    private static boolean esSql(String texto) {
+        String inicio = texto.stripLeading();
+        int fin = 0;
+        while (fin < inicio.length() && Character.isLetter(inicio.charAt(fin))) {
+            fin++;
+        }
+        return switch (inicio.substring(0, fin).toUpperCase(Locale.ROOT)) {
+            case "SELECT", "INSERT", "UPDATE", "DELETE", "WITH", "COPY", "CREATE", "DROP" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Obtiene (o crea) las estadísticas de un SQL
+     *
+     * @param sql texto de la sentencia
+     * @return estadísticas de su constante, o de su texto si no está registrado
+     *         (las compartidas de otras sentencias una vez alcanzado el máximo)
+     */
+    public static Sentencia de(String sql) {
+        String nombre = nombres.get(sql);
+        String clave = nombre != null ? nombre : sql;
+        Sentencia sentencia = sentencias.get(clave);
+        if (sentencia == null) {
+            sentencia = sentencias.computeIfAbsent(clave, c -> {
+                if (nombre != null) {
+                    return new Sentencia(nombre, sql);
+                }
+                int previas = sinRegistrar.getAndUpdate(n -> Math.min(n + 1, MAXIMO_SIN_REGISTRAR));
+                if (previas == MAXIMO_SIN_REGISTRAR - 1) {
+                    logger.warn("Se alcanzaron {} sentencias sin registrar; las nuevas se agrupan en {}",
+                            MAXIMO_SIN_REGISTRAR, OTRAS.getNombre());
+                }
+                // null no agrega la clave al mapa
+                return previas < MAXIMO_SIN_REGISTRAR ? new Sentencia(abreviar(sql), sql) : null;
+            });
+        }
+        return sentencia != null ? sentencia : OTRAS;
+    }
+
+    private static String abreviar(String sql) {
+        String normalizado = sql.strip().replaceAll("\\s+", " ");
+        return normalizado.length() <= LARGO_NOMBRE_SQL ? normalizado
+                : normalizado.substring(0, LARGO_NOMBRE_SQL - 3) + "...";
+    }
+
+    /**
+     * Envuelve una conexión para medir las sentencias que se ejecuten con ella
+     * unwrap sigue devolviendo la conexión del driver (COPY no se mide).
+     *
+     * @param connection conexión del pool
+     * @return conexión instrumentada, o la misma si la instrumentación está desactivada
+     */
+    public static Connection instrumentar(Connection connection) {
+        if (!ACTIVO || connection == null || (Proxy.isProxyClass(connection.getClass())
+                && Proxy.getInvocationHandler(connection) instanceof ConexionInstrumentada)) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(StatementStats.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConexionInstrumentada(connection));
+    }
+
+    /**
+     * @return true si las conexiones se instrumentan (-Dstats.sentencias distinto de false)
+     */
+    public static boolean isHabilitado() {
+        return ACTIVO;
+    }
+
+    /**
+     * Obtiene las estadísticas de todas las sentencias ejecutadas
+     *
+     * @return sentencias ordenadas por tiempo total, de mayor a menor
+     */
+    public static List<Sentencia> obtenerTodas() {
+        List<Sentencia> todas = new ArrayList<>();
+        for (Sentencia sentencia : sentencias.values()) {
+            if (sentencia.getLlamadas() > 0) {
+                todas.add(sentencia);
+            }
+        }
+        todas.sort(Comparator.comparingLong(Sentencia::getTiempoTotalNanos).reversed());
+        return todas;
+    }
+
+    /**
+     * Pone en cero las estadísticas de todas las sentencias
+     */
+    public static void reiniciar() {
+        sentencias.values().forEach(Sentencia::reiniciar);
+    }
+
+    /**
+     * Genera un resumen en texto, una línea por sentencia
+     *
+     * @return reporte de las sentencias ordenadas por tiempo total
+     */
+    public static String reporte() {
+        StringBuilder reporte = new StringBuilder(String.format("%-45s %9s %10s %11s %9s %9s %9s %9s%n",
+                "Sentencia", "Llamadas", "Filas", "Total ms", "Media ms", "p50 ms", "p99 ms", "p999 ms"));
+        for (Sentencia s : obtenerTodas()) {
+            reporte.append(String.format(Locale.ROOT, "%-45s %9d %10d %11.1f %9.3f %9.3f %9.3f %9.3f%n",
+                    s.getNombre().length() > 45 ? s.getNombre().substring(0, 42) + "..." : s.getNombre(),
+                    s.getLlamadas(), s.getFilas(), s.getTiempoTotalNanos() / 1e6, s.getTiempoMedioNanos() / 1e6,
+                    s.percentil(50) / 1e6, s.percentil(99) / 1e6, s.percentil(99.9) / 1e6));
+        }
+        return reporte.toString();
+    }
+
+    private static void emitir(StatementEvent evento, Sentencia sentencia, long filas) {
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.sentencia = sentencia.getNombre();
+            evento.filas = filas;
+            evento.commit();
+        }
+    }
+
+    private static Object invocar(Object destino, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Conexión que devuelve sentencias instrumentadas
+     */
+    private static final class ConexionInstrumentada implements InvocationHandler {
+        private final Connection real;
+
+        ConexionInstrumentada(Connection real) {
+            this.real = real;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement", "prepareCall" -> {
+                    Statement statement = (Statement) invocar(real, method, args);
+                    return envolver(statement, method.getReturnType(), (String) args[0]);
+                }
+                case "createStatement" -> {
+                    return envolver((Statement) invocar(real, method, args), Statement.class, null);
+                }
+                case "commit", "rollback" -> {
+                    RoundTripBudget.registrarIdaYVuelta();
+                    return invocar(real, method, args);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    return invocar(real, method, args);
+                }
+            }
+        }
+
+        private static Object envolver(Statement statement, Class<?> tipo, String sql) {
+            return Proxy.newProxyInstance(StatementStats.class.getClassLoader(), new Class<?>[] { tipo },
+                    new SentenciaInstrumentada(statement, sql));
+        }
+    }
+
+    /**
+     * Sentencia que mide cada ejecución
+     * Con un Statement simple el SQL llega en cada execute, y la sentencia se
+     * resuelve en ese momento.
+     */
+    private static final class SentenciaInstrumentada implements InvocationHandler {
+        private final Statement real;
+        private final String sqlPreparado;
+        private final Sentencia preparada;
+
+        SentenciaInstrumentada(Statement real, String sqlPreparado) {
+            this.real = real;
+            this.sqlPreparado = sqlPreparado;
+            this.preparada = sqlPreparado != null ? de(sqlPreparado) : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            if (!nombre.startsWith("execute")) {
+                return invocar(real, method, args);
+            }
+
+            Sentencia sentencia = preparada;
+            String sql = sqlPreparado;
+            if (sentencia == null) {
+                if (args == null || args.length == 0 || !(args[0] instanceof String texto)) {
+                    return invocar(real, method, args);
+                }
+                sql = texto;
+                sentencia = de(sql);
+            }
+            // Las que caen en OTRAS conservan su forma para que el presupuesto no las confunda con N+1
+            String forma = sentencia == OTRAS ? abreviar(sql) : sentencia.getNombre();
+
+            StatementEvent evento = new StatementEvent();
+            evento.begin();
+            long inicio = System.nanoTime();
+            Object resultado = invocar(real, method, args);
+            long duracion = System.nanoTime() - inicio;
+
+            long filas = 0;
+            int sentencias = 1;
+            switch (nombre) {
+                case "executeQuery" -> {
+                    // Las filas se cuentan a medida que se recorren; el evento termina al cerrar
+                    sentencia.registrar(duracion, 0);
+                    RoundTripBudget.registrarSentencia(forma, 1);
+                    return Proxy.newProxyInstance(StatementStats.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                            new ResultadoContado((ResultSet) resultado, sentencia, evento));
+                }
+                case "executeUpdate", "executeLargeUpdate" -> filas = ((Number) resultado).longValue();
+                case "executeBatch" -> {
+                    sentencias = ((int[]) resultado).length;
+                    for (int cantidad : (int[]) resultado) {
+                        filas += Math.max(cantidad, 0);
+                    }
+                }
+                case "executeLargeBatch" -> {
+                    sentencias = ((long[]) resultado).length;
+                    for (long cantidad : (long[]) resultado) {
+                        filas += Math.max(cantidad, 0);
+                    }
+                }
+                default -> {
+                    // execute: las filas no se conocen sin recorrer los resultados
+                }
+            }
+            sentencia.registrar(duracion, filas);
+            RoundTripBudget.registrarSentencia(forma, sentencias);
+            emitir(evento, sentencia, filas);
+            return resultado;
+        }
+    }
+
+    /**
+     * ResultSet que cuenta las filas leídas y las suma al cerrarse
+     */
+    private static final class ResultadoContado implements InvocationHandler {
+        private final ResultSet real;
+        private final Sentencia sentencia;
+        private final StatementEvent evento;
+        private long filas;
+        private boolean cerrado;
+
+        ResultadoContado(ResultSet real, Sentencia sentencia, StatementEvent evento) {
+            this.real = real;
+            this.sentencia = sentencia;
+            this.evento = evento;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nombre = method.getName();
+            if (nombre.equals("next")) {
+                Boolean hay = (Boolean) invocar(real, method, args);
+                if (hay) {
+                    filas++;
+                }
+                return hay;
+            }
+            if (nombre.equals("close") && !cerrado) {
+                cerrado = true;
+                sentencia.agregarFilas(filas);
+                emitir(evento, sentencia, filas);
+            }
+            return invocar(real, method, args);
+        }
+    }
+}
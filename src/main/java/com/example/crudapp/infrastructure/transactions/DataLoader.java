@@ -0,0 +1,257 @@
+package com.example.crudapp.infrastructure.transactions;
+
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.domain.repositories.LibroRepository;
+import com.example.crudapp.domain.repositories.UsuarioRepository;
+import com.example.crudapp.infrastructure.metrics.TransactionMetrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Cargador por lotes de entidades relacionadas, ligado a una unidad de trabajo
+ * Las cargas se anotan sin tocar la base de datos; al despachar se resuelven
+ * todas las pendientes con una consulta {@code id = ANY(?)} por tipo de entidad.
+ * Los resultados (incluso los IDs inexistentes) quedan memorizados hasta que
+ * termina la operación, así que pedir dos veces la misma entidad no genera
+ * otra consulta.
+ *
+ * No es thread-safe: se crea dentro de la transacción y se descarta con ella.
+ *
+ */
+public class DataLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataLoader.class);
+
+    // Totales de todas las unidades de trabajo, expuestos por JMX
+    private static final TransactionMetrics metricas = TransactionMetrics.getInstance();
+
+    /**
+     * Consulta de un lote de entidades por sus IDs
+     *
+     * @param <T> tipo de la entidad
+     */
+    @FunctionalInterface
+    private interface ConsultaLote<T> {
+        List<T> buscar(Connection connection, Collection<Long> ids) throws SQLException;
+    }
+
+    private final Connection connection;
+    private final Lote<Usuario> usuarios;
+    private final Lote<Libro> libros;
+
+    private int solicitudes;
+    private int aciertos;
+    private int idasYVueltas;
+
+    /**
+     * Constructor del cargador
+     *
+     * @param connection conexión de la unidad de trabajo
+     * @param usuarioRepository repositorio de usuarios
+     * @param libroRepository repositorio de libros
+     */
+    public DataLoader(Connection connection, UsuarioRepository usuarioRepository, LibroRepository libroRepository) {
+        this.connection = connection;
+        this.usuarios = new Lote<>("usuarios", usuarioRepository::findAllById, Usuario::getId);
+        this.libros = new Lote<>("libros", libroRepository::findAllById, Libro::getId);
+    }
+
+    /**
+     * Anota la carga de un usuario
+     *
+     * @param id ID del usuario
+     * @return carga que se resuelve al despachar el lote
+     */
+    public Carga<Usuario> cargarUsuario(Long id) {
+        return usuarios.cargar(id);
+    }
+
+    /**
+     * Anota la carga de un libro
+     *
+     * @param id ID del libro
+     * @return carga que se resuelve al despachar el lote
+     */
+    public Carga<Libro> cargarLibro(Long id) {
+        return libros.cargar(id);
+    }
+
+    /**
+     * Carga varios usuarios de una vez, despachando lo pendiente
+     *
+     * @param ids IDs de los usuarios
+     * @return usuarios encontrados por ID (los inexistentes no aparecen)
+     * @throws SQLException si hay error al consultar
+     */
+    public Map<Long, Usuario> cargarUsuarios(Collection<Long> ids) throws SQLException {
+        return cargarVarios(usuarios, ids);
+    }
+
+    /**
+     * Carga varios libros de una vez, despachando lo pendiente
+     *
+     * @param ids IDs de los libros
+     * @return libros encontrados por ID (los inexistentes no aparecen)
+     * @throws SQLException si hay error al consultar
+     */
+    public Map<Long, Libro> cargarLibros(Collection<Long> ids) throws SQLException {
+        return cargarVarios(libros, ids);
+    }
+
+    /**
+     * Resuelve todas las cargas pendientes: una consulta por tipo de entidad
+     * con IDs sin resolver, ninguna si todo estaba memorizado
+     *
+     * @throws SQLException si hay error al consultar
+     */
+    public void despachar() throws SQLException {
+        usuarios.despachar();
+        libros.despachar();
+    }
+
+    /**
+     * Obtiene la cantidad de cargas solicitadas en esta unidad de trabajo
+     *
+     * @return cargas solicitadas
+     */
+    public int getSolicitudes() {
+        return solicitudes;
+    }
+
+    /**
+     * Obtiene la cantidad de cargas resueltas desde memoria
+     *
+     * @return cargas que no necesitaron ir a la base de datos
+     */
+    public int getAciertos() {
+        return aciertos;
+    }
+
+    /**
+     * Obtiene las idas y vueltas a la base de datos de esta unidad de trabajo
+     *
+     * @return consultas ejecutadas por el cargador
+     */
+    public int getIdasYVueltas() {
+        return idasYVueltas;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DataLoader{solicitudes=%d, aciertos=%d, idasYVueltas=%d}", solicitudes, aciertos,
+                idasYVueltas);
+    }
+
+    private <T> Map<Long, T> cargarVarios(Lote<T> lote, Collection<Long> ids) throws SQLException {
+        List<Carga<T>> cargas = ids.stream().distinct().map(lote::cargar).toList();
+        despachar();
+
+        Map<Long, T> resultado = new HashMap<>();
+        for (Carga<T> carga : cargas) {
+            carga.obtener().ifPresent(entidad -> resultado.put(carga.id, entidad));
+        }
+        return resultado;
+    }
+
+    /**
+     * Carga anotada de una entidad
+     *
+     * @param <T> tipo de la entidad
+     */
+    public static final class Carga<T> {
+        private final Long id;
+        private final Lote<T> lote;
+
+        private Carga(Long id, Lote<T> lote) {
+            this.id = id;
+            this.lote = lote;
+        }
+
+        /**
+         * Obtiene la entidad cargada
+         * Si el lote todavía no se despachó, se despachan todas las cargas pendientes
+         *
+         * @return la entidad, o vacío si no existe
+         * @throws SQLException si hay error al consultar
+         */
+        public Optional<T> obtener() throws SQLException {
+            Optional<T> resultado = lote.memoria.get(id);
+            if (resultado == null) {
+                lote.cargador().despachar();
+                resultado = lote.memoria.get(id);
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Cargas pendientes y resultados memorizados de un tipo de entidad
+     *
+     * @param <T> tipo de la entidad
+     */
+    private final class Lote<T> {
+        private final String nombre;
+        private final ConsultaLote<T> consulta;
+        private final Function<T, Long> id;
+        private final Map<Long, Optional<T>> memoria = new HashMap<>();
+        private final Set<Long> pendientes = new LinkedHashSet<>();
+
+        private Lote(String nombre, ConsultaLote<T> consulta, Function<T, Long> id) {
+            this.nombre = nombre;
+            this.consulta = consulta;
+            this.id = id;
+        }
+
+        private Carga<T> cargar(Long idEntidad) {
+            if (idEntidad == null) {
+                throw new IllegalArgumentException("El ID a cargar no puede ser null");
+            }
+            solicitudes++;
+            metricas.registrarCargaSolicitada();
+            if (memoria.containsKey(idEntidad) || !pendientes.add(idEntidad)) {
+                aciertos++;
+            }
+            return new Carga<>(idEntidad, this);
+        }
+
+        private void despachar() throws SQLException {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+
+            List<Long> ids = List.copyOf(pendientes);
+            idasYVueltas++;
+            metricas.registrarCargaIdaYVuelta();
+
+            // Si la consulta falla las cargas siguen pendientes
+            List<T> encontrados = consulta.buscar(connection, ids);
+            pendientes.clear();
+            for (Long idBuscado : ids) {
+                memoria.put(idBuscado, Optional.empty());
+            }
+            for (T entidad : encontrados) {
+                memoria.put(id.apply(entidad), Optional.of(entidad));
+            }
+
+            logger.debug("Lote de {} despachado: {} IDs en una consulta, {} encontrados", nombre, ids.size(),
+                    encontrados.size());
+        }
+
+        private DataLoader cargador() {
+            return DataLoader.this;
+        }
+    }
+}
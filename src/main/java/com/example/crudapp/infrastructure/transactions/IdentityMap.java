@@ -0,0 +1,253 @@
+package com.example.crudapp.infrastructure.transactions;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Mapa de identidad de una transacción
+ * TransactionManager abre uno por cada conexión que entrega y lo descarta al
+ * terminar la transacción (commit o rollback). Los repositorios lo consultan
+ * antes de buscar por ID o por clave natural y lo actualizan al escribir, así
+ * que una misma fila se lee de la base de datos a lo sumo una vez por
+ * transacción y todos los que la piden reciben la misma instancia.
+ *
+ * Las conexiones obtenidas fuera de TransactionManager no tienen mapa y los
+ * repositorios van directo a la base de datos.
+ *
+ * No es thread-safe: una transacción se ejecuta en un solo hilo.
+ *
+ */
+public final class IdentityMap {
+
+    private static final Map<Connection, IdentityMap> abiertos = new ConcurrentHashMap<>();
+
+    /**
+     * Tipo de entidad guardado en el mapa, con su ID y su clave natural
+     *
+     * @param <T> tipo de la entidad
+     */
+    public static final class Tipo<T> {
+        private final String nombre;
+        private final Function<T, Long> id;
+        private final Function<T, ?> claveNatural;
+
+        /**
+         * Constructor del tipo
+         *
+         * @param nombre nombre para los mensajes de log
+         * @param id obtiene el ID de la entidad
+         * @param claveNatural obtiene la clave natural única (email, ISBN), o null si no tiene
+         */
+        public Tipo(String nombre, Function<T, Long> id, Function<T, ?> claveNatural) {
+            this.nombre = nombre;
+            this.id = id;
+            this.claveNatural = claveNatural;
+        }
+
+        @Override
+        public String toString() {
+            return nombre;
+        }
+    }
+
+    /**
+     * Entidades conocidas de un tipo: por ID (vacío si se sabe que no existe)
+     * y el ID de cada clave natural (vacío si se sabe que nadie la usa)
+     */
+    private static final class Registro<T> {
+        private final Map<Long, Optional<T>> porId = new HashMap<>();
+        private final Map<Object, Optional<Long>> porClave = new HashMap<>();
+    }
+
+    private final Map<Tipo<?>, Registro<?>> registros = new HashMap<>();
+    private int aciertos;
+    private int fallos;
+
+    private IdentityMap() {
+    }
+
+    /**
+     * Abre el mapa de una conexión recién obtenida
+     *
+     * @param connection conexión de la transacción
+     * @return el mapa abierto
+     */
+    static IdentityMap abrir(Connection connection) {
+        IdentityMap mapa = new IdentityMap();
+        abiertos.put(connection, mapa);
+        return mapa;
+    }
+
+    /**
+     * Descarta el mapa de una conexión
+     *
+     * @param connection conexión de la transacción
+     * @return el mapa descartado, o null si no había
+     */
+    static IdentityMap cerrar(Connection connection) {
+        return abiertos.remove(connection);
+    }
+
+    /**
+     * Obtiene el mapa de la transacción de una conexión
+     *
+     * @param connection conexión de la transacción
+     * @return el mapa, o null si la conexión no es de TransactionManager
+     */
+    public static IdentityMap de(Connection connection) {
+        return connection != null ? abiertos.get(connection) : null;
+    }
+
+    /**
+     * Busca una entidad por ID
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     * @param id ID buscado
+     * @return la entidad o vacío si se sabe que no existe; null si el mapa no la conoce
+     */
+    public <T> Optional<T> buscar(Tipo<T> tipo, Long id) {
+        Optional<T> conocida = registro(tipo).porId.get(id);
+        contar(conocida != null);
+        return conocida;
+    }
+
+    /**
+     * Busca una entidad por su clave natural
+     * Si la entidad cambió de clave después de registrarse, la clave vieja ya no la encuentra
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     * @param clave valor de la clave natural
+     * @return la entidad o vacío si se sabe que nadie usa la clave; null si el mapa no lo sabe
+     */
+    public <T> Optional<T> buscarPorClave(Tipo<T> tipo, Object clave) {
+        Registro<T> registro = registro(tipo);
+        Optional<Long> id = registro.porClave.get(clave);
+        Optional<T> conocida = null;
+        if (id != null && id.isEmpty()) {
+            conocida = Optional.empty();
+        } else if (id != null) {
+            Optional<T> entidad = registro.porId.get(id.get());
+            if (entidad != null && entidad.isPresent() && clave.equals(tipo.claveNatural.apply(entidad.get()))) {
+                conocida = entidad;
+            }
+        }
+        contar(conocida != null);
+        return conocida;
+    }
+
+    /**
+     * Registra una entidad leída o escrita en la transacción
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     * @param entidad entidad con su ID asignado
+     */
+    public <T> void registrar(Tipo<T> tipo, T entidad) {
+        Registro<T> registro = registro(tipo);
+        Long id = tipo.id.apply(entidad);
+        registro.porId.put(id, Optional.of(entidad));
+        if (tipo.claveNatural != null) {
+            Object clave = tipo.claveNatural.apply(entidad);
+            if (clave != null) {
+                registro.porClave.put(clave, Optional.of(id));
+            }
+        }
+    }
+
+    /**
+     * Registra una entidad recién leída y devuelve la instancia de la transacción
+     * Si el mapa ya tenía la entidad con ese ID (por ejemplo, leída antes por ID
+     * y ahora buscada por otra clave), se conserva la instancia existente
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     * @param leida entidad leída de la base de datos
+     * @return la instancia que ya tenía la transacción, o la leída
+     */
+    public <T> T unificar(Tipo<T> tipo, T leida) {
+        Optional<T> existente = registro(tipo).porId.get(tipo.id.apply(leida));
+        T entidad = existente != null && existente.isPresent() ? existente.get() : leida;
+        registrar(tipo, entidad);
+        return entidad;
+    }
+
+    /**
+     * Registra que no existe una entidad con el ID dado (búsqueda sin resultado o borrado)
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     * @param id ID inexistente
+     */
+    public <T> void registrarAusente(Tipo<T> tipo, Long id) {
+        registro(tipo).porId.put(id, Optional.empty());
+    }
+
+    /**
+     * Registra que ninguna entidad usa la clave natural dada
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     * @param clave valor de la clave natural
+     */
+    public <T> void registrarClaveAusente(Tipo<T> tipo, Object clave) {
+        registro(tipo).porClave.put(clave, Optional.empty());
+    }
+
+    /**
+     * Olvida una entidad modificada por una sentencia que no devuelve la fila
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     * @param id ID de la entidad
+     */
+    public <T> void olvidar(Tipo<T> tipo, Long id) {
+        registro(tipo).porId.remove(id);
+    }
+
+    /**
+     * Olvida todas las entidades de un tipo, tras una escritura masiva
+     *
+     * @param <T> tipo de la entidad
+     * @param tipo tipo de la entidad
+     */
+    public <T> void olvidarTodos(Tipo<T> tipo) {
+        registros.remove(tipo);
+    }
+
+    /**
+     * Obtiene las búsquedas resueltas sin ir a la base de datos
+     *
+     * @return aciertos del mapa
+     */
+    public int getAciertos() {
+        return aciertos;
+    }
+
+    /**
+     * Obtiene las búsquedas que el mapa no pudo resolver
+     *
+     * @return fallos del mapa
+     */
+    public int getFallos() {
+        return fallos;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Registro<T> registro(Tipo<T> tipo) {
+        return (Registro<T>) registros.computeIfAbsent(tipo, t -> new Registro<>());
+    }
+
+    private void contar(boolean acierto) {
+        if (acierto) {
+            aciertos++;
+        } else {
+            fallos++;
+        }
+    }
+}
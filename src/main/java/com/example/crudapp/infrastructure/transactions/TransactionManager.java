@@ -4,10 +4,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.example.crudapp.infrastructure.database.Database;
+import com.example.crudapp.infrastructure.jfr.TransactionEvent;
+import com.example.crudapp.infrastructure.metrics.ServiceMetrics;
+import com.example.crudapp.infrastructure.metrics.TransactionMetrics;
+import com.example.crudapp.infrastructure.stats.RoundTripBudget;
+import com.example.crudapp.infrastructure.stats.StatementStats;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Gestor de transacciones ACID
@@ -16,7 +24,12 @@ import java.util.List;
  */
 public class TransactionManager {
     private static final Logger logger = LoggerFactory.getLogger(TransactionManager.class);
+
+    // Acciones a ejecutar después del commit, por transacción en curso
+    private static final Map<Connection, List<Runnable>> alConfirmar = new ConcurrentHashMap<>();
+
     private final Database database;
+    private final TransactionMetrics metricas = TransactionMetrics.getInstance();
     
     public TransactionManager(Database database) {
         this.database = database;
@@ -39,8 +52,22 @@ public class TransactionManager {
         }
 
         Connection connection = null;  // Va a afuera del try para poder hacer rollback en caso de error
+        ServiceMetrics.Metodo metodo = ServiceMetrics.llamador();
+        // Las transacciones anidadas suman al conteo de idas y vueltas de la más externa
+        RoundTripBudget.abrir(() -> metodo != null ? metodo.getNombre() : ServiceMetrics.nombreLlamador());
+        TransactionEvent evento = new TransactionEvent();
+        evento.begin();
+        long inicio = System.nanoTime();
+        boolean confirmada = false;
+        Exception error = null;
+        List<Runnable> posteriores = null;
         try {
-            connection = database.getConnection(); // La obtiene del pool de conexiones (Hikaru)
+            // La obtiene del pool de conexiones (Hikaru), instrumentada para las estadísticas por sentencia
+            connection = StatementStats.instrumentar(database.getConnection());
+            evento.esperaConexion = System.nanoTime() - inicio;
+            metricas.registrarEsperaConexion(evento.esperaConexion);
+            IdentityMap.abrir(connection); // Filas ya leídas o escritas en esta transacción
+            alConfirmar.put(connection, new ArrayList<>());
             // Esto ya esta preconfigurado en el pool de conexiones
             // connection.setAutoCommit(false);
             // connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
@@ -50,13 +77,18 @@ public class TransactionManager {
             // Ejecutar la operación dentro de la transacción
             T result = operation.apply(connection);
             connection.commit();
+            confirmada = true;
+            metricas.registrarConfirmada(System.nanoTime() - inicio);
             logger.debug("Transacción confirmada exitosamente");
+            posteriores = alConfirmar.remove(connection);
             
             return result;
             
         } catch (SQLException e) {
+            error = e;
             // Rollback en caso de error
             if (connection != null) {
+                metricas.registrarRevertida(System.nanoTime() - inicio, e);
                 try {
                     connection.rollback();
                     logger.warn("Transacción revertida debido a error: {} class: {}", e.getMessage(), e.getClass().getName());
@@ -67,8 +99,10 @@ public class TransactionManager {
             }
             throw e;
         } catch (Exception e) {
+            error = e;
             // Rollback para excepciones no SQL
             if (connection != null) {
+                metricas.registrarRevertida(System.nanoTime() - inicio, e);
                 try {
                     connection.rollback();
                     logger.warn("Transacción revertida debido a error no SQL: {}", e.getMessage());
@@ -78,14 +112,70 @@ public class TransactionManager {
             }
             throw new SQLException("Error en transacción: " + e.getMessage(), e);
         } finally {
+            if (metodo != null) {
+                metodo.registrar(System.nanoTime() - inicio, confirmada);
+            }
+            emitirEvento(evento, metodo, confirmada, error);
             // Cerrar conexión
             if (connection != null) {
+                alConfirmar.remove(connection);
+                IdentityMap mapa = IdentityMap.cerrar(connection);
+                if (mapa != null && mapa.getAciertos() > 0) {
+                    logger.debug("Mapa de identidad: {} lecturas evitadas, {} a la base de datos", mapa.getAciertos(),
+                            mapa.getFallos());
+                }
                 try {
                     connection.close();
                 } catch (SQLException e) {
                     logger.error("Error al cerrar conexión", e);
                 }
             }
+            RoundTripBudget.cerrar();
+            // Después de devolver la conexión: una acción que se bloquea (la auditoría con la cola
+            // llena y política BLOQUEAR) no retiene una conexión que su consumidor necesita del pool
+            ejecutarAlConfirmar(posteriores);
+        }
+    }
+    
+    private static void emitirEvento(TransactionEvent evento, ServiceMetrics.Metodo metodo, boolean confirmada,
+            Exception error) {
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.operacion = metodo != null ? metodo.getNombre() : ServiceMetrics.nombreLlamador();
+            evento.confirmada = confirmada;
+            evento.error = error != null ? error.getMessage() : null;
+            evento.commit();
+        }
+    }
+
+    /**
+     * Registra una acción para ejecutar cuando la transacción de la conexión confirme
+     * Si la transacción se revierte la acción se descarta. Con una conexión que no
+     * pertenece a una transacción de este gestor, la acción se ejecuta enseguida.
+     * 
+     * @param connection conexión de la transacción en curso
+     * @param accion acción a ejecutar después del commit (no debe lanzar excepciones)
+     */
+    public static void alConfirmar(Connection connection, Runnable accion) {
+        List<Runnable> acciones = alConfirmar.get(connection);
+        if (acciones == null) {
+            accion.run();
+        } else {
+            acciones.add(accion);
+        }
+    }
+
+    private static void ejecutarAlConfirmar(List<Runnable> acciones) {
+        if (acciones == null) {
+            return;
+        }
+        for (Runnable accion : acciones) {
+            try {
+                accion.run();
+            } catch (RuntimeException e) {
+                // La transacción ya está confirmada: un error aquí no debe informarse como fallo
+                logger.error("Error en acción posterior al commit", e);
+            }
         }
     }
     
@@ -4,6 +4,8 @@ import com.example.crudapp.Main.ApplicationContext;
 import com.example.crudapp.presentation.console.handlers.UsuarioMenuHandler;
 import com.example.crudapp.presentation.console.handlers.LibroMenuHandler;
 import com.example.crudapp.presentation.console.handlers.PrestamoMenuHandler;
+import com.example.crudapp.presentation.console.handlers.ExportMenuHandler;
+import com.example.crudapp.presentation.console.handlers.DiagnosticoMenuHandler;
 import com.example.crudapp.presentation.utils.InputValidator;
 
 import org.slf4j.Logger;
@@ -28,6 +30,8 @@ public class ConsoleUI {
     private final UsuarioMenuHandler usuarioMenuHandler;
     private final LibroMenuHandler libroMenuHandler;
     private final PrestamoMenuHandler prestamoMenuHandler;
+    private final ExportMenuHandler exportMenuHandler;
+    private final DiagnosticoMenuHandler diagnosticoMenuHandler;
     
     /**
      * Constructor de la interfaz de consola
@@ -41,13 +45,15 @@ public class ConsoleUI {
         
         // Inicializar handlers
         this.usuarioMenuHandler = new UsuarioMenuHandler(context.getUsuarioService(), inputValidator);
-        this.libroMenuHandler = new LibroMenuHandler(context.getLibroService(), inputValidator);
+        this.libroMenuHandler = new LibroMenuHandler(context.getLibroService(), context.getLibroImportService(), inputValidator);
         this.prestamoMenuHandler = new PrestamoMenuHandler(
             context.getPrestamoService(),
             context.getUsuarioService(),
             context.getLibroService(),
             inputValidator
         );
+        this.exportMenuHandler = new ExportMenuHandler(context.getTableExporter(), inputValidator);
+        this.diagnosticoMenuHandler = new DiagnosticoMenuHandler(inputValidator);
         
         logger.info("ConsoleUI inicializada correctamente");
     }
@@ -84,7 +90,7 @@ public class ConsoleUI {
         while (continuar) {
             mostrarMenuPrincipal();
             
-            int opcion = inputValidator.leerEntero("Seleccione una opción: ", 1, 4);
+            int opcion = inputValidator.leerEntero("Seleccione una opción: ", 1, 6);
             
             continuar = procesarOpcionMenuPrincipal(opcion);
         }
@@ -101,7 +107,9 @@ public class ConsoleUI {
         System.out.println("1. Gestión de Usuarios");
         System.out.println("2. Gestión de Libros");
         System.out.println("3. Gestión de Préstamos");
-        System.out.println("4. Salir");
+        System.out.println("4. Exportar Datos");
+        System.out.println("5. Diagnóstico");
+        System.out.println("6. Salir");
         System.out.println("============================");
     }
     
@@ -129,6 +137,16 @@ public class ConsoleUI {
                 yield true;
             }
             case 4 -> {
+                logger.debug("Accediendo a exportación de datos");
+                exportMenuHandler.mostrarMenu();
+                yield true;
+            }
+            case 5 -> {
+                logger.debug("Accediendo a diagnóstico");
+                diagnosticoMenuHandler.mostrarMenu();
+                yield true;
+            }
+            case 6 -> {
                 logger.info("Usuario solicitó salir del sistema");
                 yield false;
             }
@@ -0,0 +1,129 @@
+package com.example.crudapp.presentation.console.handlers;
+
+import com.example.crudapp.infrastructure.stats.StatementStats;
+import com.example.crudapp.infrastructure.stats.StatementStats.Sentencia;
+import com.example.crudapp.presentation.utils.InputValidator;
+import com.example.crudapp.presentation.utils.TableFormatter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Handler para el menú de diagnóstico
+ * Muestra las estadísticas por sentencia SQL medidas del lado del cliente
+ *
+ */
+public class DiagnosticoMenuHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagnosticoMenuHandler.class);
+
+    private static final String[] ENCABEZADOS = {
+        "Sentencia", "Llamadas", "Filas", "Total ms", "Media ms", "p50 ms", "p99 ms", "p999 ms"
+    };
+    private static final int[] ANCHOS = { 42, 10, 10, 11, 10, 10, 10, 10 };
+
+    private final InputValidator inputValidator;
+    private final TableFormatter tableFormatter;
+
+    /**
+     * Constructor del handler de diagnóstico
+     *
+     * @param inputValidator validador de entrada
+     */
+    public DiagnosticoMenuHandler(InputValidator inputValidator) {
+        this.inputValidator = inputValidator;
+        this.tableFormatter = new TableFormatter();
+    }
+
+    /**
+     * Muestra el menú de diagnóstico
+     */
+    public void mostrarMenu() {
+        boolean continuar = true;
+
+        while (continuar) {
+            mostrarOpcionesMenu();
+
+            int opcion = inputValidator.leerEntero("Seleccione una opción: ", 1, 3);
+
+            continuar = procesarOpcionMenu(opcion);
+        }
+    }
+
+    /**
+     * Muestra las opciones del menú de diagnóstico
+     */
+    private void mostrarOpcionesMenu() {
+        System.out.println("\n====== DIAGNÓSTICO ======");
+        System.out.println("1. Estadísticas de sentencias");
+        System.out.println("2. Reiniciar estadísticas");
+        System.out.println("3. Volver al Menú Principal");
+        System.out.println("=========================");
+    }
+
+    /**
+     * Procesa la opción seleccionada del menú
+     *
+     * @param opcion opción seleccionada
+     * @return true si debe continuar, false si debe volver al menú principal
+     */
+    private boolean procesarOpcionMenu(int opcion) {
+        return switch (opcion) {
+            case 1 -> {
+                mostrarEstadisticas();
+                yield true;
+            }
+            case 2 -> {
+                StatementStats.reiniciar();
+                logger.info("Estadísticas de sentencias reiniciadas");
+                System.out.println("✓ Estadísticas reiniciadas");
+                yield true;
+            }
+            case 3 -> {
+                logger.debug("Regresando al menú principal desde diagnóstico");
+                yield false;
+            }
+            default -> {
+                System.out.println("Opción no válida. Intente nuevamente.");
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * Muestra las sentencias ejecutadas, ordenadas por tiempo total
+     */
+    private void mostrarEstadisticas() {
+        if (!StatementStats.isHabilitado()) {
+            System.out.println("Las estadísticas de sentencias están deshabilitadas (-Dstats.sentencias=false).");
+            return;
+        }
+
+        List<Sentencia> sentencias = StatementStats.obtenerTodas();
+        String[][] filas = new String[sentencias.size()][];
+
+        for (int i = 0; i < sentencias.size(); i++) {
+            Sentencia s = sentencias.get(i);
+            filas[i] = new String[] {
+                s.getNombre(),
+                String.valueOf(s.getLlamadas()),
+                String.valueOf(s.getFilas()),
+                milisegundos(s.getTiempoTotalNanos(), 1),
+                milisegundos((long) s.getTiempoMedioNanos(), 3),
+                milisegundos(s.percentil(50), 3),
+                milisegundos(s.percentil(99), 3),
+                milisegundos(s.percentil(99.9), 3)
+            };
+        }
+
+        System.out.println("\n--- ESTADÍSTICAS DE SENTENCIAS ---");
+        tableFormatter.mostrarTablaGenerica(ENCABEZADOS, filas, ANCHOS);
+    }
+
+    private String milisegundos(long nanos, int decimales) {
+        return String.format(Locale.ROOT, "%." + decimales + "f", nanos / 1e6);
+    }
+}
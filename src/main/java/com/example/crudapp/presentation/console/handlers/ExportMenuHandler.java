@@ -0,0 +1,151 @@
+package com.example.crudapp.presentation.console.handlers;
+
+import com.example.crudapp.infrastructure.export.TableExporter;
+import com.example.crudapp.infrastructure.export.TableExporter.ExportResult;
+import com.example.crudapp.infrastructure.export.TableExporter.Formato;
+import com.example.crudapp.infrastructure.export.TableExporter.Tabla;
+import com.example.crudapp.presentation.utils.InputValidator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Handler para el menú de exportación de datos
+ * Exporta usuarios, libros o préstamos a archivos CSV o JSON
+ *
+ */
+public class ExportMenuHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportMenuHandler.class);
+
+    private final TableExporter tableExporter;
+    private final InputValidator inputValidator;
+
+    /**
+     * Constructor del handler de exportación
+     *
+     * @param tableExporter exportador de tablas
+     * @param inputValidator validador de entrada
+     */
+    public ExportMenuHandler(TableExporter tableExporter, InputValidator inputValidator) {
+        this.tableExporter = tableExporter;
+        this.inputValidator = inputValidator;
+    }
+
+    /**
+     * Muestra el menú de exportación
+     */
+    public void mostrarMenu() {
+        boolean continuar = true;
+
+        while (continuar) {
+            mostrarOpcionesMenu();
+
+            int opcion = inputValidator.leerEntero("Seleccione una opción: ", 1, 4);
+
+            continuar = procesarOpcionMenu(opcion);
+        }
+    }
+
+    /**
+     * Muestra las opciones del menú de exportación
+     */
+    private void mostrarOpcionesMenu() {
+        System.out.println("\n===== EXPORTAR DATOS =====");
+        System.out.println("1. Exportar Usuarios");
+        System.out.println("2. Exportar Libros");
+        System.out.println("3. Exportar Préstamos");
+        System.out.println("4. Volver al Menú Principal");
+        System.out.println("==========================");
+    }
+
+    /**
+     * Procesa la opción seleccionada del menú
+     *
+     * @param opcion opción seleccionada
+     * @return true si debe continuar, false si debe volver al menú principal
+     */
+    private boolean procesarOpcionMenu(int opcion) {
+        try {
+            return switch (opcion) {
+                case 1 -> {
+                    exportar(Tabla.USUARIOS);
+                    yield true;
+                }
+                case 2 -> {
+                    exportar(Tabla.LIBROS);
+                    yield true;
+                }
+                case 3 -> {
+                    exportar(Tabla.PRESTAMOS);
+                    yield true;
+                }
+                case 4 -> {
+                    logger.debug("Regresando al menú principal desde exportación");
+                    yield false;
+                }
+                default -> {
+                    System.out.println("Opción no válida. Intente nuevamente.");
+                    yield true;
+                }
+            };
+        } catch (SQLException e) {
+            logger.error("Error de base de datos en exportación: {}", e.getMessage());
+            System.err.println("Error de base de datos: " + e.getMessage());
+            return true;
+        } catch (Exception e) {
+            logger.error("Error inesperado en exportación: {}", e.getMessage(), e);
+            System.err.println("Error inesperado: " + e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Solicita las opciones de exportación y exporta la tabla
+     *
+     * @param tabla tabla a exportar
+     * @throws SQLException si hay error en la base de datos
+     */
+    private void exportar(Tabla tabla) throws SQLException {
+        System.out.println("\n--- EXPORTAR " + tabla + " ---");
+
+        int opcionFormato = inputValidator.leerEntero("Formato (1 = CSV, 2 = JSON): ", 1, 2);
+        Formato formato = opcionFormato == 1 ? Formato.CSV : Formato.JSON;
+        boolean gzip = inputValidator.leerSiNo("¿Comprimir con gzip?");
+
+        String estado = null;
+        LocalDate desde = null;
+        LocalDate hasta = null;
+
+        if (tabla == Tabla.PRESTAMOS) {
+            String estadoIngresado = inputValidator.leerCadenaOpcional("Estado (ACTIVO/DEVUELTO/VENCIDO, Enter para todos): ");
+            if (!estadoIngresado.isEmpty()) {
+                estado = estadoIngresado.toUpperCase();
+            }
+
+            if (inputValidator.leerSiNo("¿Filtrar por rango de fecha de préstamo?")) {
+                desde = inputValidator.leerFecha("Fecha desde");
+                hasta = inputValidator.leerFecha("Fecha hasta");
+            }
+        }
+
+        String extension = (formato == Formato.CSV ? ".csv" : ".json") + (gzip ? ".gz" : "");
+        String nombrePorDefecto = tabla.name().toLowerCase() + extension;
+        String archivo = inputValidator.leerCadenaOpcional("Archivo de salida (" + nombrePorDefecto + "): ");
+        if (archivo.isEmpty()) archivo = nombrePorDefecto;
+
+        try {
+            System.out.println("Exportando...");
+            ExportResult resultado = tableExporter.exportar(tabla, formato, estado, desde, hasta, Path.of(archivo), gzip);
+            System.out.println("  Exportación completada: " + archivo);
+            System.out.println("  " + resultado);
+
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: " + e.getMessage());
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.example.crudapp.presentation.console.handlers;
 
+import com.example.crudapp.application.services.LibroImportService;
+import com.example.crudapp.application.services.LibroImportService.ImportResult;
 import com.example.crudapp.application.services.LibroService;
 import com.example.crudapp.application.dto.LibroDTO;
 import com.example.crudapp.domain.entities.Libro;
 import com.example.crudapp.presentation.utils.InputValidator;
 import com.example.crudapp.presentation.utils.TableFormatter;
+import com.example.crudapp.presentation.utils.TablePager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
@@ -23,6 +29,7 @@ public class LibroMenuHandler {
     private static final Logger logger = LoggerFactory.getLogger(LibroMenuHandler.class);
     
     private final LibroService libroService;
+    private final LibroImportService libroImportService;
     private final InputValidator inputValidator;
     private final TableFormatter tableFormatter;
     
@@ -30,11 +37,12 @@ public class LibroMenuHandler {
      * Constructor del handler de libros
      * 
      * @param libroService servicio de libros
-     * @param scanner scanner para entrada de usuario
+     * @param libroImportService servicio de importación de catálogos
      * @param inputValidator validador de entrada
      */
-    public LibroMenuHandler(LibroService libroService, InputValidator inputValidator) {
+    public LibroMenuHandler(LibroService libroService, LibroImportService libroImportService, InputValidator inputValidator) {
         this.libroService = libroService;
+        this.libroImportService = libroImportService;
         this.inputValidator = inputValidator;
         this.tableFormatter = new TableFormatter();
     }
@@ -48,7 +56,7 @@ public class LibroMenuHandler {
         while (continuar) {
             mostrarOpcionesMenu();
             
-            int opcion = inputValidator.leerEntero("Seleccione una opción: ", 1, 9);
+            int opcion = inputValidator.leerEntero("Seleccione una opción: ", 1, 10);
             
             continuar = procesarOpcionMenu(opcion);
         }
@@ -67,7 +75,8 @@ public class LibroMenuHandler {
         System.out.println("6. Buscar por Autor");
         System.out.println("7. Actualizar Libro");
         System.out.println("8. Eliminar Libro");
-        System.out.println("9. Volver al Menú Principal");
+        System.out.println("9. Importar Catálogo CSV");
+        System.out.println("10. Volver al Menú Principal");
         System.out.println("=============================");
     }
     
@@ -113,6 +122,10 @@ public class LibroMenuHandler {
                     yield true;
                 }
                 case 9 -> {
+                    importarCatalogo();
+                    yield true;
+                }
+                case 10 -> {
                     logger.debug("Regresando al menú principal desde libros");
                     yield false;
                 }
@@ -166,15 +179,9 @@ public class LibroMenuHandler {
     private void listarLibros() throws SQLException {
         System.out.println("\n--- LISTA DE LIBROS ---");
         
-        List<Libro> libros = libroService.obtenerTodos();
-        
-        if (libros.isEmpty()) {
-            System.out.println("No hay libros registrados.");
-            return;
-        }
-        
-        System.out.println(String.format("Se encontraron %d libros:", libros.size()));
-        tableFormatter.mostrarTablaLibros(libros);
+        TablePager<Libro> pager = new TablePager<>(libroService::obtenerPagina, tableFormatter::mostrarTablaLibros,
+                libro -> libro.getId(), inputValidator);
+        pager.mostrar("No hay libros registrados.");
     }
     
     /**
@@ -341,6 +348,35 @@ public class LibroMenuHandler {
         }
     }
     
+    /**
+     * Importa un catálogo de libros desde un archivo CSV
+     *
+     * @throws IOException si no se puede leer el archivo o escribir los rechazos
+     */
+    private void importarCatalogo() throws IOException {
+        System.out.println("\n--- IMPORTAR CATÁLOGO CSV ---");
+        System.out.println("Formato: titulo,autor,isbn,genero,año_publicacion");
+
+        Path archivo = Path.of(inputValidator.leerCadenaNoVacia("Archivo CSV: "));
+
+        if (!Files.isRegularFile(archivo)) {
+            System.out.println("❌ No se encontró el archivo: " + archivo);
+            return;
+        }
+
+        Path rechazos = Path.of(archivo + ".rechazos");
+
+        System.out.println("Importando...");
+        ImportResult resultado = libroImportService.importar(archivo, rechazos,
+                progreso -> System.out.println("  " + progreso));
+
+        System.out.println("  Importación completada:");
+        System.out.println("  " + resultado);
+        if (resultado.getFilasRechazadas() + resultado.getFilasDuplicadas() > 0) {
+            System.out.println("  Filas rechazadas en: " + rechazos);
+        }
+    }
+
     /**
      * Muestra los detalles de un libro
      * 
@@ -9,13 +9,13 @@ import com.example.crudapp.domain.entities.Usuario;
 import com.example.crudapp.domain.entities.Libro;
 import com.example.crudapp.presentation.utils.InputValidator;
 import com.example.crudapp.presentation.utils.TableFormatter;
+import com.example.crudapp.presentation.utils.TablePager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -198,6 +198,9 @@ public class PrestamoMenuHandler {
         
         try {
             Prestamo prestamo = prestamoService.crearPrestamo(prestamoDTO);
+            // Usuario y libro ya se leyeron arriba: no hace falta volver a consultarlos
+            prestamo.setUsuario(usuario.get());
+            prestamo.setLibro(libro.get());
             System.out.println("  Préstamo creado exitosamente:");
             mostrarPrestamo(prestamo);
             
@@ -214,15 +217,9 @@ public class PrestamoMenuHandler {
     private void listarPrestamos() throws SQLException {
         System.out.println("\n--- LISTA DE PRÉSTAMOS ---");
         
-        List<Prestamo> prestamos = prestamoService.obtenerTodos();
-        
-        if (prestamos.isEmpty()) {
-            System.out.println("No hay préstamos registrados.");
-            return;
-        }
-        
-        System.out.println(String.format("Se encontraron %d préstamos:", prestamos.size()));
-        tableFormatter.mostrarTablaPrestamos(prestamos);
+        TablePager<Prestamo> pager = new TablePager<>(prestamoService::obtenerPaginaConDetalles, tableFormatter::mostrarTablaPrestamos,
+                prestamo -> prestamo.getId(), inputValidator);
+        pager.mostrar("No hay préstamos registrados.");
     }
     
     /**
@@ -235,7 +232,7 @@ public class PrestamoMenuHandler {
         
         Long id = inputValidator.leerLong("ID del préstamo: ");
         
-        Optional<Prestamo> prestamo = prestamoService.buscarPorId(id);
+        Optional<Prestamo> prestamo = prestamoService.buscarDetallePorId(id);
         
         if (prestamo.isPresent()) {
             System.out.println("  Préstamo encontrado:");
@@ -255,21 +252,19 @@ public class PrestamoMenuHandler {
         
         Long usuarioId = inputValidator.leerLong("ID del usuario: ");
         
-        Optional<Usuario> usuario = usuarioService.buscarPorId(usuarioId);
-        if (usuario.isEmpty()) {
-            System.out.println("❌ No se encontró un usuario con ID: " + usuarioId);
-            return;
-        }
-        
-        System.out.println("Usuario: " + usuario.get().getNombre());
-        
-        List<Prestamo> prestamos = prestamoService.obtenerPrestamosActivosUsuario(usuarioId);
-        
-        if (prestamos.isEmpty()) {
-            System.out.println("El usuario no tiene préstamos activos.");
-        } else {
-            System.out.println(String.format("Préstamos activos (%d):", prestamos.size()));
-            tableFormatter.mostrarTablaPrestamos(prestamos);
+        // El nombre del usuario viene en cada fila del join; solo si no hay
+        // préstamos activos se consulta aparte para distinguir un usuario inexistente
+        TablePager<Prestamo> pager = new TablePager<>(
+                (despuesDeId, tamaño) -> prestamoService.obtenerPaginaConDetallesUsuario(usuarioId, "ACTIVO",
+                        despuesDeId, tamaño),
+                tableFormatter::mostrarTablaPrestamos, prestamo -> prestamo.getId(), inputValidator);
+        if (!pager.mostrar()) {
+            Optional<Usuario> usuario = usuarioService.buscarPorId(usuarioId);
+            if (usuario.isEmpty()) {
+                System.out.println("❌ No se encontró un usuario con ID: " + usuarioId);
+            } else {
+                System.out.println("El usuario " + usuario.get().getNombre() + " no tiene préstamos activos.");
+            }
         }
     }
     
@@ -281,14 +276,9 @@ public class PrestamoMenuHandler {
     private void listarPrestamosVencidos() throws SQLException {
         System.out.println("\n--- PRÉSTAMOS VENCIDOS ---");
         
-        List<Prestamo> prestamosVencidos = prestamoService.obtenerPrestamosVencidos();
-        
-        if (prestamosVencidos.isEmpty()) {
-            System.out.println("  No hay préstamos vencidos.");
-        } else {
-            System.out.println(String.format("⚠️ Se encontraron %d préstamos vencidos:", prestamosVencidos.size()));
-            tableFormatter.mostrarTablaPrestamos(prestamosVencidos);
-        }
+        TablePager<Prestamo> pager = new TablePager<>(prestamoService::obtenerPaginaConDetallesVencidos,
+                tableFormatter::mostrarTablaPrestamos, prestamo -> prestamo.getId(), inputValidator);
+        pager.mostrar("  No hay préstamos vencidos.");
     }
     
     /**
@@ -301,7 +291,7 @@ public class PrestamoMenuHandler {
         
         Long prestamoId = inputValidator.leerLong("ID del préstamo: ");
         
-        Optional<Prestamo> prestamo = prestamoService.buscarPorId(prestamoId);
+        Optional<Prestamo> prestamo = prestamoService.buscarDetallePorId(prestamoId);
         
         if (prestamo.isEmpty()) {
             System.out.println("No se encontró un préstamo con ID: " + prestamoId);
@@ -347,7 +337,7 @@ public class PrestamoMenuHandler {
         
         Long prestamoId = inputValidator.leerLong("ID del préstamo: ");
         
-        Optional<Prestamo> prestamo = prestamoService.buscarPorId(prestamoId);
+        Optional<Prestamo> prestamo = prestamoService.buscarDetallePorId(prestamoId);
         
         if (prestamo.isEmpty()) {
             System.out.println("❌ No se encontró un préstamo con ID: " + prestamoId);
@@ -394,59 +384,33 @@ public class PrestamoMenuHandler {
     
     /**
      * Muestra los detalles de un préstamo con información adicional
+     * El usuario y el libro deben venir cargados en el préstamo (consulta con
+     * detalles); si faltan se muestran solo sus IDs, sin consultas adicionales
      * 
      * @param prestamo préstamo a mostrar
      */
     private void mostrarPrestamo(Prestamo prestamo) {
-        try {
-            // Obtener información del usuario y libro
-            Optional<Usuario> usuario = usuarioService.buscarPorId(prestamo.getUsuarioId());
-            Optional<Libro> libro = libroService.buscarPorId(prestamo.getLibroId());
-            
-            String nombreUsuario = usuario.isPresent() ? usuario.get().getNombre() : "Usuario no encontrado";
-            String tituloLibro = libro.isPresent() ? libro.get().getTitulo() : "Libro no encontrado";
-            
-            System.out.println(String.format("""
-                ID: %d
-                Usuario: %s (ID: %d)
-                Libro: %s (ID: %d)
-                Fecha préstamo: %s
-                Fecha devolución esperada: %s
-                Fecha devolución real: %s
-                Estado: %s
-                Observaciones: %s
-                """, 
-                prestamo.getId(),
-                nombreUsuario, prestamo.getUsuarioId(),
-                tituloLibro, prestamo.getLibroId(),
-                prestamo.getFechaPrestamo(),
-                prestamo.getFechaDevolucionEsperada(),
-                prestamo.getFechaDevolucionReal() != null ? prestamo.getFechaDevolucionReal().toString() : "No devuelto",
-                prestamo.getEstado(),
-                prestamo.getObservaciones()// != null ? prestamo.getObservaciones() : "Sin observaciones"
-            ));
-            
-        } catch (SQLException e) {
-            logger.error("Error al obtener información adicional del préstamo: {}", e.getMessage());
-            System.out.println(String.format("""
-                ID: %d
-                Usuario ID: %d
-                Libro ID: %d
-                Fecha préstamo: %s
-                Fecha devolución esperada: %s
-                Fecha devolución real: %s
-                Estado: %s
-                Observaciones: %s
-                """, 
-                prestamo.getId(),
-                prestamo.getUsuarioId(),
-                prestamo.getLibroId(),
-                prestamo.getFechaPrestamo(),
-                prestamo.getFechaDevolucionEsperada(),
-                prestamo.getFechaDevolucionReal() != null ? prestamo.getFechaDevolucionReal().toString() : "No devuelto",
-                prestamo.getEstado(),
-                prestamo.getObservaciones() != null ? prestamo.getObservaciones() : "Sin observaciones"
-            ));
-        }
+        String nombreUsuario = prestamo.getUsuario() != null ? prestamo.getUsuario().getNombre() : "-";
+        String tituloLibro = prestamo.getLibro() != null ? prestamo.getLibro().getTitulo() : "-";
+        
+        System.out.println(String.format("""
+            ID: %d
+            Usuario: %s (ID: %d)
+            Libro: %s (ID: %d)
+            Fecha préstamo: %s
+            Fecha devolución esperada: %s
+            Fecha devolución real: %s
+            Estado: %s
+            Observaciones: %s
+            """, 
+            prestamo.getId(),
+            nombreUsuario, prestamo.getUsuarioId(),
+            tituloLibro, prestamo.getLibroId(),
+            prestamo.getFechaPrestamo(),
+            prestamo.getFechaDevolucionEsperada(),
+            prestamo.getFechaDevolucionReal() != null ? prestamo.getFechaDevolucionReal().toString() : "No devuelto",
+            prestamo.getEstado(),
+            prestamo.getObservaciones() != null ? prestamo.getObservaciones() : "Sin observaciones"
+        ));
     }
-}
\ No newline at end of file
+}
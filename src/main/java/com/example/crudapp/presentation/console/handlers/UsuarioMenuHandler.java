@@ -5,12 +5,12 @@ import com.example.crudapp.application.dto.UsuarioDTO;
 import com.example.crudapp.domain.entities.Usuario;
 import com.example.crudapp.presentation.utils.InputValidator;
 import com.example.crudapp.presentation.utils.TableFormatter;
+import com.example.crudapp.presentation.utils.TablePager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
-import java.util.List;
 import java.util.Optional;
 
 /**
@@ -149,15 +149,9 @@ public class UsuarioMenuHandler {
     private void listarUsuarios() throws SQLException {
         System.out.println("\n--- LISTA DE USUARIOS ---");
         
-        List<Usuario> usuarios = usuarioService.obtenerTodos();
-        
-        if (usuarios.isEmpty()) {
-            System.out.println("No hay usuarios registrados.");
-            return;
-        }
-        
-        System.out.println(String.format("Se encontraron %d usuarios:", usuarios.size()));
-        tableFormatter.mostrarTablaUsuarios(usuarios);
+        TablePager<Usuario> pager = new TablePager<>(usuarioService::obtenerPagina, tableFormatter::mostrarTablaUsuarios,
+                usuario -> usuario.getId(), inputValidator);
+        pager.mostrar("No hay usuarios registrados.");
     }
     
     /**
@@ -215,9 +209,9 @@ public class UsuarioMenuHandler {
         UsuarioDTO usuarioDTO = new UsuarioDTO(nombre, email, telefono);
         
         try {
-            usuarioService.actualizarUsuario(id, usuarioDTO);
+            Usuario actualizado = usuarioService.actualizarUsuario(id, usuarioDTO);
             System.out.println("  Usuario actualizado exitosamente:");
-            mostrarUsuario(usuarioService.buscarPorId(id).get());
+            mostrarUsuario(actualizado);
         } catch (IllegalArgumentException e) {
             System.err.println("❌ Error: " + e.getMessage());
         }
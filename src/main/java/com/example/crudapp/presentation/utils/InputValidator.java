@@ -3,6 +3,8 @@ package com.example.crudapp.presentation.utils;
 //import org.slf4j.Logger;
 //import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -19,6 +21,7 @@ public class InputValidator {
     //private static final Logger logger = LoggerFactory.getLogger(InputValidator.class);
     
     private final Scanner scanner;
+    private final PrintStream salida;
     private static final Pattern EMAIL_PATTERN = 
         Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
     private static final Pattern PHONE_PATTERN = 
@@ -27,10 +30,21 @@ public class InputValidator {
         DateTimeFormatter.ofPattern("dd/MM/yyyy");
     
     /**
-     * Constructor del validador de entrada
+     * Constructor del validador de entrada (lee de la consola)
      */
     public InputValidator() {
-        this.scanner = new Scanner(System.in);
+        this(System.in, System.out);
+    }
+    
+    /**
+     * Constructor con entrada y salida explícitas
+     * 
+     * @param entrada flujo del que se leen las respuestas
+     * @param salida destino de los mensajes y avisos
+     */
+    public InputValidator(InputStream entrada, PrintStream salida) {
+        this.scanner = new Scanner(entrada);
+        this.salida = salida;
     }
     
     /**
@@ -44,17 +58,17 @@ public class InputValidator {
     public int leerEntero(String mensaje, int min, int max) {
         while (true) {
             try {
-                System.out.print(mensaje);
+                salida.print(mensaje);
                 int valor = Integer.parseInt(scanner.nextLine().trim());
                 
                 if (valor >= min && valor <= max) {
                     return valor;
                 }
                 
-                System.out.println(String.format("Por favor ingrese un número entre %d y %d", min, max));
+                salida.println(String.format("Por favor ingrese un número entre %d y %d", min, max));
                 
             } catch (NumberFormatException e) {
-                System.out.println("Por favor ingrese un número válido");
+                salida.println("Por favor ingrese un número válido");
             }
         }
     }
@@ -68,10 +82,10 @@ public class InputValidator {
     public Long leerLong(String mensaje) {
         while (true) {
             try {
-                System.out.print(mensaje);
+                salida.print(mensaje);
                 return Long.parseLong(scanner.nextLine().trim());
             } catch (NumberFormatException e) {
-                System.out.println("Por favor ingrese un número válido");
+                salida.println("Por favor ingrese un número válido");
             }
         }
     }
@@ -84,14 +98,14 @@ public class InputValidator {
      */
     public String leerCadenaNoVacia(String mensaje) {
         while (true) {
-            System.out.print(mensaje);
+            salida.print(mensaje);
             String valor = scanner.nextLine().trim();
             
             if (!valor.isEmpty()) {
                 return valor;
             }
             
-            System.out.println("Este campo no puede estar vacío");
+            salida.println("Este campo no puede estar vacío");
         }
     }
     
@@ -109,7 +123,7 @@ public class InputValidator {
                 return email;
             }
             
-            System.out.println("Por favor ingrese un email válido (ejemplo: usuario@dominio.com)");
+            salida.println("Por favor ingrese un email válido (ejemplo: usuario@dominio.com)");
         }
     }
     
@@ -127,7 +141,7 @@ public class InputValidator {
                 return telefono;
             }
             
-            System.out.println("Por favor ingrese un teléfono válido (8-15 dígitos)");
+            salida.println("Por favor ingrese un teléfono válido (8-15 dígitos)");
         }
     }
     
@@ -140,12 +154,12 @@ public class InputValidator {
     public LocalDate leerFecha(String mensaje) {
         while (true) {
             try {
-                System.out.print(mensaje + " (formato: dd/MM/yyyy): ");
+                salida.print(mensaje + " (formato: dd/MM/yyyy): ");
                 String fechaStr = scanner.nextLine().trim();
                 return LocalDate.parse(fechaStr, DATE_FORMATTER);
                 
             } catch (DateTimeParseException e) {
-                System.out.println("Por favor ingrese una fecha válida en formato dd/MM/yyyy");
+                salida.println("Por favor ingrese una fecha válida en formato dd/MM/yyyy");
             }
         }
     }
@@ -158,14 +172,14 @@ public class InputValidator {
      */
     public boolean leerSiNo(String mensaje) {
         while (true) {
-            System.out.print(mensaje + " (s/n): ");
+            salida.print(mensaje + " (s/n): ");
             String respuesta = scanner.nextLine().trim().toLowerCase();
             
             return switch (respuesta) {
                 case "s", "si", "sí", "y", "yes" -> true;
                 case "n", "no" -> false;
                 default -> {
-                    System.out.println("Por favor responda 's' para sí o 'n' para no");
+                    salida.println("Por favor responda 's' para sí o 'n' para no");
                     yield false; // Continuar el bucle
                 }
             };
@@ -178,7 +192,7 @@ public class InputValidator {
      * @return cadena ingresada (puede ser vacía)
      */
     public String leerCadenaOpcional(String mensaje) {
-        System.out.print(mensaje);
+        salida.print(mensaje);
         return scanner.nextLine().trim();
     }
     
@@ -196,7 +210,7 @@ public class InputValidator {
                 return email;
             }
             
-            System.out.println("Por favor ingrese un email válido o presione Enter para mantener el actual");
+            salida.println("Por favor ingrese un email válido o presione Enter para mantener el actual");
         }
     }
     
@@ -214,7 +228,7 @@ public class InputValidator {
                 return telefono;
             }
             
-            System.out.println("Por favor ingrese un teléfono válido o presione Enter para mantener el actual");
+            salida.println("Por favor ingrese un teléfono válido o presione Enter para mantener el actual");
         }
     }
     
@@ -241,10 +255,10 @@ public class InputValidator {
                     return valor;
                 }
                 
-                System.out.println(String.format("Por favor ingrese un número entre %d y %d", min, max));
+                salida.println(String.format("Por favor ingrese un número entre %d y %d", min, max));
                 
             } catch (NumberFormatException e) {
-                System.out.println("Por favor ingrese un número válido");
+                salida.println("Por favor ingrese un número válido");
             }
         }
     }
@@ -4,245 +4,528 @@ import com.example.crudapp.domain.entities.Usuario;
 import com.example.crudapp.domain.entities.Libro;
 import com.example.crudapp.domain.entities.Prestamo;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
  * Utilidad para formatear tablas en consola
  * Proporciona métodos para mostrar datos en formato tabular
- * 
+ *
+ * Los anchos de columna se calculan una sola vez por tabla según el ancho
+ * visible en la terminal (acentos combinados ocupan 0 columnas, caracteres
+ * CJK y emoji ocupan 2). Las filas se componen en un buffer de caracteres
+ * reutilizable y se escriben por bloques en un único Writer, en lugar de
+ * varias escrituras sincronizadas por celda.
+ *
  */
 public class TableFormatter {
-    
-    private static final String HORIZONTAL_LINE = "─";
-    private static final String VERTICAL_LINE = "│";
-    private static final String CORNER_TOP_LEFT = "┌";
-    private static final String CORNER_TOP_RIGHT = "┐";
-    private static final String CORNER_BOTTOM_LEFT = "└";
-    private static final String CORNER_BOTTOM_RIGHT = "┘";
-    private static final String JUNCTION_TOP = "┬";
-    private static final String JUNCTION_BOTTOM = "┴";
-    private static final String JUNCTION_LEFT = "├";
-    private static final String JUNCTION_RIGHT = "┤";
-    private static final String JUNCTION_CROSS = "┼";
-    
+
+    private static final char HORIZONTAL_LINE = '─';
+    private static final char VERTICAL_LINE = '│';
+    private static final char CORNER_TOP_LEFT = '┌';
+    private static final char CORNER_TOP_RIGHT = '┐';
+    private static final char CORNER_BOTTOM_LEFT = '└';
+    private static final char CORNER_BOTTOM_RIGHT = '┘';
+    private static final char JUNCTION_TOP = '┬';
+    private static final char JUNCTION_BOTTOM = '┴';
+    private static final char JUNCTION_LEFT = '├';
+    private static final char JUNCTION_RIGHT = '┤';
+    private static final char JUNCTION_CROSS = '┼';
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final String FIN_LINEA = System.lineSeparator();
+
+    private final Writer destino;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int posicion;
+
+    /**
+     * Crea un formateador que escribe en la consola (System.out)
+     */
+    public TableFormatter() {
+        this(new ConsolaWriter());
+    }
+
+    /**
+     * Crea un formateador que escribe en el Writer indicado
+     *
+     * @param destino destino de las tablas
+     */
+    public TableFormatter(Writer destino) {
+        if (destino == null) {
+            throw new IllegalArgumentException("El destino no puede ser null");
+        }
+        this.destino = destino;
+    }
+
     /**
      * Muestra una tabla de usuarios
-     * 
+     *
      * @param usuarios lista de usuarios a mostrar
      */
     public void mostrarTablaUsuarios(List<Usuario> usuarios) {
         if (usuarios.isEmpty()) {
-            System.out.println("No hay usuarios para mostrar.");
+            escribirMensaje("No hay usuarios para mostrar.");
             return;
         }
-        
+
         // Calcular anchos de columnas
         int[] anchos = {4, 25, 30, 15}; // ID, Nombre, Email, Teléfono
-        
+
         // Ajustar anchos basado en el contenido
         for (Usuario usuario : usuarios) {
-            anchos[0] = Math.max(anchos[0], String.valueOf(usuario.getId()).length());
-            anchos[1] = Math.max(anchos[1], usuario.getNombre().length());
-            anchos[2] = Math.max(anchos[2], usuario.getEmail().length());
-            anchos[3] = Math.max(anchos[3], usuario.getTelefono().length());
+            anchos[0] = Math.max(anchos[0], digitos(usuario.getId()));
+            anchos[1] = Math.max(anchos[1], anchoVisible(usuario.getNombre()));
+            anchos[2] = Math.max(anchos[2], anchoVisible(usuario.getEmail()));
+            anchos[3] = Math.max(anchos[3], anchoVisible(usuario.getTelefono()));
         }
-        
-        // Línea superior
-        imprimirLineaHorizontal(anchos, CORNER_TOP_LEFT, JUNCTION_TOP, CORNER_TOP_RIGHT);
-        
+
         // Encabezados
-        imprimirFila(new String[]{"ID", "Nombre", "Email", "Teléfono"}, anchos);
-        
-        // Línea separadora
-        imprimirLineaHorizontal(anchos, JUNCTION_LEFT, JUNCTION_CROSS, JUNCTION_RIGHT);
-        
+        imprimirEncabezado(new String[]{"ID", "Nombre", "Email", "Teléfono"}, anchos);
+
         // Datos
         for (Usuario usuario : usuarios) {
-            imprimirFila(new String[]{
-                String.valueOf(usuario.getId()),
-                usuario.getNombre(),
-                usuario.getEmail(),
-                usuario.getTelefono()
-            }, anchos);
-        }
-        
+            iniciarFila();
+            celda(usuario.getId(), anchos[0]);
+            celda(usuario.getNombre(), anchos[1]);
+            celda(usuario.getEmail(), anchos[2]);
+            celda(usuario.getTelefono(), anchos[3]);
+            terminarFila();
+        }
+
         // Línea inferior
         imprimirLineaHorizontal(anchos, CORNER_BOTTOM_LEFT, JUNCTION_BOTTOM, CORNER_BOTTOM_RIGHT);
+        vaciar();
     }
-    
+
     /**
      * Muestra una tabla de libros
-     * 
+     *
      * @param libros lista de libros a mostrar
      */
     public void mostrarTablaLibros(List<Libro> libros) {
         if (libros.isEmpty()) {
-            System.out.println("No hay libros para mostrar.");
+            escribirMensaje("No hay libros para mostrar.");
             return;
         }
-        
+
         // Calcular anchos de columnas
         int[] anchos = {4, 30, 20, 15, 20, 6, 12}; // ID, Título, Autor, ISBN, Género, Año, Disponible
-        
+
         // Ajustar anchos basado en el contenido
         for (Libro libro : libros) {
-            anchos[0] = Math.max(anchos[0], String.valueOf(libro.getId()).length());
-            anchos[1] = Math.max(anchos[1], libro.getTitulo().length());
-            anchos[2] = Math.max(anchos[2], libro.getAutor().length());
-            anchos[3] = Math.max(anchos[3], libro.getIsbn().length());
-            anchos[4] = Math.max(anchos[4], libro.getGenero().length());
-            anchos[5] = Math.max(anchos[5], String.valueOf(libro.getAñoPublicacion()).length());
-        }
-        
-        // Línea superior
-        imprimirLineaHorizontal(anchos, CORNER_TOP_LEFT, JUNCTION_TOP, CORNER_TOP_RIGHT);
-        
+            anchos[0] = Math.max(anchos[0], digitos(libro.getId()));
+            anchos[1] = Math.max(anchos[1], anchoVisible(libro.getTitulo()));
+            anchos[2] = Math.max(anchos[2], anchoVisible(libro.getAutor()));
+            anchos[3] = Math.max(anchos[3], anchoVisible(libro.getIsbn()));
+            anchos[4] = Math.max(anchos[4], anchoVisible(libro.getGenero()));
+            anchos[5] = Math.max(anchos[5], digitos(libro.getAñoPublicacion()));
+        }
+
         // Encabezados
-        imprimirFila(new String[]{"ID", "Título", "Autor", "ISBN", "Género", "Año", "Disponible"}, anchos);
-        
-        // Línea separadora
-        imprimirLineaHorizontal(anchos, JUNCTION_LEFT, JUNCTION_CROSS, JUNCTION_RIGHT);
-        
+        imprimirEncabezado(new String[]{"ID", "Título", "Autor", "ISBN", "Género", "Año", "Disponible"}, anchos);
+
         // Datos
         for (Libro libro : libros) {
-            imprimirFila(new String[]{
-                String.valueOf(libro.getId()),
-                truncarTexto(libro.getTitulo(), anchos[1]),
-                truncarTexto(libro.getAutor(), anchos[2]),
-                libro.getIsbn(),
-                truncarTexto(libro.getGenero(), anchos[4]),
-                String.valueOf(libro.getAñoPublicacion()),
-                libro.getDisponible() ? "Sí" : "No"
-            }, anchos);
-        }
-        
+            iniciarFila();
+            celda(libro.getId(), anchos[0]);
+            celda(libro.getTitulo(), anchos[1]);
+            celda(libro.getAutor(), anchos[2]);
+            celda(libro.getIsbn(), anchos[3]);
+            celda(libro.getGenero(), anchos[4]);
+            celda(libro.getAñoPublicacion(), anchos[5]);
+            celda(libro.getDisponible() ? "Sí" : "No", anchos[6]);
+            terminarFila();
+        }
+
         // Línea inferior
         imprimirLineaHorizontal(anchos, CORNER_BOTTOM_LEFT, JUNCTION_BOTTOM, CORNER_BOTTOM_RIGHT);
+        vaciar();
     }
-    
+
     /**
      * Muestra una tabla de préstamos
-     * 
+     * Muestra el nombre del usuario y el título del libro cuando el préstamo
+     * viene con sus detalles cargados; si no, muestra sus IDs
+     *
      * @param prestamos lista de préstamos a mostrar
      */
     public void mostrarTablaPrestamos(List<Prestamo> prestamos) {
         if (prestamos.isEmpty()) {
-            System.out.println("No hay préstamos para mostrar.");
+            escribirMensaje("No hay préstamos para mostrar.");
             return;
         }
-        
+
         // Calcular anchos de columnas
-        int[] anchos = {4, 12, 12, 12, 12, 12, 10}; // ID, Usuario ID, Libro ID, Fecha préstamo, Fecha esperada, Fecha real, Estado
-        
-        // Línea superior
-        imprimirLineaHorizontal(anchos, CORNER_TOP_LEFT, JUNCTION_TOP, CORNER_TOP_RIGHT);
-        
+        int[] anchos = {4, 20, 30, 12, 12, 12, 10}; // ID, Usuario, Libro, Fecha préstamo, Fecha esperada, Fecha real, Estado
+
+        for (Prestamo prestamo : prestamos) {
+            anchos[0] = Math.max(anchos[0], digitos(prestamo.getId()));
+            anchos[1] = Math.max(anchos[1], prestamo.getUsuario() != null
+                    ? anchoVisible(prestamo.getUsuario().getNombre()) : digitos(prestamo.getUsuarioId()));
+            anchos[2] = Math.max(anchos[2], prestamo.getLibro() != null
+                    ? anchoVisible(prestamo.getLibro().getTitulo()) : digitos(prestamo.getLibroId()));
+        }
+
         // Encabezados
-        imprimirFila(new String[]{"ID", "Usuario ID", "Libro ID", "Fecha Prést.", "Fecha Esp.", "Fecha Real", "Estado"}, anchos);
-        
-        // Línea separadora
-        imprimirLineaHorizontal(anchos, JUNCTION_LEFT, JUNCTION_CROSS, JUNCTION_RIGHT);
-        
+        imprimirEncabezado(new String[]{"ID", "Usuario", "Libro", "Fecha Prést.", "Fecha Esp.", "Fecha Real", "Estado"}, anchos);
+
         // Datos
         for (Prestamo prestamo : prestamos) {
-            imprimirFila(new String[]{
-                String.valueOf(prestamo.getId()),
-                String.valueOf(prestamo.getUsuarioId()),
-                String.valueOf(prestamo.getLibroId()),
-                prestamo.getFechaPrestamo().toString(),
-                prestamo.getFechaDevolucionEsperada().toString(),
-                prestamo.getFechaDevolucionReal() != null ? prestamo.getFechaDevolucionReal().toString() : "No devuelto",
-                prestamo.getEstado()
-            }, anchos);
-        }
-        
+            iniciarFila();
+            celda(prestamo.getId(), anchos[0]);
+            if (prestamo.getUsuario() != null) {
+                celda(prestamo.getUsuario().getNombre(), anchos[1]);
+            } else {
+                celda(prestamo.getUsuarioId(), anchos[1]);
+            }
+            if (prestamo.getLibro() != null) {
+                celda(prestamo.getLibro().getTitulo(), anchos[2]);
+            } else {
+                celda(prestamo.getLibroId(), anchos[2]);
+            }
+            celda(prestamo.getFechaPrestamo(), anchos[3]);
+            celda(prestamo.getFechaDevolucionEsperada(), anchos[4]);
+            if (prestamo.getFechaDevolucionReal() != null) {
+                celda(prestamo.getFechaDevolucionReal(), anchos[5]);
+            } else {
+                celda("No devuelto", anchos[5]);
+            }
+            celda(prestamo.getEstado(), anchos[6]);
+            terminarFila();
+        }
+
         // Línea inferior
         imprimirLineaHorizontal(anchos, CORNER_BOTTOM_LEFT, JUNCTION_BOTTOM, CORNER_BOTTOM_RIGHT);
+        vaciar();
+    }
+
+    /**
+     * Muestra una tabla simple con encabezados y datos
+     *
+     * @param encabezados encabezados de la tabla
+     * @param filas filas de datos
+     * @param anchos anchos de las columnas
+     */
+    public void mostrarTablaGenerica(String[] encabezados, String[][] filas, int[] anchos) {
+        if (filas.length == 0) {
+            escribirMensaje("No hay datos para mostrar.");
+            return;
+        }
+
+        // Encabezados
+        imprimirEncabezado(encabezados, anchos);
+
+        // Datos
+        for (String[] fila : filas) {
+            imprimirFila(fila, anchos);
+        }
+
+        // Línea inferior
+        imprimirLineaHorizontal(anchos, CORNER_BOTTOM_LEFT, JUNCTION_BOTTOM, CORNER_BOTTOM_RIGHT);
+        vaciar();
+    }
+
+    /**
+     * Calcula el ancho que ocupa un texto en una terminal de ancho fijo
+     * Las marcas combinantes y caracteres de formato no ocupan columnas;
+     * los caracteres de ancho completo (CJK, Hangul, emoji) ocupan dos
+     *
+     * @param texto texto a medir (null se considera vacío)
+     * @return número de columnas que ocupa
+     */
+    public static int anchoVisible(String texto) {
+        if (texto == null) {
+            return 0;
+        }
+
+        int ancho = 0;
+        int largo = texto.length();
+        for (int i = 0; i < largo; i++) {
+            char c = texto.charAt(i);
+
+            // Camino rápido: ASCII y Latin-1 (el caso habitual)
+            if (c < 0x300) {
+                if (c >= 0x20 && (c < 0x7F || c >= 0xA0)) {
+                    ancho++;
+                }
+                continue;
+            }
+
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < largo && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, texto.charAt(++i));
+            }
+            ancho += anchoCodePoint(codePoint);
+        }
+        return ancho;
+    }
+
+    private static int anchoCodePoint(int codePoint) {
+        int tipo = Character.getType(codePoint);
+        if (tipo == Character.NON_SPACING_MARK || tipo == Character.ENCLOSING_MARK || tipo == Character.FORMAT) {
+            return 0;
+        }
+        return esAnchoCompleto(codePoint) ? 2 : 1;
+    }
+
+    /**
+     * Rangos de ancho completo según Unicode East Asian Width (W y F) y emoji
+     */
+    private static boolean esAnchoCompleto(int cp) {
+        return (cp >= 0x1100 && cp <= 0x115F)       // Hangul Jamo
+                || (cp >= 0x2E80 && cp <= 0xA4CF && cp != 0x303F) // CJK, Kana, Yi
+                || (cp >= 0xAC00 && cp <= 0xD7A3)   // Sílabas Hangul
+                || (cp >= 0xF900 && cp <= 0xFAFF)   // Ideogramas de compatibilidad
+                || (cp >= 0xFE30 && cp <= 0xFE4F)   // Formas de compatibilidad CJK
+                || (cp >= 0xFF00 && cp <= 0xFF60)   // Formas de ancho completo
+                || (cp >= 0xFFE0 && cp <= 0xFFE6)
+                || (cp >= 0x1F300 && cp <= 0x1F64F) // Símbolos y emoticonos
+                || (cp >= 0x1F900 && cp <= 0x1F9FF)
+                || (cp >= 0x20000 && cp <= 0x3FFFD);
+    }
+
+    /**
+     * Imprime la línea superior, los encabezados y la línea separadora
+     *
+     * @param encabezados encabezados de las columnas
+     * @param anchos anchos de las columnas
+     */
+    private void imprimirEncabezado(String[] encabezados, int[] anchos) {
+        imprimirLineaHorizontal(anchos, CORNER_TOP_LEFT, JUNCTION_TOP, CORNER_TOP_RIGHT);
+        imprimirFila(encabezados, anchos);
+        imprimirLineaHorizontal(anchos, JUNCTION_LEFT, JUNCTION_CROSS, JUNCTION_RIGHT);
     }
-    
+
     /**
      * Imprime una línea horizontal de la tabla
-     * 
+     *
      * @param anchos anchos de las columnas
      * @param inicio carácter de inicio
      * @param separador carácter separador
      * @param fin carácter de fin
      */
-    private void imprimirLineaHorizontal(int[] anchos, String inicio, String separador, String fin) {
-        System.out.print(inicio);
-        
+    private void imprimirLineaHorizontal(int[] anchos, char inicio, char separador, char fin) {
+        put(inicio);
+
         for (int i = 0; i < anchos.length; i++) {
-            System.out.print(HORIZONTAL_LINE.repeat(anchos[i] + 2));
-            
+            repetir(HORIZONTAL_LINE, anchos[i] + 2);
+
             if (i < anchos.length - 1) {
-                System.out.print(separador);
+                put(separador);
             }
         }
-        
-        System.out.println(fin);
+
+        put(fin);
+        put(FIN_LINEA);
     }
-    
+
     /**
      * Imprime una fila de datos
-     * 
+     *
      * @param datos datos de la fila
      * @param anchos anchos de las columnas
      */
     private void imprimirFila(String[] datos, int[] anchos) {
-        System.out.print(VERTICAL_LINE);
-        
+        iniciarFila();
+
         for (int i = 0; i < datos.length; i++) {
-            String dato = datos[i] != null ? datos[i] : "";
-            System.out.print(String.format(" %-" + anchos[i] + "s ", dato));
-            System.out.print(VERTICAL_LINE);
+            celda(datos[i], anchos[i]);
         }
-        
-        System.out.println();
+
+        terminarFila();
+    }
+
+    private void iniciarFila() {
+        put(VERTICAL_LINE);
+    }
+
+    private void terminarFila() {
+        put(FIN_LINEA);
     }
-    
+
     /**
-     * Trunca texto si es demasiado largo
-     * 
-     * @param texto texto a truncar
-     * @param maxLength longitud máxima
-     * @return texto truncado
+     * Escribe una celda de texto alineada a la izquierda
+     * Si el texto es más ancho que la columna se escribe completo, como String.format
      */
-    private String truncarTexto(String texto, int maxLength) {
-        if (texto.length() <= maxLength) {
-            return texto;
+    private void celda(String dato, int ancho) {
+        put(' ');
+        if (dato != null) {
+            put(dato);
         }
-        
-        return texto.substring(0, maxLength - 3) + "...";
+        repetir(' ', ancho - anchoVisible(dato));
+        put(' ');
+        put(VERTICAL_LINE);
     }
-    
+
     /**
-     * Muestra una tabla simple con encabezados y datos
-     * 
-     * @param encabezados encabezados de la tabla
-     * @param filas filas de datos
-     * @param anchos anchos de las columnas
+     * Escribe una celda numérica sin crear Strings intermedios
      */
-    public void mostrarTablaGenerica(String[] encabezados, String[][] filas, int[] anchos) {
-        if (filas.length == 0) {
-            System.out.println("No hay datos para mostrar.");
+    private void celda(Long valor, int ancho) {
+        if (valor == null) {
+            celda("null", ancho);
             return;
         }
-        
-        // Línea superior
-        imprimirLineaHorizontal(anchos, CORNER_TOP_LEFT, JUNCTION_TOP, CORNER_TOP_RIGHT);
-        
-        // Encabezados
-        imprimirFila(encabezados, anchos);
-        
-        // Línea separadora
-        imprimirLineaHorizontal(anchos, JUNCTION_LEFT, JUNCTION_CROSS, JUNCTION_RIGHT);
-        
-        // Datos
-        for (String[] fila : filas) {
-            imprimirFila(fila, anchos);
+        put(' ');
+        int escritos = putNumero(valor);
+        repetir(' ', ancho - escritos);
+        put(' ');
+        put(VERTICAL_LINE);
+    }
+
+    private void celda(Integer valor, int ancho) {
+        celda(valor != null ? Long.valueOf(valor.longValue()) : null, ancho);
+    }
+
+    /**
+     * Escribe una fecha en formato ISO (yyyy-MM-dd) sin crear Strings intermedios
+     */
+    private void celda(LocalDate fecha, int ancho) {
+        if (fecha == null || fecha.getYear() < 1000 || fecha.getYear() > 9999) {
+            celda(fecha != null ? fecha.toString() : "null", ancho);
+            return;
+        }
+        put(' ');
+        putNumero(fecha.getYear());
+        put('-');
+        putDosDigitos(fecha.getMonthValue());
+        put('-');
+        putDosDigitos(fecha.getDayOfMonth());
+        repetir(' ', ancho - 10);
+        put(' ');
+        put(VERTICAL_LINE);
+    }
+
+    private static int digitos(Number valor) {
+        return valor != null ? digitos(valor.longValue()) : 4; // "null"
+    }
+
+    private static int digitos(long v) {
+        if (v == Long.MIN_VALUE) {
+            return 20;
+        }
+        int digitos = v < 0 ? 2 : 1;
+        v = Math.abs(v);
+        while (v >= 10) {
+            v /= 10;
+            digitos++;
+        }
+        return digitos;
+    }
+
+    private void escribirMensaje(String mensaje) {
+        put(mensaje);
+        put(FIN_LINEA);
+        vaciar();
+    }
+
+    // ---------------------------------------------------------------------
+    // Buffer de salida
+    // ---------------------------------------------------------------------
+
+    private void put(char c) {
+        if (posicion == buffer.length) {
+            escribirBuffer();
+        }
+        buffer[posicion++] = c;
+    }
+
+    private void put(String texto) {
+        int largo = texto.length();
+        int copiados = 0;
+        while (copiados < largo) {
+            if (posicion == buffer.length) {
+                escribirBuffer();
+            }
+            int n = Math.min(largo - copiados, buffer.length - posicion);
+            texto.getChars(copiados, copiados + n, buffer, posicion);
+            posicion += n;
+            copiados += n;
+        }
+    }
+
+    private void repetir(char c, int veces) {
+        for (int i = 0; i < veces; i++) {
+            put(c);
+        }
+    }
+
+    private void putDosDigitos(int valor) {
+        put((char) ('0' + valor / 10));
+        put((char) ('0' + valor % 10));
+    }
+
+    /**
+     * Escribe un entero en decimal
+     *
+     * @return número de caracteres escritos
+     */
+    private int putNumero(long valor) {
+        int total = digitos(valor);
+        if (valor == Long.MIN_VALUE) {
+            put(String.valueOf(valor));
+            return total;
+        }
+        if (posicion + total > buffer.length) {
+            escribirBuffer();
+        }
+        if (valor < 0) {
+            buffer[posicion] = '-';
+            valor = -valor;
+        }
+        int i = posicion + total;
+        do {
+            buffer[--i] = (char) ('0' + valor % 10);
+            valor /= 10;
+        } while (valor > 0);
+        posicion += total;
+        return total;
+    }
+
+    private void escribirBuffer() {
+        try {
+            destino.write(buffer, 0, posicion);
+            posicion = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al escribir la tabla", e);
+        }
+    }
+
+    /**
+     * Escribe lo pendiente del buffer y vacía el destino
+     */
+    private void vaciar() {
+        escribirBuffer();
+        try {
+            destino.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al escribir la tabla", e);
+        }
+    }
+
+    /**
+     * Writer que envía cada bloque a System.out en una sola llamada
+     * Se resuelve System.out en cada escritura porque Jansi lo reemplaza al iniciar
+     */
+    private static class ConsolaWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            if (len > 0) {
+                System.out.print(new String(cbuf, off, len));
+            }
+        }
+
+        @Override
+        public void flush() {
+            System.out.flush();
+        }
+
+        @Override
+        public void close() {
+            flush();
         }
-        
-        // Línea inferior
-        imprimirLineaHorizontal(anchos, CORNER_BOTTOM_LEFT, JUNCTION_BOTTOM, CORNER_BOTTOM_RIGHT);
     }
-}
\ No newline at end of file
+}
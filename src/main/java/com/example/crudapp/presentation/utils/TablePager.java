@@ -0,0 +1,212 @@
+package com.example.crudapp.presentation.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Paginador interactivo de tablas en consola
+ * Trae de la base de datos una página del tamaño de la pantalla por vez
+ * (paginación por clave sobre el ID) y, mientras el usuario la lee, trae la
+ * siguiente en un hilo virtual. La memoria y el tiempo hasta la primera fila
+ * no dependen del tamaño de la tabla.
+ *
+ * @param <T> tipo de las filas
+ */
+public class TablePager<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TablePager.class);
+
+    private static final int FILAS_POR_DEFECTO = 25;
+    private static final int FILAS_RESERVADAS = 8; // bordes, encabezado y navegación
+    private static final int TAMAÑO_MINIMO = 5;
+
+    /**
+     * Origen de las páginas
+     *
+     * @param <T> tipo de las filas
+     */
+    @FunctionalInterface
+    public interface FuentePaginas<T> {
+        List<T> obtenerPagina(long despuesDeId, int tamaño) throws SQLException;
+    }
+
+    private final FuentePaginas<T> fuente;
+    private final Consumer<List<T>> renderizador;
+    private final ToLongFunction<T> id;
+    private final InputValidator inputValidator;
+    private final int tamañoPagina;
+
+    /**
+     * Constructor del paginador con el tamaño de página según la altura de la terminal
+     *
+     * @param fuente origen de las páginas
+     * @param renderizador muestra una página (por ejemplo, TableFormatter::mostrarTablaLibros)
+     * @param id obtiene el ID de una fila, usado como cursor
+     * @param inputValidator validador de entrada para la navegación
+     */
+    public TablePager(FuentePaginas<T> fuente, Consumer<List<T>> renderizador, ToLongFunction<T> id,
+            InputValidator inputValidator) {
+        this(fuente, renderizador, id, inputValidator, tamañoPantalla());
+    }
+
+    /**
+     * Constructor del paginador
+     *
+     * @param fuente origen de las páginas
+     * @param renderizador muestra una página
+     * @param id obtiene el ID de una fila, usado como cursor
+     * @param inputValidator validador de entrada para la navegación
+     * @param tamañoPagina filas por página
+     */
+    public TablePager(FuentePaginas<T> fuente, Consumer<List<T>> renderizador, ToLongFunction<T> id,
+            InputValidator inputValidator, int tamañoPagina) {
+        if (tamañoPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor a 0");
+        }
+        this.fuente = fuente;
+        this.renderizador = renderizador;
+        this.id = id;
+        this.inputValidator = inputValidator;
+        this.tamañoPagina = tamañoPagina;
+    }
+
+    /**
+     * Muestra la tabla página por página hasta que el usuario sale o se termina
+     *
+     * @param mensajeVacio mensaje a mostrar si no hay filas
+     * @throws SQLException si hay error al obtener una página
+     */
+    public void mostrar(String mensajeVacio) throws SQLException {
+        if (!mostrar()) {
+            System.out.println(mensajeVacio);
+        }
+    }
+
+    /**
+     * Muestra la tabla página por página hasta que el usuario sale o se termina,
+     * dejando al llamador el mensaje para el caso sin filas
+     *
+     * @return false si la primera página vino vacía y no se mostró nada
+     * @throws SQLException si hay error al obtener una página
+     */
+    public boolean mostrar() throws SQLException {
+        // Cursor de inicio de cada página visitada, para poder volver atrás
+        List<Long> cursores = new ArrayList<>();
+        cursores.add(0L);
+        int indice = 0;
+        int ultimaPagina = Integer.MAX_VALUE; // índice de la última página, cuando se conoce
+
+        List<T> pagina = fuente.obtenerPagina(0L, tamañoPagina);
+        if (pagina.isEmpty()) {
+            return false;
+        }
+
+        while (true) {
+            boolean hayMas = pagina.size() == tamañoPagina && indice < ultimaPagina;
+            long filasAnteriores = (long) indice * tamañoPagina;
+            long ultimoId = id.applyAsLong(pagina.get(pagina.size() - 1));
+            CompletableFuture<List<T>> siguiente = hayMas ? precargar(ultimoId) : null;
+
+            renderizador.accept(pagina);
+            System.out.println(String.format("Página %d (filas %d-%d)%s", indice + 1, filasAnteriores + 1,
+                    filasAnteriores + pagina.size(), hayMas ? "" : " - fin de la tabla"));
+
+            String opciones = (hayMas ? "[Enter] siguiente, " : "") + (indice > 0 ? "[a] anterior, " : "") + "[q] salir: ";
+            String opcion = inputValidator.leerCadenaOpcional(opciones).toLowerCase();
+            while (!opcion.isEmpty() && !opcion.equals("q") && !(opcion.equals("a") && indice > 0)) {
+                System.out.println("Opción no válida.");
+                opcion = inputValidator.leerCadenaOpcional(opciones).toLowerCase();
+            }
+
+            if (opcion.isEmpty() && hayMas) {
+                List<T> proxima = esperar(siguiente);
+                if (proxima.isEmpty()) {
+                    // La página actual era la última y tenía justo el tamaño de página
+                    ultimaPagina = indice;
+                    continue;
+                }
+                indice++;
+                if (cursores.size() == indice) {
+                    cursores.add(ultimoId);
+                }
+                pagina = proxima;
+
+            } else if (opcion.equals("a") && indice > 0) {
+                cancelar(siguiente);
+                indice--;
+                pagina = fuente.obtenerPagina(cursores.get(indice), tamañoPagina);
+                if (pagina.isEmpty()) {
+                    // Se borraron las filas mientras se navegaba
+                    System.out.println("No quedan filas en esta página.");
+                    return true;
+                }
+
+            } else {
+                // "q", o Enter en la última página
+                cancelar(siguiente);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Trae la siguiente página en un hilo virtual mientras el usuario lee la actual
+     */
+    private CompletableFuture<List<T>> precargar(long despuesDeId) {
+        CompletableFuture<List<T>> futuro = new CompletableFuture<>();
+        Thread.ofVirtual().name("paginador-precarga").start(() -> {
+            try {
+                futuro.complete(fuente.obtenerPagina(despuesDeId, tamañoPagina));
+            } catch (Throwable e) {
+                futuro.completeExceptionally(e);
+            }
+        });
+        return futuro;
+    }
+
+    private List<T> esperar(CompletableFuture<List<T>> futuro) throws SQLException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Lectura de página interrumpida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Error al obtener la página: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void cancelar(CompletableFuture<List<T>> futuro) {
+        // La consulta en curso termina sola; solo se descarta su resultado
+        if (futuro != null) {
+            futuro.cancel(false);
+        }
+    }
+
+    /**
+     * Calcula las filas por página a partir de la altura de la terminal
+     * (variable LINES o propiedad pager.lines), con un valor por defecto
+     */
+    private static int tamañoPantalla() {
+        String lineas = System.getProperty("pager.lines", System.getenv("LINES"));
+        int filas = FILAS_POR_DEFECTO;
+        if (lineas != null) {
+            try {
+                filas = Integer.parseInt(lineas.trim());
+            } catch (NumberFormatException e) {
+                logger.debug("Altura de terminal no válida: {}", lineas);
+            }
+        }
+        return Math.max(TAMAÑO_MINIMO, filas - FILAS_RESERVADAS);
+    }
+}
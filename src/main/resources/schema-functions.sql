@@ -8,22 +8,75 @@ END;
 $$ LANGUAGE plpgsql;
 
 -- Función para actualizar préstamos vencidos
-CREATE OR REPLACE FUNCTION actualizar_prestamos_vencidos()
+-- Devuelve los préstamos marcados: el servicio registra sus eventos VENCIDO en
+-- el outbox solo si lo tiene configurado. Antes devolvía el contador (INTEGER)
+-- y CREATE OR REPLACE no puede cambiar el tipo de retorno.
+DROP FUNCTION IF EXISTS actualizar_prestamos_vencidos();
+CREATE FUNCTION actualizar_prestamos_vencidos()
+RETURNS TABLE (id BIGINT, usuario_id BIGINT, libro_id BIGINT, fecha_devolucion_esperada DATE) AS $$
+BEGIN
+    -- Actualizar estados de préstamos vencidos
+    RETURN QUERY
+    UPDATE prestamos p
+    SET estado = 'VENCIDO'
+    WHERE p.estado = 'ACTIVO'
+      AND p.fecha_devolucion_esperada < CURRENT_DATE
+      AND p.fecha_devolucion_real IS NULL
+    RETURNING p.id, p.usuario_id, p.libro_id, p.fecha_devolucion_esperada;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Función para registrar las filas eliminadas (lápidas del feed de cambios)
+-- Los consumidores incrementales leen las eliminaciones junto con las modificaciones.
+-- El archivado de préstamos mueve filas al histórico, no las elimina: marca su
+-- transacción con SET LOCAL crudapp.archivando = on y no deja lápidas.
+CREATE OR REPLACE FUNCTION registrar_eliminacion()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF current_setting('crudapp.archivando', true) = 'on' THEN
+        RETURN OLD;
+    END IF;
+    INSERT INTO eliminaciones (tabla, id, fecha_modificacion)
+    VALUES (TG_TABLE_NAME, OLD.id, CURRENT_TIMESTAMP)
+    ON CONFLICT (tabla, id) DO UPDATE SET fecha_modificacion = EXCLUDED.fecha_modificacion;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Función para purgar las lápidas más antiguas que la retención
+-- Un consumidor cuyo cursor quedó más atrás que la retención debe releer la tabla completa
+CREATE OR REPLACE FUNCTION purgar_eliminaciones(p_dias INTEGER)
 RETURNS INTEGER AS $$
 DECLARE
     v_contador INTEGER;
 BEGIN
-    -- Actualizar estados de préstamos vencidos
-    UPDATE prestamos
-    SET estado = 'VENCIDO'
-    WHERE estado = 'ACTIVO'
-      AND fecha_devolucion_esperada < CURRENT_DATE
-      AND fecha_devolucion_real IS NULL;
-    
-    -- Obtener el número de filas afectadas
+    DELETE FROM eliminaciones
+    WHERE fecha_modificacion < CURRENT_TIMESTAMP - make_interval(days => p_dias);
+
     GET DIAGNOSTICS v_contador = ROW_COUNT;
-    
-    -- Retornar el contador para que lo use el método Java
     RETURN v_contador;
 END;
-$$ LANGUAGE plpgsql;
\ No newline at end of file
+$$ LANGUAGE plpgsql;
+
+-- Función para crear las particiones mensuales de auditoria
+-- Crea la del mes actual y las de los p_meses siguientes que falten
+CREATE OR REPLACE FUNCTION crear_particiones_auditoria(p_meses INTEGER)
+RETURNS INTEGER AS $$
+DECLARE
+    v_mes DATE;
+    v_nombre TEXT;
+    v_creadas INTEGER := 0;
+BEGIN
+    FOR i IN 0..p_meses LOOP
+        v_mes := (date_trunc('month', CURRENT_DATE) + make_interval(months => i))::date;
+        v_nombre := 'auditoria_' || to_char(v_mes, 'YYYYMM');
+        IF to_regclass(v_nombre) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF auditoria FOR VALUES FROM (%L) TO (%L)',
+                           v_nombre, v_mes, (v_mes + INTERVAL '1 month')::date);
+            v_creadas := v_creadas + 1;
+        END IF;
+    END LOOP;
+
+    RETURN v_creadas;
+END;
+$$ LANGUAGE plpgsql;
@@ -57,9 +57,73 @@ CREATE TRIGGER trigger_prestamos_fecha_modificacion
     FOR EACH ROW
     EXECUTE FUNCTION actualizar_fecha_modificacion();
 
+-- Lápidas de las filas eliminadas, para el feed de cambios
+CREATE TABLE IF NOT EXISTS eliminaciones (
+    tabla VARCHAR(20) NOT NULL,
+    id INTEGER NOT NULL,
+    fecha_modificacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tabla, id)
+);
+
+-- Outbox de eventos de préstamos: se escribe en la misma transacción que el cambio
+-- y el relay de la aplicación lo vacía hacia el log local de eventos
+CREATE TABLE IF NOT EXISTS eventos_prestamo (
+    id BIGSERIAL PRIMARY KEY,
+    tipo VARCHAR(20) NOT NULL CHECK (tipo IN ('CREADO', 'RENOVADO', 'DEVUELTO', 'VENCIDO')),
+    prestamo_id INTEGER NOT NULL,
+    usuario_id INTEGER NOT NULL,
+    libro_id INTEGER NOT NULL,
+    fecha DATE,
+    fecha_evento TIMESTAMP NOT NULL DEFAULT clock_timestamp()
+);
+
+-- Registro de auditoría, particionado por mes. La aplicación lo escribe en
+-- segundo plano con COPY y crea las particiones con crear_particiones_auditoria();
+-- la partición por defecto recibe lo que llegue antes de que exista la del mes
+CREATE TABLE IF NOT EXISTS auditoria (
+    id BIGSERIAL,
+    fecha TIMESTAMP NOT NULL,
+    tabla VARCHAR(20) NOT NULL,
+    operacion VARCHAR(10) NOT NULL CHECK (operacion IN ('INSERT', 'UPDATE', 'DELETE')),
+    entidad_id INTEGER,
+    actor VARCHAR(100),
+    antes JSONB,
+    despues JSONB,
+    PRIMARY KEY (fecha, id)
+) PARTITION BY RANGE (fecha);
+
+CREATE TABLE IF NOT EXISTS auditoria_default PARTITION OF auditoria DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_auditoria_entidad ON auditoria(tabla, entidad_id, fecha);
+
+-- Triggers de eliminación (también registran los borrados en cascada)
+DROP TRIGGER IF EXISTS trigger_usuarios_eliminacion ON usuarios;
+CREATE TRIGGER trigger_usuarios_eliminacion
+    AFTER DELETE ON usuarios
+    FOR EACH ROW
+    EXECUTE FUNCTION registrar_eliminacion();
+
+DROP TRIGGER IF EXISTS trigger_libros_eliminacion ON libros;
+CREATE TRIGGER trigger_libros_eliminacion
+    AFTER DELETE ON libros
+    FOR EACH ROW
+    EXECUTE FUNCTION registrar_eliminacion();
+
+DROP TRIGGER IF EXISTS trigger_prestamos_eliminacion ON prestamos;
+CREATE TRIGGER trigger_prestamos_eliminacion
+    AFTER DELETE ON prestamos
+    FOR EACH ROW
+    EXECUTE FUNCTION registrar_eliminacion();
+
 -- Índices para mejor performance
 CREATE INDEX IF NOT EXISTS idx_usuarios_email ON usuarios(email);
 CREATE INDEX IF NOT EXISTS idx_libros_isbn ON libros(isbn);
 CREATE INDEX IF NOT EXISTS idx_prestamos_usuario_id ON prestamos(usuario_id);
 CREATE INDEX IF NOT EXISTS idx_prestamos_libro_id ON prestamos(libro_id);
-CREATE INDEX IF NOT EXISTS idx_prestamos_estado ON prestamos(estado);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_prestamos_estado ON prestamos(estado);
+
+-- Índices del feed de cambios: continuación por clave sobre (fecha_modificacion, id)
+CREATE INDEX IF NOT EXISTS idx_usuarios_fecha_modificacion ON usuarios(fecha_modificacion, id);
+CREATE INDEX IF NOT EXISTS idx_libros_fecha_modificacion ON libros(fecha_modificacion, id);
+CREATE INDEX IF NOT EXISTS idx_prestamos_fecha_modificacion ON prestamos(fecha_modificacion, id);
+CREATE INDEX IF NOT EXISTS idx_eliminaciones_fecha_modificacion ON eliminaciones(tabla, fecha_modificacion, id);
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.example.crudapp.application.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.crudapp.application.dto.PrestamoDTO;
+import com.example.crudapp.infrastructure.database.Database;
+import com.example.crudapp.infrastructure.repositories.LibroRepositoryImpl;
+import com.example.crudapp.infrastructure.repositories.PrestamoRepositoryImpl;
+import com.example.crudapp.infrastructure.repositories.UsuarioRepositoryImpl;
+import com.example.crudapp.infrastructure.stats.RoundTripBudget;
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+
+/**
+ * Presupuesto de idas y vueltas de las operaciones de PrestamoService
+ *
+ * Corre el servicio, el gestor de transacciones y los repositorios reales sobre
+ * una conexión JDBC falsa (el pool se reemplaza con un mock de Database): cada
+ * consulta devuelve la misma fila con ID 1 y todas las columnas, salvo la del
+ * préstamo activo de un libro, que no devuelve ninguna. Así se cuentan las
+ * sentencias que emite cada operación sin base de datos. El commit también
+ * cuenta como ida y vuelta.
+ */
+public class PrestamoServiceRoundTripTest {
+
+    private static final Map<String, Object> FILA = new HashMap<>();
+    static {
+        Date hoy = Date.valueOf(LocalDate.now());
+        FILA.put("id", 1L);
+        FILA.put("usuario_id", 1L);
+        FILA.put("libro_id", 1L);
+        FILA.put("fecha_prestamo", hoy);
+        FILA.put("fecha_devolucion_esperada", Date.valueOf(LocalDate.now().plusDays(14)));
+        FILA.put("fecha_registro", hoy);
+        FILA.put("estado", "ACTIVO");
+        FILA.put("nombre", "Ana");
+        FILA.put("usuario_nombre", "Ana");
+        FILA.put("email", "ana@ejemplo.cl");
+        FILA.put("titulo", "Rayuela");
+        FILA.put("autor", "Cortázar");
+        FILA.put("isbn", "978-0000000001");
+        FILA.put("genero", "Novela");
+        FILA.put("año_publicacion", 1963);
+        FILA.put("disponible", true);
+    }
+
+    private PrestamoService service;
+
+    @BeforeEach
+    public void crearServicio() throws SQLException {
+        TransactionManager transactionManager = new TransactionManager(baseDeDatos());
+        service = new PrestamoService(new PrestamoRepositoryImpl(), new UsuarioRepositoryImpl(),
+                new LibroRepositoryImpl(), transactionManager);
+    }
+
+    @Test
+    public void testCrearPrestamo() throws Exception {
+        // Usuario y libro en un lote por tipo, préstamo activo, INSERT, disponibilidad y commit
+        RoundTripBudget.Resultado resultado = RoundTripBudget.medir("crearPrestamo",
+                () -> service.crearPrestamo(new PrestamoDTO(1L, 1L, LocalDate.now().plusDays(14))));
+
+        resultado.verificarMaximo(6);
+        assertTrue(resultado.getCandidatosNMasUno().isEmpty(), resultado.toString());
+    }
+
+    @Test
+    public void testBuscarDetalle() throws Exception {
+        // Un solo join con usuario y libro
+        RoundTripBudget.Resultado resultado = RoundTripBudget.medir("buscarDetallePorId",
+                () -> assertTrue(service.buscarDetallePorId(1L).isPresent()));
+
+        resultado.verificarMaximo(2);
+    }
+
+    @Test
+    public void testDevolverYRenovar() throws Exception {
+        // UPDATE ... RETURNING condicionado, sin leer antes el préstamo
+        RoundTripBudget.medir("devolverLibro", () -> service.devolverLibro(1L, LocalDate.now(), null))
+                .verificarMaximo(3);
+        RoundTripBudget.medir("renovarPrestamo", () -> service.renovarPrestamo(1L, 7))
+                .verificarMaximo(2);
+    }
+
+    @Test
+    public void testPaginaConDetallesNoConsultaPorElemento() throws Exception {
+        RoundTripBudget.Resultado resultado = RoundTripBudget.medir("obtenerPaginaConDetalles", () -> {
+            List<?> pagina = service.obtenerPaginaConDetalles(0, 50);
+            assertEquals(1, pagina.size());
+        });
+
+        resultado.verificarMaximo(2);
+    }
+
+    private Database baseDeDatos() throws SQLException {
+        Database database = mock(Database.class);
+        when(database.getConnection()).thenAnswer(invocacion -> conexionFalsa());
+        return database;
+    }
+
+    private static Connection conexionFalsa() {
+        return proxy(Connection.class, (metodo, args) -> switch (metodo) {
+            case "prepareStatement" -> sentenciaFalsa((String) args[0]);
+            default -> null;
+        });
+    }
+
+    private static PreparedStatement sentenciaFalsa(String sql) {
+        boolean sinFilas = sql.contains("libro_id = ? AND estado = 'ACTIVO'");
+        return proxy(PreparedStatement.class, (metodo, args) -> switch (metodo) {
+            case "executeQuery" -> resultadoFalso(sinFilas ? 0 : 1);
+            case "getGeneratedKeys" -> resultadoFalso(1);
+            case "executeUpdate" -> 1;
+            default -> null;
+        });
+    }
+
+    private static ResultSet resultadoFalso(int filas) {
+        int[] leidas = { 0 };
+        return proxy(ResultSet.class, (metodo, args) -> {
+            if (metodo.equals("next")) {
+                return leidas[0]++ < filas;
+            }
+            if (metodo.startsWith("get") && args != null && args.length == 1) {
+                return args[0] instanceof String columna ? FILA.get(columna) : FILA.get("id");
+            }
+            return null;
+        });
+    }
+
+    private interface Respuesta {
+        Object responder(String metodo, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> tipo, Respuesta respuesta) {
+        return tipo.cast(Proxy.newProxyInstance(PrestamoServiceRoundTripTest.class.getClassLoader(),
+                new Class<?>[] { tipo }, (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "equals":
+                            return p == args[0];
+                        default:
+                            break;
+                    }
+                    Object valor = respuesta.responder(method.getName(), args);
+                    Class<?> devuelto = method.getReturnType();
+                    if (valor != null || !devuelto.isPrimitive() || devuelto == void.class) {
+                        return valor;
+                    }
+                    if (devuelto == boolean.class) {
+                        return false;
+                    }
+                    return devuelto == long.class ? (Object) 0L : (Object) 0;
+                }));
+    }
+}
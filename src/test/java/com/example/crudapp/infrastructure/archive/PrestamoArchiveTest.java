@@ -0,0 +1,81 @@
+package com.example.crudapp.infrastructure.archive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.crudapp.domain.entities.Prestamo;
+
+/**
+ * Pruebas del formato columnar del archivo histórico
+ */
+public class PrestamoArchiveTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void testEscribirYLeerPorUsuario() throws Exception {
+        PrestamoArchive archive = new PrestamoArchive(directorio);
+
+        try (PrestamoArchive.Writer writer = archive.abrirEscritor()) {
+            writer.append(crearPrestamos(1, 500));
+            writer.append(crearPrestamos(501, 500));
+        }
+
+        List<Prestamo> prestamos = archive.findByUsuarioId(7L);
+
+        // 1000 préstamos repartidos en 10 usuarios
+        assertEquals(100, prestamos.size());
+        for (Prestamo prestamo : prestamos) {
+            assertEquals(7L, prestamo.getUsuarioId());
+            assertEquals("DEVUELTO", prestamo.getEstado());
+            assertEquals(prestamo.getFechaPrestamo().plusDays(14), prestamo.getFechaDevolucionEsperada());
+            if (prestamo.getId() % 3 == 0) {
+                assertEquals("Observación " + prestamo.getId(), prestamo.getObservaciones());
+            } else {
+                assertNull(prestamo.getObservaciones());
+            }
+        }
+    }
+
+    @Test
+    public void testUsuarioFueraDeRango() throws Exception {
+        PrestamoArchive archive = new PrestamoArchive(directorio);
+
+        try (PrestamoArchive.Writer writer = archive.abrirEscritor()) {
+            writer.append(crearPrestamos(1, 50));
+        }
+
+        assertTrue(archive.findByUsuarioId(99L).isEmpty());
+        assertTrue(new PrestamoArchive(directorio.resolve("no-existe")).findByUsuarioId(1L).isEmpty());
+    }
+
+    private List<Prestamo> crearPrestamos(long desdeId, int cantidad) {
+        List<Prestamo> prestamos = new ArrayList<>();
+        LocalDate base = LocalDate.of(2020, 1, 1);
+
+        for (long id = desdeId; id < desdeId + cantidad; id++) {
+            Prestamo prestamo = new Prestamo();
+            prestamo.setId(id);
+            prestamo.setUsuarioId(id % 10);
+            prestamo.setLibroId(id * 7);
+            prestamo.setFechaPrestamo(base.plusDays(id));
+            prestamo.setFechaDevolucionEsperada(base.plusDays(id + 14));
+            prestamo.setFechaDevolucionReal(base.plusDays(id + 10));
+            prestamo.setEstado("DEVUELTO");
+            prestamo.setObservaciones(id % 3 == 0 ? "Observación " + id : null);
+            prestamos.add(prestamo);
+        }
+
+        return prestamos;
+    }
+}
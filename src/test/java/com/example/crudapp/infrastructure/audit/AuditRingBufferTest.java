@@ -0,0 +1,115 @@
+package com.example.crudapp.infrastructure.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de la cola circular de la auditoría
+ */
+public class AuditRingBufferTest {
+
+    @Test
+    public void testColaLlenaRechazaHastaQueSeDrena() {
+        // La capacidad se redondea a la potencia de 2 siguiente
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(3);
+        assertEquals(4, buffer.capacidad());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.ofrecer(i));
+        }
+        assertFalse(buffer.ofrecer(4));
+        assertEquals(4, buffer.tamaño());
+
+        List<Integer> sacados = new ArrayList<>();
+        assertEquals(2, buffer.drenar(sacados, 2));
+        assertEquals(List.of(0, 1), sacados);
+        assertTrue(buffer.ofrecer(4));
+        assertTrue(buffer.ofrecer(5));
+        assertFalse(buffer.ofrecer(6));
+
+        sacados.clear();
+        assertEquals(4, buffer.drenar(sacados, 10));
+        assertEquals(List.of(2, 3, 4, 5), sacados);
+        assertEquals(0, buffer.drenar(sacados, 10));
+
+        // Una sola celda no distingue ocupada de libre: el mínimo es 2
+        AuditRingBuffer<Integer> minimo = new AuditRingBuffer<>(1);
+        assertEquals(2, minimo.capacidad());
+        assertTrue(minimo.ofrecer(0));
+        assertTrue(minimo.ofrecer(1));
+        assertFalse(minimo.ofrecer(2));
+        assertThrows(IllegalArgumentException.class, () -> new AuditRingBuffer<Integer>(0));
+    }
+
+    @Test
+    public void testVueltasConservanElOrden() {
+        AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4);
+        List<Integer> sacados = new ArrayList<>();
+
+        // 3 por vuelta sobre 4 celdas: cada vuelta empieza en una celda distinta
+        int siguiente = 0;
+        for (int vuelta = 0; vuelta < 50; vuelta++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.ofrecer(siguiente++));
+            }
+            buffer.drenar(sacados, 3);
+        }
+
+        List<Integer> esperados = new ArrayList<>();
+        for (int i = 0; i < siguiente; i++) {
+            esperados.add(i);
+        }
+        assertEquals(esperados, sacados);
+    }
+
+    @Test
+    public void testProductoresConcurrentesSinPerdidas() throws Exception {
+        int productores = 4;
+        int porProductor = 20_000;
+        AuditRingBuffer<long[]> buffer = new AuditRingBuffer<>(64);
+
+        List<Thread> hilos = new ArrayList<>();
+        for (int p = 0; p < productores; p++) {
+            final int productor = p;
+            Thread hilo = new Thread(() -> {
+                for (int i = 0; i < porProductor; i++) {
+                    long[] elemento = { productor, i };
+                    while (!buffer.ofrecer(elemento)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+
+        // Cada productor publica en orden, así que el consumidor debe ver sus elementos en orden
+        int[] esperado = new int[productores];
+        List<long[]> lote = new ArrayList<>();
+        int total = 0;
+        while (total < productores * porProductor) {
+            lote.clear();
+            total += buffer.drenar(lote, 100);
+            for (long[] elemento : lote) {
+                int productor = (int) elemento[0];
+                assertEquals(esperado[productor], (int) elemento[1]);
+                esperado[productor]++;
+            }
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        for (int p = 0; p < productores; p++) {
+            assertEquals(porProductor, esperado[p]);
+        }
+        assertEquals(0, buffer.tamaño());
+    }
+}
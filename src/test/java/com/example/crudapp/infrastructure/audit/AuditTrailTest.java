@@ -0,0 +1,257 @@
+package com.example.crudapp.infrastructure.audit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+import com.example.crudapp.infrastructure.transactions.TransactionManager;
+import com.example.crudapp.infrastructure.transactions.TransactionOperation;
+
+/**
+ * Pruebas de las políticas de cola llena y del derrame a disco de la auditoría
+ * Sin base de datos: las transacciones corren sobre una conexión falsa cuyo COPY
+ * guarda lo recibido en memoria.
+ */
+public class AuditTrailTest {
+
+    @TempDir
+    Path directorio;
+
+    private final CopiaFalsa copia;
+    private final Connection conexion;
+
+    public AuditTrailTest() throws SQLException {
+        copia = new CopiaFalsa();
+        conexion = conexionFalsa(copia);
+    }
+
+    @Test
+    public void testColaLlenaSinEscritor() {
+        AuditTrail descartar = crear(2, AuditTrail.PoliticaLlenado.DESCARTAR, null);
+        for (long id = 1; id <= 3; id++) {
+            registrar(descartar, id);
+        }
+        assertEquals(2, descartar.getEncolados());
+        assertEquals(1, descartar.getDescartados());
+
+        // Sin escritor nadie libera lugar: BLOQUEAR descarta en vez de colgar al servicio
+        AuditTrail bloquear = crear(2, AuditTrail.PoliticaLlenado.BLOQUEAR, null);
+        for (long id = 1; id <= 3; id++) {
+            registrar(bloquear, id);
+        }
+        assertEquals(2, bloquear.getEncolados());
+        assertEquals(1, bloquear.getDescartados());
+    }
+
+    @Test
+    public void testColaLlenaBloquearEsperaAlEscritor() throws Exception {
+        AuditTrail auditoria = crear(2, AuditTrail.PoliticaLlenado.BLOQUEAR, null);
+        copia.pausa = new CountDownLatch(1);
+        auditoria.iniciar();
+        try {
+            // El escritor saca el primero y queda detenido en el COPY; los dos siguientes llenan la cola
+            registrar(auditoria, 1L);
+            assertTrue(copia.enCopia.await(5, TimeUnit.SECONDS));
+            registrar(auditoria, 2L);
+            registrar(auditoria, 3L);
+
+            Thread productor = new Thread(() -> registrar(auditoria, 4L));
+            productor.start();
+            productor.join(200);
+            assertTrue(productor.isAlive());
+            assertEquals(1, auditoria.getBloqueos());
+
+            copia.pausa.countDown();
+            productor.join(5000);
+            assertFalse(productor.isAlive());
+        } finally {
+            auditoria.close();
+        }
+
+        assertEquals(4, auditoria.getEscritos());
+        assertEquals(0, auditoria.getDescartados());
+        assertEquals(4, copia.escritas.toString().split("\n").length);
+    }
+
+    @Test
+    public void testDerramarYRecuperar() throws Exception {
+        AuditTrail auditoria = crear(2, AuditTrail.PoliticaLlenado.DERRAMAR, directorio);
+        for (long id = 1; id <= 4; id++) {
+            registrar(auditoria, id);
+        }
+        assertEquals(2, auditoria.getEncolados());
+        assertEquals(2, auditoria.getDerramados());
+        assertEquals(1, derrames(".copy").size());
+
+        auditoria.iniciar();
+        try {
+            // Con la cola vacía el escritor carga los derrames
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (auditoria.getRecuperados() < 2 && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+        } finally {
+            auditoria.close();
+        }
+
+        assertEquals(2, auditoria.getEscritos());
+        assertEquals(2, auditoria.getRecuperados());
+        assertTrue(derrames(".copy").isEmpty());
+        String recuperadas = copia.recuperadas.toString();
+        assertTrue(recuperadas.contains("\tUPDATE\t3\t") && recuperadas.contains("\tUPDATE\t4\t"), recuperadas);
+    }
+
+    @Test
+    public void testDerrameInvalidoSeAparta() throws Exception {
+        Files.writeString(directorio.resolve("auditoria-cortado.copy"), "linea\tincompleta");
+        copia.rechazarDerrames = true;
+
+        AuditTrail auditoria = crear(16, AuditTrail.PoliticaLlenado.DERRAMAR, directorio);
+        auditoria.iniciar();
+        try {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (derrames(".rechazado").isEmpty() && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+        } finally {
+            auditoria.close();
+        }
+
+        assertEquals(List.of(directorio.resolve("auditoria-cortado.copy.rechazado")), derrames(".rechazado"));
+        assertTrue(derrames(".copy").isEmpty());
+        assertEquals(0, auditoria.getRecuperados());
+    }
+
+    private AuditTrail crear(int capacidad, AuditTrail.PoliticaLlenado politica, Path derrame) {
+        return new AuditTrail(new TransaccionesFalsas(), "prueba", capacidad, politica, derrame, 1, 1);
+    }
+
+    // Fuera de una transacción del gestor el registro se encola enseguida
+    private void registrar(AuditTrail auditoria, Long id) {
+        auditoria.registrar(conexion, "libros", AuditTrail.Operacion.UPDATE, id, "{}", "{}");
+    }
+
+    private List<Path> derrames(String extension) throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(archivo -> archivo.toString().endsWith(extension)).toList();
+        }
+    }
+
+    private final class TransaccionesFalsas extends TransactionManager {
+        TransaccionesFalsas() {
+            super(null);
+        }
+
+        @Override
+        public <T> T executeInTransaction(TransactionOperation<T> operation) throws SQLException {
+            return operation.apply(conexion);
+        }
+    }
+
+    /**
+     * COPY en memoria: los lotes del escritor van a escritas y los derrames cargados a recuperadas
+     */
+    private static final class CopiaFalsa extends CopyManager {
+        final StringBuffer escritas = new StringBuffer();
+        final StringBuffer recuperadas = new StringBuffer();
+        final CountDownLatch enCopia = new CountDownLatch(1);
+        volatile CountDownLatch pausa;
+        volatile boolean rechazarDerrames;
+
+        CopiaFalsa() throws SQLException {
+            super(proxy(BaseConnection.class, (metodo, args) -> null));
+        }
+
+        @Override
+        public CopyIn copyIn(String sql) {
+            enCopia.countDown();
+            CountDownLatch espera = pausa;
+            if (espera != null) {
+                try {
+                    espera.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder copiado = new StringBuilder();
+            return proxy(CopyIn.class, (metodo, args) -> switch (metodo) {
+                case "writeToCopy" -> copiado.append(new String((byte[]) args[0], (int) args[1], (int) args[2],
+                        StandardCharsets.UTF_8));
+                case "endCopy" -> {
+                    escritas.append(copiado);
+                    yield copiado.chars().filter(c -> c == '\n').count();
+                }
+                default -> null;
+            });
+        }
+
+        @Override
+        public long copyIn(String sql, InputStream entrada) throws SQLException, IOException {
+            if (rechazarDerrames) {
+                throw new SQLException("datos de COPY inválidos", "22P04");
+            }
+            String texto = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            recuperadas.append(texto);
+            return texto.chars().filter(c -> c == '\n').count();
+        }
+    }
+
+    private static Connection conexionFalsa(CopiaFalsa copia) {
+        PGConnection pg = proxy(PGConnection.class, (metodo, args) -> metodo.equals("getCopyAPI") ? copia : null);
+        // Creación de particiones: la función devuelve 0
+        ResultSet resultSet = proxy(ResultSet.class, (metodo, args) -> metodo.equals("next") ? true : null);
+        PreparedStatement statement = proxy(PreparedStatement.class,
+                (metodo, args) -> metodo.equals("executeQuery") ? resultSet : null);
+        return proxy(Connection.class, (metodo, args) -> switch (metodo) {
+            case "unwrap" -> pg;
+            case "prepareStatement" -> statement;
+            default -> null;
+        });
+    }
+
+    private static <T> T proxy(Class<T> tipo, BiFunction<String, Object[], Object> respuesta) {
+        return tipo.cast(Proxy.newProxyInstance(AuditTrailTest.class.getClassLoader(), new Class<?>[] { tipo },
+                (p, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "equals":
+                            return p == args[0];
+                        default:
+                            break;
+                    }
+                    Object valor = respuesta.apply(method.getName(), args);
+                    Class<?> tipoDevuelto = method.getReturnType();
+                    if (valor != null || !tipoDevuelto.isPrimitive() || tipoDevuelto == void.class) {
+                        return valor;
+                    }
+                    if (tipoDevuelto == boolean.class) {
+                        return false;
+                    }
+                    return tipoDevuelto == long.class ? (Object) 0L : (Object) 0;
+                }));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.crudapp.infrastructure.capture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Estado;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Operacion;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Registro;
+
+/**
+ * Pruebas del formato de grabación de llamadas (sin base de datos)
+ */
+public class WorkloadRecorderTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void testLasLlamadasSeLeenComoSeGrabaron() throws Exception {
+        Path archivo = directorio.resolve("captura.bin");
+        LocalDate fecha = LocalDate.of(2025, 6, 30);
+
+        try (WorkloadRecorder grabador = new WorkloadRecorder(archivo)) {
+            assertEquals(List.of(1, 2), grabador.grabar(Operacion.PAGINA_LIBROS, () -> List.of(1, 2), 0L, 20));
+            grabador.grabar(Operacion.DEVOLVER_LIBRO, () -> null, 123_456_789L, fecha, "Tapa dañada");
+            assertThrows(SQLException.class, () -> grabador.grabar(Operacion.CREAR_PRESTAMO, () -> {
+                throw new SQLException("Error en transacción: sin stock", new IllegalArgumentException("sin stock"));
+            }, 5L, 9L, null, fecha));
+            assertThrows(SQLException.class, () -> grabador.grabar(Operacion.BUSCAR_LIBRO, () -> {
+                throw new SQLException("conexión perdida");
+            }, -1L));
+            grabador.grabar(Operacion.BUSCAR_USUARIO, Optional::empty, 7L);
+        }
+
+        List<Registro> registros = WorkloadRecorder.leer(archivo);
+        assertEquals(5, registros.size());
+
+        Registro pagina = registros.get(0);
+        assertEquals(Operacion.PAGINA_LIBROS, pagina.operacion());
+        assertEquals(Estado.EXITOSA, pagina.estado());
+        assertEquals(2, pagina.resumen());
+        assertArrayEquals(new Object[] { 0L, 20L }, pagina.argumentos());
+
+        assertArrayEquals(new Object[] { 123_456_789L, fecha, "Tapa dañada" }, registros.get(1).argumentos());
+        assertEquals(Estado.RECHAZADA, registros.get(2).estado());
+        assertArrayEquals(new Object[] { 5L, 9L, null, fecha }, registros.get(2).argumentos());
+        assertEquals(Estado.ERROR, registros.get(3).estado());
+        assertArrayEquals(new Object[] { -1L }, registros.get(3).argumentos());
+        assertEquals(0, registros.get(4).resumen());
+
+        for (int i = 1; i < registros.size(); i++) {
+            assertEquals(pagina.hilo(), registros.get(i).hilo());
+            assertTrue(registros.get(i).inicio() >= registros.get(i - 1).inicio());
+        }
+    }
+
+    @Test
+    public void testRegistroCortadoAlFinalSeDescarta() throws Exception {
+        Path archivo = directorio.resolve("cortada.bin");
+        try (WorkloadRecorder grabador = new WorkloadRecorder(archivo)) {
+            grabador.grabar(Operacion.BUSCAR_LIBROS_TITULO, List::of, "jardín");
+            grabador.grabar(Operacion.BUSCAR_LIBROS_TITULO, List::of, "sombra");
+        }
+        byte[] contenido = Files.readAllBytes(archivo);
+        Files.write(archivo, Arrays.copyOf(contenido, contenido.length - 3));
+
+        List<Registro> registros = WorkloadRecorder.leer(archivo);
+        assertEquals(1, registros.size());
+        assertArrayEquals(new Object[] { "jardín" }, registros.get(0).argumentos());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.crudapp.infrastructure.capture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.crudapp.application.services.LibroService;
+import com.example.crudapp.application.services.PrestamoService;
+import com.example.crudapp.application.services.UsuarioService;
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.domain.entities.Usuario;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Estado;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Operacion;
+import com.example.crudapp.infrastructure.capture.WorkloadRecorder.Registro;
+
+/**
+ * Pruebas de la repetición de grabaciones sobre servicios simulados
+ */
+public class WorkloadReplayerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final LocalDate FECHA = LocalDate.of(2025, 6, 30);
+
+    private final PrestamoService prestamoService = mock(PrestamoService.class);
+    private final LibroService libroService = mock(LibroService.class);
+    private final UsuarioService usuarioService = mock(UsuarioService.class);
+    private final WorkloadReplayer replayer = new WorkloadReplayer(prestamoService, libroService, usuarioService);
+
+    @Test
+    public void testPrestamosCreadosUsanElIdDeLaRepeticion() throws Exception {
+        Prestamo creado = new Prestamo(1L, 2L, FECHA.plusDays(14));
+        creado.setId(7L);
+        when(prestamoService.crearPrestamo(any())).thenReturn(creado);
+
+        // En la grabación el préstamo fue el 100; el 55 no se creó durante ella
+        WorkloadReplayer.Reporte reporte = replayer.reproducir(List.of(
+                registro(Operacion.CREAR_PRESTAMO, 1, 0, Estado.EXITOSA, 100, 1L, 2L, FECHA, FECHA.plusDays(14)),
+                registro(Operacion.DEVOLVER_LIBRO, 1, 1, Estado.EXITOSA, 0, 100L, FECHA, null),
+                registro(Operacion.RENOVAR_PRESTAMO, 1, 2, Estado.EXITOSA, 0, 55L, 7L)), 0);
+
+        verify(prestamoService).devolverLibro(7L, FECHA, null);
+        verify(prestamoService).renovarPrestamo(55L, 7);
+        // El ID distinto del préstamo creado no cuenta como cambio
+        assertEquals(0, reporte.getCambios(), reporte.getDiferencias().toString());
+    }
+
+    @Test
+    public void testCadaHiloRepiteEnOrdenYAlRitmoGrabado() throws Exception {
+        Map<Long, Long> inicios = new ConcurrentHashMap<>();
+        List<Long> orden = Collections.synchronizedList(new ArrayList<>());
+        when(libroService.buscarPorId(any())).thenAnswer(invocacion -> {
+            Long id = invocacion.getArgument(0);
+            inicios.put(id, System.nanoTime());
+            orden.add(id);
+            return Optional.of(new Libro());
+        });
+        when(usuarioService.buscarPorId(any())).thenReturn(Optional.of(new Usuario()));
+
+        // Desordenadas en la lista: cada hilo las ordena por su inicio grabado
+        List<Registro> registros = List.of(
+                registro(Operacion.BUSCAR_LIBRO, 1, 400 * MS, Estado.EXITOSA, 1, 3L),
+                registro(Operacion.BUSCAR_USUARIO, 2, 100 * MS, Estado.EXITOSA, 1, 9L),
+                registro(Operacion.BUSCAR_LIBRO, 1, 0, Estado.EXITOSA, 1, 1L),
+                registro(Operacion.BUSCAR_LIBRO, 1, 200 * MS, Estado.EXITOSA, 1, 2L));
+
+        long antes = System.nanoTime();
+        WorkloadReplayer.Reporte reporte = replayer.reproducir(registros, 2);
+
+        assertEquals(List.of(1L, 2L, 3L), orden);
+        // A velocidad 2 la tercera llamada empieza 200 ms después de la primera, no 400 ms
+        long desdeLaPrimera = inicios.get(3L) - inicios.get(1L);
+        assertTrue(desdeLaPrimera >= 190 * MS && desdeLaPrimera < 390 * MS, "Separación: " + desdeLaPrimera / MS);
+        assertTrue(inicios.get(3L) - antes >= 200 * MS);
+        assertEquals(0, reporte.getCambios());
+    }
+
+    @Test
+    public void testDetectaResultadosDistintos() throws Exception {
+        Prestamo creado = new Prestamo(1L, 2L, FECHA.plusDays(14));
+        creado.setId(7L);
+        when(prestamoService.crearPrestamo(any())).thenReturn(creado);
+        when(libroService.buscarPorId(any())).thenReturn(Optional.empty());
+        when(libroService.obtenerPagina(0L, 20)).thenReturn(List.of(new Libro(), new Libro()));
+        when(usuarioService.buscarPorId(any())).thenThrow(new IllegalArgumentException("ID inválido"));
+
+        WorkloadReplayer.Reporte reporte = replayer.reproducir(List.of(
+                registro(Operacion.CREAR_PRESTAMO, 1, 0, Estado.EXITOSA, 100, 1L, 2L, FECHA, FECHA.plusDays(14)),
+                registro(Operacion.BUSCAR_LIBRO, 1, 1, Estado.EXITOSA, 1, 4L),
+                registro(Operacion.PAGINA_LIBROS, 1, 2, Estado.EXITOSA, 2, 0L, 20L),
+                registro(Operacion.BUSCAR_USUARIO, 1, 3, Estado.EXITOSA, 1, 5L)), 0);
+
+        // Otro resumen (libro ausente) y otro estado (usuario rechazado); la página y la creación coinciden
+        assertEquals(2, reporte.getCambios());
+        List<WorkloadReplayer.Diferencia> diferencias = reporte.getDiferencias();
+        assertEquals(List.of(Operacion.BUSCAR_LIBRO, Operacion.BUSCAR_USUARIO),
+                diferencias.stream().map(d -> d.registro().operacion()).toList());
+        assertEquals(Estado.EXITOSA, diferencias.get(0).estado());
+        assertEquals(0, diferencias.get(0).resumen());
+        assertEquals(Estado.RECHAZADA, diferencias.get(1).estado());
+        assertEquals("ID inválido", diferencias.get(1).mensaje());
+    }
+
+    private static Registro registro(Operacion operacion, int hilo, long inicio, Estado estado, long resumen,
+            Object... argumentos) {
+        return new Registro(operacion, hilo, inicio, MS, estado, resumen, argumentos);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.crudapp.infrastructure.datagen;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del generador de datos sintéticos (sin base de datos)
+ */
+public class SyntheticDataGeneratorTest {
+
+    private static final LocalDate HOY = LocalDate.of(2025, 6, 30);
+
+    @Test
+    public void testMismaSemillaGeneraLosMismosDatos() throws Exception {
+        SyntheticDataGenerator generador = new SyntheticDataGenerator(7, 500, 1_000, 10_000, 3, HOY);
+
+        assertEquals(prestamos(generador), prestamos(new SyntheticDataGenerator(7, 500, 1_000, 10_000, 3, HOY)));
+        assertNotEquals(prestamos(generador), prestamos(new SyntheticDataGenerator(8, 500, 1_000, 10_000, 3, HOY)));
+    }
+
+    @Test
+    public void testPopularidadSesgadaYEstadosCoherentes() throws Exception {
+        String[] filas = prestamos(new SyntheticDataGenerator(42, 1_000, 2_000, 50_000, 5, HOY)).split("\n");
+        assertEquals(50_000, filas.length);
+
+        int[] porLibro = new int[2_001];
+        Map<String, Integer> estados = new HashMap<>();
+        for (String fila : filas) {
+            String[] campos = fila.split("\t");
+            porLibro[Integer.parseInt(campos[2])]++;
+            estados.merge(campos[6], 1, Integer::sum);
+
+            LocalDate esperada = LocalDate.parse(campos[4]);
+            switch (campos[6]) {
+                case "DEVUELTO" -> assertTrue(!LocalDate.parse(campos[5]).isAfter(HOY));
+                case "VENCIDO" -> assertTrue(campos[5].equals("\\N") && esperada.isBefore(HOY));
+                default -> assertTrue(campos[5].equals("\\N") && !esperada.isBefore(HOY));
+            }
+        }
+
+        // El 10% de los libros más prestados concentra bastante más del 10% de los préstamos
+        int[] ordenados = porLibro.clone();
+        Arrays.sort(ordenados);
+        int top = 0;
+        for (int i = ordenados.length - 200; i < ordenados.length; i++) {
+            top += ordenados[i];
+        }
+        assertTrue(top > filas.length * 0.3, "Préstamos del 10% más popular: " + top);
+        assertTrue(estados.get("DEVUELTO") > filas.length * 0.9, "Estados: " + estados);
+        assertTrue(estados.containsKey("ACTIVO"), "Estados: " + estados);
+    }
+
+    @Test
+    public void testUnLibroNoSePrestaConSuPrestamoAbierto() throws Exception {
+        String[] filas = prestamos(new SyntheticDataGenerator(1, 20_000, 50_000, 200_000, 5, HOY)).split("\n");
+        assertEquals(200_000, filas.length);
+
+        // Por libro, el día desde el que vuelve a estar libre (null si su préstamo sigue abierto)
+        Map<Integer, LocalDate> libreDesde = new HashMap<>();
+        int id = 0;
+        for (String fila : filas) {
+            String[] campos = fila.split("\t");
+            assertEquals(++id, Integer.parseInt(campos[0]));
+            int libro = Integer.parseInt(campos[2]);
+            LocalDate prestamo = LocalDate.parse(campos[3]);
+
+            if (libreDesde.containsKey(libro)) {
+                LocalDate libre = libreDesde.get(libro);
+                assertTrue(libre != null && libre.isBefore(prestamo),
+                        "Préstamo " + id + " del libro " + libro + " con el anterior abierto");
+            }
+            libreDesde.put(libro, campos[5].equals("\\N") ? null : LocalDate.parse(campos[5]));
+        }
+    }
+
+    private static String prestamos(SyntheticDataGenerator generador) throws Exception {
+        StringBuilder salida = new StringBuilder();
+        generador.escribirPrestamos(bloque -> {
+            salida.append(bloque);
+            bloque.setLength(0);
+        });
+        return salida.toString();
+    }
+}
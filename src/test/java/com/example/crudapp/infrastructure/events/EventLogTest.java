@@ -0,0 +1,89 @@
+package com.example.crudapp.infrastructure.events;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pruebas del log segmentado de eventos
+ */
+public class EventLogTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    public void testLeerDesdeOffsetEntreSegmentos() throws Exception {
+        // Segmentos chicos para que el log se divida
+        try (EventLog log = new EventLog(directorio, 1000)) {
+            for (long desde = 0; desde < 100; desde += 10) {
+                assertEquals(desde, log.append(crearEventos(desde, 10)));
+            }
+            assertEquals(100, log.getSiguienteOffset());
+
+            List<EventLog.Registro> registros = log.leer(37, 20);
+            assertEquals(20, registros.size());
+            for (int i = 0; i < registros.size(); i++) {
+                EventLog.Registro registro = registros.get(i);
+                assertEquals(37 + i, registro.getOffset());
+                assertEquals(37 + i, EventoPrestamo.deserializar(registro.getDatos()).getId());
+            }
+
+            assertEquals(5, log.leer(95, 20).size());
+            assertTrue(log.leer(100, 20).isEmpty());
+        }
+
+        assertTrue(directorio.toFile().listFiles().length > 1);
+    }
+
+    @Test
+    public void testRecuperarRegistroIncompleto() throws Exception {
+        try (EventLog log = new EventLog(directorio, EventLog.TAMAÑO_SEGMENTO_POR_DEFECTO)) {
+            log.append(crearEventos(0, 5));
+        }
+
+        // Simula un proceso que terminó a mitad de un lote
+        File segmento = directorio.toFile().listFiles()[0];
+        try (FileChannel channel = FileChannel.open(segmento.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 46, 1, 2 }));
+        }
+
+        try (EventLog log = new EventLog(directorio, EventLog.TAMAÑO_SEGMENTO_POR_DEFECTO)) {
+            assertEquals(5, log.getSiguienteOffset());
+            assertEquals(5, log.append(crearEventos(5, 1)));
+
+            List<EventLog.Registro> registros = log.leer(0, 10);
+            assertEquals(6, registros.size());
+            EventoPrestamo ultimo = EventoPrestamo.deserializar(registros.get(5).getDatos());
+            assertEquals(5, ultimo.getId());
+            assertEquals(EventoPrestamo.Tipo.RENOVADO, ultimo.getTipo());
+            assertEquals(LocalDate.of(2024, 1, 6), ultimo.getFecha());
+        }
+    }
+
+    private List<byte[]> crearEventos(long desdeId, int cantidad) {
+        List<byte[]> eventos = new ArrayList<>();
+        EventoPrestamo.Tipo[] tipos = EventoPrestamo.Tipo.values();
+
+        for (long id = desdeId; id < desdeId + cantidad; id++) {
+            EventoPrestamo evento = new EventoPrestamo(id, tipos[(int) (id % 4)], id * 3, id % 10, id * 7,
+                    LocalDate.of(2024, 1, 1).plusDays(id), Instant.parse("2024-01-01T10:00:00Z").plusSeconds(id));
+            eventos.add(evento.serializar());
+        }
+
+        return eventos;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.crudapp.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de las sentencias que arma PartialUpdate según lo que se sabe de la entidad
+ */
+public class PartialUpdateTest {
+
+    private static final PartialUpdate UPDATE = new PartialUpdate("usuarios", "nombre", "email", "telefono");
+    private static final String DEVUELTAS = "id, nombre, email, telefono";
+
+    private final List<String> sentencias = new ArrayList<>();
+    private final List<Object> parametros = new ArrayList<>();
+
+    @Test
+    public void testEntidadSincronizadaSinCambiosNoEscribe() throws Exception {
+        Optional<String> fila = UPDATE.ejecutar(conexionFalsa(true), 0, true, 7L, columna -> "v" + columna,
+                DEVUELTAS, rs -> "fila");
+
+        assertEquals(List.of("SELECT id, nombre, email, telefono FROM usuarios WHERE id = ?"), sentencias);
+        assertEquals(Optional.of("fila"), fila);
+    }
+
+    @Test
+    public void testEntidadSincronizadaEscribeSoloLasColumnasMarcadas() throws Exception {
+        UPDATE.ejecutar(conexionFalsa(true), 0b010, true, 7L, columna -> "v" + columna, DEVUELTAS, rs -> "fila");
+
+        assertEquals(List.of("UPDATE usuarios SET email = ? WHERE id = ? RETURNING " + DEVUELTAS), sentencias);
+        assertEquals(List.of("v1", 7L), parametros);
+    }
+
+    @Test
+    public void testEntidadNuevaComparaLaFilaAntesDeEscribir() throws Exception {
+        // El UPDATE no devuelve filas: o no había diferencias o no existe el ID, se relee para saberlo
+        Optional<String> fila = UPDATE.ejecutar(conexionFalsa(false), 0b111, false, 7L, columna -> "v" + columna,
+                DEVUELTAS, rs -> "fila");
+
+        assertEquals(2, sentencias.size());
+        assertTrue(sentencias.get(0).endsWith(" WHERE id = ? AND (nombre, email, telefono) IS DISTINCT FROM (?, ?, ?)"
+                + " RETURNING " + DEVUELTAS), sentencias.get(0));
+        assertTrue(sentencias.get(1).startsWith("SELECT "), sentencias.get(1));
+        assertEquals(List.of("v0", "v1", "v2", 7L, "v0", "v1", "v2", 7L), parametros);
+        assertEquals(Optional.empty(), fila);
+    }
+
+    // Conexión sin base de datos que anota las sentencias y sus parámetros
+    private Connection conexionFalsa(boolean conFila) {
+        ResultSet resultSet = proxy(ResultSet.class, (nombre, args) -> nombre.equals("next") ? conFila : null);
+        PreparedStatement statement = proxy(PreparedStatement.class, (nombre, args) -> switch (nombre) {
+            case "setObject", "setLong" -> parametros.add(args[1]);
+            case "executeQuery" -> resultSet;
+            default -> null;
+        });
+        return proxy(Connection.class, (nombre, args) -> {
+            if (nombre.equals("prepareStatement")) {
+                sentencias.add((String) args[0]);
+                return statement;
+            }
+            return null;
+        });
+    }
+
+    private interface Respuesta {
+        Object responder(String nombre, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> tipo, Respuesta respuesta) {
+        return tipo.cast(Proxy.newProxyInstance(PartialUpdateTest.class.getClassLoader(), new Class<?>[] { tipo },
+                (p, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    case "next" -> respuesta.responder("next", args);
+                    default -> method.getReturnType() == boolean.class ? false
+                            : respuesta.responder(method.getName(), args);
+                }));
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.crudapp.infrastructure.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.crudapp.infrastructure.database.Database;
+import com.example.crudapp.infrastructure.datagen.SyntheticDataGenerator;
+
+/**
+ * Guarda contra regresiones de planes de ejecución
+ *
+ * Crea un esquema temporal con schema.sql, lo llena con SyntheticDataGenerator
+ * (propiedad planes.escala, 1 = 20.000 usuarios, 50.000 libros y 200.000
+ * préstamos con popularidad de Zipf) y ejecuta EXPLAIN (FORMAT JSON) sobre
+ * cada constante SQL de los repositorios. Los parámetros se reemplazan por valores representativos según
+ * el contexto (id = 42, estado = 'ACTIVO', LIMIT 50...), así el planificador
+ * arma el mismo plan que en producción.
+ *
+ * Falla si un plan lee secuencialmente una tabla grande o si su costo supera
+ * planes.costo.maximo (por unidad de escala), salvo las sentencias listadas en
+ * planes-esperados.properties. Cada plan se guarda en planes.snapshots
+ * (target/planes por defecto) para compararlo con git diff; si ya había uno con
+ * otra forma, el cambio se registra como advertencia en el log.
+ *
+ * Necesita el PostgreSQL de db.properties; si no está disponible la prueba se omite.
+ */
+public class QueryPlanRegressionTest {
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanRegressionTest.class);
+
+    private static final List<Class<?>> REPOSITORIOS = List.of(LibroRepositoryImpl.class, UsuarioRepositoryImpl.class,
+            PrestamoRepositoryImpl.class);
+
+    private static final int ESCALA = Integer.getInteger("planes.escala", 1);
+    private static final double COSTO_MAXIMO = Double.parseDouble(System.getProperty("planes.costo.maximo", "10000"));
+    private static final long FILAS_TABLA_GRANDE = Long.getLong("planes.filas.grandes", 10_000L);
+    private static final Path SNAPSHOTS = Paths.get(System.getProperty("planes.snapshots", "target/planes"));
+
+    private static final long SEMILLA = Long.getLong("planes.semilla", 1L);
+
+    private static final String ESQUEMA = "planes_" + ProcessHandle.current().pid();
+
+    // Valor de ejemplo según el texto que precede al parámetro (el primero que coincide)
+    private static final Map<Pattern, String> VALORES = new LinkedHashMap<>();
+    static {
+        VALORES.put(Pattern.compile("(?i)LIMIT\\s*$"), "50");
+        VALORES.put(Pattern.compile("(?i)ANY\\s*\\(\\s*$"), "'{1,2,3}'");
+        VALORES.put(Pattern.compile("(?i)ILIKE\\s*$"), "'%ana%'");
+        VALORES.put(Pattern.compile("(?i)\\bestado\\s*=\\s*$"), "'ACTIVO'");
+        VALORES.put(Pattern.compile("(?i)\\bisbn\\s*=\\s*$"), "'978-0000000042'");
+        VALORES.put(Pattern.compile("(?i)\\bemail\\s*=\\s*$"), "'usuario42@ejemplo.cl'");
+        VALORES.put(Pattern.compile("(?i)\\bid\\s*>\\s*$"), "1000");
+        VALORES.put(Pattern.compile("(?i)id\\s*=\\s*$"), "42");
+        VALORES.put(Pattern.compile("\\+\\s*$"), "7");
+    }
+
+    private static final String ANALIZAR_PLAN =
+        "SELECT (p->0->'Plan'->>'Total Cost')::float8, " +
+        "ARRAY(SELECT DISTINCT r #>> '{}' FROM jsonb_path_query(p, " +
+        "'strict $.**?(@.\"Node Type\" == \"Seq Scan\").\"Relation Name\"') AS r " +
+        "WHERE r #>> '{}' IN (SELECT relname FROM pg_class " +
+        "WHERE relnamespace = current_schema()::regnamespace AND reltuples >= ?)), " +
+        "(SELECT string_agg(concat(n->>'Node Type', '(' || (n->>'Relation Name') || ')'), ' > ') " +
+        "FROM jsonb_path_query(p, 'strict $.**?(exists(@.\"Node Type\"))') AS n), " +
+        "jsonb_pretty(p) FROM (SELECT ?::jsonb AS p) AS plan";
+
+    private static Connection connection;
+
+    @BeforeAll
+    public static void prepararEsquema() throws Exception {
+        try {
+            connection = Database.getInstance().getConnection();
+        } catch (SQLException | RuntimeException e) {
+            assumeTrue(false, "PostgreSQL no disponible: " + e.getMessage());
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE SCHEMA " + ESQUEMA);
+            stmt.execute("SET search_path TO " + ESQUEMA);
+            stmt.execute(leerRecurso("schema-functions.sql"));
+            stmt.execute(leerRecurso("schema.sql"));
+        }
+
+        // Misma semilla en cada ejecución: los datos no varían entre corridas
+        new SyntheticDataGenerator(SEMILLA, 20_000 * ESCALA, 50_000 * ESCALA, 200_000 * ESCALA, 5, LocalDate.now())
+                .generar(connection, false);
+        connection.commit();
+    }
+
+    @AfterAll
+    public static void eliminarEsquema() throws SQLException {
+        if (connection == null) {
+            return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            connection.rollback();
+            stmt.execute("DROP SCHEMA IF EXISTS " + ESQUEMA + " CASCADE");
+            stmt.execute("RESET search_path");
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testPlanesSinLecturasSecuencialesNiCostosExcesivos() throws Exception {
+        Properties esperados = new Properties();
+        try (InputStream input = QueryPlanRegressionTest.class.getClassLoader()
+                .getResourceAsStream("planes-esperados.properties")) {
+            esperados.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+        Files.createDirectories(SNAPSHOTS);
+
+        Map<String, String> sentencias = constantesSql();
+        List<String> violaciones = new ArrayList<>();
+
+        // Las tablas temporales que usan otras sentencias (libros_sync) se crean primero
+        for (Map.Entry<String, String> sentencia : sentencias.entrySet()) {
+            if (sentencia.getValue().startsWith("CREATE TEMP")) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute(sentencia.getValue());
+                }
+            }
+        }
+
+        for (Map.Entry<String, String> sentencia : sentencias.entrySet()) {
+            String nombre = sentencia.getKey();
+            if (!esPlanificable(sentencia.getValue())) {
+                continue;
+            }
+
+            Plan plan = explicar(sustituirParametros(sentencia.getValue()));
+            guardarSnapshot(nombre, plan);
+
+            if (esperados.containsKey(nombre)) {
+                continue;
+            }
+            if (!plan.lecturasSecuenciales.isEmpty()) {
+                violaciones.add(nombre + ": lectura secuencial de " + plan.lecturasSecuenciales + " [" + plan.forma + "]");
+            }
+            if (plan.costo > COSTO_MAXIMO * ESCALA) {
+                violaciones.add(String.format(Locale.ROOT, "%s: costo %.0f sobre el presupuesto de %.0f [%s]", nombre,
+                        plan.costo, COSTO_MAXIMO * ESCALA, plan.forma));
+            }
+        }
+        connection.rollback();
+
+        assertTrue(sentencias.size() > 30, "No se encontraron las constantes SQL de los repositorios");
+        if (!violaciones.isEmpty()) {
+            fail("Planes fuera de lo esperado (ver " + SNAPSHOTS + "):\n" + String.join("\n", violaciones));
+        }
+    }
+
+    private static final class Plan {
+        double costo;
+        List<String> lecturasSecuenciales = new ArrayList<>();
+        String forma;
+        String json;
+    }
+
+    private Plan explicar(String sql) throws SQLException {
+        String json;
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            rs.next();
+            json = rs.getString(1);
+        }
+
+        // PostgreSQL recorre el JSON del plan: sin biblioteca de JSON en el proyecto
+        Plan plan = new Plan();
+        try (PreparedStatement stmt = connection.prepareStatement(ANALIZAR_PLAN)) {
+            stmt.setLong(1, FILAS_TABLA_GRANDE);
+            stmt.setString(2, json);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                plan.costo = rs.getDouble(1);
+                Array tablas = rs.getArray(2);
+                for (Object tabla : (Object[]) tablas.getArray()) {
+                    plan.lecturasSecuenciales.add((String) tabla);
+                }
+                plan.forma = rs.getString(3);
+                plan.json = rs.getString(4);
+            }
+        }
+        return plan;
+    }
+
+    private void guardarSnapshot(String nombre, Plan plan) throws IOException {
+        Path archivo = SNAPSHOTS.resolve(nombre + ".json");
+        String encabezado = "-- forma: " + plan.forma;
+
+        if (Files.exists(archivo)) {
+            String anterior = Files.readAllLines(archivo, StandardCharsets.UTF_8).get(0);
+            if (!anterior.equals(encabezado)) {
+                logger.warn("Plan cambiado: {}\n  antes: {}\n  ahora: {}", nombre, anterior.substring(10),
+                        plan.forma);
+            }
+        }
+        Files.writeString(archivo, encabezado + "\n" + plan.json + "\n", StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> constantesSql() throws IllegalAccessException {
+        Map<String, String> sentencias = new LinkedHashMap<>();
+        for (Class<?> clase : REPOSITORIOS) {
+            String prefijo = clase.getSimpleName().replace("RepositoryImpl", "");
+            for (Field campo : clase.getDeclaredFields()) {
+                int modificadores = campo.getModifiers();
+                if (Modifier.isStatic(modificadores) && Modifier.isFinal(modificadores) && campo.getType() == String.class) {
+                    campo.setAccessible(true);
+                    sentencias.put(prefijo + "." + campo.getName(), ((String) campo.get(null)).strip());
+                }
+            }
+        }
+        return sentencias;
+    }
+
+    private static boolean esPlanificable(String sql) {
+        String inicio = sql.toUpperCase(Locale.ROOT);
+        return inicio.startsWith("SELECT") || inicio.startsWith("INSERT") || inicio.startsWith("UPDATE")
+                || inicio.startsWith("DELETE") || inicio.startsWith("WITH");
+    }
+
+    /**
+     * Reemplaza cada ? fuera de literales por un valor de ejemplo (NULL si no hay contexto)
+     */
+    static String sustituirParametros(String sql) {
+        StringBuilder resultado = new StringBuilder();
+        boolean enLiteral = false;
+
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                enLiteral = !enLiteral;
+            }
+            if (c != '?' || enLiteral) {
+                resultado.append(c);
+                continue;
+            }
+            String valor = "NULL";
+            for (Map.Entry<Pattern, String> entrada : VALORES.entrySet()) {
+                if (entrada.getKey().matcher(resultado).find()) {
+                    valor = entrada.getValue();
+                    break;
+                }
+            }
+            resultado.append(valor);
+        }
+        return resultado.toString();
+    }
+
+    private static String leerRecurso(String nombre) throws IOException {
+        try (InputStream input = QueryPlanRegressionTest.class.getClassLoader().getResourceAsStream(nombre)) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
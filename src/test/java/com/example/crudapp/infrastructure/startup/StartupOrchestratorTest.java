@@ -0,0 +1,34 @@
+package com.example.crudapp.infrastructure.startup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.crudapp.infrastructure.startup.StartupOrchestrator.Fase;
+
+/**
+ * Pruebas del orquestador de arranque
+ */
+public class StartupOrchestratorTest {
+
+    @Test
+    public void testCerrarNoDescartaLasFasesPendientes() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        StartupOrchestrator arranque = new StartupOrchestrator(System.nanoTime());
+
+        Fase<Integer> lenta = arranque.fase("lenta", () -> {
+            liberar.await();
+            return 1;
+        });
+        Fase<Integer> dependiente = arranque.fase("dependiente", () -> arranque.esperar(lenta) + 1, lenta);
+
+        // Como al mostrar el menú: se cierra con fases todavía en curso o esperando dependencias
+        arranque.close();
+        liberar.countDown();
+
+        int resultado = arranque.esperar(dependiente);
+        assertEquals(2, resultado);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.crudapp.infrastructure.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del histograma log-lineal de latencias
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesDentroDelErrorDeCubeta() {
+        LatencyHistogram histograma = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histograma.registrar(i * 1_000);
+        }
+
+        assertEquals(100_000, histograma.getCantidad());
+        assertCercano(50_000_000, histograma.percentil(50));
+        assertCercano(99_000_000, histograma.percentil(99));
+        assertCercano(99_900_000, histograma.percentil(99.9));
+
+        histograma.reiniciar();
+        assertEquals(0, histograma.percentil(50));
+    }
+
+    @Test
+    public void testIndiceYLimiteInferiorSonConsistentes() {
+        for (long valor = 0; valor < 1_000_000; valor += 7) {
+            int indice = LatencyHistogram.indice(valor);
+            assertTrue(LatencyHistogram.limiteInferior(indice) <= valor);
+            assertTrue(valor < LatencyHistogram.limiteInferior(indice + 1));
+        }
+    }
+
+    private void assertCercano(long esperado, long real) {
+        assertTrue(Math.abs(real - esperado) <= esperado / 16, "esperado ~" + esperado + " y fue " + real);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.crudapp.infrastructure.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas del conteo de idas y vueltas por operación
+ */
+public class RoundTripBudgetTest {
+
+    private static final String SELECT_LIBRO = "SELECT * FROM libros WHERE id = ?";
+    private static final String SELECT_PRESTAMOS = "SELECT * FROM prestamos WHERE usuario_id = ?";
+
+    @Test
+    public void testDetectaConsultaPorElemento() throws Exception {
+        StatementStats.registrar("Prueba.SELECT_LIBRO", SELECT_LIBRO);
+        Connection connection = StatementStats.instrumentar(conexionFalsa());
+
+        RoundTripBudget.Resultado resultado = RoundTripBudget.medir("listarConLibros", () -> {
+            consultar(connection, SELECT_PRESTAMOS);
+            for (int i = 0; i < 5; i++) {
+                consultar(connection, SELECT_LIBRO);
+            }
+            connection.commit();
+        });
+
+        assertEquals(6, resultado.getSentencias());
+        assertEquals(7, resultado.getIdasYVueltas());
+        assertEquals(List.of("Prueba.SELECT_LIBRO"), resultado.getCandidatosNMasUno());
+        assertThrows(IllegalStateException.class, () -> resultado.verificarMaximo(3));
+    }
+
+    @Test
+    public void testAmbitosAnidadosSumanAlExterno() throws Exception {
+        Connection connection = StatementStats.instrumentar(conexionFalsa());
+
+        RoundTripBudget.Resultado resultado = RoundTripBudget.medir("externo", () -> {
+            RoundTripBudget.abrir(() -> "interno");
+            try {
+                consultar(connection, SELECT_PRESTAMOS);
+            } finally {
+                RoundTripBudget.cerrar();
+            }
+            consultar(connection, SELECT_PRESTAMOS);
+        });
+
+        assertEquals("externo", resultado.getNombre());
+        assertEquals(2, resultado.getIdasYVueltas());
+        resultado.verificarMaximo(2);
+    }
+
+    private void consultar(Connection connection, String sql) throws Exception {
+        try (PreparedStatement stmt = connection.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                // Sin filas
+            }
+        }
+    }
+
+    // Conexión sin base de datos: las consultas no devuelven filas
+    private Connection conexionFalsa() {
+        ResultSet resultSet = proxy(ResultSet.class, null);
+        PreparedStatement statement = proxy(PreparedStatement.class, resultSet);
+        return proxy(Connection.class, statement);
+    }
+
+    private static <T> T proxy(Class<T> tipo, Object devuelto) {
+        return tipo.cast(Proxy.newProxyInstance(RoundTripBudgetTest.class.getClassLoader(), new Class<?>[] { tipo },
+                (p, method, args) -> switch (method.getName()) {
+                    case "prepareStatement", "executeQuery" -> devuelto;
+                    case "next" -> false;
+                    case "hashCode" -> System.identityHashCode(p);
+                    case "equals" -> p == args[0];
+                    default -> null;
+                }));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.crudapp.presentation.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.crudapp.domain.entities.Libro;
+import com.example.crudapp.domain.entities.Prestamo;
+import com.example.crudapp.domain.entities.Usuario;
+
+/**
+ * Pruebas del formateador de tablas
+ */
+public class TableFormatterTest {
+
+    @Test
+    public void testAnchoVisible() {
+        assertEquals(0, TableFormatter.anchoVisible(null));
+        assertEquals(7, TableFormatter.anchoVisible("Género "));
+        // "é" escrita como e + acento combinante ocupa una columna
+        assertEquals(6, TableFormatter.anchoVisible("Género"));
+        // Caracteres CJK y emoji ocupan dos columnas
+        assertEquals(4, TableFormatter.anchoVisible("三体"));
+        assertEquals(2, TableFormatter.anchoVisible("📚"));
+    }
+
+    @Test
+    public void testFilasAlineadasConUnicode() {
+        Libro latino = new Libro("Cien años de soledad", "Gabriel García Márquez", "978-0307474728", "Realismo mágico", 1967);
+        latino.setId(1L);
+        latino.setDisponible(true);
+        Libro chino = new Libro("三体", "刘慈欣", "978-7536692389", "Ciencia ficción", 2008);
+        chino.setId(12345L);
+        chino.setDisponible(false);
+
+        StringWriter salida = new StringWriter();
+        new TableFormatter(salida).mostrarTablaLibros(List.of(latino, chino));
+
+        String[] lineas = salida.toString().split(System.lineSeparator());
+        assertEquals(6, lineas.length);
+
+        int ancho = TableFormatter.anchoVisible(lineas[0]);
+        for (String linea : lineas) {
+            assertEquals(ancho, TableFormatter.anchoVisible(linea), linea);
+        }
+        assertTrue(lineas[4].startsWith("│ 12345 │ 三体 "));
+    }
+
+    @Test
+    public void testFechasYValoresNulos() {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setId(7L);
+        prestamo.setUsuarioId(3L);
+        prestamo.setLibroId(9L);
+        prestamo.setFechaPrestamo(LocalDate.of(2024, 1, 5));
+        prestamo.setFechaDevolucionEsperada(LocalDate.of(2024, 1, 20));
+        prestamo.setEstado("ACTIVO");
+
+        StringWriter salida = new StringWriter();
+        new TableFormatter(salida).mostrarTablaPrestamos(List.of(prestamo));
+
+        String fila = salida.toString().split(System.lineSeparator())[3];
+        assertEquals("│ 7    │ 3                    │ 9                              │ 2024-01-05   │ 2024-01-20   │ No devuelto  │ ACTIVO     │", fila);
+    }
+
+    @Test
+    public void testPrestamoConDetallesMuestraNombres() {
+        Usuario usuario = new Usuario("María Fernández", "maria@example.com", "555-0101");
+        usuario.setId(3L);
+        Libro libro = new Libro("Rayuela", "Julio Cortázar", "978-8437604572", "Novela", 1963);
+        libro.setId(9L);
+
+        Prestamo prestamo = new Prestamo(3L, 9L, LocalDate.of(2024, 1, 20));
+        prestamo.setId(7L);
+        prestamo.setFechaPrestamo(LocalDate.of(2024, 1, 5));
+        prestamo.setEstado("ACTIVO");
+        prestamo.setUsuario(usuario);
+        prestamo.setLibro(libro);
+
+        StringWriter salida = new StringWriter();
+        new TableFormatter(salida).mostrarTablaPrestamos(List.of(prestamo));
+
+        String[] lineas = salida.toString().split(System.lineSeparator());
+        assertTrue(lineas[1].startsWith("│ ID   │ Usuario "));
+        assertTrue(lineas[3].startsWith("│ 7    │ María Fernández      │ Rayuela "), lineas[3]);
+    }
+}